@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -99,18 +99,11 @@ public class BeanFactoryAspectInstanceFactory implements MetadataAwareAspectInst
 
 	@Override
 	public Object getAspectCreationMutex() {
-		if (this.beanFactory != null) {
-			if (this.beanFactory.isSingleton(name)) {
-				// Rely on singleton semantics provided by the factory -> no local lock.
-				return null;
-			}
-			else if (this.beanFactory instanceof ConfigurableBeanFactory) {
-				// No singleton guarantees from the factory -> let's lock locally but
-				// reuse the factory's singleton lock, just in case a lazy dependency
-				// of our advice bean happens to trigger the singleton lock implicitly...
-				return ((ConfigurableBeanFactory) this.beanFactory).getSingletonMutex();
-			}
+		if (this.beanFactory != null && this.beanFactory.isSingleton(this.name)) {
+			// Rely on singleton semantics provided by the factory -> no local lock.
+			return null;
 		}
+		// No singleton guarantees from the factory -> let's lock locally.
 		return this;
 	}
 
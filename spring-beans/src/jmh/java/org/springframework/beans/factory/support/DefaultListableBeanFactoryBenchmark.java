@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.beans.factory.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * Benchmarks for {@link DefaultListableBeanFactory#getBean}, by name and by
+ * type, with a configurable number of registered bean definitions.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"singleton", "prototype"})
+		public String scope;
+
+		@Param({"10", "1000"})
+		public int beanCount;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		@Setup
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			for (int i = 0; i < this.beanCount; i++) {
+				RootBeanDefinition bd = new RootBeanDefinition(OtherBean.class);
+				this.beanFactory.registerBeanDefinition("otherBean" + i, bd);
+			}
+			RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+			bd.setScope("prototype".equals(this.scope) ? BeanDefinition.SCOPE_PROTOTYPE : BeanDefinition.SCOPE_SINGLETON);
+			bd.getPropertyValues().add("name", "test");
+			bd.getPropertyValues().add("age", 42);
+			this.beanFactory.registerBeanDefinition("testBean", bd);
+			this.beanFactory.preInstantiateSingletons();
+		}
+	}
+
+
+	@Benchmark
+	public void getBeanByName(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.beanFactory.getBean("testBean"));
+	}
+
+	@Benchmark
+	public void getBeanByNameAndType(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.beanFactory.getBean("testBean", TestBean.class));
+	}
+
+	@Benchmark
+	public void getBeanByType(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.beanFactory.getBean(TestBean.class));
+	}
+
+
+	public static class TestBean {
+
+		private String name;
+
+		private int age;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+
+	public static class OtherBean {
+	}
+
+}
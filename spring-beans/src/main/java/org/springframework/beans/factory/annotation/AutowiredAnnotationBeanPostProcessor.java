@@ -25,6 +25,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -51,6 +52,7 @@ import org.springframework.beans.factory.UnsatisfiedDependencyException;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.support.DependencyDeterminingBeanPostProcessor;
 import org.springframework.beans.factory.support.LookupOverride;
 import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
 import org.springframework.beans.factory.support.RootBeanDefinition;
@@ -115,7 +117,8 @@ import org.springframework.util.StringUtils;
  * @see Value
  */
 public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBeanPostProcessorAdapter
-		implements MergedBeanDefinitionPostProcessor, PriorityOrdered, BeanFactoryAware {
+		implements MergedBeanDefinitionPostProcessor, DependencyDeterminingBeanPostProcessor,
+		PriorityOrdered, BeanFactoryAware {
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -235,6 +238,11 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 		}
 	}
 
+	@Override
+	public Collection<DependencyDescriptor> determineDependencies(Class<?> beanType, String beanName) {
+		return findAutowiringMetadata(beanName, beanType, null).getDependencyDescriptors();
+	}
+
 	@Override
 	public Constructor<?>[] determineCandidateConstructors(Class<?> beanClass, final String beanName)
 			throws BeanCreationException {
@@ -611,6 +619,11 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 				field.set(bean, value);
 			}
 		}
+
+		@Override
+		protected void collectDependencyDescriptors(List<DependencyDescriptor> descriptors) {
+			descriptors.add(new DependencyDescriptor((Field) this.member, this.required));
+		}
 	}
 
 
@@ -703,6 +716,14 @@ public class AutowiredAnnotationBeanPostProcessor extends InstantiationAwareBean
 			}
 		}
 
+		@Override
+		protected void collectDependencyDescriptors(List<DependencyDescriptor> descriptors) {
+			Method method = (Method) this.member;
+			for (int i = 0; i < method.getParameterTypes().length; i++) {
+				descriptors.add(new DependencyDescriptor(new MethodParameter(method, i), this.required));
+			}
+		}
+
 		private Object[] resolveCachedArguments(String beanName) {
 			if (this.cachedMethodArguments == null) {
 				return null;
@@ -21,8 +21,10 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -30,6 +32,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.util.ReflectionUtils;
 
@@ -103,6 +106,21 @@ public class InjectionMetadata {
 	}
 
 
+	/**
+	 * Return the descriptors of the dependencies that the injected elements
+	 * resolve, as far as they are known before injection.
+	 * @since 4.3.25
+	 * @see InjectedElement#collectDependencyDescriptors
+	 */
+	public Collection<DependencyDescriptor> getDependencyDescriptors() {
+		List<DependencyDescriptor> descriptors = new ArrayList<DependencyDescriptor>(this.injectedElements.size());
+		for (InjectedElement element : this.injectedElements) {
+			element.collectDependencyDescriptors(descriptors);
+		}
+		return descriptors;
+	}
+
+
 	public static boolean needsRefresh(InjectionMetadata metadata, Class<?> clazz) {
 		return (metadata == null || metadata.targetClass != clazz);
 	}
@@ -239,6 +257,14 @@ public class InjectionMetadata {
 			return null;
 		}
 
+		/**
+		 * Add descriptors for the dependencies that this element resolves to the given list.
+		 * <p>The default implementation adds none.
+		 * @since 4.3.25
+		 */
+		protected void collectDependencyDescriptors(List<DependencyDescriptor> descriptors) {
+		}
+
 		@Override
 		public boolean equals(Object other) {
 			if (this == other) {
@@ -16,6 +16,7 @@
 
 package org.springframework.beans.factory.support;
 
+import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
@@ -24,6 +25,7 @@ import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -32,6 +34,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -40,12 +44,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import javax.inject.Provider;
 
 import com.sun.istack.internal.Nullable;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -66,10 +76,14 @@ import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.BeanReference;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
+import org.springframework.core.MethodParameter;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotationUtils;
@@ -78,6 +92,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CompositeIterator;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -154,6 +169,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** 是否允许eager类加载，即使对于lazy-init bean也是如此 */
 	private boolean allowEagerClassLoading = true;
 
+	/** Optional Executor for pre-instantiating singletons in parallel */
+	private Executor bootstrapExecutor;
+
 	/** Optional OrderComparator for dependency Lists and arrays */
 	private Comparator<Object> dependencyComparator;
 
@@ -272,6 +290,43 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.allowEagerClassLoading;
 	}
 
+	/**
+	 * Set an Executor for pre-instantiating non-lazy singletons in parallel.
+	 * <p>If set, {@link #preInstantiateSingletons()} splits the singletons into
+	 * independent groups, based on the dependencies declared in their merged bean
+	 * definitions (bean references, factory beans and "depends-on" relationships)
+	 * and on the dependencies of their injection points (autowired constructor and
+	 * factory method arguments, autowired bean properties, and injection points that
+	 * a {@link DependencyDeterminingBeanPostProcessor} such as the
+	 * {@link org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor}
+	 * resolves), and instantiates each group in registration order as a task on the
+	 * given Executor. Groups containing a bean whose type cannot be determined upfront
+	 * are instantiated one at a time on the calling thread.
+	 * <p>A singleton that is obtained across groups nevertheless, e.g. through a lookup
+	 * in an initialization callback, is created by the requesting task, or awaited if
+	 * another task is creating it already. A circular reference between singletons
+	 * in creation by different tasks is resolved as if they were created one at a
+	 * time, see {@link DefaultSingletonBeanRegistry}.
+	 * <p>Disposable beans are destroyed in the same order as after sequential
+	 * pre-instantiation in registration order, apart from on-demand dependencies.
+	 * {@link SmartInitializingSingleton} callbacks are still invoked one at a time,
+	 * after all singletons have been instantiated.
+	 * <p>Default is none: singletons are pre-instantiated one at a time, in
+	 * registration order, on the calling thread.
+	 * @since 4.3.25
+	 */
+	public void setBootstrapExecutor(Executor bootstrapExecutor) {
+		this.bootstrapExecutor = bootstrapExecutor;
+	}
+
+	/**
+	 * Return the Executor for pre-instantiating singletons in parallel, if any.
+	 * @since 4.3.25
+	 */
+	public Executor getBootstrapExecutor() {
+		return this.bootstrapExecutor;
+	}
+
 	/**
 	 * Set a {@link java.util.Comparator} for dependency Lists and arrays.
 	 * @since 4.0
@@ -757,39 +812,12 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<String>(this.beanDefinitionNames);
 
 		// 触发所有非惰性单例bean的初始化...
-		for (String beanName : beanNames) {
-			//合并bean的定义
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			//bean不是抽象的类 bean是单利的 bean并不是延迟加载的
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				//如果是工厂bean
-				if (isFactoryBean(beanName)) {
-					//获取工厂bean,此时factory
-					final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
-					boolean isEagerInit;
-					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-						isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
-							@Override
-							public Boolean run() {
-								return ((SmartFactoryBean<?>) factory).isEagerInit();
-							}
-						}, getAccessControlContext());
-					}
-					else {
-						//判断下是否需要初始化bean
-						isEagerInit = (factory instanceof SmartFactoryBean &&
-								((SmartFactoryBean<?>) factory).isEagerInit());
-					}
-					//如果是SmartFactoryBean并且允许急切加载，则初始化factoryBean
-					//getObject()方法返回的bean
-					if (isEagerInit) {
-						getBean(beanName);
-					}
-				}
-				else {
-					//非工厂bean直接初始化
-					getBean(beanName);
-				}
+		if (this.bootstrapExecutor != null) {
+			preInstantiateSingletonsInParallel(beanNames, this.bootstrapExecutor);
+		}
+		else {
+			for (String beanName : beanNames) {
+				preInstantiateSingleton(beanName);
 			}
 		}
 
@@ -817,6 +845,424 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+	/**
+	 * Pre-instantiate the given singleton, if it is a non-lazy singleton:
+	 * for a FactoryBean, only the factory itself unless it asks for eager
+	 * initialization of its object.
+	 * @param beanName the name of the bean
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		//合并bean的定义
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		//bean不是抽象的类 bean是单利的 bean并不是延迟加载的
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			//如果是工厂bean
+			if (isFactoryBean(beanName)) {
+				//获取工厂bean,此时factory
+				final FactoryBean<?> factory = (FactoryBean<?>) getBean(FACTORY_BEAN_PREFIX + beanName);
+				boolean isEagerInit;
+				if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+					isEagerInit = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+						@Override
+						public Boolean run() {
+							return ((SmartFactoryBean<?>) factory).isEagerInit();
+						}
+					}, getAccessControlContext());
+				}
+				else {
+					//判断下是否需要初始化bean
+					isEagerInit = (factory instanceof SmartFactoryBean &&
+							((SmartFactoryBean<?>) factory).isEagerInit());
+				}
+				//如果是SmartFactoryBean并且允许急切加载，则初始化factoryBean
+				//getObject()方法返回的bean
+				if (isEagerInit) {
+					getBean(beanName);
+				}
+			}
+			else {
+				//非工厂bean直接初始化
+				getBean(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Pre-instantiate the given singletons on the given Executor, with one task
+	 * per group of singletons that are connected through their dependencies,
+	 * and wait for all of them to complete. Groups with undetermined dependencies
+	 * are pre-instantiated on the calling thread in the meantime.
+	 * @param beanNames the names of all beans, in registration order
+	 * @param executor the Executor to run the tasks on
+	 * @see #setBootstrapExecutor
+	 */
+	private void preInstantiateSingletonsInParallel(List<String> beanNames, Executor executor) {
+		List<String> sequentialBeanNames = new ArrayList<String>();
+		List<List<String>> groups = groupByDependencies(beanNames, sequentialBeanNames);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Pre-instantiating singletons in " + groups.size() + " independent groups on " +
+					executor + ", and " + sequentialBeanNames.size() + " singletons with undetermined dependencies " +
+					"on the calling thread");
+		}
+		long startTime = System.currentTimeMillis();
+		int disposableBeanCount = getDisposableBeanCount();
+		final Map<String, Long> creationTimes = new ConcurrentHashMap<String, Long>(beanNames.size());
+
+		List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(groups.size());
+		for (final List<String> group : groups) {
+			FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+				@Override
+				public Void call() {
+					preInstantiateSingletons(group, creationTimes);
+					return null;
+				}
+			});
+			tasks.add(task);
+			try {
+				executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				// Saturated Executor: run the task on the calling thread instead
+				task.run();
+			}
+		}
+
+		Throwable failure = null;
+		try {
+			preInstantiateSingletons(sequentialBeanNames, creationTimes);
+		}
+		catch (Throwable ex) {
+			failure = ex;
+		}
+
+		// Wait for all tasks, even after a failure, so that no singleton creation is
+		// still in progress when the caller reacts to the failure, e.g. by destroying singletons.
+		boolean interrupted = false;
+		for (FutureTask<Void> task : tasks) {
+			while (true) {
+				try {
+					task.get();
+					break;
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+				}
+				catch (ExecutionException ex) {
+					if (failure == null) {
+						failure = ex.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		// Destroy in a deterministic order, independent of the interleaving of the tasks
+		sortDisposableBeans(disposableBeanCount, beanNames);
+
+		if (failure != null) {
+			ReflectionUtils.rethrowRuntimeException(failure);
+		}
+
+		if (logger.isInfoEnabled()) {
+			logger.info("Pre-instantiated " + creationTimes.size() + " singletons in " + groups.size() +
+					" independent groups in " + (System.currentTimeMillis() - startTime) + " ms; slowest: " +
+					getSlowestCreations(creationTimes, 5));
+		}
+	}
+
+	/**
+	 * Pre-instantiate the given singletons one at a time on the current thread,
+	 * recording the creation time of each.
+	 */
+	private void preInstantiateSingletons(List<String> beanNames, Map<String, Long> creationTimes) {
+		for (String beanName : beanNames) {
+			long beanStartTime = System.currentTimeMillis();
+			preInstantiateSingleton(beanName);
+			long creationTime = System.currentTimeMillis() - beanStartTime;
+			creationTimes.put(beanName, creationTime);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Pre-instantiated singleton '" + beanName + "' in " + creationTime +
+						" ms on thread [" + Thread.currentThread().getName() + "]");
+			}
+		}
+	}
+
+	/**
+	 * Split the non-lazy singletons among the given beans into groups that are
+	 * not connected to each other through their dependencies, keeping registration
+	 * order within each group: the dependencies declared in their merged bean
+	 * definitions as well as the dependencies of their injection points.
+	 * <p>Groups that contain a bean whose dependencies cannot be determined are
+	 * not returned: their singletons are added to the given list instead, in
+	 * registration order.
+	 * @see #collectDeclaredDependencies(BeanDefinition, Set)
+	 * @see #collectInjectedDependencies
+	 */
+	private List<List<String>> groupByDependencies(List<String> beanNames, List<String> sequentialBeanNames) {
+		Map<String, String> groupLinks = new HashMap<String, String>(beanNames.size());
+		Map<Class<?>, String[]> beanNamesByType = new HashMap<Class<?>, String[]>();
+		List<String> singletonNames = new ArrayList<String>(beanNames.size());
+		List<String> undeterminedDependencyNames = new ArrayList<String>();
+		for (String beanName : beanNames) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+			if (bd.isAbstract()) {
+				continue;
+			}
+			if (bd.isSingleton() && !bd.isLazyInit()) {
+				singletonNames.add(beanName);
+			}
+			Set<String> dependencies = new LinkedHashSet<String>();
+			collectDeclaredDependencies(bd, dependencies);
+			if (!collectInjectedDependencies(beanName, bd, dependencies, beanNamesByType)) {
+				undeterminedDependencyNames.add(beanName);
+			}
+			for (String dependency : dependencies) {
+				String group = findGroup(groupLinks, beanName);
+				String dependencyGroup = findGroup(groupLinks, dependency);
+				if (!group.equals(dependencyGroup)) {
+					groupLinks.put(dependencyGroup, group);
+				}
+			}
+		}
+		Set<String> sequentialGroups = new HashSet<String>();
+		for (String beanName : undeterminedDependencyNames) {
+			sequentialGroups.add(findGroup(groupLinks, beanName));
+		}
+		Map<String, List<String>> groups = new LinkedHashMap<String, List<String>>();
+		for (String beanName : singletonNames) {
+			String group = findGroup(groupLinks, beanName);
+			if (sequentialGroups.contains(group)) {
+				sequentialBeanNames.add(beanName);
+				continue;
+			}
+			List<String> groupMembers = groups.get(group);
+			if (groupMembers == null) {
+				groupMembers = new ArrayList<String>();
+				groups.put(group, groupMembers);
+			}
+			groupMembers.add(beanName);
+		}
+		return new ArrayList<List<String>>(groups.values());
+	}
+
+	/**
+	 * Collect the names of the beans that the given bean depends on through its
+	 * injection points rather than through its bean definition: autowired constructor
+	 * or factory method arguments, autowired bean properties, and injection points
+	 * that a {@link DependencyDeterminingBeanPostProcessor} resolves, e.g. annotated
+	 * fields and methods. Any bean of a matching type is considered a dependency.
+	 * @param beanName the name of the bean
+	 * @param mbd the merged bean definition for the bean
+	 * @param dependencies the set to add the names of the dependencies to
+	 * @param beanNamesByType cache for the names of the beans of a given type
+	 * @return {@code false} if the type of the bean cannot be determined upfront,
+	 * and therefore its dependencies neither
+	 */
+	private boolean collectInjectedDependencies(String beanName, RootBeanDefinition mbd,
+			Set<String> dependencies, Map<Class<?>, String[]> beanNamesByType) {
+
+		List<DependencyDescriptor> descriptors = new ArrayList<DependencyDescriptor>();
+		int autowireMode = mbd.getResolvedAutowireMode();
+		Class<?> beanType;
+		try {
+			if (mbd.getFactoryMethodName() != null) {
+				if (autowireMode == AUTOWIRE_CONSTRUCTOR) {
+					String factoryBeanName = mbd.getFactoryBeanName();
+					Class<?> factoryClass = (factoryBeanName != null ?
+							getType(factoryBeanName) : resolveBeanClass(mbd, beanName));
+					if (factoryClass == null) {
+						return false;
+					}
+					factoryClass = ClassUtils.getUserClass(factoryClass);
+					for (Method candidate : ReflectionUtils.getUniqueDeclaredMethods(factoryClass)) {
+						if (mbd.isFactoryMethod(candidate)) {
+							addParameterDescriptors(candidate, candidate.getParameterTypes(), descriptors);
+						}
+					}
+				}
+				beanType = predictBeanType(beanName, mbd);
+			}
+			else {
+				beanType = resolveBeanClass(mbd, beanName);
+				if (beanType != null) {
+					Constructor<?>[] ctors = determineConstructorsFromBeanPostProcessors(beanType, beanName);
+					if (ctors == null && autowireMode == AUTOWIRE_CONSTRUCTOR) {
+						ctors = (mbd.isNonPublicAccessAllowed() ?
+								beanType.getDeclaredConstructors() : beanType.getConstructors());
+					}
+					if (ctors != null) {
+						for (Constructor<?> candidate : ctors) {
+							addParameterDescriptors(candidate, candidate.getParameterTypes(), descriptors);
+						}
+					}
+				}
+			}
+		}
+		catch (CannotLoadBeanClassException ex) {
+			return false;
+		}
+		if (beanType == null) {
+			return false;
+		}
+
+		if (autowireMode == AUTOWIRE_BY_NAME || autowireMode == AUTOWIRE_BY_TYPE) {
+			for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(beanType)) {
+				if (pd.getWriteMethod() != null && !isExcludedFromDependencyCheck(pd) &&
+						!mbd.getPropertyValues().contains(pd.getName()) &&
+						!BeanUtils.isSimpleProperty(pd.getPropertyType())) {
+					if (autowireMode == AUTOWIRE_BY_NAME) {
+						dependencies.add(transformedBeanName(pd.getName()));
+					}
+					else if (Object.class != pd.getPropertyType()) {
+						descriptors.add(new DependencyDescriptor(new MethodParameter(pd.getWriteMethod(), 0), false));
+					}
+				}
+			}
+		}
+		if (!mbd.isSynthetic()) {
+			for (BeanPostProcessor bp : getBeanPostProcessors()) {
+				if (bp instanceof DependencyDeterminingBeanPostProcessor) {
+					DependencyDeterminingBeanPostProcessor ddbp = (DependencyDeterminingBeanPostProcessor) bp;
+					descriptors.addAll(ddbp.determineDependencies(beanType, beanName));
+				}
+			}
+		}
+
+		for (DependencyDescriptor descriptor : descriptors) {
+			if (getAutowireCandidateResolver().getSuggestedValue(descriptor) != null) {
+				// A value to be injected, e.g. through @Value
+				continue;
+			}
+			Class<?> type = descriptor.getDependencyType();
+			if (type == javaUtilOptionalClass || type == ObjectFactory.class || type == ObjectProvider.class ||
+					type == javaxInjectProviderClass) {
+				descriptor.increaseNestingLevel();
+				type = descriptor.getDependencyType();
+			}
+			collectBeanNamesForType(type, dependencies, beanNamesByType);
+			if (type.isArray()) {
+				collectBeanNamesForType(type.getComponentType(), dependencies, beanNamesByType);
+			}
+			else if (Collection.class.isAssignableFrom(type) && type.isInterface()) {
+				collectBeanNamesForType(descriptor.getResolvableType().asCollection().resolveGeneric(),
+						dependencies, beanNamesByType);
+			}
+			else if (Map.class == type) {
+				collectBeanNamesForType(descriptor.getResolvableType().asMap().resolveGeneric(1),
+						dependencies, beanNamesByType);
+			}
+		}
+		return true;
+	}
+
+	private static void addParameterDescriptors(
+			Object methodOrCtor, Class<?>[] paramTypes, List<DependencyDescriptor> descriptors) {
+
+		for (int i = 0; i < paramTypes.length; i++) {
+			descriptors.add(new DependencyDescriptor(MethodParameter.forMethodOrConstructor(methodOrCtor, i), false));
+		}
+	}
+
+	/**
+	 * Add the names of all beans matching the given type, as far as they can be
+	 * determined without initializing any {@link FactoryBean}, to the given set.
+	 */
+	private void collectBeanNamesForType(Class<?> type, Set<String> beanNames, Map<Class<?>, String[]> cache) {
+		if (type == null) {
+			// Unresolvable element type: any bean may match
+			type = Object.class;
+		}
+		String[] result = cache.get(type);
+		if (result == null) {
+			result = getBeanNamesForType(type, true, false);
+			cache.put(type, result);
+		}
+		Collections.addAll(beanNames, result);
+	}
+
+	private static String findGroup(Map<String, String> groupLinks, String beanName) {
+		String group = beanName;
+		String next = groupLinks.get(group);
+		while (next != null) {
+			group = next;
+			next = groupLinks.get(group);
+		}
+		if (!group.equals(beanName)) {
+			// Shortcut for subsequent lookups
+			groupLinks.put(beanName, group);
+		}
+		return group;
+	}
+
+	/**
+	 * Collect the names of the beans that the given bean definition declares
+	 * dependencies on, including those of its inner bean definitions.
+	 */
+	private void collectDeclaredDependencies(BeanDefinition bd, Set<String> dependencies) {
+		if (bd.getDependsOn() != null) {
+			for (String dependsOn : bd.getDependsOn()) {
+				dependencies.add(transformedBeanName(dependsOn));
+			}
+		}
+		if (bd.getFactoryBeanName() != null) {
+			dependencies.add(transformedBeanName(bd.getFactoryBeanName()));
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValueList()) {
+			collectDeclaredDependencies(pv.getValue(), dependencies);
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getIndexedArgumentValues().values()) {
+			collectDeclaredDependencies(valueHolder.getValue(), dependencies);
+		}
+		for (ConstructorArgumentValues.ValueHolder valueHolder : cargs.getGenericArgumentValues()) {
+			collectDeclaredDependencies(valueHolder.getValue(), dependencies);
+		}
+	}
+
+	private void collectDeclaredDependencies(Object value, Set<String> dependencies) {
+		if (value instanceof BeanReference) {
+			dependencies.add(transformedBeanName(((BeanReference) value).getBeanName()));
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectDeclaredDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), dependencies);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectDeclaredDependencies((BeanDefinition) value, dependencies);
+		}
+		else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				collectDeclaredDependencies(element, dependencies);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				collectDeclaredDependencies(entry.getKey(), dependencies);
+				collectDeclaredDependencies(entry.getValue(), dependencies);
+			}
+		}
+	}
+
+	private static String getSlowestCreations(Map<String, Long> creationTimes, int limit) {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(creationTimes.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> entry1, Map.Entry<String, Long> entry2) {
+				return entry2.getValue().compareTo(entry1.getValue());
+			}
+		});
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < entries.size() && i < limit; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append("'").append(entries.get(i).getKey()).append("' (").append(entries.get(i).getValue()).append(" ms)");
+		}
+		return sb.toString();
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,18 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +38,7 @@ import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -62,6 +66,20 @@ import org.springframework.util.StringUtils;
  * (which inherit from it). Can alternatively also be used as a nested
  * helper to delegate to.
  *
+ * <p>As of 4.3.25, fully initialized singletons are looked up without any
+ * locking, and the creation of a singleton is guarded by a lock specific to
+ * that singleton rather than by a registry-wide monitor: unrelated singletons
+ * may be created by several threads concurrently, while a thread requesting a
+ * singleton that is currently being created by another thread waits for that
+ * creation to complete. Early references to a singleton in creation are only
+ * exposed to the creating thread itself, for resolving circular references.
+ * If the creating thread in turn waits for the requesting thread, i.e. in case
+ * of a circular reference between singletons that are being created by different
+ * threads, one of the threads involved continues on behalf of the thread it waits
+ * for, while all others remain blocked: as if the creation had been serialized,
+ * it resolves the circular reference through the early reference of the singleton
+ * that it requested.
+ *
  * @author Juergen Hoeller
  * @since 2.0
  * @see #registerSingleton
@@ -85,15 +103,28 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Map<String, Object> singletonObjects = new ConcurrentHashMap<String, Object>(256);
 
 	/** Cache of singleton factories: bean name --> ObjectFactory */
-	private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<String, ObjectFactory<?>>(16);
+	private final Map<String, ObjectFactory<?>> singletonFactories = new ConcurrentHashMap<String, ObjectFactory<?>>(16);
 
 	/** Cache of early singleton objects: bean name --> bean instance */
 	/**与singletonObjects不同的是，bean在创建过程中就会将该bean放到map，用于检测循环引用**/
-	private final Map<String, Object> earlySingletonObjects = new HashMap<String, Object>(16);
+	private final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<String, Object>(16);
 
 	/** Set of registered singletons, containing the bean names in registration order */
 	private final Set<String> registeredSingletons = new LinkedHashSet<String>(256);
 
+	/** Locks guarding the creation of singletons, while in use: bean name --> lock */
+	private final ConcurrentMap<String, SingletonLock> singletonLocks =
+			new ConcurrentHashMap<String, SingletonLock>(16);
+
+	/** Locks that threads are waiting for: thread --> awaited lock */
+	private final Map<Thread, SingletonLock> awaitedSingletonLocks = new HashMap<Thread, SingletonLock>(16);
+
+	/** Waiting threads allowed to continue on behalf of the owner of the awaited lock */
+	private final Set<Thread> delegatedThreads = new HashSet<Thread>(4);
+
+	/** Monitor guarding the state of the singleton locks and the threads waiting for them */
+	private final Object singletonLockMonitor = new Object();
+
 	/** Names of beans that are currently in creation */
 	private final Set<String> singletonsCurrentlyInCreation =
 			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
@@ -103,31 +134,33 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> inCreationCheckExclusions =
 			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(16));
 
-	/** List of suppressed Exceptions, available for associating related causes */
-	private Set<Exception> suppressedExceptions;
+	/** Suppressed Exceptions of the current thread's singleton creation, available for associating related causes */
+	private final ThreadLocal<Set<Exception>> suppressedExceptions =
+			new NamedThreadLocal<Set<Exception>>("Suppressed exceptions of singleton creation");
 
 	/** Flag that indicates whether we're currently within destroySingletons */
 	//指示我们当前是否在destroySingletons中的标志
-	private boolean singletonsCurrentlyInDestruction = false;
+	private volatile boolean singletonsCurrentlyInDestruction = false;
 
 	/** Disposable bean instances: bean name --> disposable instance */
 	private final Map<String, Object> disposableBeans = new LinkedHashMap<String, Object>();
 
 	/** Map between containing bean names: bean name --> Set of bean names that the bean contains */
-	private final Map<String, Set<String>> containedBeanMap = new ConcurrentHashMap<String, Set<String>>(16);
+	private final ConcurrentMap<String, Set<String>> containedBeanMap = new ConcurrentHashMap<String, Set<String>>(16);
 
 	/** Map between dependent bean names: bean name --> Set of dependent bean names */
 	/**beanName->被那些bean依赖**/
-	private final Map<String, Set<String>> dependentBeanMap = new ConcurrentHashMap<String, Set<String>>(64);
+	private final ConcurrentMap<String, Set<String>> dependentBeanMap = new ConcurrentHashMap<String, Set<String>>(64);
 	/**beanName-->bean依赖的bean**/
 	/** Map between depending bean names: bean name --> Set of bean names for the bean's dependencies */
-	private final Map<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<String, Set<String>>(64);
+	private final ConcurrentMap<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<String, Set<String>>(64);
 
 
 	@Override
 	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
 		Assert.notNull(beanName, "'beanName' must not be null");
-		synchronized (this.singletonObjects) {
+		lockSingleton(beanName);
+		try {
 			Object oldObject = this.singletonObjects.get(beanName);
 			if (oldObject != null) {
 				throw new IllegalStateException("Could not register object [" + singletonObject +
@@ -135,6 +168,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			}
 			addSingleton(beanName, singletonObject);
 		}
+		finally {
+			unlockSingleton(beanName);
+		}
 	}
 
 	/**
@@ -149,10 +185,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param singletonObject the singleton object
 	 */
 	protected void addSingleton(String beanName, Object singletonObject) {
-		synchronized (this.singletonObjects) {
-			this.singletonObjects.put(beanName, (singletonObject != null ? singletonObject : NULL_OBJECT));
-			this.singletonFactories.remove(beanName);
-			this.earlySingletonObjects.remove(beanName);
+		this.singletonObjects.put(beanName, (singletonObject != null ? singletonObject : NULL_OBJECT));
+		this.singletonFactories.remove(beanName);
+		this.earlySingletonObjects.remove(beanName);
+		synchronized (this.registeredSingletons) {
 			this.registeredSingletons.add(beanName);
 		}
 	}
@@ -167,10 +203,10 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	protected void addSingletonFactory(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(singletonFactory, "Singleton factory must not be null");
-		synchronized (this.singletonObjects) {
-			if (!this.singletonObjects.containsKey(beanName)) {
-				this.singletonFactories.put(beanName, singletonFactory);
-				this.earlySingletonObjects.remove(beanName);
+		if (!this.singletonObjects.containsKey(beanName)) {
+			this.singletonFactories.put(beanName, singletonFactory);
+			this.earlySingletonObjects.remove(beanName);
+			synchronized (this.registeredSingletons) {
 				this.registeredSingletons.add(beanName);
 			}
 		}
@@ -187,6 +223,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * reference to a currently created singleton (resolving a circular reference).
 	 * 检查已经实例化的单例并且还允许提前
 	 * 引用当前创建的单例（解析循环引用）
+	 * <p>Early references are only exposed to the thread that creates the
+	 * singleton, or that continues on its behalf; other threads do not see
+	 * the singleton until its creation has completed.
 	 * @param beanName the name of the bean to look for
 	 * @param allowEarlyReference whether early references should be created or not
 	 *                            是否允许提前创建引用
@@ -197,20 +236,22 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		Object singletonObject = this.singletonObjects.get(beanName);
 		//为null并且正在创建,为什么需要isSingletonCurrentlyInCreation
 		//出现了循环依赖再去earlySingletonObjects获取，否则继续往下走，不用解析循环依赖
-		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
-			synchronized (this.singletonObjects) {
-				//获取正在创建的singleObject,如果earlySingletonObjects存在bean则直接返回
-				singletonObject = this.earlySingletonObjects.get(beanName);
-				if (singletonObject == null && allowEarlyReference) {
-					//某些方法提前初始化的时候会调用addSingletonFactory方法将对应的ObjectFactory
-					//存储在singletonFactories
-					ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
-					if (singletonFactory != null) {
-						singletonObject = singletonFactory.getObject();
-						//用于解决循环依赖
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						this.singletonFactories.remove(beanName);
+		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName) &&
+				isSingletonLockedByCurrentThread(beanName)) {
+			//获取正在创建的singleObject,如果earlySingletonObjects存在bean则直接返回
+			singletonObject = this.earlySingletonObjects.get(beanName);
+			if (singletonObject == null && allowEarlyReference) {
+				//某些方法提前初始化的时候会调用addSingletonFactory方法将对应的ObjectFactory
+				//存储在singletonFactories
+				ObjectFactory<?> singletonFactory = this.singletonFactories.get(beanName);
+				if (singletonFactory != null) {
+					singletonObject = singletonFactory.getObject();
+					if (singletonObject == null) {
+						singletonObject = NULL_OBJECT;
 					}
+					//用于解决循环依赖
+					this.earlySingletonObjects.put(beanName, singletonObject);
+					this.singletonFactories.remove(beanName);
 				}
 			}
 		}
@@ -231,67 +272,78 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
 
-		//加锁同步
-		synchronized (this.singletonObjects) {
-			//从缓存中取出,为啥要在获取一次可能由于创建其他Bean过程中已经创建了bean并放到了singletonObjects
-			//此时只要从map中获取即可
-			Object singletonObject = this.singletonObjects.get(beanName);
-			//为空创建单例的object
-			if (singletonObject == null) {
-				//当工厂正处于销毁bean的状态下，不允许创建bean异常
-				if (this.singletonsCurrentlyInDestruction) {
-					throw new BeanCreationNotAllowedException(beanName,
-							"Singleton bean creation not allowed while singletons of this factory are in destruction " +
-							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
-				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
-				}
-				//此时如果有其他的bean依赖了该bean并进行bean的创建，抛出异常
-				beforeSingletonCreation(beanName);
-				boolean newSingleton = false;
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
-				if (recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet<Exception>();
-				}
-				try {
-					//真正创建bean的地方
-					singletonObject = singletonFactory.getObject();
-					newSingleton = true;
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject == null) {
+			//加锁同步: 只锁定当前bean,其他bean的创建不受影响
+			lockSingleton(beanName);
+			try {
+				//从缓存中取出,为啥要在获取一次可能由于创建其他Bean过程中已经创建了bean并放到了singletonObjects
+				//此时只要从map中获取即可
+				singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+					// Circular reference, possibly on behalf of a creating thread that waits for the current thread
+					singletonObject = getSingleton(beanName, true);
 				}
-				catch (IllegalStateException ex) {
-					// Has the singleton object implicitly appeared in the meantime ->
-					// if yes, proceed with it since the exception indicates that state.
-					//单例对象是否在此期间隐式出现
-					//注册bean的时候如果singleObjects已经包含bean会抛出IllegalStateException
-					//此时我们可以通过捕获异常，尝试获取一次，如果未获取到
-					singletonObject = this.singletonObjects.get(beanName);
-					if (singletonObject == null) {
-						throw ex;
+				//为空创建单例的object
+				if (singletonObject == null) {
+					//当工厂正处于销毁bean的状态下，不允许创建bean异常
+					if (this.singletonsCurrentlyInDestruction) {
+						throw new BeanCreationNotAllowedException(beanName,
+								"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+								"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
 					}
-				}
-				catch (BeanCreationException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+					}
+					//此时如果有其他的bean依赖了该bean并进行bean的创建，抛出异常
+					beforeSingletonCreation(beanName);
+					boolean newSingleton = false;
+					boolean recordSuppressedExceptions = (this.suppressedExceptions.get() == null);
 					if (recordSuppressedExceptions) {
-						for (Exception suppressedException : this.suppressedExceptions) {
-							ex.addRelatedCause(suppressedException);
+						this.suppressedExceptions.set(new LinkedHashSet<Exception>());
+					}
+					try {
+						//真正创建bean的地方
+						singletonObject = singletonFactory.getObject();
+						newSingleton = true;
+					}
+					catch (IllegalStateException ex) {
+						// Has the singleton object implicitly appeared in the meantime ->
+						// if yes, proceed with it since the exception indicates that state.
+						//单例对象是否在此期间隐式出现
+						//注册bean的时候如果singleObjects已经包含bean会抛出IllegalStateException
+						//此时我们可以通过捕获异常，尝试获取一次，如果未获取到
+						singletonObject = this.singletonObjects.get(beanName);
+						if (singletonObject == null) {
+							throw ex;
 						}
 					}
-					throw ex;
-				}
-				finally {
-					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+					catch (BeanCreationException ex) {
+						if (recordSuppressedExceptions) {
+							for (Exception suppressedException : this.suppressedExceptions.get()) {
+								ex.addRelatedCause(suppressedException);
+							}
+						}
+						throw ex;
+					}
+					finally {
+						if (recordSuppressedExceptions) {
+							this.suppressedExceptions.remove();
+						}
+						//删除掉bean正在创建中的状态
+						afterSingletonCreation(beanName);
+					}
+					if (newSingleton) {
+						//添加缓存
+						addSingleton(beanName, singletonObject);
 					}
-					//删除掉bean正在创建中的状态
-					afterSingletonCreation(beanName);
-				}
-				if (newSingleton) {
-					//添加缓存
-					addSingleton(beanName, singletonObject);
 				}
 			}
-			return (singletonObject != NULL_OBJECT ? singletonObject : null);
+			finally {
+				unlockSingleton(beanName);
+			}
 		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
 	}
 
 	/**
@@ -300,10 +352,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @param ex the Exception to register
 	 */
 	protected void onSuppressedException(Exception ex) {
-		synchronized (this.singletonObjects) {
-			if (this.suppressedExceptions != null) {
-				this.suppressedExceptions.add(ex);
-			}
+		Set<Exception> suppressedExceptions = this.suppressedExceptions.get();
+		if (suppressedExceptions != null) {
+			suppressedExceptions.add(ex);
 		}
 	}
 
@@ -311,13 +362,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * Remove the bean with the given name from the singleton cache of this factory,
 	 * to be able to clean up eager registration of a singleton if creation failed.
 	 * @param beanName the name of the bean
-	 * @see #getSingletonMutex()
 	 */
 	protected void removeSingleton(String beanName) {
-		synchronized (this.singletonObjects) {
-			this.singletonObjects.remove(beanName);
-			this.singletonFactories.remove(beanName);
-			this.earlySingletonObjects.remove(beanName);
+		this.singletonObjects.remove(beanName);
+		this.singletonFactories.remove(beanName);
+		this.earlySingletonObjects.remove(beanName);
+		synchronized (this.registeredSingletons) {
 			this.registeredSingletons.remove(beanName);
 		}
 	}
@@ -329,14 +379,14 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 
 	@Override
 	public String[] getSingletonNames() {
-		synchronized (this.singletonObjects) {
+		synchronized (this.registeredSingletons) {
 			return StringUtils.toStringArray(this.registeredSingletons);
 		}
 	}
 
 	@Override
 	public int getSingletonCount() {
-		synchronized (this.singletonObjects) {
+		synchronized (this.registeredSingletons) {
 			return this.registeredSingletons.size();
 		}
 	}
@@ -412,6 +462,78 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Return the number of disposable beans registered so far.
+	 * @since 4.3.25
+	 * @see #sortDisposableBeans
+	 */
+	int getDisposableBeanCount() {
+		synchronized (this.disposableBeans) {
+			return this.disposableBeans.size();
+		}
+	}
+
+	/**
+	 * Sort the disposable beans registered after the given number of disposable
+	 * beans according to the given bean names, e.g. in registration order after
+	 * singletons have been created by several threads concurrently. Contained
+	 * beans are sorted right ahead of their containing bean, and beans that are
+	 * neither contained in the list nor in a listed bean come first.
+	 * <p>Since disposable beans get destroyed in reverse order, this makes the
+	 * destruction order deterministic, independent of the order of creation.
+	 * Dependent beans are still destroyed before the beans they depend on.
+	 * @param fromIndex the number of disposable beans to leave in place
+	 * @param beanNames the bean names in the desired order
+	 * @since 4.3.25
+	 */
+	void sortDisposableBeans(int fromIndex, List<String> beanNames) {
+		final Map<String, Integer> positions = new HashMap<String, Integer>(beanNames.size());
+		for (int i = 0; i < beanNames.size(); i++) {
+			positions.put(beanNames.get(i), i);
+		}
+		Map<String, String> containingBeans = new HashMap<String, String>();
+		for (Map.Entry<String, Set<String>> entry : this.containedBeanMap.entrySet()) {
+			for (String containedBeanName : getBeanNameSet(this.containedBeanMap, entry.getKey())) {
+				containingBeans.put(containedBeanName, entry.getKey());
+			}
+		}
+		synchronized (this.disposableBeans) {
+			List<Map.Entry<String, Object>> entries =
+					new ArrayList<Map.Entry<String, Object>>(this.disposableBeans.entrySet());
+			if (fromIndex >= entries.size()) {
+				return;
+			}
+			List<Map.Entry<String, Object>> sortedEntries =
+					new ArrayList<Map.Entry<String, Object>>(entries.subList(fromIndex, entries.size()));
+			final Map<String, Integer> sortKeys = new HashMap<String, Integer>();
+			for (Map.Entry<String, Object> entry : sortedEntries) {
+				String beanName = entry.getKey();
+				Integer position = positions.get(beanName);
+				for (int i = 0; position == null && beanName != null && i < containingBeans.size(); i++) {
+					beanName = containingBeans.get(beanName);
+					position = positions.get(beanName);
+				}
+				sortKeys.put(entry.getKey(), (position != null ? position : -1));
+			}
+			// Stable sort: contained beans remain ahead of their containing bean
+			Collections.sort(sortedEntries, new Comparator<Map.Entry<String, Object>>() {
+				@Override
+				public int compare(Map.Entry<String, Object> entry1, Map.Entry<String, Object> entry2) {
+					return sortKeys.get(entry1.getKey()).compareTo(sortKeys.get(entry2.getKey()));
+				}
+			});
+			Map<String, Object> reordered = new LinkedHashMap<String, Object>(this.disposableBeans.size());
+			for (Map.Entry<String, Object> entry : entries.subList(0, fromIndex)) {
+				reordered.put(entry.getKey(), entry.getValue());
+			}
+			for (Map.Entry<String, Object> entry : sortedEntries) {
+				reordered.put(entry.getKey(), entry.getValue());
+			}
+			this.disposableBeans.clear();
+			this.disposableBeans.putAll(reordered);
+		}
+	}
+
 	/**
 	 * Register a containment relationship between two beans,
 	 * e.g. between an inner bean and its containing outer bean.
@@ -422,14 +544,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @see #registerDependentBean
 	 */
 	public void registerContainedBean(String containedBeanName, String containingBeanName) {
-		synchronized (this.containedBeanMap) {
-			Set<String> containedBeans = this.containedBeanMap.get(containingBeanName);
-			if (containedBeans == null) {
-				containedBeans = new LinkedHashSet<String>(8);
-				this.containedBeanMap.put(containingBeanName, containedBeans);
-			}
-			containedBeans.add(containedBeanName);
-		}
+		addToBeanNameSet(this.containedBeanMap, containingBeanName, containedBeanName);
 		registerDependentBean(containedBeanName, containingBeanName);
 	}
 
@@ -440,22 +555,45 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public void registerDependentBean(String beanName, String dependentBeanName) {
 		String canonicalName = canonicalName(beanName);
+		addToBeanNameSet(this.dependentBeanMap, canonicalName, dependentBeanName);
+		addToBeanNameSet(this.dependenciesForBeanMap, dependentBeanName, canonicalName);
+	}
 
-		synchronized (this.dependentBeanMap) {
-			Set<String> dependentBeans = this.dependentBeanMap.get(canonicalName);
-			if (dependentBeans == null) {
-				dependentBeans = new LinkedHashSet<String>(8);
-				this.dependentBeanMap.put(canonicalName, dependentBeans);
+	/**
+	 * Add the given bean name to the Set registered under the given key,
+	 * creating the Set if necessary. Each Set is guarded by its own monitor,
+	 * so that registrations for different beans do not contend with each other.
+	 */
+	private static void addToBeanNameSet(ConcurrentMap<String, Set<String>> map, String key, String beanName) {
+		while (true) {
+			Set<String> beanNames = map.get(key);
+			if (beanNames == null) {
+				Set<String> newBeanNames = new LinkedHashSet<String>(8);
+				beanNames = map.putIfAbsent(key, newBeanNames);
+				if (beanNames == null) {
+					beanNames = newBeanNames;
+				}
 			}
-			dependentBeans.add(dependentBeanName);
-		}
-		synchronized (this.dependenciesForBeanMap) {
-			Set<String> dependenciesForBean = this.dependenciesForBeanMap.get(dependentBeanName);
-			if (dependenciesForBean == null) {
-				dependenciesForBean = new LinkedHashSet<String>(8);
-				this.dependenciesForBeanMap.put(dependentBeanName, dependenciesForBean);
+			synchronized (beanNames) {
+				// Retry if the Set has been removed in the meantime
+				if (map.get(key) == beanNames) {
+					beanNames.add(beanName);
+					return;
+				}
 			}
-			dependenciesForBean.add(canonicalName);
+		}
+	}
+
+	/**
+	 * Return a snapshot of the Set registered under the given key.
+	 */
+	private static String[] getBeanNameSet(Map<String, Set<String>> map, String key) {
+		Set<String> beanNames = map.get(key);
+		if (beanNames == null) {
+			return new String[0];
+		}
+		synchronized (beanNames) {
+			return StringUtils.toStringArray(beanNames);
 		}
 	}
 
@@ -469,9 +607,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @since 4.0
 	 */
 	protected boolean isDependent(String beanName, String dependentBeanName) {
-		synchronized (this.dependentBeanMap) {
-			return isDependent(beanName, dependentBeanName, null);
-		}
+		return isDependent(beanName, dependentBeanName, null);
 	}
 
 	private boolean isDependent(String beanName, String dependentBeanName, Set<String> alreadySeen) {
@@ -479,12 +615,11 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			return false;
 		}
 		String canonicalName = canonicalName(beanName);
-		Set<String> dependentBeans = this.dependentBeanMap.get(canonicalName);
-		if (dependentBeans == null) {
-			return false;
-		}
-		if (dependentBeans.contains(dependentBeanName)) {
-			return true;
+		String[] dependentBeans = getBeanNameSet(this.dependentBeanMap, canonicalName);
+		for (String dependentBean : dependentBeans) {
+			if (dependentBean.equals(dependentBeanName)) {
+				return true;
+			}
 		}
 		for (String transitiveDependency : dependentBeans) {
 			if (alreadySeen == null) {
@@ -512,13 +647,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @return the array of dependent bean names, or an empty array if none
 	 */
 	public String[] getDependentBeans(String beanName) {
-		Set<String> dependentBeans = this.dependentBeanMap.get(beanName);
-		if (dependentBeans == null) {
-			return new String[0];
-		}
-		synchronized (this.dependentBeanMap) {
-			return StringUtils.toStringArray(dependentBeans);
-		}
+		return getBeanNameSet(this.dependentBeanMap, beanName);
 	}
 
 	/**
@@ -528,22 +657,14 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * or an empty array if none
 	 */
 	public String[] getDependenciesForBean(String beanName) {
-		Set<String> dependenciesForBean = this.dependenciesForBeanMap.get(beanName);
-		if (dependenciesForBean == null) {
-			return new String[0];
-		}
-		synchronized (this.dependenciesForBeanMap) {
-			return StringUtils.toStringArray(dependenciesForBean);
-		}
+		return getBeanNameSet(this.dependenciesForBeanMap, beanName);
 	}
 
 	public void destroySingletons() {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Destroying singletons in " + this);
 		}
-		synchronized (this.singletonObjects) {
-			this.singletonsCurrentlyInDestruction = true;
-		}
+		this.singletonsCurrentlyInDestruction = true;
 
 		String[] disposableBeanNames;
 		synchronized (this.disposableBeans) {
@@ -565,13 +686,13 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * @since 4.3.15
 	 */
 	protected void clearSingletonCache() {
-		synchronized (this.singletonObjects) {
-			this.singletonObjects.clear();
-			this.singletonFactories.clear();
-			this.earlySingletonObjects.clear();
+		this.singletonObjects.clear();
+		this.singletonFactories.clear();
+		this.earlySingletonObjects.clear();
+		synchronized (this.registeredSingletons) {
 			this.registeredSingletons.clear();
-			this.singletonsCurrentlyInDestruction = false;
 		}
+		this.singletonsCurrentlyInDestruction = false;
 	}
 
 	/**
@@ -604,14 +725,11 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	protected void destroyBean(String beanName, DisposableBean bean) {
 		// Trigger destruction of dependent beans first...
-		Set<String> dependencies;
-		synchronized (this.dependentBeanMap) {
-			// Within full synchronization in order to guarantee a disconnected Set
-			dependencies = this.dependentBeanMap.remove(beanName);
-		}
+		String[] dependencies = removeBeanNameSet(this.dependentBeanMap, beanName);
 		if (dependencies != null) {
 			if (logger.isDebugEnabled()) {
-				logger.debug("Retrieved dependent beans for bean '" + beanName + "': " + dependencies);
+				logger.debug("Retrieved dependent beans for bean '" + beanName + "': " +
+						StringUtils.arrayToCommaDelimitedString(dependencies));
 			}
 			for (String dependentBeanName : dependencies) {
 				//销毁依赖的bean
@@ -631,11 +749,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 
 		// Trigger destruction of contained beans...
 		//bean包含的bean销毁
-		Set<String> containedBeans;
-		synchronized (this.containedBeanMap) {
-			// Within full synchronization in order to guarantee a disconnected Set
-			containedBeans = this.containedBeanMap.remove(beanName);
-		}
+		String[] containedBeans = removeBeanNameSet(this.containedBeanMap, beanName);
 		if (containedBeans != null) {
 			for (String containedBeanName : containedBeans) {
 				destroySingleton(containedBeanName);
@@ -643,13 +757,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 
 		// 从其他bean的依赖项中删除已销毁的bean
-		synchronized (this.dependentBeanMap) {
-			for (Iterator<Map.Entry<String, Set<String>>> it = this.dependentBeanMap.entrySet().iterator(); it.hasNext();) {
-				Map.Entry<String, Set<String>> entry = it.next();
-				Set<String> dependenciesToClean = entry.getValue();
+		for (Map.Entry<String, Set<String>> entry : this.dependentBeanMap.entrySet()) {
+			Set<String> dependenciesToClean = entry.getValue();
+			synchronized (dependenciesToClean) {
 				dependenciesToClean.remove(beanName);
 				if (dependenciesToClean.isEmpty()) {
-					it.remove();
+					this.dependentBeanMap.remove(entry.getKey(), dependenciesToClean);
 				}
 			}
 		}
@@ -658,15 +771,247 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		this.dependenciesForBeanMap.remove(beanName);
 	}
 
+	/**
+	 * Remove the Set registered under the given key, returning a snapshot of it.
+	 * Guarantees a disconnected Set: concurrent registrations for the same key
+	 * end up in a new Set.
+	 */
+	private static String[] removeBeanNameSet(ConcurrentMap<String, Set<String>> map, String key) {
+		Set<String> beanNames = map.get(key);
+		if (beanNames == null) {
+			return null;
+		}
+		synchronized (beanNames) {
+			map.remove(key, beanNames);
+			return StringUtils.toStringArray(beanNames);
+		}
+	}
+
+
+	/**
+	 * Acquire the lock that guards the creation of the given singleton,
+	 * waiting for another thread that currently holds it.
+	 * <p>If the thread holding the lock waits for a singleton lock held by the
+	 * current thread, directly or through other threads, waiting would result
+	 * in a deadlock. In that case, one of the threads in the cycle is allowed
+	 * to continue on behalf of the owner of the lock that it waits for, holding
+	 * that lock along with it. All other threads in the cycle remain blocked until
+	 * that thread has completed, so that the singletons involved are not accessed
+	 * concurrently, just like with a single thread resolving a circular reference.
+	 * A thread requesting a singleton with an early reference is preferred.
+	 * @param beanName the name of the singleton
+	 * @since 4.3.25
+	 * @see #unlockSingleton
+	 */
+	protected final void lockSingleton(String beanName) {
+		Thread currentThread = Thread.currentThread();
+		synchronized (this.singletonLockMonitor) {
+			SingletonLock lock = this.singletonLocks.get(beanName);
+			if (lock == null) {
+				lock = new SingletonLock(beanName);
+				this.singletonLocks.put(beanName, lock);
+			}
+			if (lock.tryAcquire(currentThread)) {
+				return;
+			}
+
+			boolean interrupted = false;
+			this.awaitedSingletonLocks.put(currentThread, lock);
+			lock.waiters++;
+			try {
+				resolveCircularWait(lock);
+				while (true) {
+					boolean delegated = this.delegatedThreads.remove(currentThread);
+					if (lock.tryAcquire(currentThread)) {
+						return;
+					}
+					if (delegated) {
+						lock.addDelegate(currentThread);
+						return;
+					}
+					try {
+						this.singletonLockMonitor.wait();
+					}
+					catch (InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+			}
+			finally {
+				lock.waiters--;
+				this.awaitedSingletonLocks.remove(currentThread);
+				if (interrupted) {
+					currentThread.interrupt();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Release the lock that guards the creation of the given singleton.
+	 * <p>The lock is discarded once it is neither held nor waited for.
+	 * @param beanName the name of the singleton
+	 * @since 4.3.25
+	 * @see #lockSingleton
+	 */
+	protected final void unlockSingleton(String beanName) {
+		synchronized (this.singletonLockMonitor) {
+			SingletonLock lock = this.singletonLocks.get(beanName);
+			Assert.state(lock != null, "Singleton lock not held");
+			lock.release(Thread.currentThread());
+			if (lock.isUnused()) {
+				this.singletonLocks.remove(beanName);
+			}
+			else if (lock.owner == null && lock.waiters > 0) {
+				this.singletonLockMonitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Return whether the current thread holds the lock that guards the
+	 * creation of the given singleton, possibly on behalf of its owner.
+	 * @param beanName the name of the singleton
+	 * @since 4.3.25
+	 * @see #lockSingleton
+	 */
+	protected final boolean isSingletonLockedByCurrentThread(String beanName) {
+		SingletonLock lock = this.singletonLocks.get(beanName);
+		if (lock == null) {
+			return false;
+		}
+		Thread currentThread = Thread.currentThread();
+		if (lock.owner == currentThread) {
+			return true;
+		}
+		synchronized (this.singletonLockMonitor) {
+			return lock.isDelegate(currentThread);
+		}
+	}
+
+	/**
+	 * Determine whether the owner of the given lock, which the current thread
+	 * is about to wait for, waits for the current thread in turn, following the
+	 * chain of threads waiting for singleton locks. If so, let a thread in that
+	 * cycle continue: the first one waiting for a singleton with an early
+	 * reference, or the current thread if there is none.
+	 * <p>To be called while holding the {@code singletonLockMonitor}.
+	 */
+	private void resolveCircularWait(SingletonLock lock) {
+		Thread currentThread = Thread.currentThread();
+		List<Thread> cycle = new ArrayList<Thread>();
+		cycle.add(currentThread);
+		Thread owner = lock.owner;
+		while (owner != currentThread) {
+			SingletonLock awaitedLock = this.awaitedSingletonLocks.get(owner);
+			if (owner == null || awaitedLock == null || cycle.size() > this.awaitedSingletonLocks.size()) {
+				return;
+			}
+			cycle.add(owner);
+			owner = awaitedLock.owner;
+		}
+		Thread delegate = currentThread;
+		for (Thread thread : cycle) {
+			String awaitedBeanName = this.awaitedSingletonLocks.get(thread).beanName;
+			if (this.earlySingletonObjects.containsKey(awaitedBeanName) ||
+					this.singletonFactories.containsKey(awaitedBeanName)) {
+				delegate = thread;
+				break;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Circular reference between singletons in creation in different threads: " +
+					"letting thread '" + delegate.getName() + "' continue with singleton bean '" +
+					this.awaitedSingletonLocks.get(delegate).beanName + "' on behalf of its creating thread");
+		}
+		this.delegatedThreads.add(delegate);
+		if (delegate != currentThread) {
+			this.singletonLockMonitor.notifyAll();
+		}
+	}
+
 	/**
 	 * Exposes the singleton mutex to subclasses and external collaborators.
-	 * <p>Subclasses should synchronize on the given Object if they perform
-	 * any sort of extended singleton creation phase. In particular, subclasses
-	 * should <i>not</i> have their own mutexes involved in singleton creation,
-	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>As of 4.3.25, the mutex is not held during singleton creation anymore,
+	 * since singletons are created under {@link #lockSingleton per-bean locks}.
+	 * It must not be held while requesting a singleton: the thread creating
+	 * that singleton might need the mutex itself, which would result in a deadlock.
 	 */
 	public final Object getSingletonMutex() {
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Reentrant lock guarding the creation of a specific singleton, also held
+	 * by threads continuing on behalf of its owner. Guarded by the registry's
+	 * {@code singletonLockMonitor}, except for reading the owner.
+	 */
+	private static class SingletonLock {
+
+		final String beanName;
+
+		volatile Thread owner;
+
+		int holdCount;
+
+		int waiters;
+
+		private Map<Thread, Integer> delegates;
+
+		public SingletonLock(String beanName) {
+			this.beanName = beanName;
+		}
+
+		public boolean tryAcquire(Thread thread) {
+			if (this.owner == null) {
+				this.owner = thread;
+				this.holdCount = 1;
+				return true;
+			}
+			if (this.owner == thread) {
+				this.holdCount++;
+				return true;
+			}
+			if (isDelegate(thread)) {
+				addDelegate(thread);
+				return true;
+			}
+			return false;
+		}
+
+		public void addDelegate(Thread thread) {
+			if (this.delegates == null) {
+				this.delegates = new HashMap<Thread, Integer>(4);
+			}
+			Integer count = this.delegates.get(thread);
+			this.delegates.put(thread, (count != null ? count + 1 : 1));
+		}
+
+		public boolean isDelegate(Thread thread) {
+			return (this.delegates != null && this.delegates.containsKey(thread));
+		}
+
+		public void release(Thread thread) {
+			if (this.owner == thread) {
+				if (--this.holdCount == 0) {
+					this.owner = null;
+				}
+				return;
+			}
+			Integer count = (this.delegates != null ? this.delegates.get(thread) : null);
+			Assert.state(count != null, "Singleton lock not held by current thread");
+			if (count > 1) {
+				this.delegates.put(thread, count - 1);
+			}
+			else {
+				this.delegates.remove(thread);
+			}
+		}
+
+		public boolean isUnused() {
+			return (this.owner == null && this.waiters == 0 && (this.delegates == null || this.delegates.isEmpty()));
+		}
+	}
+
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.Collection;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+
+/**
+ * Extension of the {@link BeanPostProcessor} interface for post-processors that
+ * resolve dependencies of the beans they process, e.g. annotated injection points,
+ * exposing those dependencies ahead of bean creation.
+ *
+ * <p>{@link DefaultListableBeanFactory} uses this information for grouping its
+ * singletons when {@link DefaultListableBeanFactory#setBootstrapExecutor
+ * pre-instantiating them in parallel}, so that singletons that depend on each
+ * other through injection points are created in the same task.
+ *
+ * @author Juergen Hoeller
+ * @since 4.3.25
+ * @see DefaultListableBeanFactory#setBootstrapExecutor
+ */
+public interface DependencyDeterminingBeanPostProcessor extends BeanPostProcessor {
+
+	/**
+	 * Determine the dependencies that this post-processor resolves for the given bean.
+	 * <p>Only the declared types of the returned descriptors are taken into account:
+	 * any bean of a matching type is considered a dependency of the given bean.
+	 * @param beanType the actual type of the managed bean instance
+	 * @param beanName the name of the bean
+	 * @return the descriptors of the dependencies (never {@code null})
+	 * @throws org.springframework.beans.BeansException in case of errors
+	 */
+	Collection<DependencyDescriptor> determineDependencies(Class<?> beanType, String beanName) throws BeansException;
+
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for parallel pre-instantiation of singletons in
+ * {@link DefaultListableBeanFactory#preInstantiateSingletons()}.
+ */
+public class ParallelPreInstantiationTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	private ExecutorService executor;
+
+
+	@Before
+	public void setup() {
+		this.executor = Executors.newFixedThreadPool(3);
+		this.beanFactory.setBootstrapExecutor(this.executor);
+	}
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void independentSingletonsInstantiatedInParallel() {
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		this.beanFactory.registerBeanDefinition("bean1", barrierBean(barrier));
+		this.beanFactory.registerBeanDefinition("bean2", barrierBean(barrier));
+
+		// Only completes if both singletons are in creation at the same time
+		this.beanFactory.preInstantiateSingletons();
+
+		assertTrue(this.beanFactory.containsSingleton("bean1"));
+		assertTrue(this.beanFactory.containsSingleton("bean2"));
+	}
+
+	@Test
+	public void dependentSingletonsInstantiatedInSameTask() {
+		RootBeanDefinition bean1 = new RootBeanDefinition(ThreadRecordingBean.class);
+		bean1.getPropertyValues().add("other", new RuntimeBeanReference("bean2"));
+		this.beanFactory.registerBeanDefinition("bean1", bean1);
+		this.beanFactory.registerBeanDefinition("bean2", new RootBeanDefinition(ThreadRecordingBean.class));
+		RootBeanDefinition bean3 = new RootBeanDefinition(ThreadRecordingBean.class);
+		bean3.setDependsOn("bean1");
+		this.beanFactory.registerBeanDefinition("bean3", bean3);
+		this.beanFactory.registerAlias("bean3", "alias3");
+		RootBeanDefinition bean4 = new RootBeanDefinition(ThreadRecordingBean.class);
+		bean4.setDependsOn("alias3");
+		this.beanFactory.registerBeanDefinition("bean4", bean4);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		Thread thread = this.beanFactory.getBean("bean1", ThreadRecordingBean.class).thread;
+		assertNotSame(Thread.currentThread(), thread);
+		assertSame(thread, this.beanFactory.getBean("bean2", ThreadRecordingBean.class).thread);
+		assertSame(thread, this.beanFactory.getBean("bean3", ThreadRecordingBean.class).thread);
+		assertSame(thread, this.beanFactory.getBean("bean4", ThreadRecordingBean.class).thread);
+	}
+
+	@Test
+	public void lazyAndPrototypeBeansNotInstantiated() {
+		RootBeanDefinition lazyBean = new RootBeanDefinition(ThreadRecordingBean.class);
+		lazyBean.setLazyInit(true);
+		this.beanFactory.registerBeanDefinition("lazyBean", lazyBean);
+		RootBeanDefinition prototypeBean = new RootBeanDefinition(ThreadRecordingBean.class);
+		prototypeBean.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("prototypeBean", prototypeBean);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		assertFalse(this.beanFactory.containsSingleton("lazyBean"));
+		assertFalse(this.beanFactory.containsSingleton("prototypeBean"));
+	}
+
+	@Test
+	public void smartInitializingSingletonsInvokedAfterAllSingletons() {
+		for (int i = 0; i < 10; i++) {
+			this.beanFactory.registerBeanDefinition("bean" + i, new RootBeanDefinition(ThreadRecordingBean.class));
+		}
+		RootBeanDefinition smartBean = new RootBeanDefinition(SmartBean.class);
+		smartBean.getPropertyValues().add("expectedSingletons", 11);
+		this.beanFactory.registerBeanDefinition("smartBean", smartBean);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		assertSame(Thread.currentThread(), this.beanFactory.getBean(SmartBean.class).callbackThread);
+	}
+
+	@Test
+	public void autowiredSingletonsInstantiatedInParallelWithTheirDependencies() {
+		registerAutowiredAnnotationBeanPostProcessor();
+		CyclicBarrier barrier = new CyclicBarrier(3);
+		this.beanFactory.registerBeanDefinition("annotatedBean1", barrierBean(AnnotatedBarrierBean1.class, barrier));
+		this.beanFactory.registerBeanDefinition("annotatedBean2", barrierBean(AnnotatedBarrierBean2.class, barrier));
+		RootBeanDefinition autowiredBean = barrierBean(AutowiredBarrierBean.class, barrier);
+		autowiredBean.setAutowireMode(RootBeanDefinition.AUTOWIRE_BY_NAME);
+		this.beanFactory.registerBeanDefinition("autowiredBean", autowiredBean);
+		this.beanFactory.registerBeanDefinition("dependency1", new RootBeanDefinition(Dependency1.class));
+		this.beanFactory.registerBeanDefinition("dependency2", new RootBeanDefinition(Dependency2.class));
+		this.beanFactory.registerBeanDefinition("other", new RootBeanDefinition(ThreadRecordingBean.class));
+		RootBeanDefinition factoryMethodBean = new RootBeanDefinition(DependencyFactory.class);
+		factoryMethodBean.setFactoryMethodName("create");
+		factoryMethodBean.setAutowireMode(RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+		this.beanFactory.registerBeanDefinition("factoryMethodBean", factoryMethodBean);
+
+		// Only completes if all three barrier beans are in creation at the same time
+		this.beanFactory.preInstantiateSingletons();
+
+		Thread thread1 = this.beanFactory.getBean("annotatedBean1", ThreadRecordingBean.class).thread;
+		Thread thread2 = this.beanFactory.getBean("annotatedBean2", ThreadRecordingBean.class).thread;
+		Thread thread3 = this.beanFactory.getBean("autowiredBean", ThreadRecordingBean.class).thread;
+		assertSame(thread1, this.beanFactory.getBean("dependency1", ThreadRecordingBean.class).thread);
+		assertSame(thread1, this.beanFactory.getBean("factoryMethodBean", ThreadRecordingBean.class).thread);
+		assertSame(thread2, this.beanFactory.getBean("dependency2", ThreadRecordingBean.class).thread);
+		assertSame(thread3, this.beanFactory.getBean("other", ThreadRecordingBean.class).thread);
+		assertEquals(3, new HashSet<>(Arrays.asList(thread1, thread2, thread3)).size());
+	}
+
+	@Test
+	public void crossGroupLookupsWaitForCreatingTask() {
+		registerAutowiredAnnotationBeanPostProcessor();
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		RootBeanDefinition annotatedBean1 = barrierBean(AnnotatedBarrierBean1.class, barrier);
+		annotatedBean1.getPropertyValues().add("lookupName", "annotatedBean2");
+		this.beanFactory.registerBeanDefinition("annotatedBean1", annotatedBean1);
+		RootBeanDefinition annotatedBean2 = barrierBean(AnnotatedBarrierBean2.class, barrier);
+		annotatedBean2.getPropertyValues().add("lookupName", "annotatedBean1");
+		this.beanFactory.registerBeanDefinition("annotatedBean2", annotatedBean2);
+		this.beanFactory.registerBeanDefinition("dependency1", new RootBeanDefinition(Dependency1.class));
+		this.beanFactory.registerBeanDefinition("dependency2", new RootBeanDefinition(Dependency2.class));
+
+		// Both beans look each other up while both are in creation, in different tasks
+		this.beanFactory.preInstantiateSingletons();
+
+		AnnotatedBarrierBean bean1 = this.beanFactory.getBean("annotatedBean1", AnnotatedBarrierBean.class);
+		AnnotatedBarrierBean bean2 = this.beanFactory.getBean("annotatedBean2", AnnotatedBarrierBean.class);
+		assertNotSame(((ThreadRecordingBean) bean1).thread, ((ThreadRecordingBean) bean2).thread);
+		assertSame(bean2, bean1.lookedUp);
+		assertSame(bean1, bean2.lookedUp);
+	}
+
+	@Test
+	public void singletonsWithUndeterminedTypeInstantiatedOnCallingThread() {
+		registerAutowiredAnnotationBeanPostProcessor();
+		this.beanFactory.registerBeanDefinition("plainBean", new RootBeanDefinition(ThreadRecordingBean.class));
+		RootBeanDefinition ambiguousBean = new RootBeanDefinition(AmbiguousFactory.class);
+		ambiguousBean.setFactoryMethodName("create");
+		this.beanFactory.registerBeanDefinition("ambiguousBean", ambiguousBean);
+		RootBeanDefinition referencingBean = new RootBeanDefinition(ThreadRecordingBean.class);
+		referencingBean.getPropertyValues().add("other", new RuntimeBeanReference("ambiguousBean"));
+		this.beanFactory.registerBeanDefinition("referencingBean", referencingBean);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		assertNotSame(Thread.currentThread(), this.beanFactory.getBean("plainBean", ThreadRecordingBean.class).thread);
+		assertSame(Thread.currentThread(), this.beanFactory.getBean("ambiguousBean", ThreadRecordingBean.class).thread);
+		assertSame(Thread.currentThread(), this.beanFactory.getBean("referencingBean", ThreadRecordingBean.class).thread);
+	}
+
+	@Test
+	public void disposableBeansDestroyedInReverseRegistrationOrder() {
+		List<String> destroyed = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			RootBeanDefinition bd = new RootBeanDefinition(DisposableRecordingBean.class);
+			bd.getConstructorArgumentValues().addIndexedArgumentValue(0, destroyed);
+			// Earlier beans take longer to create
+			bd.getConstructorArgumentValues().addIndexedArgumentValue(1, 50 * (4 - i));
+			this.beanFactory.registerBeanDefinition("bean" + i, bd);
+		}
+
+		this.beanFactory.preInstantiateSingletons();
+		this.beanFactory.destroySingletons();
+
+		assertEquals(Arrays.asList("bean3", "bean2", "bean1", "bean0"), destroyed);
+	}
+
+	@Test(expected = BeanCreationException.class)
+	public void failureRethrown() {
+		this.beanFactory.registerBeanDefinition("bean1", new RootBeanDefinition(ThreadRecordingBean.class));
+		this.beanFactory.registerBeanDefinition("bean2", new RootBeanDefinition(FailingBean.class));
+		this.beanFactory.preInstantiateSingletons();
+	}
+
+
+	private void registerAutowiredAnnotationBeanPostProcessor() {
+		AutowiredAnnotationBeanPostProcessor bpp = new AutowiredAnnotationBeanPostProcessor();
+		bpp.setBeanFactory(this.beanFactory);
+		this.beanFactory.addBeanPostProcessor(bpp);
+	}
+
+	private static RootBeanDefinition barrierBean(CyclicBarrier barrier) {
+		return barrierBean(BarrierBean.class, barrier);
+	}
+
+	private static RootBeanDefinition barrierBean(Class<?> beanClass, CyclicBarrier barrier) {
+		RootBeanDefinition bd = new RootBeanDefinition(beanClass);
+		bd.getConstructorArgumentValues().addGenericArgumentValue(barrier);
+		return bd;
+	}
+
+
+	public static class BarrierBean {
+
+		public BarrierBean(CyclicBarrier barrier) throws Exception {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+
+	public static class ThreadRecordingBean {
+
+		private final Thread thread = Thread.currentThread();
+
+		private ThreadRecordingBean other;
+
+		public void setOther(ThreadRecordingBean other) {
+			this.other = other;
+		}
+	}
+
+
+	public static class Dependency1 extends ThreadRecordingBean {
+	}
+
+
+	public static class Dependency2 extends ThreadRecordingBean {
+	}
+
+
+	public static class AnnotatedBarrierBean extends ThreadRecordingBean implements BeanFactoryAware, InitializingBean {
+
+		private BeanFactory beanFactory;
+
+		private String lookupName;
+
+		private Object lookedUp;
+
+		public AnnotatedBarrierBean(CyclicBarrier barrier) throws Exception {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		public void setLookupName(String lookupName) {
+			this.lookupName = lookupName;
+		}
+
+		@Override
+		public void afterPropertiesSet() {
+			if (this.lookupName != null) {
+				this.lookedUp = this.beanFactory.getBean(this.lookupName);
+			}
+		}
+	}
+
+
+	public static class AnnotatedBarrierBean1 extends AnnotatedBarrierBean {
+
+		@Autowired
+		private Dependency1 dependency;
+
+		public AnnotatedBarrierBean1(CyclicBarrier barrier) throws Exception {
+			super(barrier);
+		}
+	}
+
+
+	public static class AnnotatedBarrierBean2 extends AnnotatedBarrierBean {
+
+		private Dependency2 dependency;
+
+		public AnnotatedBarrierBean2(CyclicBarrier barrier) throws Exception {
+			super(barrier);
+		}
+
+		@Autowired
+		public void setDependency(Dependency2 dependency) {
+			this.dependency = dependency;
+		}
+	}
+
+
+	public static class AutowiredBarrierBean extends ThreadRecordingBean {
+
+		public AutowiredBarrierBean(CyclicBarrier barrier) throws Exception {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+
+	public static class DependencyFactory {
+
+		public static ThreadRecordingBean create(Dependency1 dependency) {
+			return new ThreadRecordingBean();
+		}
+	}
+
+
+	public static class AmbiguousFactory {
+
+		public static ThreadRecordingBean create() {
+			return new ThreadRecordingBean();
+		}
+
+		public static String create(String value) {
+			return value;
+		}
+	}
+
+
+	public static class DisposableRecordingBean implements BeanNameAware, DisposableBean {
+
+		private final List<String> destroyed;
+
+		private String beanName;
+
+		public DisposableRecordingBean(List<String> destroyed, int creationTime) throws InterruptedException {
+			this.destroyed = destroyed;
+			Thread.sleep(creationTime);
+		}
+
+		@Override
+		public void setBeanName(String beanName) {
+			this.beanName = beanName;
+		}
+
+		@Override
+		public void destroy() {
+			synchronized (this.destroyed) {
+				this.destroyed.add(this.beanName);
+			}
+		}
+	}
+
+
+	public static class SmartBean implements SmartInitializingSingleton, BeanFactoryAware {
+
+		private DefaultListableBeanFactory beanFactory;
+
+		private int expectedSingletons;
+
+		private Thread callbackThread;
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = (DefaultListableBeanFactory) beanFactory;
+		}
+
+		public void setExpectedSingletons(int expectedSingletons) {
+			this.expectedSingletons = expectedSingletons;
+		}
+
+		@Override
+		public void afterSingletonsInstantiated() {
+			assertEquals(this.expectedSingletons, this.beanFactory.getSingletonCount());
+			this.callbackThread = Thread.currentThread();
+		}
+	}
+
+
+	public static class FailingBean {
+
+		public FailingBean() {
+			throw new IllegalStateException("Expected failure");
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,23 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.tests.sample.beans.DerivedTestBean;
 import org.springframework.tests.sample.beans.TestBean;
 
@@ -101,4 +114,267 @@ public class DefaultSingletonBeanRegistryTests {
 		assertTrue(beanRegistry.isDependent("c", "c"));
 	}
 
+
+	@Test
+	public void parallelCreationOfUnrelatedSingletons() throws Exception {
+		final DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> tb1 = executor.submit(() -> beanRegistry.getSingleton("tb1", () -> {
+				// Only passes if both singletons are in creation at the same time
+				await(barrier);
+				return new TestBean("tb1");
+			}));
+			Future<Object> tb2 = executor.submit(() -> beanRegistry.getSingleton("tb2", () -> {
+				await(barrier);
+				return new TestBean("tb2");
+			}));
+			assertEquals("tb1", ((TestBean) tb1.get(10, TimeUnit.SECONDS)).getName());
+			assertEquals("tb2", ((TestBean) tb2.get(10, TimeUnit.SECONDS)).getName());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(2, beanRegistry.getSingletonCount());
+	}
+
+	@Test
+	public void concurrentRequestWaitsForSingletonCreation() throws Exception {
+		final DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		final CountDownLatch inCreation = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final AtomicInteger creationCount = new AtomicInteger();
+		final ObjectFactory<Object> factory = () -> {
+			creationCount.incrementAndGet();
+			inCreation.countDown();
+			await(proceed);
+			return new TestBean();
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> first = executor.submit(() -> beanRegistry.getSingleton("tb", factory));
+			assertTrue(inCreation.await(5, TimeUnit.SECONDS));
+			Future<Object> second = executor.submit(() -> beanRegistry.getSingleton("tb", factory));
+			assertNull("Early reference must not be exposed to other threads", beanRegistry.getSingleton("tb"));
+			proceed.countDown();
+			assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, creationCount.get());
+	}
+
+	@Test
+	public void circularReferenceBetweenSingletonsInCreationInDifferentThreads() throws Exception {
+		final DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> a = executor.submit(new CircularReferenceCreation(beanRegistry, barrier, "a", "b"));
+			Future<Object> b = executor.submit(new CircularReferenceCreation(beanRegistry, barrier, "b", "a"));
+			// One thread continues with the early reference on behalf of the other one
+			TestBean tbA = (TestBean) a.get(10, TimeUnit.SECONDS);
+			TestBean tbB = (TestBean) b.get(10, TimeUnit.SECONDS);
+			assertSame(tbA, beanRegistry.getSingleton("a"));
+			assertSame(tbB, beanRegistry.getSingleton("b"));
+			assertSame(tbB, tbA.getSpouse());
+			assertSame(tbA, tbB.getSpouse());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void circularReferenceBetweenSingletonsWithoutEarlyReference() throws Exception {
+		final DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// "a" requests "b" before exposing an early reference, like for constructor injection
+			Future<Object> a = executor.submit(() -> beanRegistry.getSingleton("a", () -> {
+				TestBean tb = new TestBean("a");
+				await(barrier);
+				tb.setSpouse((TestBean) beanRegistry.getSingleton("b", () -> new TestBean("b")));
+				return tb;
+			}));
+			Future<Object> b = executor.submit(new CircularReferenceCreation(beanRegistry, barrier, "b", "a"));
+			// The thread requesting "b", which has an early reference, continues
+			TestBean tbA = (TestBean) a.get(10, TimeUnit.SECONDS);
+			TestBean tbB = (TestBean) b.get(10, TimeUnit.SECONDS);
+			assertSame(tbB, tbA.getSpouse());
+			assertSame(tbA, tbB.getSpouse());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void circularReferenceBetweenLazySingletonsInDifferentThreads() throws Exception {
+		final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		RootBeanDefinition bd1 = new RootBeanDefinition(TestBean.class);
+		bd1.getPropertyValues().add("spouse", new RuntimeBeanReference("tb2"));
+		beanFactory.registerBeanDefinition("tb1", bd1);
+		RootBeanDefinition bd2 = new RootBeanDefinition(TestBean.class);
+		bd2.getPropertyValues().add("spouse", new RuntimeBeanReference("tb1"));
+		beanFactory.registerBeanDefinition("tb2", bd2);
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		beanFactory.addBeanPostProcessor(new InstantiationAwareBeanPostProcessorAdapter() {
+			@Override
+			public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+				// Both beans instantiated before either requests the other one
+				await(barrier);
+				return true;
+			}
+		});
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> tb1 = executor.submit(() -> beanFactory.getBean("tb1"));
+			Future<Object> tb2 = executor.submit(() -> beanFactory.getBean("tb2"));
+			assertSame(tb2.get(10, TimeUnit.SECONDS), ((TestBean) tb1.get(10, TimeUnit.SECONDS)).getSpouse());
+			assertSame(tb1.get(), ((TestBean) tb2.get()).getSpouse());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void suppressedExceptionsRecordedPerThread() throws Exception {
+		final DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> a = executor.submit(new SuppressedExceptionCreation(beanRegistry, barrier, "a"));
+			Future<Object> b = executor.submit(new SuppressedExceptionCreation(beanRegistry, barrier, "b"));
+			for (Object result : new Object[] {getOrFailure(a), getOrFailure(b)}) {
+				BeanCreationException ex = (BeanCreationException) result;
+				assertEquals(1, ex.getRelatedCauses().length);
+				assertEquals(ex.getBeanName(), ex.getRelatedCauses()[0].getMessage());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void earlyReferenceExposedToCreatingThreadOnly() throws Exception {
+		final DefaultSingletonBeanRegistry beanRegistry = new DefaultSingletonBeanRegistry();
+		final TestBean tb = new TestBean();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Object result = beanRegistry.getSingleton("tb", () -> {
+				beanRegistry.addSingletonFactory("tb", () -> tb);
+				Future<Object> otherThread = executor.submit(() -> beanRegistry.getSingleton("tb"));
+				try {
+					assertNull(otherThread.get(10, TimeUnit.SECONDS));
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+				assertSame(tb, beanRegistry.getSingleton("tb"));
+				return tb;
+			});
+			assertSame(tb, result);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	private static Object getOrFailure(Future<Object> future) throws Exception {
+		try {
+			return future.get(10, TimeUnit.SECONDS);
+		}
+		catch (ExecutionException ex) {
+			return ex.getCause();
+		}
+	}
+
+	private static void await(CyclicBarrier barrier) {
+		try {
+			barrier.await(5, TimeUnit.SECONDS);
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		}
+		catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+
+	private static class CircularReferenceCreation implements Callable<Object> {
+
+		private final DefaultSingletonBeanRegistry beanRegistry;
+
+		private final CyclicBarrier barrier;
+
+		private final String beanName;
+
+		private final String otherBeanName;
+
+		public CircularReferenceCreation(DefaultSingletonBeanRegistry beanRegistry, CyclicBarrier barrier,
+				String beanName, String otherBeanName) {
+
+			this.beanRegistry = beanRegistry;
+			this.barrier = barrier;
+			this.beanName = beanName;
+			this.otherBeanName = otherBeanName;
+		}
+
+		@Override
+		public Object call() {
+			return this.beanRegistry.getSingleton(this.beanName, () -> {
+				TestBean tb = new TestBean(this.beanName);
+				this.beanRegistry.addSingletonFactory(this.beanName, () -> tb);
+				// Both singletons in creation before either requests the other one
+				await(this.barrier);
+				tb.setSpouse((TestBean) this.beanRegistry.getSingleton(
+						this.otherBeanName, () -> new TestBean(this.otherBeanName)));
+				return tb;
+			});
+		}
+	}
+
+
+	private static class SuppressedExceptionCreation implements Callable<Object> {
+
+		private final DefaultSingletonBeanRegistry beanRegistry;
+
+		private final CyclicBarrier barrier;
+
+		private final String beanName;
+
+		public SuppressedExceptionCreation(DefaultSingletonBeanRegistry beanRegistry, CyclicBarrier barrier,
+				String beanName) {
+
+			this.beanRegistry = beanRegistry;
+			this.barrier = barrier;
+			this.beanName = beanName;
+		}
+
+		@Override
+		public Object call() {
+			return this.beanRegistry.getSingleton(this.beanName, () -> {
+				this.beanRegistry.onSuppressedException(new IllegalStateException(this.beanName));
+				// Both creations record their suppressed exception before either one fails
+				await(this.barrier);
+				throw new BeanCreationException(this.beanName, "Failed");
+			});
+		}
+	}
+
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+/**
+ * Annotation {@link javax.annotation.processing.Processor Processor} that writes
+ * a {@code META-INF/spring.components} file with the candidate components of
+ * the compiled sources, so that they can be looked up at runtime without
+ * scanning the classpath.
+ *
+ * <p>A type is a candidate if it is annotated with a stereotype annotation that
+ * is itself flagged with {@code @Indexed} (such as {@code @Component} and its
+ * specializations), if it extends or implements a type flagged with
+ * {@code @Indexed}, or if it is annotated with a {@code javax.*} annotation
+ * (such as {@code @Named} or {@code @ManagedBean}).
+ *
+ * <p>When an existing index is found in the output location, e.g. with an
+ * incremental compilation, the entries of types that still exist but were not
+ * part of the compilation are retained.
+ *
+ * @since 4.3.25
+ */
+@SupportedAnnotationTypes("*")
+public class CandidateComponentsIndexer extends AbstractProcessor {
+
+	private static final Set<ElementKind> TYPE_KINDS =
+			new HashSet<ElementKind>(Arrays.asList(ElementKind.CLASS, ElementKind.INTERFACE));
+
+	private final SortedMap<String, Set<String>> metadata = new TreeMap<String, Set<String>>();
+
+	private final Set<String> processedTypes = new HashSet<String>();
+
+	private MetadataStore metadataStore;
+
+	private TypeHelper typeHelper;
+
+	private List<StereotypesProvider> stereotypesProviders;
+
+	private SortedMap<String, String> previousMetadata;
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public synchronized void init(ProcessingEnvironment env) {
+		super.init(env);
+		this.typeHelper = new TypeHelper(env);
+		this.metadataStore = new MetadataStore(env);
+		this.stereotypesProviders = getStereotypesProviders();
+		this.previousMetadata = this.metadataStore.readMetadata();
+	}
+
+	private List<StereotypesProvider> getStereotypesProviders() {
+		List<StereotypesProvider> result = new ArrayList<StereotypesProvider>();
+		result.add(new IndexedStereotypesProvider(this.typeHelper));
+		result.add(new StandardStereotypesProvider(this.typeHelper));
+		return result;
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getRootElements()) {
+			processElement(element);
+		}
+		if (roundEnv.processingOver()) {
+			writeMetadata();
+		}
+		return false;
+	}
+
+	private void processElement(Element element) {
+		if (TYPE_KINDS.contains(element.getKind())) {
+			String type = this.typeHelper.getType(element);
+			this.processedTypes.add(type);
+			Set<String> stereotypes = new LinkedHashSet<String>();
+			for (StereotypesProvider provider : this.stereotypesProviders) {
+				stereotypes.addAll(provider.getStereotypes(element));
+			}
+			if (!stereotypes.isEmpty()) {
+				this.metadata.put(type, new TreeSet<String>(stereotypes));
+			}
+		}
+		for (Element enclosedElement : element.getEnclosedElements()) {
+			if (enclosedElement instanceof TypeElement) {
+				processElement(enclosedElement);
+			}
+		}
+	}
+
+	private void writeMetadata() {
+		mergePreviousMetadata();
+		try {
+			this.metadataStore.writeMetadata(this.metadata);
+		}
+		catch (IOException ex) {
+			this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Failed to write candidate components index: " + ex);
+		}
+	}
+
+	private void mergePreviousMetadata() {
+		if (this.previousMetadata == null) {
+			return;
+		}
+		for (Map.Entry<String, String> entry : this.previousMetadata.entrySet()) {
+			String type = entry.getKey();
+			if (!this.processedTypes.contains(type) && !this.metadata.containsKey(type) && typeExists(type)) {
+				Set<String> stereotypes = new TreeSet<String>();
+				for (String stereotype : entry.getValue().split(",")) {
+					if (stereotype.trim().length() > 0) {
+						stereotypes.add(stereotype.trim());
+					}
+				}
+				this.metadata.put(type, stereotypes);
+			}
+		}
+	}
+
+	private boolean typeExists(String type) {
+		try {
+			return (this.processingEnv.getElementUtils().getTypeElement(type.replace('$', '.')) != null);
+		}
+		catch (Exception ex) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Store {@link CandidateComponentsIndexer} metadata, i.e. the
+ * {@code META-INF/spring.components} file, on the filesystem.
+ *
+ * <p>Entries are written sorted by type, one per line, in the
+ * {@link java.util.Properties} format, with no timestamp: the output of
+ * two compilations of the same sources is therefore identical.
+ *
+ * @since 4.3.25
+ */
+class MetadataStore {
+
+	static final String METADATA_PATH = "META-INF/spring.components";
+
+	private static final String CHARSET = "ISO-8859-1";
+
+	private final ProcessingEnvironment environment;
+
+
+	MetadataStore(ProcessingEnvironment environment) {
+		this.environment = environment;
+	}
+
+
+	/**
+	 * Read the metadata generated by a previous compilation, if any.
+	 * @return the stereotypes per type, or {@code null} if none could be read
+	 */
+	public SortedMap<String, String> readMetadata() {
+		try {
+			return readMetadata(getMetadataResource().openInputStream());
+		}
+		catch (IOException ex) {
+			// Failed to read metadata -> ignore.
+			return null;
+		}
+	}
+
+	/**
+	 * Write the given metadata, replacing any existing content.
+	 * @param metadata the stereotypes per type
+	 */
+	public void writeMetadata(SortedMap<String, Set<String>> metadata) throws IOException {
+		if (!metadata.isEmpty()) {
+			FileObject resource = createMetadataResource();
+			OutputStream out = resource.openOutputStream();
+			Writer writer = new OutputStreamWriter(out, CHARSET);
+			try {
+				for (Map.Entry<String, Set<String>> entry : metadata.entrySet()) {
+					writer.write(entry.getKey());
+					writer.write('=');
+					boolean first = true;
+					for (String stereotype : entry.getValue()) {
+						if (!first) {
+							writer.write(',');
+						}
+						writer.write(stereotype);
+						first = false;
+					}
+					writer.write('\n');
+				}
+			}
+			finally {
+				writer.close();
+			}
+		}
+	}
+
+
+	private SortedMap<String, String> readMetadata(InputStream in) throws IOException {
+		try {
+			SortedMap<String, String> metadata = new TreeMap<String, String>();
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, CHARSET));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				int separator = line.indexOf('=');
+				if (separator > 0 && !line.startsWith("#")) {
+					metadata.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+				}
+			}
+			return metadata;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private FileObject getMetadataResource() throws IOException {
+		try {
+			return this.environment.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+		}
+		catch (IllegalArgumentException ex) {
+			// Some Filer implementations reject an empty package name.
+			throw new FileNotFoundException(METADATA_PATH);
+		}
+	}
+
+	private FileObject createMetadataResource() throws IOException {
+		return this.environment.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", METADATA_PATH);
+	}
+
+}
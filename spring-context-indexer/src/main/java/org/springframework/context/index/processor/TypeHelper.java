@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * Type utilities.
+ *
+ * @since 4.3.25
+ */
+class TypeHelper {
+
+	private final ProcessingEnvironment env;
+
+	private final Types types;
+
+
+	TypeHelper(ProcessingEnvironment env) {
+		this.env = env;
+		this.types = env.getTypeUtils();
+	}
+
+
+	/**
+	 * Return the fully qualified name of the given element, using the binary
+	 * name (i.e. '$' as a separator) for nested types.
+	 */
+	public String getType(Element element) {
+		return getType(element != null ? element.asType() : null);
+	}
+
+	public String getType(AnnotationMirror annotation) {
+		return getType(annotation != null ? annotation.getAnnotationType() : null);
+	}
+
+	public String getType(TypeMirror type) {
+		if (type == null) {
+			return null;
+		}
+		if (type instanceof DeclaredType) {
+			DeclaredType declaredType = (DeclaredType) type;
+			Element enclosingElement = declaredType.asElement().getEnclosingElement();
+			if (enclosingElement instanceof TypeElement) {
+				return getQualifiedName(enclosingElement) + "$" + declaredType.asElement().getSimpleName();
+			}
+			else {
+				return getQualifiedName(declaredType.asElement());
+			}
+		}
+		return type.toString();
+	}
+
+	private String getQualifiedName(Element element) {
+		if (element instanceof TypeElement) {
+			Element enclosingElement = element.getEnclosingElement();
+			if (enclosingElement instanceof TypeElement) {
+				return getQualifiedName(enclosingElement) + "$" + element.getSimpleName();
+			}
+			return ((TypeElement) element).getQualifiedName().toString();
+		}
+		throw new IllegalStateException("Could not extract qualified name from " + element);
+	}
+
+	/**
+	 * Return the super class of the specified {@link Element} or {@code null}
+	 * if this {@code element} represents {@link Object}.
+	 */
+	public Element getSuperClass(Element element) {
+		List<? extends TypeMirror> superTypes = this.types.directSupertypes(element.asType());
+		if (superTypes.isEmpty()) {
+			return null;  // reached java.lang.Object
+		}
+		return this.types.asElement(superTypes.get(0));
+	}
+
+	/**
+	 * Return the interfaces that are <strong>directly</strong> implemented by
+	 * the specified {@link Element} or an empty list if this {@code element}
+	 * does not implement any interface.
+	 */
+	public List<Element> getDirectInterfaces(Element element) {
+		List<? extends TypeMirror> superTypes = this.types.directSupertypes(element.asType());
+		if (superTypes.size() <= 1) {
+			return Collections.emptyList();
+		}
+		List<Element> directInterfaces = new ArrayList<Element>();
+		for (int i = 1; i < superTypes.size(); i++) {
+			TypeMirror superType = superTypes.get(i);
+			if (superType.getKind() == TypeKind.DECLARED) {
+				directInterfaces.add(this.types.asElement(superType));
+			}
+		}
+		return directInterfaces;
+	}
+
+	public List<? extends AnnotationMirror> getAllAnnotationMirrors(Element element) {
+		try {
+			return this.env.getElementUtils().getAllAnnotationMirrors(element);
+		}
+		catch (Exception ex) {
+			// This may fail if one of the annotations is not available.
+			return Collections.emptyList();
+		}
+	}
+
+}
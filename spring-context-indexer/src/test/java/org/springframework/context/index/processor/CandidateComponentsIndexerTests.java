@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexer}.
+ */
+public class CandidateComponentsIndexerTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File sourceDir;
+
+	private File outputDir;
+
+
+	@Before
+	public void setup() throws IOException {
+		this.sourceDir = this.temporaryFolder.newFolder("src");
+		this.outputDir = this.temporaryFolder.newFolder("classes");
+	}
+
+
+	@Test
+	public void noCandidate() throws IOException {
+		compile(source("sample.Plain", "public class Plain {}"));
+		assertFalse(indexFile().exists());
+	}
+
+	@Test
+	public void stereotypeOnType() throws IOException {
+		compile(source("sample.Foo", "@org.springframework.stereotype.Component public class Foo {}"));
+		assertEquals("org.springframework.stereotype.Component", readIndex().getProperty("sample.Foo"));
+	}
+
+	@Test
+	public void metaStereotypeOnType() throws IOException {
+		compile(source("sample.Foo", "@org.springframework.stereotype.Service public class Foo {}"),
+				source("sample.Bar", "@org.springframework.context.annotation.Configuration public class Bar {}"));
+		Properties index = readIndex();
+		assertEquals("org.springframework.stereotype.Component", index.getProperty("sample.Foo"));
+		assertEquals("org.springframework.stereotype.Component", index.getProperty("sample.Bar"));
+	}
+
+	@Test
+	public void customIndexedAnnotation() throws IOException {
+		compile(source("sample.Custom",
+						"@org.springframework.stereotype.Indexed " +
+						"@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME) " +
+						"public @interface Custom {}"),
+				source("sample.Foo", "@Custom public class Foo {}"));
+		Properties index = readIndex();
+		assertEquals("sample.Custom", index.getProperty("sample.Foo"));
+		assertNull(index.getProperty("sample.Custom"));
+	}
+
+	@Test
+	public void indexedInterface() throws IOException {
+		compile(source("sample.Repo", "@org.springframework.stereotype.Indexed public interface Repo {}"),
+				source("sample.Base", "public abstract class Base implements Repo {}"),
+				source("sample.Foo", "public class Foo extends Base {}"));
+		Properties index = readIndex();
+		assertEquals("sample.Repo", index.getProperty("sample.Repo"));
+		assertEquals("sample.Repo", index.getProperty("sample.Base"));
+		assertEquals("sample.Repo", index.getProperty("sample.Foo"));
+	}
+
+	@Test
+	public void javaxAnnotation() throws IOException {
+		compile(source("sample.Foo", "@javax.inject.Named public class Foo {}"),
+				source("sample.Bar", "@javax.inject.Named @org.springframework.stereotype.Component public class Bar {}"));
+		Properties index = readIndex();
+		assertEquals("javax.inject.Named", index.getProperty("sample.Foo"));
+		assertEquals("javax.inject.Named,org.springframework.stereotype.Component", index.getProperty("sample.Bar"));
+	}
+
+	@Test
+	public void nestedType() throws IOException {
+		compile(source("sample.Outer", "public class Outer { " +
+				"@org.springframework.stereotype.Component public static class Inner {} }"));
+		Properties index = readIndex();
+		assertEquals("org.springframework.stereotype.Component", index.getProperty("sample.Outer$Inner"));
+		assertNull(index.getProperty("sample.Outer"));
+	}
+
+	@Test
+	public void incrementalCompilationRetainsExistingEntries() throws IOException {
+		File foo = source("sample.Foo", "@org.springframework.stereotype.Component public class Foo {}");
+		File bar = source("sample.Bar", "@org.springframework.stereotype.Component public class Bar {}");
+		compile(foo, bar);
+
+		// Recompile Bar only, without its stereotype
+		bar = source("sample.Bar", "public class Bar {}");
+		compile(bar);
+
+		Properties index = readIndex();
+		assertEquals("org.springframework.stereotype.Component", index.getProperty("sample.Foo"));
+		assertNull(index.getProperty("sample.Bar"));
+	}
+
+
+	private File source(String className, String body) throws IOException {
+		int index = className.lastIndexOf('.');
+		File file = new File(this.sourceDir, className.replace('.', File.separatorChar) + ".java");
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("package " + className.substring(0, index) + ";\n" + body + "\n");
+		}
+		finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private void compile(File... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(Arrays.asList(sources));
+			String classpath = this.outputDir.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+			List<String> options = new ArrayList<String>(Arrays.asList(
+					"-d", this.outputDir.getPath(), "-classpath", classpath, "-encoding", "UTF-8"));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+			task.setProcessors(Collections.singletonList(new CandidateComponentsIndexer()));
+			assertTrue("Compilation failed", task.call());
+		}
+		finally {
+			fileManager.close();
+		}
+	}
+
+	private File indexFile() {
+		return new File(this.outputDir, MetadataStore.METADATA_PATH);
+	}
+
+	private Properties readIndex() throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(indexFile());
+		try {
+			properties.load(in);
+		}
+		finally {
+			in.close();
+		}
+		return properties;
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.index.CandidateComponentsTestClassLoader;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Benchmarks for {@link ClassPathScanningCandidateComponentProvider#findCandidateComponents},
+ * scanning the classpath or reading the candidates from a {@code META-INF/spring.components}
+ * index. The index is built in the setup from the result of a regular scan.
+ * A scan of the {@code org.springframework} package stands in for a large application.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassPathScanningCandidateComponentProviderBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"example.scannable", "org.springframework"})
+		public String basePackage;
+
+		@Param({"scan", "index"})
+		public String mode;
+
+		public ResourceLoader resourceLoader;
+
+		private File indexFile;
+
+		@Setup
+		public void setup() throws IOException {
+			ClassLoader classLoader = getClass().getClassLoader();
+			if ("index".equals(this.mode)) {
+				ClassPathScanningCandidateComponentProvider provider =
+						new ClassPathScanningCandidateComponentProvider(true);
+				provider.setResourceLoader(new DefaultResourceLoader(
+						CandidateComponentsTestClassLoader.disableIndex(classLoader)));
+				Properties index = new Properties();
+				for (BeanDefinition candidate : provider.findCandidateComponents(this.basePackage)) {
+					index.setProperty(candidate.getBeanClassName(), "org.springframework.stereotype.Component");
+				}
+				this.indexFile = File.createTempFile("spring", ".components");
+				OutputStream out = new FileOutputStream(this.indexFile);
+				try {
+					index.store(out, null);
+				}
+				finally {
+					out.close();
+				}
+				classLoader = CandidateComponentsTestClassLoader.index(classLoader, new FileSystemResource(this.indexFile));
+			}
+			else {
+				classLoader = CandidateComponentsTestClassLoader.disableIndex(classLoader);
+			}
+			this.resourceLoader = new DefaultResourceLoader(classLoader);
+		}
+
+		@TearDown
+		public void tearDown() {
+			if (this.indexFile != null) {
+				this.indexFile.delete();
+			}
+		}
+	}
+
+
+	@Benchmark
+	public void findCandidateComponents(BenchmarkData data, Blackhole bh) {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(data.resourceLoader);
+		bh.consume(provider.findCandidateComponents(data.basePackage));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -68,6 +68,15 @@ public interface ConfigurableApplicationContext extends ApplicationContext, Life
 	 */
 	String LOAD_TIME_WEAVER_BEAN_NAME = "loadTimeWeaver";
 
+	/**
+	 * Name of the bootstrap {@link java.util.concurrent.Executor} bean in the factory.
+	 * If such a bean is supplied, the context pre-instantiates its non-lazy singletons
+	 * in parallel on it, provided that the bean factory supports it.
+	 * @since 4.3.25
+	 * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#setBootstrapExecutor
+	 */
+	String BOOTSTRAP_EXECUTOR_BEAN_NAME = "bootstrapExecutor";
+
 	/**
 	 * Name of the {@link Environment} bean in the factory.
 	 * @since 3.1
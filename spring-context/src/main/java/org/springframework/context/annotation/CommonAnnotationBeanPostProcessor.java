@@ -28,10 +28,12 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -60,6 +62,7 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.EmbeddedValueResolver;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.DependencyDeterminingBeanPostProcessor;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.core.MethodParameter;
@@ -140,7 +143,8 @@ import org.springframework.util.StringValueResolver;
  */
 @SuppressWarnings("serial")
 public class CommonAnnotationBeanPostProcessor extends InitDestroyAnnotationBeanPostProcessor
-		implements InstantiationAwareBeanPostProcessor, BeanFactoryAware, Serializable {
+		implements InstantiationAwareBeanPostProcessor, DependencyDeterminingBeanPostProcessor,
+		BeanFactoryAware, Serializable {
 
 	// Common Annotations 1.1 Resource.lookup() available? Not present on JDK 6...
 	private static final Method lookupAttribute = ClassUtils.getMethodIfAvailable(Resource.class, "lookup");
@@ -299,6 +303,11 @@ public class CommonAnnotationBeanPostProcessor extends InitDestroyAnnotationBean
 		}
 	}
 
+	@Override
+	public Collection<DependencyDescriptor> determineDependencies(Class<?> beanType, String beanName) {
+		return findResourceMetadata(beanName, beanType, null).getDependencyDescriptors();
+	}
+
 	@Override
 	public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
 		return null;
@@ -626,6 +635,14 @@ public class CommonAnnotationBeanPostProcessor extends InitDestroyAnnotationBean
 			return (this.lazyLookup ? buildLazyResourceProxy(this, requestingBeanName) :
 					getResource(this, requestingBeanName));
 		}
+
+		@Override
+		protected void collectDependencyDescriptors(List<DependencyDescriptor> descriptors) {
+			// Only resources that are looked up in the resource factory right away
+			if (!this.lazyLookup && !StringUtils.hasLength(this.mappedName) && !alwaysUseJndiLookup) {
+				descriptors.add(getDependencyDescriptor());
+			}
+		}
 	}
 
 
@@ -71,7 +71,10 @@ public abstract class AbstractApplicationEventMulticaster
 
 	private BeanFactory beanFactory;
 
-	private Object retrievalMutex = this.defaultRetriever;
+	private final Object retrievalMutex = this.defaultRetriever;
+
+	/** Number of listener registration changes, guarded by the retrieval mutex */
+	private int listenerModificationCount;
 
 
 	@Override
@@ -87,7 +90,6 @@ public abstract class AbstractApplicationEventMulticaster
 			if (this.beanClassLoader == null) {
 				this.beanClassLoader = cbf.getBeanClassLoader();
 			}
-			this.retrievalMutex = cbf.getSingletonMutex();
 		}
 	}
 
@@ -111,6 +113,7 @@ public abstract class AbstractApplicationEventMulticaster
 			}
 			this.defaultRetriever.applicationListeners.add(listener);
 			this.retrieverCache.clear();
+			this.listenerModificationCount++;
 		}
 	}
 
@@ -119,6 +122,7 @@ public abstract class AbstractApplicationEventMulticaster
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListenerBeans.add(listenerBeanName);
 			this.retrieverCache.clear();
+			this.listenerModificationCount++;
 		}
 	}
 
@@ -127,6 +131,7 @@ public abstract class AbstractApplicationEventMulticaster
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListeners.remove(listener);
 			this.retrieverCache.clear();
+			this.listenerModificationCount++;
 		}
 	}
 
@@ -135,6 +140,7 @@ public abstract class AbstractApplicationEventMulticaster
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListenerBeans.remove(listenerBeanName);
 			this.retrieverCache.clear();
+			this.listenerModificationCount++;
 		}
 	}
 
@@ -144,6 +150,7 @@ public abstract class AbstractApplicationEventMulticaster
 			this.defaultRetriever.applicationListeners.clear();
 			this.defaultRetriever.applicationListenerBeans.clear();
 			this.retrieverCache.clear();
+			this.listenerModificationCount++;
 		}
 	}
 
@@ -154,9 +161,14 @@ public abstract class AbstractApplicationEventMulticaster
 	 * @see org.springframework.context.ApplicationListener
 	 */
 	protected Collection<ApplicationListener<?>> getApplicationListeners() {
+		// Listener beans get obtained outside of the lock, since their creation
+		// may in turn register listeners in another thread
+		ListenerRetriever retriever = new ListenerRetriever(false);
 		synchronized (this.retrievalMutex) {
-			return this.defaultRetriever.getApplicationListeners();
+			retriever.applicationListeners.addAll(this.defaultRetriever.applicationListeners);
+			retriever.applicationListenerBeans.addAll(this.defaultRetriever.applicationListenerBeans);
 		}
+		return retriever.getApplicationListeners();
 	}
 
 	/**
@@ -190,19 +202,22 @@ public abstract class AbstractApplicationEventMulticaster
 		if (this.beanClassLoader == null ||
 				(ClassUtils.isCacheSafe(event.getClass(), this.beanClassLoader) &&
 						(sourceType == null || ClassUtils.isCacheSafe(sourceType, this.beanClassLoader)))) {
-			// Fully synchronized building and caching of a ListenerRetriever
-			//完全同步构建和缓存ListenerRetriever
+			// Building of a ListenerRetriever outside of the lock, since listener beans may
+			// have to be created, and caching unless listeners changed in the meantime
+			//构建ListenerRetriever,监听器未变化时缓存
+			int modificationCount;
 			synchronized (this.retrievalMutex) {
-				retriever = this.retrieverCache.get(cacheKey);
-				if (retriever != null) {
-					return retriever.getApplicationListeners();
+				modificationCount = this.listenerModificationCount;
+			}
+			retriever = new ListenerRetriever(true);
+			Collection<ApplicationListener<?>> listeners =
+					retrieveApplicationListeners(eventType, sourceType, retriever);
+			synchronized (this.retrievalMutex) {
+				if (this.listenerModificationCount == modificationCount) {
+					this.retrieverCache.put(cacheKey, retriever);
 				}
-				retriever = new ListenerRetriever(true);
-				Collection<ApplicationListener<?>> listeners =
-						retrieveApplicationListeners(eventType, sourceType, retriever);
-				this.retrieverCache.put(cacheKey, retriever);
-				return listeners;
 			}
+			return listeners;
 		}
 		else {
 			// No ListenerRetriever caching -> no synchronization necessary
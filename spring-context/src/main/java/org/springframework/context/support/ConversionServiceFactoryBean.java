@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -51,6 +51,8 @@ public class ConversionServiceFactoryBean implements FactoryBean<ConversionServi
 
 	private Set<?> converters;
 
+	private boolean frozen = false;
+
 	private GenericConversionService conversionService;
 
 
@@ -64,10 +66,25 @@ public class ConversionServiceFactoryBean implements FactoryBean<ConversionServi
 		this.converters = converters;
 	}
 
+	/**
+	 * Whether to {@linkplain GenericConversionService#freeze() freeze} the
+	 * ConversionService once the converters have been registered, so that
+	 * converter lookups between plain classes are served from a dispatch table.
+	 * <p>Default is "false". Switch this flag to {@code true} if no converters
+	 * are added to the ConversionService after its creation.
+	 * @since 4.3.25
+	 */
+	public void setFrozen(boolean frozen) {
+		this.frozen = frozen;
+	}
+
 	@Override
 	public void afterPropertiesSet() {
 		this.conversionService = createConversionService();
 		ConversionServiceFactory.registerConverters(this.converters, this.conversionService);
+		if (this.frozen) {
+			this.conversionService.freeze();
+		}
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -71,6 +71,8 @@ public class FormattingConversionServiceFactoryBean
 
 	private boolean registerDefaultFormatters = true;
 
+	private boolean frozen = false;
+
 	private StringValueResolver embeddedValueResolver;
 
 	private FormattingConversionService conversionService;
@@ -124,6 +126,18 @@ public class FormattingConversionServiceFactoryBean
 		this.registerDefaultFormatters = registerDefaultFormatters;
 	}
 
+	/**
+	 * Whether to {@linkplain FormattingConversionService#freeze() freeze} the
+	 * ConversionService once the converters and formatters have been registered,
+	 * so that converter lookups between plain classes are served from a dispatch table.
+	 * <p>Default is "false". Switch this flag to {@code true} if no converters
+	 * or formatters are added to the ConversionService after its creation.
+	 * @since 4.3.25
+	 */
+	public void setFrozen(boolean frozen) {
+		this.frozen = frozen;
+	}
+
 	@Override
 	public void setEmbeddedValueResolver(StringValueResolver embeddedValueResolver) {
 		this.embeddedValueResolver = embeddedValueResolver;
@@ -135,6 +149,9 @@ public class FormattingConversionServiceFactoryBean
 		this.conversionService = new DefaultFormattingConversionService(this.embeddedValueResolver, this.registerDefaultFormatters);
 		ConversionServiceFactory.registerConverters(this.converters, this.conversionService);
 		registerFormatters();
+		if (this.frozen) {
+			this.conversionService.freeze();
+		}
 	}
 
 	private void registerFormatters() {
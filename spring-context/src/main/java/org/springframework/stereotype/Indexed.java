@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.stereotype;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicate that the annotated element represents a stereotype for the index.
+ *
+ * <p>The {@link org.springframework.context.index.CandidateComponentsIndex
+ * candidate components index} is an alternative to classpath scanning that
+ * uses a metadata file generated at compilation time by the annotation
+ * processor of the {@code spring-context-indexer} module. The index allows
+ * retrieving the candidate components (i.e. fully qualified class names)
+ * based on a stereotype. This annotation instructs the generator to index
+ * the element on which the annotated element is present, or any type that
+ * implements or extends the annotated element.
+ *
+ * <p>Consider the default {@link Component} annotation that is meta-annotated
+ * with this annotation. If a component is annotated with {@link Component},
+ * an entry for that component will be added to the index using the
+ * {@code org.springframework.stereotype.Component} stereotype.
+ *
+ * <p>This annotation is also honored on meta-annotations. Consider this
+ * custom annotation:
+ *
+ * <pre class="code">
+ * &#064;Target(ElementType.TYPE)
+ * &#064;Retention(RetentionPolicy.RUNTIME)
+ * &#064;Documented
+ * &#064;Indexed
+ * &#064;Service
+ * public @interface PrivilegedService { ... }
+ * </pre>
+ *
+ * A type annotated with {@code @PrivilegedService} is indexed under both the
+ * {@code Component} and the {@code PrivilegedService} stereotypes.
+ *
+ * <p>If this annotation is present on an interface or a parent class, all
+ * types implementing or extending it are indexed under the fully qualified
+ * name of that interface or parent class.
+ *
+ * @since 4.3.25
+ * @see org.springframework.context.index.CandidateComponentsIndex
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Indexed {
+}
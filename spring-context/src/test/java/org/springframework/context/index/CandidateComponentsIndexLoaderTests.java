@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.springframework.core.io.ClassPathResource;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CandidateComponentsIndexLoader} and {@link CandidateComponentsIndex}.
+ */
+public class CandidateComponentsIndexLoaderTests {
+
+	@Test
+	public void validateIndexIsDisabledByDefault() {
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(null);
+		assertThat("No spring.components should be available at the default location", index, is(nullValue()));
+	}
+
+	@Test
+	public void loadIndexSeveralMatches() throws IOException {
+		CandidateComponentsIndex index = loadIndex();
+		Set<String> components = index.getCandidateTypes("org.springframework", "foo");
+		assertEquals(Arrays.asList("org.springframework.context.index.Sample1",
+				"org.springframework.context.index.Sample2",
+				"org.springframework.context.index.sub.Sample3"), Arrays.asList(components.toArray()));
+	}
+
+	@Test
+	public void loadIndexSingleMatch() throws IOException {
+		CandidateComponentsIndex index = loadIndex();
+		Set<String> components = index.getCandidateTypes("org.springframework", "bar");
+		assertEquals(Collections.singleton("org.springframework.context.index.Sample2"), components);
+	}
+
+	@Test
+	public void loadIndexNoMatch() throws IOException {
+		CandidateComponentsIndex index = loadIndex();
+		assertEquals(0, index.getCandidateTypes("org.springframework", "none").size());
+	}
+
+	@Test
+	public void loadIndexNoPackage() throws IOException {
+		CandidateComponentsIndex index = loadIndex();
+		assertEquals(0, index.getCandidateTypes("com.example", "foo").size());
+	}
+
+	@Test
+	public void loadIndexDoesNotMatchPackagePrefix() throws IOException {
+		CandidateComponentsIndex index = loadIndex();
+		assertEquals(0, index.getCandidateTypes("org.springframework.context.ind", "foo").size());
+	}
+
+	@Test
+	public void loadIndexWithPattern() throws IOException {
+		CandidateComponentsIndex index = loadIndex();
+		Set<String> components = index.getCandidateTypes("org.springframework.*.index.sub", "foo");
+		assertEquals(Collections.singleton("org.springframework.context.index.sub.Sample3"), components);
+	}
+
+	@Test
+	public void loadIndexWithNoEntries() throws IOException {
+		ClassLoader classLoader = CandidateComponentsTestClassLoader.index(getClass().getClassLoader(),
+				new ClassPathResource("empty-spring.components", getClass()));
+		assertNull(CandidateComponentsIndexLoader.loadIndex(classLoader));
+	}
+
+	@Test
+	public void loadIndexMergesSeveralResources() {
+		Properties first = new Properties();
+		first.setProperty("com.example.Foo", "foo");
+		Properties second = new Properties();
+		second.setProperty("com.example.Bar", "foo");
+		CandidateComponentsIndex index = new CandidateComponentsIndex(Arrays.asList(first, second));
+		assertEquals(2, index.getCandidateTypes("com.example", "foo").size());
+	}
+
+	@Test
+	public void disableIndex() {
+		ClassLoader classLoader = CandidateComponentsTestClassLoader.disableIndex(getClass().getClassLoader());
+		assertNull(CandidateComponentsIndexLoader.loadIndex(classLoader));
+	}
+
+
+	private CandidateComponentsIndex loadIndex() throws IOException {
+		ClassLoader classLoader = CandidateComponentsTestClassLoader.index(getClass().getClassLoader(),
+				new ClassPathResource("spring.components", getClass()));
+		CandidateComponentsIndex index = CandidateComponentsIndexLoader.loadIndex(classLoader);
+		assertNotNull(index);
+		return index;
+	}
+
+}
@@ -29,6 +29,7 @@ import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.core.convert.converter.ConverterFactory;
 import org.springframework.core.convert.converter.GenericConverter;
+import org.springframework.core.convert.support.GenericConversionService;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.tests.sample.beans.ResourceTestBean;
@@ -50,6 +51,16 @@ public class ConversionServiceFactoryBeanTests {
 		assertTrue(service.canConvert(String.class, Integer.class));
 	}
 
+	@Test
+	public void createFrozenConversionService() {
+		ConversionServiceFactoryBean factory = new ConversionServiceFactoryBean();
+		factory.setFrozen(true);
+		factory.afterPropertiesSet();
+		ConversionService service = factory.getObject();
+		assertTrue(((GenericConversionService) service).isFrozen());
+		assertEquals(Integer.valueOf(3), service.convert("3", Integer.class));
+	}
+
 	@Test
 	public void createDefaultConversionServiceWithSupplements() {
 		ConversionServiceFactoryBean factory = new ConversionServiceFactoryBean();
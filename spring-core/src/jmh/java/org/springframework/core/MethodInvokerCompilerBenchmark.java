@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks comparing a {@link CompiledMethodInvoker} with
+ * {@link Method#invoke reflective invocation} and with a direct call.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class MethodInvokerCompilerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		public Handler handler = new Handler();
+
+		public Object[] args = {"value", 42};
+
+		public Method method;
+
+		public CompiledMethodInvoker invoker;
+
+		@Setup
+		public void setup() throws Exception {
+			this.method = Handler.class.getMethod("handle", String.class, int.class);
+			this.invoker = MethodInvokerCompiler.compile(this.method);
+		}
+	}
+
+
+	@Benchmark
+	public void direct(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.handler.handle((String) data.args[0], (Integer) data.args[1]));
+	}
+
+	@Benchmark
+	public void reflection(BenchmarkData data, Blackhole bh) throws Exception {
+		bh.consume(data.method.invoke(data.handler, data.args));
+	}
+
+	@Benchmark
+	public void compiled(BenchmarkData data, Blackhole bh) throws Exception {
+		bh.consume(data.invoker.invoke(data.handler, data.args));
+	}
+
+
+	public static class Handler {
+
+		public int handle(String name, int value) {
+			return name.length() + value;
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for repeated merged annotation lookups through
+ * {@link AnnotatedElementUtils}, on a method with a composed annotation
+ * and on a method without any annotation.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AnnotatedElementUtilsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"annotated", "plain"})
+		public String method;
+
+		public Method target;
+
+		@Setup
+		public void setup() throws NoSuchMethodException {
+			this.target = SampleService.class.getMethod(this.method);
+		}
+	}
+
+
+	@Benchmark
+	public Transactional findMergedAnnotation(BenchmarkData data) {
+		return AnnotatedElementUtils.findMergedAnnotation(data.target, Transactional.class);
+	}
+
+	@Benchmark
+	public AnnotationAttributes findMergedAnnotationAttributes(BenchmarkData data) {
+		return AnnotatedElementUtils.findMergedAnnotationAttributes(data.target, Transactional.class, false, false);
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	public @interface Transactional {
+
+		@AliasFor("qualifier")
+		String value() default "";
+
+		@AliasFor("value")
+		String qualifier() default "";
+
+		boolean readOnly() default false;
+	}
+
+
+	@Transactional
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD})
+	public @interface ReadOnlyTransactional {
+
+		@AliasFor(annotation = Transactional.class)
+		String value() default "";
+
+		@AliasFor(annotation = Transactional.class)
+		boolean readOnly() default true;
+	}
+
+
+	public static class SampleService {
+
+		@ReadOnlyTransactional("accounts")
+		public void annotated() {
+		}
+
+		public void plain() {
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.convert.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.core.convert.TypeDescriptor;
+
+/**
+ * Benchmarks for {@link GenericConversionService#convert}, using the
+ * converters registered by {@link DefaultConversionService}, with and
+ * without a {@linkplain GenericConversionService#freeze() frozen} dispatch table.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class GenericConversionServiceBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"10", "1000"})
+		public int collectionSize;
+
+		@Param({"false", "true"})
+		public boolean frozen;
+
+		public GenericConversionService conversionService;
+
+		public List<String> source;
+
+		public TypeDescriptor sourceType;
+
+		public TypeDescriptor targetType;
+
+		public Set<Integer> target;
+
+		@Setup
+		public void setup() throws Exception {
+			this.conversionService = new DefaultConversionService();
+			if (this.frozen) {
+				this.conversionService.freeze();
+			}
+			this.source = new ArrayList<String>(this.collectionSize);
+			for (int i = 0; i < this.collectionSize; i++) {
+				this.source.add(String.valueOf(i));
+			}
+			this.sourceType = TypeDescriptor.forObject(this.source);
+			this.targetType = new TypeDescriptor(getClass().getField("target"));
+		}
+	}
+
+
+	@Benchmark
+	public void convertStringToInteger(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.conversionService.convert("42", Integer.class));
+	}
+
+	@Benchmark
+	public void convertStringToEnum(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.conversionService.convert("RUNNABLE", Thread.State.class));
+	}
+
+	@Benchmark
+	public void convertNoOp(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.conversionService.convert("value", String.class));
+	}
+
+	@Benchmark
+	public void convertListOfStringToSetOfInteger(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.conversionService.convert(data.source, data.sourceType, data.targetType));
+	}
+
+	@Benchmark
+	public void canConvert(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.conversionService.canConvert(data.sourceType, data.targetType));
+	}
+
+}
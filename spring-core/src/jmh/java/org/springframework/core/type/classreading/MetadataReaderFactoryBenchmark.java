@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Benchmarks for reading the metadata of all classes of the
+ * {@code org.springframework.core} package with a new factory, as on application
+ * startup: parsing the class files with {@link CachingMetadataReaderFactory},
+ * or replaying the entries of a {@link PersistentMetadataReaderFactory} cache
+ * populated by a previous run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MetadataReaderFactoryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"caching", "persistent"})
+		public String factory;
+
+		public Resource[] resources;
+
+		public File cacheDirectory;
+
+		@Setup
+		public void setup() throws IOException {
+			this.resources = new PathMatchingResourcePatternResolver().getResources(
+					"classpath*:org/springframework/core/**/*.class");
+			this.cacheDirectory = File.createTempFile("metadata", "");
+			this.cacheDirectory.delete();
+			PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+			for (Resource resource : this.resources) {
+				factory.getMetadataReader(resource);
+			}
+			factory.flush();
+		}
+
+		public MetadataReaderFactory createFactory() {
+			return ("persistent".equals(this.factory) ?
+					new PersistentMetadataReaderFactory(this.cacheDirectory) : new CachingMetadataReaderFactory());
+		}
+
+		@TearDown
+		public void tearDown() {
+			FileSystemUtils.deleteRecursively(this.cacheDirectory);
+		}
+	}
+
+
+	@Benchmark
+	public void readAllMetadata(BenchmarkData data, Blackhole bh) throws IOException {
+		MetadataReaderFactory factory = data.createFactory();
+		for (Resource resource : data.resources) {
+			bh.consume(factory.getMetadataReader(resource).getAnnotationMetadata().getAnnotationTypes());
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link AntPathMatcher#match} and its
+ * {@link PrecompiledPathMatcher} variant, matching typical request paths
+ * against typical handler mapping patterns.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class AntPathMatcherBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"ant", "precompiled"})
+		public String matcher;
+
+		public PathMatcher pathMatcher;
+
+		public String[] patterns = {
+				"/", "/login", "/logout", "/static/**", "/css/*.css", "/js/**/*.js",
+				"/api/users", "/api/users/{id}", "/api/users/{id}/orders/{orderId}",
+				"/api/products/{category}/{id:\\d+}", "/api/**/admin", "/docs/*/index.html",
+				"/files/{name}.{ext}", "/report-??.pdf", "/**"};
+
+		public String[] paths = {
+				"/login", "/static/images/logo.png", "/css/main.css", "/js/lib/jquery/jquery.min.js",
+				"/api/users/42", "/api/users/42/orders/1337", "/api/products/books/9780134685991",
+				"/api/products/books/abc", "/api/v2/internal/admin", "/docs/guide/index.html",
+				"/files/report.txt", "/report-01.pdf", "/not/mapped/anywhere"};
+
+		@Setup
+		public void setup() {
+			this.pathMatcher = ("precompiled".equals(this.matcher) ?
+					new PrecompiledPathMatcher() : new AntPathMatcher());
+		}
+	}
+
+
+	@Benchmark
+	public void matchAll(BenchmarkData data, Blackhole bh) {
+		for (String path : data.paths) {
+			for (String pattern : data.patterns) {
+				bh.consume(data.pathMatcher.match(pattern, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void matchUriTemplate(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.pathMatcher.match("/api/users/{id}/orders/{orderId}", "/api/users/42/orders/1337"));
+	}
+
+	@Benchmark
+	public void matchDoubleWildcard(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.pathMatcher.match("/js/**/*.js", "/js/lib/jquery/jquery.min.js"));
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Base superclass for generated classes that invoke a specific {@link Method}
+ * directly, i.e. through bytecode rather than through reflection.
+ *
+ * <p>{@link #invoke} follows the contract of {@link Method#invoke}: an
+ * exception thrown by the invoked method is wrapped in an
+ * {@link InvocationTargetException}, and arguments that do not match the
+ * method signature result in an {@link IllegalArgumentException}.
+ *
+ * @since 4.3.25
+ * @see MethodInvokerCompiler
+ */
+public abstract class CompiledMethodInvoker {
+
+	private final Method method;
+
+	private final boolean isStatic;
+
+	private final int parameterCount;
+
+
+	protected CompiledMethodInvoker(Method method) {
+		this.method = method;
+		this.isStatic = Modifier.isStatic(method.getModifiers());
+		this.parameterCount = method.getParameterTypes().length;
+	}
+
+
+	/**
+	 * Return the method invoked by this invoker.
+	 */
+	public Method getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Invoke the method on the given target with the given arguments.
+	 * @param target the target instance, ignored for a static method
+	 * @param args the arguments, which must match the method signature
+	 * @return the return value, boxed if primitive, or {@code null} for a
+	 * {@code void} method
+	 * @throws InvocationTargetException if the invoked method threw an exception
+	 * @throws IllegalArgumentException if the target or arguments do not match
+	 */
+	public Object invoke(Object target, Object... args) throws InvocationTargetException {
+		if (target == null && !this.isStatic) {
+			throw new NullPointerException("Target must not be null for " + this.method);
+		}
+		int argCount = (args != null ? args.length : 0);
+		if (argCount != this.parameterCount) {
+			throw new IllegalArgumentException("wrong number of arguments");
+		}
+		try {
+			return doInvoke(target, args);
+		}
+		catch (ClassCastException ex) {
+			// Raised before the actual invocation, when casting the target or an argument
+			throw new IllegalArgumentException("argument type mismatch", ex);
+		}
+		catch (NullPointerException ex) {
+			// Raised before the actual invocation, when unboxing a null primitive argument
+			throw new IllegalArgumentException("null argument for primitive parameter", ex);
+		}
+	}
+
+	/**
+	 * Generated implementation of the invocation. Target and argument casts
+	 * are performed outside the scope that wraps exceptions from the method
+	 * into an {@link InvocationTargetException}.
+	 */
+	protected abstract Object doInvoke(Object target, Object[] args) throws InvocationTargetException;
+
+
+	@Override
+	public String toString() {
+		return getClass().getName() + " for " + this.method;
+	}
+
+}
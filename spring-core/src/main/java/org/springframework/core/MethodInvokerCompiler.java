@@ -0,0 +1,300 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Generates a {@link CompiledMethodInvoker} class for a given {@link Method},
+ * using ASM, so that the method can be invoked without reflection.
+ *
+ * <p>Only public methods whose declaring class, parameter types and return
+ * type are public as well can be compiled, since the generated class is
+ * defined in a child {@code ClassLoader} of the declaring class's
+ * {@code ClassLoader} and is therefore not part of the same runtime package.
+ * For any other method, {@link #compile} returns {@code null} and callers
+ * are expected to fall back on reflection.
+ *
+ * <p>Generated invokers are cached per method, for as long as the compiler for
+ * the declaring class's {@code ClassLoader} is retained: the generated classes
+ * cannot be unloaded individually, so they are never generated twice by the
+ * same compiler.
+ *
+ * @since 4.3.25
+ */
+public class MethodInvokerCompiler implements Opcodes {
+
+	private static final Log logger = LogFactory.getLog(MethodInvokerCompiler.class);
+
+	private static final String INVOKER_TYPE = Type.getInternalName(CompiledMethodInvoker.class);
+
+	// A compiler is created for each classloader, it manages a child class loader of that
+	// classloader and the child is used to load the generated invokers.
+	private static final Map<ClassLoader, MethodInvokerCompiler> compilers =
+			new ConcurrentReferenceHashMap<ClassLoader, MethodInvokerCompiler>();
+
+
+	private final ChildClassLoader ccl;
+
+	private final Map<Method, CompiledMethodInvoker> invokerCache = new HashMap<Method, CompiledMethodInvoker>();
+
+	private final AtomicInteger suffixId = new AtomicInteger(1);
+
+
+	private MethodInvokerCompiler(ClassLoader classLoader) {
+		this.ccl = new ChildClassLoader(classLoader);
+	}
+
+
+	/**
+	 * Generate an invoker for the given method, or return a previously
+	 * generated one.
+	 * @param method the method to compile an invoker for
+	 * @return the invoker, or {@code null} if the method is not eligible or
+	 * the invoker class could not be defined
+	 */
+	public static CompiledMethodInvoker compile(Method method) {
+		Assert.notNull(method, "Method must not be null");
+		if (!isCompilable(method)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Method is not eligible for compilation: " + method);
+			}
+			return null;
+		}
+		return getCompiler(method.getDeclaringClass().getClassLoader()).getInvoker(method);
+	}
+
+	/**
+	 * Invoke the given method on the given target, through the given invoker
+	 * if available, or through reflection otherwise.
+	 * @param invoker the invoker generated for the method, or {@code null}
+	 * @param method the method to invoke
+	 * @param target the target instance
+	 * @param args the arguments
+	 * @return the return value of the method
+	 * @throws IllegalAccessException if the method is not accessible through reflection
+	 * @throws InvocationTargetException if the invoked method threw an exception
+	 * @throws IllegalArgumentException if the target or arguments do not match
+	 * @see CompiledMethodInvoker#invoke
+	 * @see Method#invoke
+	 */
+	public static Object invoke(CompiledMethodInvoker invoker, Method method, Object target, Object... args)
+			throws IllegalAccessException, InvocationTargetException {
+
+		if (invoker != null) {
+			return invoker.invoke(target, args);
+		}
+		ReflectionUtils.makeAccessible(method);
+		return method.invoke(target, args);
+	}
+
+	/**
+	 * Whether an invoker can be generated for the given method.
+	 */
+	public static boolean isCompilable(Method method) {
+		if (!Modifier.isPublic(method.getModifiers()) || !isPublic(method.getDeclaringClass()) ||
+				!isPublic(method.getReturnType())) {
+			return false;
+		}
+		if (Modifier.isStatic(method.getModifiers()) && method.getDeclaringClass().isInterface()) {
+			// Not supported by the class file version of the generated invokers
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!isPublic(parameterType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isPublic(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return (type.isPrimitive() || Modifier.isPublic(type.getModifiers()));
+	}
+
+	private static MethodInvokerCompiler getCompiler(ClassLoader classLoader) {
+		ClassLoader clToUse = (classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader());
+		synchronized (compilers) {
+			MethodInvokerCompiler compiler = compilers.get(clToUse);
+			if (compiler == null) {
+				compiler = new MethodInvokerCompiler(clToUse);
+				compilers.put(clToUse, compiler);
+			}
+			return compiler;
+		}
+	}
+
+
+	private CompiledMethodInvoker getInvoker(Method method) {
+		synchronized (this.invokerCache) {
+			CompiledMethodInvoker invoker = this.invokerCache.get(method);
+			if (invoker == null) {
+				try {
+					Class<?> clazz = createInvokerClass(method);
+					invoker = (CompiledMethodInvoker) clazz.getConstructor(Method.class).newInstance(method);
+				}
+				catch (Throwable ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Failed to generate invoker for " + method, ex);
+					}
+					return null;
+				}
+				this.invokerCache.put(method, invoker);
+			}
+			return invoker;
+		}
+	}
+
+	private Class<?> createInvokerClass(Method method) {
+		// Create class outline 'invoker/InvokerNNN extends org.springframework.core.CompiledMethodInvoker'
+		String clazzName = "invoker/Invoker" + this.suffixId.incrementAndGet();
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, clazzName, null, INVOKER_TYPE, null);
+
+		// Create constructor delegating to CompiledMethodInvoker(Method)
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(Ljava/lang/reflect/Method;)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKESPECIAL, INVOKER_TYPE, "<init>", "(Ljava/lang/reflect/Method;)V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		// Create doInvoke(Object, Object[])
+		mv = cw.visitMethod(ACC_PROTECTED, "doInvoke", "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;",
+				null, new String[] {"java/lang/reflect/InvocationTargetException"});
+		mv.visitCode();
+
+		Class<?> declaringClass = method.getDeclaringClass();
+		String owner = Type.getInternalName(declaringClass);
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		if (!isStatic) {
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitTypeInsn(CHECKCAST, owner);
+		}
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitLdcInsn(i);
+			mv.visitInsn(AALOAD);
+			insertUnboxOrCast(mv, parameterTypes[i]);
+		}
+
+		// Only the actual invocation is wrapped: exceptions from casts above propagate as is
+		Label tryStart = new Label();
+		Label tryEnd = new Label();
+		Label handler = new Label();
+		mv.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/Throwable");
+		mv.visitLabel(tryStart);
+		String descriptor = Type.getMethodDescriptor(method);
+		if (isStatic) {
+			mv.visitMethodInsn(INVOKESTATIC, owner, method.getName(), descriptor, false);
+		}
+		else if (declaringClass.isInterface()) {
+			mv.visitMethodInsn(INVOKEINTERFACE, owner, method.getName(), descriptor, true);
+		}
+		else {
+			mv.visitMethodInsn(INVOKEVIRTUAL, owner, method.getName(), descriptor, false);
+		}
+		mv.visitLabel(tryEnd);
+		insertBoxIfNecessary(mv, method.getReturnType());
+		mv.visitInsn(ARETURN);
+
+		mv.visitLabel(handler);
+		mv.visitVarInsn(ASTORE, 3);
+		mv.visitTypeInsn(NEW, "java/lang/reflect/InvocationTargetException");
+		mv.visitInsn(DUP);
+		mv.visitVarInsn(ALOAD, 3);
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/reflect/InvocationTargetException",
+				"<init>", "(Ljava/lang/Throwable;)V", false);
+		mv.visitInsn(ATHROW);
+
+		mv.visitMaxs(0, 0);  // not supplied due to COMPUTE_MAXS
+		mv.visitEnd();
+		cw.visitEnd();
+
+		return this.ccl.defineClass(clazzName.replace('/', '.'), cw.toByteArray());
+	}
+
+	private static void insertUnboxOrCast(MethodVisitor mv, Class<?> type) {
+		if (!type.isPrimitive()) {
+			if (type != Object.class) {
+				mv.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+			}
+			return;
+		}
+		Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+		String wrapper = Type.getInternalName(wrapperType);
+		mv.visitTypeInsn(CHECKCAST, wrapper);
+		mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, type.getName() + "Value",
+				"()" + Type.getDescriptor(type), false);
+	}
+
+	private static void insertBoxIfNecessary(MethodVisitor mv, Class<?> type) {
+		if (type == void.class) {
+			mv.visitInsn(ACONST_NULL);
+		}
+		else if (type.isPrimitive()) {
+			Class<?> wrapperType = ClassUtils.resolvePrimitiveIfNecessary(type);
+			String wrapper = Type.getInternalName(wrapperType);
+			mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf",
+					"(" + Type.getDescriptor(type) + ")" + Type.getDescriptor(wrapperType), false);
+		}
+	}
+
+
+	/**
+	 * A ChildClassLoader will load the generated invoker classes.
+	 */
+	private static class ChildClassLoader extends URLClassLoader {
+
+		private static final URL[] NO_URLS = new URL[0];
+
+		public ChildClassLoader(ClassLoader classLoader) {
+			super(NO_URLS, classLoader);
+		}
+
+		public Class<?> defineClass(String name, byte[] bytes) {
+			return super.defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
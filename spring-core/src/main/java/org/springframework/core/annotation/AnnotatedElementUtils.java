@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.core.annotation;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.Set;
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
@@ -84,6 +86,14 @@ import org.springframework.util.MultiValueMap;
  * search algorithm manually traverses type and method hierarchies and thereby
  * implicitly supports annotation inheritance without a need for {@code @Inherited}.
  *
+ * <h3>Caching</h3>
+ * <p>The results of {@code getMergedAnnotation()} and {@code findMergedAnnotation()}
+ * for classes and members are cached, including the absence of a merged annotation,
+ * so that repeated lookups share the same synthesized annotation instance. The
+ * {@code getMergedAnnotationAttributes()} and {@code findMergedAnnotationAttributes()}
+ * variants cache the absence of a merged annotation only, since the returned
+ * {@code AnnotationAttributes} are mutable and therefore created for each call.
+ *
  * @author Phillip Webb
  * @author Juergen Hoeller
  * @author Sam Brannen
@@ -104,6 +114,17 @@ public class AnnotatedElementUtils {
 
 	private static final Processor<Boolean> alwaysTrueAnnotationProcessor = new AlwaysTrueBooleanAnnotationProcessor();
 
+	/**
+	 * Cache value used to denote that no merged annotation was found.
+	 */
+	private static final Object NOT_FOUND = new Object();
+
+	private static final Map<MergedAnnotationCacheKey, Object> mergedAnnotationCache =
+			new ConcurrentReferenceHashMap<MergedAnnotationCacheKey, Object>(256);
+
+	private static final Map<MergedAnnotationCacheKey, Boolean> missingAttributesCache =
+			new ConcurrentReferenceHashMap<MergedAnnotationCacheKey, Boolean>(256);
+
 
 	/**
 	 * Build an adapted {@link AnnotatedElement} for the given annotations,
@@ -331,10 +352,14 @@ public class AnnotatedElementUtils {
 			AnnotatedElement element, Class<? extends Annotation> annotationType) {
 
 		Assert.notNull(annotationType, "'annotationType' must not be null");
+		MergedAnnotationCacheKey cacheKey = getCacheKey(element, annotationType, false, false, false);
+		if (isKnownToBeMissing(cacheKey)) {
+			return null;
+		}
 		AnnotationAttributes attributes = searchWithGetSemantics(element, annotationType, null,
 				new MergedAnnotationAttributesProcessor());
 		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, false, false);
-		return attributes;
+		return rememberIfMissing(cacheKey, attributes);
 	}
 
 	/**
@@ -389,10 +414,15 @@ public class AnnotatedElementUtils {
 			String annotationName, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
 		Assert.hasLength(annotationName, "'annotationName' must not be null or empty");
+		MergedAnnotationCacheKey cacheKey =
+				getCacheKey(element, annotationName, false, classValuesAsString, nestedAnnotationsAsMap);
+		if (isKnownToBeMissing(cacheKey)) {
+			return null;
+		}
 		AnnotationAttributes attributes = searchWithGetSemantics(element, null, annotationName,
 				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap));
 		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
-		return attributes;
+		return rememberIfMissing(cacheKey, attributes);
 	}
 
 	/**
@@ -416,6 +446,21 @@ public class AnnotatedElementUtils {
 	public static <A extends Annotation> A getMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
 		Assert.notNull(annotationType, "'annotationType' must not be null");
 
+		MergedAnnotationCacheKey cacheKey = getCacheKey(element, annotationType, false, false, false);
+		if (cacheKey != null) {
+			Object cached = mergedAnnotationCache.get(cacheKey);
+			if (cached != null) {
+				return (cached != NOT_FOUND ? annotationType.cast(cached) : null);
+			}
+		}
+		A result = doGetMergedAnnotation(element, annotationType);
+		if (cacheKey != null) {
+			mergedAnnotationCache.put(cacheKey, (result != null ? result : NOT_FOUND));
+		}
+		return result;
+	}
+
+	private static <A extends Annotation> A doGetMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
 		// Shortcut: directly present on the element, with no merging needed?
 		if (!(element instanceof Class)) {
 			// Do not use this shortcut against a Class: Inherited annotations
@@ -647,10 +692,15 @@ public class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			Class<? extends Annotation> annotationType, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
+		MergedAnnotationCacheKey cacheKey =
+				getCacheKey(element, annotationType, true, classValuesAsString, nestedAnnotationsAsMap);
+		if (isKnownToBeMissing(cacheKey)) {
+			return null;
+		}
 		AnnotationAttributes attributes = searchWithFindSemantics(element, annotationType, null,
 				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap));
 		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
-		return attributes;
+		return rememberIfMissing(cacheKey, attributes);
 	}
 
 	/**
@@ -683,10 +733,15 @@ public class AnnotatedElementUtils {
 	public static AnnotationAttributes findMergedAnnotationAttributes(AnnotatedElement element,
 			String annotationName, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
 
+		MergedAnnotationCacheKey cacheKey =
+				getCacheKey(element, annotationName, true, classValuesAsString, nestedAnnotationsAsMap);
+		if (isKnownToBeMissing(cacheKey)) {
+			return null;
+		}
 		AnnotationAttributes attributes = searchWithFindSemantics(element, null, annotationName,
 				new MergedAnnotationAttributesProcessor(classValuesAsString, nestedAnnotationsAsMap));
 		AnnotationUtils.postProcessAnnotationAttributes(element, attributes, classValuesAsString, nestedAnnotationsAsMap);
-		return attributes;
+		return rememberIfMissing(cacheKey, attributes);
 	}
 
 	/**
@@ -710,6 +765,21 @@ public class AnnotatedElementUtils {
 	public static <A extends Annotation> A findMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
 		Assert.notNull(annotationType, "'annotationType' must not be null");
 
+		MergedAnnotationCacheKey cacheKey = getCacheKey(element, annotationType, true, false, false);
+		if (cacheKey != null) {
+			Object cached = mergedAnnotationCache.get(cacheKey);
+			if (cached != null) {
+				return (cached != NOT_FOUND ? annotationType.cast(cached) : null);
+			}
+		}
+		A result = doFindMergedAnnotation(element, annotationType);
+		if (cacheKey != null) {
+			mergedAnnotationCache.put(cacheKey, (result != null ? result : NOT_FOUND));
+		}
+		return result;
+	}
+
+	private static <A extends Annotation> A doFindMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
 		// Shortcut: directly present on the element, with no merging needed?
 		if (!(element instanceof Class)) {
 			// Do not use this shortcut against a Class: Inherited annotations
@@ -858,6 +928,45 @@ public class AnnotatedElementUtils {
 		return postProcessAndSynthesizeAggregatedResults(element, annotationType, processor.getAggregatedResults());
 	}
 
+	/**
+	 * Clear the internal cache of merged annotations.
+	 * @since 4.3.25
+	 * @see AnnotationUtils#clearCache()
+	 */
+	public static void clearCache() {
+		mergedAnnotationCache.clear();
+		missingAttributesCache.clear();
+	}
+
+	/**
+	 * Build the key for caching the result of a merged annotation lookup, or
+	 * return {@code null} if the given element is not suitable as a cache key:
+	 * only classes and members (methods, fields and constructors) are, as other
+	 * {@code AnnotatedElement} implementations may not have stable equality.
+	 */
+	private static MergedAnnotationCacheKey getCacheKey(AnnotatedElement element, Object annotationType,
+			boolean findSemantics, boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
+
+		if (!(element instanceof Class || element instanceof Member)) {
+			return null;
+		}
+		return new MergedAnnotationCacheKey(element, annotationType, findSemantics,
+				classValuesAsString, nestedAnnotationsAsMap);
+	}
+
+	private static boolean isKnownToBeMissing(MergedAnnotationCacheKey cacheKey) {
+		return (cacheKey != null && missingAttributesCache.containsKey(cacheKey));
+	}
+
+	private static AnnotationAttributes rememberIfMissing(MergedAnnotationCacheKey cacheKey,
+			AnnotationAttributes attributes) {
+
+		if (attributes == null && cacheKey != null) {
+			missingAttributesCache.put(cacheKey, Boolean.TRUE);
+		}
+		return attributes;
+	}
+
 	/**
 	 * Search for annotations of the specified {@code annotationName} or
 	 * {@code annotationType} on the specified {@code element}, following
@@ -1640,4 +1749,59 @@ public class AnnotatedElementUtils {
 		}
 	}
 
+
+	/**
+	 * Cache key for merged annotation lookups.
+	 */
+	private static final class MergedAnnotationCacheKey {
+
+		private final AnnotatedElement element;
+
+		private final Object annotationType;
+
+		private final boolean findSemantics;
+
+		private final boolean classValuesAsString;
+
+		private final boolean nestedAnnotationsAsMap;
+
+		public MergedAnnotationCacheKey(AnnotatedElement element, Object annotationType, boolean findSemantics,
+				boolean classValuesAsString, boolean nestedAnnotationsAsMap) {
+
+			this.element = element;
+			this.annotationType = annotationType;
+			this.findSemantics = findSemantics;
+			this.classValuesAsString = classValuesAsString;
+			this.nestedAnnotationsAsMap = nestedAnnotationsAsMap;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MergedAnnotationCacheKey)) {
+				return false;
+			}
+			MergedAnnotationCacheKey otherKey = (MergedAnnotationCacheKey) other;
+			return (this.element.equals(otherKey.element) &&
+					this.annotationType.equals(otherKey.annotationType) &&
+					this.findSemantics == otherKey.findSemantics &&
+					this.classValuesAsString == otherKey.classValuesAsString &&
+					this.nestedAnnotationsAsMap == otherKey.nestedAnnotationsAsMap);
+		}
+
+		@Override
+		public int hashCode() {
+			int flags = (this.findSemantics ? 4 : 0) + (this.classValuesAsString ? 2 : 0) +
+					(this.nestedAnnotationsAsMap ? 1 : 0);
+			return ((this.element.hashCode() * 29 + this.annotationType.hashCode()) * 8 + flags);
+		}
+
+		@Override
+		public String toString() {
+			return "@" + this.annotationType + " on " + this.element;
+		}
+	}
+
 }
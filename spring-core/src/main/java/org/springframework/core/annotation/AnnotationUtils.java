@@ -1919,10 +1919,12 @@ public abstract class AnnotationUtils {
 	}
 
 	/**
-	 * Clear the internal annotation metadata cache.
+	 * Clear the internal annotation metadata cache, including the merged
+	 * annotation cache of {@link AnnotatedElementUtils}.
 	 * @since 4.3.15
 	 */
 	public static void clearCache() {
+		AnnotatedElementUtils.clearCache();
 		findAnnotationCache.clear();
 		metaPresentCache.clear();
 		annotatedInterfaceCache.clear();
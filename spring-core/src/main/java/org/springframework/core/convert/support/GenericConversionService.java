@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.core.convert.support;
 
 import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -26,6 +28,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.core.DecoratingProxy;
 import org.springframework.core.ResolvableType;
@@ -52,6 +56,10 @@ import org.springframework.util.StringUtils;
  * Indirectly implements {@link ConverterRegistry} as registration API through the
  * {@link ConfigurableConversionService} interface.
  *
+ * <p>Once all converters are registered, the service may be {@linkplain #freeze() frozen}:
+ * converter lookups for plain source and target classes are then served from a
+ * dispatch table indexed by class, without creating cache keys or type descriptors.
+ *
  * @author Keith Donald
  * @author Juergen Hoeller
  * @author Chris Beams
@@ -92,6 +100,8 @@ public class GenericConversionService implements ConfigurableConversionService {
 	private final Map<ConverterCacheKey, GenericConverter> converterCache =
 			new ConcurrentReferenceHashMap<ConverterCacheKey, GenericConverter>(64);
 
+	private volatile DispatchTable dispatchTable;
+
 
 	// ConverterRegistry implementation
 
@@ -116,6 +126,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void addConverter(GenericConverter converter) {
+		assertNotFrozen();
 		this.converters.add(converter);
 		invalidateCache();
 	}
@@ -136,6 +147,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 
 	@Override
 	public void removeConvertible(Class<?> sourceType, Class<?> targetType) {
+		assertNotFrozen();
 		this.converters.remove(sourceType, targetType);
 		invalidateCache();
 	}
@@ -146,6 +158,10 @@ public class GenericConversionService implements ConfigurableConversionService {
 	@Override
 	public boolean canConvert(Class<?> sourceType, Class<?> targetType) {
 		Assert.notNull(targetType, "Target type to convert to cannot be null");
+		DispatchTable table = this.dispatchTable;
+		if (table != null && sourceType != null) {
+			return (getDispatchEntry(table, sourceType, targetType).converter != null);
+		}
 		return canConvert((sourceType != null ? TypeDescriptor.valueOf(sourceType) : null),
 				TypeDescriptor.valueOf(targetType));
 	}
@@ -156,7 +172,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 		if (sourceType == null) {
 			return true;
 		}
-		GenericConverter converter = getConverter(sourceType, targetType);
+		GenericConverter converter = resolveConverter(sourceType, targetType);
 		return (converter != null);
 	}
 
@@ -176,7 +192,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 		if (sourceType == null) {
 			return true;
 		}
-		GenericConverter converter = getConverter(sourceType, targetType);
+		GenericConverter converter = resolveConverter(sourceType, targetType);
 		return (converter == NO_OP_CONVERTER);
 	}
 
@@ -184,6 +200,11 @@ public class GenericConversionService implements ConfigurableConversionService {
 	@SuppressWarnings("unchecked")
 	public <T> T convert(Object source, Class<T> targetType) {
 		Assert.notNull(targetType, "Target type to convert to cannot be null");
+		DispatchTable table = this.dispatchTable;
+		if (table != null && source != null) {
+			DispatchEntry entry = getDispatchEntry(table, source.getClass(), targetType);
+			return (T) convert(source, entry.sourceType, entry.targetType, entry.converter);
+		}
 		return (T) convert(source, TypeDescriptor.forObject(source), TypeDescriptor.valueOf(targetType));
 	}
 
@@ -198,12 +219,7 @@ public class GenericConversionService implements ConfigurableConversionService {
 			throw new IllegalArgumentException("Source to convert from must be an instance of [" +
 					sourceType + "]; instead it was a [" + source.getClass().getName() + "]");
 		}
-		GenericConverter converter = getConverter(sourceType, targetType);
-		if (converter != null) {
-			Object result = ConversionUtils.invokeConverter(converter, source, sourceType, targetType);
-			return handleResult(sourceType, targetType, result);
-		}
-		return handleConverterNotFound(source, sourceType, targetType);
+		return convert(source, sourceType, targetType, resolveConverter(sourceType, targetType));
 	}
 
 	/**
@@ -229,6 +245,67 @@ public class GenericConversionService implements ConfigurableConversionService {
 	}
 
 
+	// Frozen dispatch table
+
+	/**
+	 * Freeze the converter registrations of this service, building a dispatch
+	 * table for converter lookups between plain source and target classes.
+	 * <p>The table is populated upfront with conversions between {@code String}
+	 * and the primitive and number types, and extended with further class pairs
+	 * as they are looked up. Type descriptors that carry annotations or generic
+	 * element types are not covered by the table and keep going through
+	 * {@link #getConverter}, as do lookups while the service is not frozen.
+	 * <p>Once frozen, converters can no longer be added or removed.
+	 * @since 4.3.25
+	 * @see #isFrozen()
+	 * @see #getDispatchHitCount()
+	 */
+	public void freeze() {
+		if (this.dispatchTable != null) {
+			return;
+		}
+		DispatchTable table = new DispatchTable();
+		for (Class<?> commonType : DispatchTable.COMMON_TYPES) {
+			getDispatchEntry(table, String.class, commonType);
+			getDispatchEntry(table, commonType, String.class);
+		}
+		table.resetStatistics();
+		this.dispatchTable = table;
+	}
+
+	/**
+	 * Return whether this service has been {@linkplain #freeze() frozen}.
+	 * @since 4.3.25
+	 */
+	public boolean isFrozen() {
+		return (this.dispatchTable != null);
+	}
+
+	/**
+	 * Return the number of converter lookups served by the dispatch table
+	 * since the service has been {@linkplain #freeze() frozen}.
+	 * @since 4.3.25
+	 * @see #getDispatchMissCount()
+	 */
+	public long getDispatchHitCount() {
+		DispatchTable table = this.dispatchTable;
+		return (table != null ? table.hits.get() : 0);
+	}
+
+	/**
+	 * Return the number of converter lookups that could not be served by
+	 * the dispatch table since the service has been {@linkplain #freeze() frozen},
+	 * either because the class pair had not been looked up before or because
+	 * the type descriptors carry annotations or generic element types.
+	 * @since 4.3.25
+	 * @see #getDispatchHitCount()
+	 */
+	public long getDispatchMissCount() {
+		DispatchTable table = this.dispatchTable;
+		return (table != null ? table.misses.get() : 0);
+	}
+
+
 	// Protected template methods
 
 	/**
@@ -313,6 +390,46 @@ public class GenericConversionService implements ConfigurableConversionService {
 		this.converterCache.clear();
 	}
 
+	private void assertNotFrozen() {
+		Assert.state(this.dispatchTable == null, "Cannot modify converters: ConversionService has been frozen");
+	}
+
+	private GenericConverter resolveConverter(TypeDescriptor sourceType, TypeDescriptor targetType) {
+		DispatchTable table = this.dispatchTable;
+		if (table != null) {
+			DispatchEntry entry = table.get(sourceType.getType(), targetType.getType());
+			if (entry != null && entry.matches(sourceType, targetType)) {
+				table.hits.incrementAndGet();
+				return entry.converter;
+			}
+			table.misses.incrementAndGet();
+		}
+		return getConverter(sourceType, targetType);
+	}
+
+	private DispatchEntry getDispatchEntry(DispatchTable table, Class<?> sourceType, Class<?> targetType) {
+		DispatchEntry entry = table.get(sourceType, targetType);
+		if (entry != null) {
+			table.hits.incrementAndGet();
+			return entry;
+		}
+		table.misses.incrementAndGet();
+		TypeDescriptor sourceDescriptor = TypeDescriptor.valueOf(sourceType);
+		TypeDescriptor targetDescriptor = TypeDescriptor.valueOf(targetType);
+		entry = new DispatchEntry(sourceDescriptor, targetDescriptor, getConverter(sourceDescriptor, targetDescriptor));
+		return table.put(entry);
+	}
+
+	private Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType,
+			GenericConverter converter) {
+
+		if (converter != null) {
+			Object result = ConversionUtils.invokeConverter(converter, source, sourceType, targetType);
+			return handleResult(sourceType, targetType, result);
+		}
+		return handleConverterNotFound(source, sourceType, targetType);
+	}
+
 	private Object handleConverterNotFound(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
 		if (source == null) {
 			assertNotPrimitiveTargetType(sourceType, targetType);
@@ -495,6 +612,77 @@ public class GenericConversionService implements ConfigurableConversionService {
 	}
 
 
+	/**
+	 * Dispatch table of a frozen service, indexed by source and target class.
+	 * Entries are softly referenced, so as not to pin the class loaders of
+	 * the looked up classes.
+	 */
+	private static final class DispatchTable {
+
+		static final Class<?>[] COMMON_TYPES = {
+				boolean.class, Boolean.class, byte.class, Byte.class, char.class, Character.class,
+				double.class, Double.class, float.class, Float.class, int.class, Integer.class,
+				long.class, Long.class, short.class, Short.class, BigInteger.class, BigDecimal.class};
+
+		private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, DispatchEntry>> entries =
+				new ConcurrentReferenceHashMap<Class<?>, ConcurrentMap<Class<?>, DispatchEntry>>(64);
+
+		/** Only updated once the service is frozen, so unfrozen lookups pay nothing */
+		final AtomicLong hits = new AtomicLong();
+
+		final AtomicLong misses = new AtomicLong();
+
+		public DispatchEntry get(Class<?> sourceType, Class<?> targetType) {
+			ConcurrentMap<Class<?>, DispatchEntry> entriesForSource = this.entries.get(sourceType);
+			return (entriesForSource != null ? entriesForSource.get(targetType) : null);
+		}
+
+		public DispatchEntry put(DispatchEntry entry) {
+			Class<?> sourceType = entry.sourceType.getType();
+			ConcurrentMap<Class<?>, DispatchEntry> entriesForSource = this.entries.get(sourceType);
+			if (entriesForSource == null) {
+				entriesForSource = new ConcurrentReferenceHashMap<Class<?>, DispatchEntry>(16);
+				ConcurrentMap<Class<?>, DispatchEntry> existing = this.entries.putIfAbsent(sourceType, entriesForSource);
+				if (existing != null) {
+					entriesForSource = existing;
+				}
+			}
+			DispatchEntry existing = entriesForSource.putIfAbsent(entry.targetType.getType(), entry);
+			return (existing != null ? existing : entry);
+		}
+
+		public void resetStatistics() {
+			this.hits.set(0);
+			this.misses.set(0);
+		}
+	}
+
+
+	/**
+	 * Entry in the dispatch table: the converter for a plain source and target
+	 * class, along with the type descriptors to invoke it with.
+	 */
+	private static final class DispatchEntry {
+
+		final TypeDescriptor sourceType;
+
+		final TypeDescriptor targetType;
+
+		final GenericConverter converter;
+
+		public DispatchEntry(TypeDescriptor sourceType, TypeDescriptor targetType, GenericConverter converter) {
+			this.sourceType = sourceType;
+			this.targetType = targetType;
+			this.converter = converter;
+		}
+
+		public boolean matches(TypeDescriptor sourceType, TypeDescriptor targetType) {
+			return ((sourceType == this.sourceType || sourceType.equals(this.sourceType)) &&
+					(targetType == this.targetType || targetType.equals(this.targetType)));
+		}
+	}
+
+
 	/**
 	 * Manages all converters registered with the service.
 	 */
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.core.NestedIOException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CachingMetadataReaderFactory} variant that additionally keeps the class
+ * metadata in a cache directory on disk, so that subsequent starts of the same
+ * application do not have to read and parse the class files again.
+ *
+ * <p>The cache holds a compact recording of the class declaration and of the
+ * annotations declared on the class and its methods, which is replayed on an
+ * {@link AnnotationMetadataReadingVisitor} when the metadata is requested.
+ * Meta-annotations are resolved on replay, so an entry remains valid if the
+ * annotation types change. Entries are keyed by jar file or class file
+ * directory, and by the last-modified time and length of the jar file or class
+ * file they have been read from: a stale entry is never used. Resources that
+ * are neither class files on the file system nor entries of a jar file on the
+ * file system are not cached on disk.
+ *
+ * <p>Cache files are read through memory-mapped I/O. New entries are written
+ * when {@link #flush()} is called, which {@link #clearCache()} does as well:
+ * this factory can therefore be handed to
+ * {@code ClassPathScanningCandidateComponentProvider} or
+ * {@code ConfigurationClassPostProcessor}, which clear the cache of a
+ * {@code CachingMetadataReaderFactory} once done with it. A failure to read or
+ * write the cache is never fatal, and simply leads to the class files being
+ * parsed again.
+ *
+ * @since 4.3.25
+ */
+public class PersistentMetadataReaderFactory extends CachingMetadataReaderFactory {
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataReaderFactory.class);
+
+
+	private final PersistentMetadataStore store;
+
+
+	/**
+	 * Create a new PersistentMetadataReaderFactory for the default class loader.
+	 * @param cacheDirectory the directory to keep the cache files in
+	 */
+	public PersistentMetadataReaderFactory(File cacheDirectory) {
+		super();
+		this.store = createStore(cacheDirectory);
+	}
+
+	/**
+	 * Create a new PersistentMetadataReaderFactory for the given resource loader.
+	 * @param resourceLoader the Spring ResourceLoader to use
+	 * (also determines the ClassLoader to use)
+	 * @param cacheDirectory the directory to keep the cache files in
+	 */
+	public PersistentMetadataReaderFactory(ResourceLoader resourceLoader, File cacheDirectory) {
+		super(resourceLoader);
+		this.store = createStore(cacheDirectory);
+	}
+
+	/**
+	 * Create a new PersistentMetadataReaderFactory for the given class loader.
+	 * @param classLoader the ClassLoader to use
+	 * @param cacheDirectory the directory to keep the cache files in
+	 */
+	public PersistentMetadataReaderFactory(ClassLoader classLoader, File cacheDirectory) {
+		super(classLoader);
+		this.store = createStore(cacheDirectory);
+	}
+
+	private static PersistentMetadataStore createStore(File cacheDirectory) {
+		Assert.notNull(cacheDirectory, "Cache directory must not be null");
+		return new PersistentMetadataStore(cacheDirectory);
+	}
+
+
+	/**
+	 * Replay the class metadata from the cache directory, if available, or read
+	 * the class file and record its metadata for the next {@link #flush()}.
+	 */
+	@Override
+	protected MetadataReader createMetadataReader(Resource resource) throws IOException {
+		ClassLoader classLoader = getResourceLoader().getClassLoader();
+		byte[] recording = this.store.get(resource);
+		if (recording != null) {
+			AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
+			try {
+				RecordingClassVisitor.replay(recording, visitor);
+				return new RecordedMetadataReader(resource, visitor);
+			}
+			catch (IOException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Ignoring invalid cached class metadata for " + resource + ": " + ex);
+				}
+			}
+		}
+
+		InputStream is = new BufferedInputStream(resource.getInputStream());
+		ClassReader classReader;
+		try {
+			classReader = new ClassReader(is);
+		}
+		catch (IllegalArgumentException ex) {
+			throw new NestedIOException("ASM ClassReader failed to parse class file - " +
+					"probably due to a new Java class file version that isn't supported yet: " + resource, ex);
+		}
+		finally {
+			is.close();
+		}
+		AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
+		RecordingClassVisitor recordingVisitor = new RecordingClassVisitor(visitor);
+		classReader.accept(recordingVisitor, ClassReader.SKIP_DEBUG);
+		recording = recordingVisitor.getRecording();
+		if (recording != null) {
+			this.store.put(resource, recording);
+		}
+		return new RecordedMetadataReader(resource, visitor);
+	}
+
+	/**
+	 * Write the class metadata read since the last flush to the cache directory.
+	 */
+	public void flush() {
+		this.store.flush();
+	}
+
+	/**
+	 * Clear the in-memory MetadataReader cache, after writing the class metadata
+	 * read so far to the cache directory.
+	 * @see #flush()
+	 */
+	@Override
+	public void clearCache() {
+		flush();
+		super.clearCache();
+	}
+
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * On-disk store for class metadata recordings, used by
+ * {@link PersistentMetadataReaderFactory}.
+ *
+ * <p>Recordings are grouped in one cache file per container, i.e. per jar file
+ * or per directory of class files. Each entry is stamped with the last-modified
+ * time and length of the jar file or class file it has been recorded from, and
+ * is only returned as long as that stamp is unchanged. Cache files are read
+ * through a memory-mapped buffer, and rewritten with the new entries on
+ * {@link #flush()}.
+ *
+ * @since 4.3.25
+ */
+final class PersistentMetadataStore {
+
+	private static final int MAGIC = 0x53504d43;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final String CACHE_FILE_SUFFIX = ".metadata";
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataStore.class);
+
+
+	private final File directory;
+
+	private final ConcurrentMap<String, Segment> segments = new ConcurrentHashMap<String, Segment>(64);
+
+	private final Map<File, Stamp> archiveStamps = new ConcurrentHashMap<File, Stamp>(64);
+
+
+	PersistentMetadataStore(File directory) {
+		this.directory = directory;
+	}
+
+
+	/**
+	 * Return the recording stored for the given resource, if any and not stale.
+	 * @param resource the class file resource
+	 * @return the recording, or {@code null} if none is available
+	 */
+	public byte[] get(Resource resource) {
+		Location location = resolveLocation(resource);
+		if (location == null) {
+			return null;
+		}
+		return getSegment(location).get(location.entryName, location.stamp);
+	}
+
+	/**
+	 * Store the recording for the given resource. The entry is only persisted
+	 * on the next {@link #flush()}.
+	 * @param resource the class file resource
+	 * @param recording the recording to store
+	 */
+	public void put(Resource resource, byte[] recording) {
+		Location location = resolveLocation(resource);
+		if (location != null) {
+			getSegment(location).put(location.entryName, location.stamp, recording);
+		}
+	}
+
+	/**
+	 * Write all pending entries to disk.
+	 */
+	public void flush() {
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			logger.warn("Cannot create class metadata cache directory [" + this.directory + "]");
+			return;
+		}
+		for (Segment segment : this.segments.values()) {
+			segment.flush();
+		}
+	}
+
+
+	private Segment getSegment(Location location) {
+		Segment segment = this.segments.get(location.containerPath);
+		if (segment == null) {
+			String fileName = Integer.toHexString(location.containerPath.hashCode()) + CACHE_FILE_SUFFIX;
+			segment = new Segment(location.containerPath, location.archive, new File(this.directory, fileName));
+			Segment existing = this.segments.putIfAbsent(location.containerPath, segment);
+			if (existing != null) {
+				segment = existing;
+			}
+		}
+		return segment;
+	}
+
+	private Location resolveLocation(Resource resource) {
+		try {
+			URL url = resource.getURL();
+			if (ResourceUtils.isJarURL(url)) {
+				String urlFile = url.getFile();
+				int separatorIndex = urlFile.indexOf(ResourceUtils.JAR_URL_SEPARATOR);
+				URL jarUrl = ResourceUtils.extractJarFileURL(url);
+				if (separatorIndex == -1 || !ResourceUtils.URL_PROTOCOL_FILE.equals(jarUrl.getProtocol())) {
+					return null;
+				}
+				File jarFile = ResourceUtils.getFile(jarUrl);
+				Stamp stamp = this.archiveStamps.get(jarFile);
+				if (stamp == null) {
+					// Jar files are not expected to change while the application is running
+					stamp = new Stamp(jarFile.lastModified(), jarFile.length());
+					this.archiveStamps.put(jarFile, stamp);
+				}
+				String entryName = urlFile.substring(separatorIndex + ResourceUtils.JAR_URL_SEPARATOR.length());
+				return new Location(jarFile.getAbsolutePath(), true, entryName, stamp);
+			}
+			else if (ResourceUtils.URL_PROTOCOL_FILE.equals(url.getProtocol())) {
+				File classFile = ResourceUtils.getFile(url);
+				File parent = classFile.getAbsoluteFile().getParentFile();
+				if (parent == null) {
+					return null;
+				}
+				return new Location(parent.getPath(), false, classFile.getName(),
+						new Stamp(classFile.lastModified(), classFile.length()));
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Cannot resolve location of " + resource + " for class metadata cache", ex);
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * The cache file for the entries of a container.
+	 */
+	private static class Segment {
+
+		private final String containerPath;
+
+		private final boolean archive;
+
+		private final File file;
+
+		private ByteBuffer buffer;
+
+		private Map<String, Entry> entries;
+
+		private final Map<String, Entry> pending = new LinkedHashMap<String, Entry>();
+
+		public Segment(String containerPath, boolean archive, File file) {
+			this.containerPath = containerPath;
+			this.archive = archive;
+			this.file = file;
+		}
+
+		public synchronized byte[] get(String entryName, Stamp stamp) {
+			Entry entry = this.pending.get(entryName);
+			if (entry == null) {
+				entry = getEntries().get(entryName);
+			}
+			if (entry == null || !entry.stamp.equals(stamp)) {
+				return null;
+			}
+			return entry.getData(this.buffer);
+		}
+
+		public synchronized void put(String entryName, Stamp stamp, byte[] data) {
+			this.pending.put(entryName, new Entry(stamp, data));
+		}
+
+		public synchronized void flush() {
+			if (this.pending.isEmpty()) {
+				return;
+			}
+			Map<String, Entry> merged = new LinkedHashMap<String, Entry>(getEntries());
+			if (this.archive) {
+				// All entries of a jar file share its stamp: drop those of a previous version
+				Stamp current = this.pending.values().iterator().next().stamp;
+				for (Iterator<Entry> it = merged.values().iterator(); it.hasNext();) {
+					if (!it.next().stamp.equals(current)) {
+						it.remove();
+					}
+				}
+			}
+			merged.putAll(this.pending);
+			File tempFile = null;
+			try {
+				tempFile = File.createTempFile("metadata", ".tmp", this.file.getParentFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+				try {
+					out.writeInt(MAGIC);
+					out.writeInt(FORMAT_VERSION);
+					out.writeUTF(this.containerPath);
+					out.writeInt(merged.size());
+					for (Map.Entry<String, Entry> mapEntry : merged.entrySet()) {
+						Entry entry = mapEntry.getValue();
+						byte[] data = entry.getData(this.buffer);
+						out.writeUTF(mapEntry.getKey());
+						out.writeLong(entry.stamp.lastModified);
+						out.writeLong(entry.stamp.length);
+						out.writeInt(data.length);
+						out.write(data);
+					}
+				}
+				finally {
+					out.close();
+				}
+				// Release the current mapping before replacing the file
+				this.buffer = null;
+				this.entries = null;
+				if (!tempFile.renameTo(this.file) && (!this.file.delete() || !tempFile.renameTo(this.file))) {
+					throw new IOException("Cannot rename [" + tempFile + "] to [" + this.file + "]");
+				}
+				this.pending.clear();
+			}
+			catch (IOException ex) {
+				if (tempFile != null) {
+					tempFile.delete();
+				}
+				logger.warn("Failed to write class metadata cache file [" + this.file + "]: " + ex);
+			}
+		}
+
+		private Map<String, Entry> getEntries() {
+			if (this.entries == null) {
+				this.entries = new LinkedHashMap<String, Entry>();
+				if (this.file.isFile()) {
+					try {
+						read();
+					}
+					catch (IOException ex) {
+						discard(ex);
+					}
+					catch (IllegalArgumentException ex) {
+						discard(ex);
+					}
+				}
+			}
+			return this.entries;
+		}
+
+		private void read() throws IOException {
+			FileInputStream fis = new FileInputStream(this.file);
+			try {
+				FileChannel channel = fis.getChannel();
+				// The mapping remains valid after the channel has been closed
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+						!this.containerPath.equals(in.readUTF())) {
+					// Not ours: another format version, or a hash collision on the file name
+					return;
+				}
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					String entryName = in.readUTF();
+					Stamp stamp = new Stamp(in.readLong(), in.readLong());
+					int length = in.readInt();
+					if (length < 0 || length > buffer.remaining()) {
+						throw new IOException("Truncated entry [" + entryName + "]");
+					}
+					this.entries.put(entryName, new Entry(stamp, buffer.position(), length));
+					buffer.position(buffer.position() + length);
+				}
+				this.buffer = buffer;
+			}
+			finally {
+				fis.close();
+			}
+		}
+
+		private void discard(Exception ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring invalid class metadata cache file [" + this.file + "]: " + ex);
+			}
+			this.entries.clear();
+			this.buffer = null;
+		}
+	}
+
+
+	/**
+	 * Unbuffered {@link InputStream} reading from the current position of a
+	 * {@link ByteBuffer}, which it advances.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return (this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, count);
+			return count;
+		}
+	}
+
+
+	/**
+	 * A cache entry, either backed by a region of a mapped cache file or by a
+	 * recording that has not been written yet.
+	 */
+	private static class Entry {
+
+		private final Stamp stamp;
+
+		private final byte[] data;
+
+		private final int offset;
+
+		private final int length;
+
+		public Entry(Stamp stamp, byte[] data) {
+			this.stamp = stamp;
+			this.data = data;
+			this.offset = -1;
+			this.length = data.length;
+		}
+
+		public Entry(Stamp stamp, int offset, int length) {
+			this.stamp = stamp;
+			this.data = null;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public byte[] getData(ByteBuffer buffer) {
+			if (this.data != null) {
+				return this.data;
+			}
+			byte[] result = new byte[this.length];
+			ByteBuffer region = buffer.duplicate();
+			region.position(this.offset);
+			region.get(result);
+			return result;
+		}
+	}
+
+
+	/**
+	 * The last-modified time and length of a jar file or class file.
+	 */
+	private static class Stamp {
+
+		private final long lastModified;
+
+		private final long length;
+
+		public Stamp(long lastModified, long length) {
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Stamp)) {
+				return false;
+			}
+			Stamp otherStamp = (Stamp) other;
+			return (this.lastModified == otherStamp.lastModified && this.length == otherStamp.length);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (this.lastModified ^ (this.lastModified >>> 32)) * 31 + (int) this.length;
+		}
+	}
+
+
+	/**
+	 * The resolved location of a class file resource.
+	 */
+	private static class Location {
+
+		private final String containerPath;
+
+		private final boolean archive;
+
+		private final String entryName;
+
+		private final Stamp stamp;
+
+		public Location(String containerPath, boolean archive, String entryName, Stamp stamp) {
+			this.containerPath = containerPath;
+			this.archive = archive;
+			this.entryName = entryName;
+			this.stamp = stamp;
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.ClassMetadata;
+
+/**
+ * {@link MetadataReader} implementation exposing the metadata collected by an
+ * {@link AnnotationMetadataReadingVisitor}, whether it visited the class file
+ * itself or a recording of it.
+ *
+ * @since 4.3.25
+ * @see PersistentMetadataReaderFactory
+ */
+final class RecordedMetadataReader implements MetadataReader {
+
+	private final Resource resource;
+
+	private final AnnotationMetadataReadingVisitor visitor;
+
+
+	RecordedMetadataReader(Resource resource, AnnotationMetadataReadingVisitor visitor) {
+		this.resource = resource;
+		this.visitor = visitor;
+	}
+
+
+	@Override
+	public Resource getResource() {
+		return this.resource;
+	}
+
+	@Override
+	public ClassMetadata getClassMetadata() {
+		return this.visitor;
+	}
+
+	@Override
+	public AnnotationMetadata getAnnotationMetadata() {
+		return this.visitor;
+	}
+
+}
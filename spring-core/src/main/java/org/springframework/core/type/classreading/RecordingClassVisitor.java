@@ -0,0 +1,612 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+
+/**
+ * ASM class visitor that delegates to another visitor and records, in a compact
+ * binary form, the events that are relevant to class metadata: the class
+ * declaration, its enclosing and member classes, and the annotations on the
+ * class and on its methods. A recording can be {@link #replay replayed} on a
+ * fresh visitor later on, without reading the class file again.
+ *
+ * <p>Since the events are recorded as found in the class file, independent of
+ * the visitor that consumes them, a replay produces the same metadata as the
+ * original visit, including the meta-annotations that are introspected from
+ * the annotation types available at that time.
+ *
+ * @since 4.3.25
+ * @see PersistentMetadataReaderFactory
+ */
+final class RecordingClassVisitor extends ClassVisitor {
+
+	private static final byte END = 0;
+
+	private static final byte CLASS = 1;
+
+	private static final byte OUTER_CLASS = 2;
+
+	private static final byte INNER_CLASS = 3;
+
+	private static final byte ANNOTATION = 4;
+
+	private static final byte METHOD = 5;
+
+	private static final byte VALUE = 6;
+
+	private static final byte ENUM = 7;
+
+	private static final byte NESTED_ANNOTATION = 8;
+
+	private static final byte ARRAY = 9;
+
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+	private final DataOutputStream out = new DataOutputStream(this.buffer);
+
+	private boolean failed;
+
+
+	/**
+	 * Create a new recording visitor.
+	 * @param delegate the visitor to delegate to
+	 */
+	public RecordingClassVisitor(ClassVisitor delegate) {
+		super(SpringAsmInfo.ASM_VERSION, delegate);
+	}
+
+
+	/**
+	 * Return the recorded events, or {@code null} if some of them could not
+	 * be recorded (e.g. an annotation value that is too long).
+	 */
+	public byte[] getRecording() {
+		return (this.failed ? null : this.buffer.toByteArray());
+	}
+
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		try {
+			this.out.writeByte(CLASS);
+			this.out.writeInt(version);
+			this.out.writeInt(access);
+			this.out.writeUTF(name);
+			writeNullable(superName);
+			this.out.writeInt(interfaces != null ? interfaces.length : 0);
+			if (interfaces != null) {
+				for (String ifc : interfaces) {
+					this.out.writeUTF(ifc);
+				}
+			}
+		}
+		catch (IOException ex) {
+			this.failed = true;
+		}
+		super.visit(version, access, name, signature, superName, interfaces);
+	}
+
+	@Override
+	public void visitOuterClass(String owner, String name, String desc) {
+		try {
+			this.out.writeByte(OUTER_CLASS);
+			this.out.writeUTF(owner);
+			writeNullable(name);
+			writeNullable(desc);
+		}
+		catch (IOException ex) {
+			this.failed = true;
+		}
+		super.visitOuterClass(owner, name, desc);
+	}
+
+	@Override
+	public void visitInnerClass(String name, String outerName, String innerName, int access) {
+		try {
+			this.out.writeByte(INNER_CLASS);
+			this.out.writeUTF(name);
+			writeNullable(outerName);
+			writeNullable(innerName);
+			this.out.writeInt(access);
+		}
+		catch (IOException ex) {
+			this.failed = true;
+		}
+		super.visitInnerClass(name, outerName, innerName, access);
+	}
+
+	@Override
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+		AnnotationVisitor av = super.visitAnnotation(desc, visible);
+		if (av == null) {
+			return null;
+		}
+		recordAnnotation(desc, visible);
+		return new RecordingAnnotationVisitor(av);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(final int access, final String name, final String desc,
+			String signature, String[] exceptions) {
+
+		MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+		if (mv == null) {
+			return null;
+		}
+		// Only methods with annotations are recorded, with a header written lazily
+		return new MethodVisitor(SpringAsmInfo.ASM_VERSION, mv) {
+			private boolean recorded;
+			@Override
+			public AnnotationVisitor visitAnnotation(String annotationDesc, boolean visible) {
+				AnnotationVisitor av = super.visitAnnotation(annotationDesc, visible);
+				if (av == null) {
+					return null;
+				}
+				if (!this.recorded) {
+					try {
+						out.writeByte(METHOD);
+						out.writeInt(access);
+						out.writeUTF(name);
+						out.writeUTF(desc);
+					}
+					catch (IOException ex) {
+						failed = true;
+					}
+					this.recorded = true;
+				}
+				recordAnnotation(annotationDesc, visible);
+				return new RecordingAnnotationVisitor(av);
+			}
+			@Override
+			public void visitEnd() {
+				if (this.recorded) {
+					recordEnd();
+				}
+				super.visitEnd();
+			}
+		};
+	}
+
+	@Override
+	public void visitEnd() {
+		recordEnd();
+		super.visitEnd();
+	}
+
+	private void recordAnnotation(String desc, boolean visible) {
+		try {
+			this.out.writeByte(ANNOTATION);
+			this.out.writeUTF(desc);
+			this.out.writeBoolean(visible);
+		}
+		catch (IOException ex) {
+			this.failed = true;
+		}
+	}
+
+	private void recordEnd() {
+		try {
+			this.out.writeByte(END);
+		}
+		catch (IOException ex) {
+			this.failed = true;
+		}
+	}
+
+	private void writeNullable(String value) throws IOException {
+		this.out.writeBoolean(value != null);
+		if (value != null) {
+			this.out.writeUTF(value);
+		}
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value instanceof String) {
+			this.out.writeByte('s');
+			this.out.writeUTF((String) value);
+		}
+		else if (value instanceof Type) {
+			this.out.writeByte('T');
+			this.out.writeUTF(((Type) value).getDescriptor());
+		}
+		else if (value instanceof Integer) {
+			this.out.writeByte('I');
+			this.out.writeInt((Integer) value);
+		}
+		else if (value instanceof Boolean) {
+			this.out.writeByte('Z');
+			this.out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Long) {
+			this.out.writeByte('J');
+			this.out.writeLong((Long) value);
+		}
+		else if (value instanceof Character) {
+			this.out.writeByte('C');
+			this.out.writeChar((Character) value);
+		}
+		else if (value instanceof Byte) {
+			this.out.writeByte('B');
+			this.out.writeByte((Byte) value);
+		}
+		else if (value instanceof Short) {
+			this.out.writeByte('S');
+			this.out.writeShort((Short) value);
+		}
+		else if (value instanceof Float) {
+			this.out.writeByte('F');
+			this.out.writeFloat((Float) value);
+		}
+		else if (value instanceof Double) {
+			this.out.writeByte('D');
+			this.out.writeDouble((Double) value);
+		}
+		else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			writeArrayHeader('I', array.length);
+			for (int element : array) {
+				this.out.writeInt(element);
+			}
+		}
+		else if (value instanceof boolean[]) {
+			boolean[] array = (boolean[]) value;
+			writeArrayHeader('Z', array.length);
+			for (boolean element : array) {
+				this.out.writeBoolean(element);
+			}
+		}
+		else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			writeArrayHeader('J', array.length);
+			for (long element : array) {
+				this.out.writeLong(element);
+			}
+		}
+		else if (value instanceof char[]) {
+			char[] array = (char[]) value;
+			writeArrayHeader('C', array.length);
+			for (char element : array) {
+				this.out.writeChar(element);
+			}
+		}
+		else if (value instanceof byte[]) {
+			byte[] array = (byte[]) value;
+			writeArrayHeader('B', array.length);
+			this.out.write(array);
+		}
+		else if (value instanceof short[]) {
+			short[] array = (short[]) value;
+			writeArrayHeader('S', array.length);
+			for (short element : array) {
+				this.out.writeShort(element);
+			}
+		}
+		else if (value instanceof float[]) {
+			float[] array = (float[]) value;
+			writeArrayHeader('F', array.length);
+			for (float element : array) {
+				this.out.writeFloat(element);
+			}
+		}
+		else if (value instanceof double[]) {
+			double[] array = (double[]) value;
+			writeArrayHeader('D', array.length);
+			for (double element : array) {
+				this.out.writeDouble(element);
+			}
+		}
+		else {
+			throw new IOException("Unsupported annotation value: " + value);
+		}
+	}
+
+	private void writeArrayHeader(char componentType, int length) throws IOException {
+		this.out.writeByte('[');
+		this.out.writeByte(componentType);
+		this.out.writeInt(length);
+	}
+
+
+	/**
+	 * Replay the given recording on the given visitor.
+	 * @param recording the events recorded by a {@code RecordingClassVisitor}
+	 * @param visitor the visitor to replay the events on
+	 * @throws IOException if the recording is corrupt
+	 */
+	public static void replay(byte[] recording, ClassVisitor visitor) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(recording));
+		if (in.readByte() != CLASS) {
+			throw new IOException("Invalid class metadata recording");
+		}
+		int version = in.readInt();
+		int access = in.readInt();
+		String name = in.readUTF();
+		String superName = readNullable(in);
+		String[] interfaces = new String[in.readInt()];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = in.readUTF();
+		}
+		visitor.visit(version, access, name, null, superName, interfaces);
+		while (true) {
+			byte event = in.readByte();
+			switch (event) {
+				case OUTER_CLASS:
+					visitor.visitOuterClass(in.readUTF(), readNullable(in), readNullable(in));
+					break;
+				case INNER_CLASS:
+					visitor.visitInnerClass(in.readUTF(), readNullable(in), readNullable(in), in.readInt());
+					break;
+				case ANNOTATION:
+					String desc = in.readUTF();
+					replayAnnotation(in, visitor.visitAnnotation(desc, in.readBoolean()));
+					break;
+				case METHOD:
+					replayMethod(in, visitor.visitMethod(in.readInt(), in.readUTF(), in.readUTF(), null, null));
+					break;
+				case END:
+					visitor.visitEnd();
+					return;
+				default:
+					throw new IOException("Invalid class metadata recording: unexpected event " + event);
+			}
+		}
+	}
+
+	private static void replayMethod(DataInputStream in, MethodVisitor mv) throws IOException {
+		while (true) {
+			byte event = in.readByte();
+			if (event == ANNOTATION) {
+				String desc = in.readUTF();
+				boolean visible = in.readBoolean();
+				replayAnnotation(in, (mv != null ? mv.visitAnnotation(desc, visible) : null));
+			}
+			else if (event == END) {
+				if (mv != null) {
+					mv.visitEnd();
+				}
+				return;
+			}
+			else {
+				throw new IOException("Invalid method metadata recording: unexpected event " + event);
+			}
+		}
+	}
+
+	private static void replayAnnotation(DataInputStream in, AnnotationVisitor av) throws IOException {
+		while (true) {
+			byte event = in.readByte();
+			switch (event) {
+				case VALUE: {
+					String name = readNullable(in);
+					Object value = readValue(in);
+					if (av != null) {
+						av.visit(name, value);
+					}
+					break;
+				}
+				case ENUM: {
+					String name = readNullable(in);
+					String desc = in.readUTF();
+					String value = in.readUTF();
+					if (av != null) {
+						av.visitEnum(name, desc, value);
+					}
+					break;
+				}
+				case NESTED_ANNOTATION: {
+					String name = readNullable(in);
+					String desc = in.readUTF();
+					replayAnnotation(in, (av != null ? av.visitAnnotation(name, desc) : null));
+					break;
+				}
+				case ARRAY: {
+					String name = readNullable(in);
+					replayAnnotation(in, (av != null ? av.visitArray(name) : null));
+					break;
+				}
+				case END:
+					if (av != null) {
+						av.visitEnd();
+					}
+					return;
+				default:
+					throw new IOException("Invalid annotation metadata recording: unexpected event " + event);
+			}
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case 's':
+				return in.readUTF();
+			case 'T':
+				return Type.getType(in.readUTF());
+			case 'I':
+				return in.readInt();
+			case 'Z':
+				return in.readBoolean();
+			case 'J':
+				return in.readLong();
+			case 'C':
+				return in.readChar();
+			case 'B':
+				return in.readByte();
+			case 'S':
+				return in.readShort();
+			case 'F':
+				return in.readFloat();
+			case 'D':
+				return in.readDouble();
+			case '[':
+				return readArray(in);
+			default:
+				throw new IOException("Invalid annotation value type: " + type);
+		}
+	}
+
+	private static Object readArray(DataInputStream in) throws IOException {
+		byte componentType = in.readByte();
+		int length = in.readInt();
+		switch (componentType) {
+			case 'I': {
+				int[] array = new int[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readInt();
+				}
+				return array;
+			}
+			case 'Z': {
+				boolean[] array = new boolean[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readBoolean();
+				}
+				return array;
+			}
+			case 'J': {
+				long[] array = new long[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readLong();
+				}
+				return array;
+			}
+			case 'C': {
+				char[] array = new char[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readChar();
+				}
+				return array;
+			}
+			case 'B': {
+				byte[] array = new byte[length];
+				in.readFully(array);
+				return array;
+			}
+			case 'S': {
+				short[] array = new short[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readShort();
+				}
+				return array;
+			}
+			case 'F': {
+				float[] array = new float[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readFloat();
+				}
+				return array;
+			}
+			case 'D': {
+				double[] array = new double[length];
+				for (int i = 0; i < length; i++) {
+					array[i] = in.readDouble();
+				}
+				return array;
+			}
+			default:
+				throw new IOException("Invalid annotation array type: " + componentType);
+		}
+	}
+
+
+	/**
+	 * Annotation visitor that records the annotation values before delegating.
+	 */
+	private class RecordingAnnotationVisitor extends AnnotationVisitor {
+
+		public RecordingAnnotationVisitor(AnnotationVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+		}
+
+		@Override
+		public void visit(String name, Object value) {
+			try {
+				out.writeByte(VALUE);
+				writeNullable(name);
+				writeValue(value);
+			}
+			catch (IOException ex) {
+				failed = true;
+			}
+			super.visit(name, value);
+		}
+
+		@Override
+		public void visitEnum(String name, String desc, String value) {
+			try {
+				out.writeByte(ENUM);
+				writeNullable(name);
+				out.writeUTF(desc);
+				out.writeUTF(value);
+			}
+			catch (IOException ex) {
+				failed = true;
+			}
+			super.visitEnum(name, desc, value);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(String name, String desc) {
+			AnnotationVisitor av = super.visitAnnotation(name, desc);
+			try {
+				out.writeByte(NESTED_ANNOTATION);
+				writeNullable(name);
+				out.writeUTF(desc);
+			}
+			catch (IOException ex) {
+				failed = true;
+			}
+			return new RecordingAnnotationVisitor(av);
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(String name) {
+			AnnotationVisitor av = super.visitArray(name);
+			try {
+				out.writeByte(ARRAY);
+				writeNullable(name);
+			}
+			catch (IOException ex) {
+				failed = true;
+			}
+			return new RecordingAnnotationVisitor(av);
+		}
+
+		@Override
+		public void visitEnd() {
+			recordEnd();
+			super.visitEnd();
+		}
+	}
+
+}
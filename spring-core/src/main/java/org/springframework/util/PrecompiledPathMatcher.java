@@ -0,0 +1,639 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PathMatcher} implementation that parses each Ant-style pattern once
+ * into an immutable, precompiled form and then matches paths against it
+ * without tokenizing the path into Strings and without regular expressions.
+ *
+ * <p>Matching semantics are the same as for {@link AntPathMatcher}, which
+ * this class extends for pattern combination, comparison and extraction of
+ * the path within a pattern. The differences are in how {@link #match},
+ * {@link #matchStart} and {@link #extractUriTemplateVariables} are executed:
+ * <ul>
+ * <li>Path segments are located by offset within the original path.
+ * <li>Literal segments, {@code "?"}, {@code "*"}, {@code "**"} and
+ * {@code "{name}"} are matched char by char; only segments with a regular
+ * expression constraint, e.g. {@code "{name:[a-z]+}"}, fall back to
+ * {@link AntPathMatcher.AntPathStringMatcher}.
+ * <li>URI template variable values are only extracted into Strings once a
+ * segment is known to match.
+ * <li>Compiled patterns are held in a {@link ConcurrentReferenceHashMap}
+ * rather than in a cache that is turned off when it exceeds a threshold.
+ * </ul>
+ *
+ * <p>An instance may be used wherever a {@code PathMatcher} is configurable,
+ * e.g. through {@code PathMatchConfigurer} in Spring MVC, which applies it to
+ * annotated controllers as well as {@code SimpleUrlHandlerMapping} instances
+ * such as the one serving static resources, or in
+ * {@code DefaultSubscriptionRegistry} for STOMP destinations.
+ *
+ * @since 4.3.25
+ * @see AntPathMatcher
+ */
+public class PrecompiledPathMatcher extends AntPathMatcher {
+
+	private String pathSeparator = DEFAULT_PATH_SEPARATOR;
+
+	private boolean caseSensitive = true;
+
+	private boolean trimTokens = false;
+
+	private boolean cachePatterns = true;
+
+	final Map<String, CompiledPattern> compiledPatternCache =
+			new ConcurrentReferenceHashMap<String, CompiledPattern>(256);
+
+
+	/**
+	 * Create a new instance with the {@link #DEFAULT_PATH_SEPARATOR}.
+	 */
+	public PrecompiledPathMatcher() {
+		super();
+	}
+
+	/**
+	 * A convenient, alternative constructor to use with a custom path separator.
+	 * @param pathSeparator the path separator to use, must not be {@code null}.
+	 */
+	public PrecompiledPathMatcher(String pathSeparator) {
+		super(pathSeparator);
+		this.pathSeparator = pathSeparator;
+	}
+
+
+	@Override
+	public void setPathSeparator(String pathSeparator) {
+		super.setPathSeparator(pathSeparator);
+		this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
+		this.compiledPatternCache.clear();
+	}
+
+	@Override
+	public void setCaseSensitive(boolean caseSensitive) {
+		super.setCaseSensitive(caseSensitive);
+		this.caseSensitive = caseSensitive;
+		this.compiledPatternCache.clear();
+	}
+
+	@Override
+	public void setTrimTokens(boolean trimTokens) {
+		super.setTrimTokens(trimTokens);
+		this.trimTokens = trimTokens;
+		this.compiledPatternCache.clear();
+	}
+
+	/**
+	 * Specify whether to cache compiled patterns.
+	 * <p>Default is {@code true}. Compiled patterns are softly referenced
+	 * and may therefore be reclaimed under memory pressure.
+	 */
+	@Override
+	public void setCachePatterns(boolean cachePatterns) {
+		super.setCachePatterns(cachePatterns);
+		this.cachePatterns = cachePatterns;
+		if (!cachePatterns) {
+			this.compiledPatternCache.clear();
+		}
+	}
+
+
+	@Override
+	protected boolean doMatch(String pattern, String path, boolean fullMatch, Map<String, String> uriTemplateVariables) {
+		if (path.startsWith(this.pathSeparator) != pattern.startsWith(this.pathSeparator)) {
+			return false;
+		}
+		return getCompiledPattern(pattern).match(path, fullMatch, uriTemplateVariables);
+	}
+
+	private CompiledPattern getCompiledPattern(String pattern) {
+		CompiledPattern compiled = (this.cachePatterns ? this.compiledPatternCache.get(pattern) : null);
+		if (compiled == null) {
+			compiled = new CompiledPattern(pattern);
+			if (this.cachePatterns) {
+				this.compiledPatternCache.put(pattern, compiled);
+			}
+		}
+		return compiled;
+	}
+
+	/**
+	 * Locate the segments of the given path, with the same rules as applied by
+	 * {@link #tokenizePath}, and return their start and end offsets in pairs.
+	 */
+	private int[] getSegmentOffsets(String path) {
+		int[] offsets = new int[8];
+		int count = 0;
+		int length = path.length();
+		int index = 0;
+		while (index < length) {
+			while (index < length && isSeparator(path.charAt(index))) {
+				index++;
+			}
+			int start = index;
+			while (index < length && !isSeparator(path.charAt(index))) {
+				index++;
+			}
+			int end = index;
+			if (this.trimTokens) {
+				while (start < end && path.charAt(start) <= ' ') {
+					start++;
+				}
+				while (end > start && path.charAt(end - 1) <= ' ') {
+					end--;
+				}
+			}
+			if (start < end) {
+				if (count == offsets.length) {
+					int[] newOffsets = new int[offsets.length * 2];
+					System.arraycopy(offsets, 0, newOffsets, 0, count);
+					offsets = newOffsets;
+				}
+				offsets[count++] = start;
+				offsets[count++] = end;
+			}
+		}
+		if (count < offsets.length) {
+			int[] result = new int[count];
+			System.arraycopy(offsets, 0, result, 0, count);
+			return result;
+		}
+		return offsets;
+	}
+
+	private boolean isSeparator(char c) {
+		return (this.pathSeparator.length() == 1 ? c == this.pathSeparator.charAt(0) :
+				this.pathSeparator.indexOf(c) != -1);
+	}
+
+
+	/**
+	 * A pattern parsed into one {@link SegmentMatcher} per pattern segment.
+	 */
+	private class CompiledPattern {
+
+		private final String pattern;
+
+		private final SegmentMatcher[] segments;
+
+		public CompiledPattern(String pattern) {
+			this.pattern = pattern;
+			String[] tokens = tokenizePath(pattern);
+			this.segments = new SegmentMatcher[tokens.length];
+			for (int i = 0; i < tokens.length; i++) {
+				this.segments[i] = createSegmentMatcher(tokens[i]);
+			}
+		}
+
+		/**
+		 * Same algorithm as {@link AntPathMatcher#doMatch}, applied to
+		 * precompiled segments and path segment offsets.
+		 */
+		public boolean match(String path, boolean fullMatch, Map<String, String> uriTemplateVariables) {
+			SegmentMatcher[] pattSegs = this.segments;
+			int[] offsets = getSegmentOffsets(path);
+
+			int pattIdxStart = 0;
+			int pattIdxEnd = pattSegs.length - 1;
+			int pathIdxStart = 0;
+			int pathIdxEnd = (offsets.length / 2) - 1;
+
+			// Match all elements up to the first **
+			while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				SegmentMatcher pattSeg = pattSegs[pattIdxStart];
+				if (pattSeg.isDoubleWildcard()) {
+					break;
+				}
+				if (!matchSegment(pattSeg, path, offsets, pathIdxStart, uriTemplateVariables)) {
+					return false;
+				}
+				pattIdxStart++;
+				pathIdxStart++;
+			}
+
+			if (pathIdxStart > pathIdxEnd) {
+				// Path is exhausted, only match if rest of pattern is * or **'s
+				if (pattIdxStart > pattIdxEnd) {
+					return (this.pattern.endsWith(pathSeparator) == path.endsWith(pathSeparator));
+				}
+				if (!fullMatch) {
+					return true;
+				}
+				if (pattIdxStart == pattIdxEnd && pattSegs[pattIdxStart].isSingleWildcard() &&
+						path.endsWith(pathSeparator)) {
+					return true;
+				}
+				return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+			}
+			else if (pattIdxStart > pattIdxEnd) {
+				// String not exhausted, but pattern is. Failure.
+				return false;
+			}
+			else if (!fullMatch && pattSegs[pattIdxStart].isDoubleWildcard()) {
+				// Path start definitely matches due to "**" part in pattern.
+				return true;
+			}
+
+			// up to last '**'
+			while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				SegmentMatcher pattSeg = pattSegs[pattIdxEnd];
+				if (pattSeg.isDoubleWildcard()) {
+					break;
+				}
+				if (!matchSegment(pattSeg, path, offsets, pathIdxEnd, uriTemplateVariables)) {
+					return false;
+				}
+				pattIdxEnd--;
+				pathIdxEnd--;
+			}
+			if (pathIdxStart > pathIdxEnd) {
+				// String is exhausted
+				return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+			}
+
+			while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+					if (pattSegs[i].isDoubleWildcard()) {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == pattIdxStart + 1) {
+					// '**/**' situation, so skip one
+					pattIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - pattIdxStart - 1);
+				int strLength = (pathIdxEnd - pathIdxStart + 1);
+				int foundIdx = -1;
+
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						SegmentMatcher subPat = pattSegs[pattIdxStart + j + 1];
+						if (!matchSegment(subPat, path, offsets, pathIdxStart + i + j, uriTemplateVariables)) {
+							continue strLoop;
+						}
+					}
+					foundIdx = pathIdxStart + i;
+					break;
+				}
+
+				if (foundIdx == -1) {
+					return false;
+				}
+
+				pattIdxStart = patIdxTmp;
+				pathIdxStart = foundIdx + patLength;
+			}
+
+			return onlyDoubleWildcards(pattIdxStart, pattIdxEnd);
+		}
+
+		private boolean matchSegment(SegmentMatcher matcher, String path, int[] offsets, int index,
+				Map<String, String> uriTemplateVariables) {
+
+			return matcher.matches(path, offsets[index * 2], offsets[index * 2 + 1], uriTemplateVariables);
+		}
+
+		private boolean onlyDoubleWildcards(int start, int end) {
+			for (int i = start; i <= end; i++) {
+				if (!this.segments[i].isDoubleWildcard()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+
+	private SegmentMatcher createSegmentMatcher(String segment) {
+		if ("**".equals(segment)) {
+			return DoubleWildcardSegmentMatcher.INSTANCE;
+		}
+		if (segment.indexOf('*') == -1 && segment.indexOf('?') == -1 && segment.indexOf('{') == -1) {
+			return new LiteralSegmentMatcher(segment, this.caseSensitive);
+		}
+		List<GlobPart> parts = parseGlob(segment);
+		if (parts != null) {
+			return new GlobSegmentMatcher(segment, parts.toArray(new GlobPart[parts.size()]), this.caseSensitive);
+		}
+		return new RegexSegmentMatcher(segment, this.caseSensitive);
+	}
+
+	/**
+	 * Parse a segment into literal, {@code "?"}, {@code "*"} and {@code "{name}"}
+	 * parts, or return {@code null} if it requires a regular expression.
+	 */
+	private static List<GlobPart> parseGlob(String segment) {
+		List<GlobPart> parts = new ArrayList<GlobPart>();
+		StringBuilder literal = new StringBuilder();
+		int length = segment.length();
+		for (int i = 0; i < length; i++) {
+			char c = segment.charAt(i);
+			if (c == '*' || c == '?') {
+				addLiteral(parts, literal);
+				parts.add(c == '*' ? GlobPart.ANY_PART : GlobPart.ONE_PART);
+			}
+			else if (c == '{') {
+				int end = segment.indexOf('}', i + 1);
+				if (end == -1) {
+					return null;
+				}
+				String name = segment.substring(i + 1, end);
+				if (name.isEmpty() || name.indexOf('{') != -1 || name.indexOf(':') != -1 ||
+						name.indexOf('/') != -1 || name.indexOf('\\') != -1) {
+					return null;
+				}
+				addLiteral(parts, literal);
+				parts.add(new GlobPart(GlobPart.VARIABLE, name));
+				i = end;
+			}
+			else if (c == '}') {
+				return null;
+			}
+			else {
+				literal.append(c);
+			}
+		}
+		addLiteral(parts, literal);
+		return parts;
+	}
+
+	private static void addLiteral(List<GlobPart> parts, StringBuilder literal) {
+		if (literal.length() > 0) {
+			parts.add(new GlobPart(GlobPart.LITERAL, literal.toString()));
+			literal.setLength(0);
+		}
+	}
+
+	/**
+	 * Compare two chars the way a {@link java.util.regex.Pattern} would,
+	 * i.e. with US-ASCII case folding only if not case-sensitive.
+	 */
+	private static boolean charsEqual(char c1, char c2, boolean caseSensitive) {
+		if (c1 == c2) {
+			return true;
+		}
+		if (caseSensitive || c1 >= 128 || c2 >= 128) {
+			return false;
+		}
+		return (Character.toLowerCase(c1) == Character.toLowerCase(c2));
+	}
+
+	private static boolean regionEquals(String path, int offset, String literal, boolean caseSensitive) {
+		int length = literal.length();
+		for (int i = 0; i < length; i++) {
+			if (!charsEqual(path.charAt(offset + i), literal.charAt(i), caseSensitive)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the given char is a line terminator, which is not matched by
+	 * {@code "."} in the regular expressions used by {@link AntPathMatcher}.
+	 */
+	private static boolean isLineTerminator(char c) {
+		return (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029');
+	}
+
+
+	/**
+	 * Contract for matching a single, precompiled pattern segment.
+	 */
+	private interface SegmentMatcher {
+
+		boolean isDoubleWildcard();
+
+		boolean isSingleWildcard();
+
+		boolean matches(String path, int start, int end, Map<String, String> uriTemplateVariables);
+	}
+
+
+	private static class DoubleWildcardSegmentMatcher implements SegmentMatcher {
+
+		public static final DoubleWildcardSegmentMatcher INSTANCE = new DoubleWildcardSegmentMatcher();
+
+		@Override
+		public boolean isDoubleWildcard() {
+			return true;
+		}
+
+		@Override
+		public boolean isSingleWildcard() {
+			return false;
+		}
+
+		@Override
+		public boolean matches(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			throw new IllegalStateException("'**' is not matched against individual segments");
+		}
+	}
+
+
+	private static class LiteralSegmentMatcher implements SegmentMatcher {
+
+		private final String literal;
+
+		private final boolean caseSensitive;
+
+		public LiteralSegmentMatcher(String literal, boolean caseSensitive) {
+			this.literal = literal;
+			this.caseSensitive = caseSensitive;
+		}
+
+		@Override
+		public boolean isDoubleWildcard() {
+			return false;
+		}
+
+		@Override
+		public boolean isSingleWildcard() {
+			return false;
+		}
+
+		@Override
+		public boolean matches(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			return (end - start == this.literal.length() &&
+					regionEquals(path, start, this.literal, this.caseSensitive));
+		}
+	}
+
+
+	private static class GlobPart {
+
+		static final int LITERAL = 0;
+
+		static final int ONE = 1;
+
+		static final int ANY = 2;
+
+		static final int VARIABLE = 3;
+
+		static final GlobPart ONE_PART = new GlobPart(GlobPart.ONE, null);
+
+		static final GlobPart ANY_PART = new GlobPart(GlobPart.ANY, null);
+
+		private final int type;
+
+		private final String value;
+
+		GlobPart(int type, String value) {
+			this.type = type;
+			this.value = value;
+		}
+	}
+
+
+	/**
+	 * Matches a segment with {@code "?"}, {@code "*"} and {@code "{name}"}
+	 * parts by backtracking, trying the longest possible match for each
+	 * {@code "*"} and {@code "{name}"} first, consistent with the greedy
+	 * {@code ".*"} and {@code "(.*)"} expressions in {@link AntPathMatcher}.
+	 */
+	private static class GlobSegmentMatcher implements SegmentMatcher {
+
+		private final boolean singleWildcard;
+
+		private final GlobPart[] parts;
+
+		private final int variableCount;
+
+		private final boolean caseSensitive;
+
+		public GlobSegmentMatcher(String segment, GlobPart[] parts, boolean caseSensitive) {
+			this.singleWildcard = "*".equals(segment);
+			this.parts = parts;
+			int variableCount = 0;
+			for (GlobPart part : parts) {
+				if (part.type == GlobPart.VARIABLE) {
+					variableCount++;
+				}
+			}
+			this.variableCount = variableCount;
+			this.caseSensitive = caseSensitive;
+		}
+
+		@Override
+		public boolean isDoubleWildcard() {
+			return false;
+		}
+
+		@Override
+		public boolean isSingleWildcard() {
+			return this.singleWildcard;
+		}
+
+		@Override
+		public boolean matches(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			int[] captures = (uriTemplateVariables != null && this.variableCount > 0 ?
+					new int[this.variableCount * 2] : null);
+			if (!matchParts(path, start, end, 0, 0, captures)) {
+				return false;
+			}
+			if (captures != null) {
+				int variableIndex = 0;
+				for (GlobPart part : this.parts) {
+					if (part.type == GlobPart.VARIABLE) {
+						int from = captures[variableIndex * 2];
+						int to = captures[variableIndex * 2 + 1];
+						uriTemplateVariables.put(part.value, path.substring(from, to));
+						variableIndex++;
+					}
+				}
+			}
+			return true;
+		}
+
+		private boolean matchParts(String path, int pos, int end, int partIndex, int variableIndex, int[] captures) {
+			if (partIndex == this.parts.length) {
+				return (pos == end);
+			}
+			GlobPart part = this.parts[partIndex];
+			switch (part.type) {
+				case GlobPart.LITERAL:
+					int length = part.value.length();
+					return (end - pos >= length && regionEquals(path, pos, part.value, this.caseSensitive) &&
+							matchParts(path, pos + length, end, partIndex + 1, variableIndex, captures));
+				case GlobPart.ONE:
+					if (pos == end || isLineTerminator(path.charAt(pos))) {
+						return false;
+					}
+					int next = (Character.isHighSurrogate(path.charAt(pos)) && pos + 1 < end &&
+							Character.isLowSurrogate(path.charAt(pos + 1)) ? pos + 2 : pos + 1);
+					return matchParts(path, next, end, partIndex + 1, variableIndex, captures);
+				default:
+					int limit = pos;
+					while (limit < end && !isLineTerminator(path.charAt(limit))) {
+						limit++;
+					}
+					boolean variable = (part.type == GlobPart.VARIABLE);
+					int nextVariableIndex = (variable ? variableIndex + 1 : variableIndex);
+					for (int to = limit; to >= pos; to--) {
+						if (matchParts(path, to, end, partIndex + 1, nextVariableIndex, captures)) {
+							if (variable && captures != null) {
+								captures[variableIndex * 2] = pos;
+								captures[variableIndex * 2 + 1] = to;
+							}
+							return true;
+						}
+					}
+					return false;
+			}
+		}
+	}
+
+
+	/**
+	 * Fallback for segments with regular expression constraints.
+	 */
+	private static class RegexSegmentMatcher implements SegmentMatcher {
+
+		private final AntPathStringMatcher matcher;
+
+		public RegexSegmentMatcher(String segment, boolean caseSensitive) {
+			this.matcher = new AntPathStringMatcher(segment, caseSensitive);
+		}
+
+		@Override
+		public boolean isDoubleWildcard() {
+			return false;
+		}
+
+		@Override
+		public boolean isSingleWildcard() {
+			return false;
+		}
+
+		@Override
+		public boolean matches(String path, int start, int end, Map<String, String> uriTemplateVariables) {
+			return this.matcher.matchStrings(path.substring(start, end), uriTemplateVariables);
+		}
+	}
+
+}
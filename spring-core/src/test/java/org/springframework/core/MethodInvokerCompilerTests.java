@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.util.ReflectionUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MethodInvokerCompiler} and {@link CompiledMethodInvoker}.
+ */
+public class MethodInvokerCompilerTests {
+
+	@Test
+	public void instanceMethodWithObjectAndPrimitiveArguments() throws Exception {
+		CompiledMethodInvoker invoker = compile("concat", String.class, int.class, boolean.class);
+		assertNotNull(invoker);
+		assertEquals("a1true", invoker.invoke(new Handler(), "a", 1, true));
+	}
+
+	@Test
+	public void primitiveReturnValue() throws Exception {
+		CompiledMethodInvoker invoker = compile("sum", long.class, double.class);
+		assertEquals(3.5d, invoker.invoke(new Handler(), 1L, 2.5d));
+	}
+
+	@Test
+	public void voidAndStaticMethods() throws Exception {
+		assertNull(compile("noop").invoke(new Handler()));
+		assertEquals("static", compile("staticMethod").invoke(null));
+	}
+
+	@Test
+	public void interfaceMethod() throws Exception {
+		Method method = Runnable.class.getMethod("run");
+		final boolean[] ran = new boolean[1];
+		MethodInvokerCompiler.compile(method).invoke(new Runnable() {
+			@Override
+			public void run() {
+				ran[0] = true;
+			}
+		});
+		assertTrue(ran[0]);
+	}
+
+	@Test
+	public void invokerIsCached() throws Exception {
+		assertSame(compile("noop"), compile("noop"));
+	}
+
+	@Test
+	public void exceptionFromMethodIsWrapped() throws Exception {
+		CompiledMethodInvoker invoker = compile("fail", String.class);
+		try {
+			invoker.invoke(new Handler(), "boom");
+			fail("Expected InvocationTargetException");
+		}
+		catch (InvocationTargetException ex) {
+			assertTrue(ex.getTargetException() instanceof IOException);
+			assertEquals("boom", ex.getTargetException().getMessage());
+		}
+		try {
+			invoker.invoke(new Handler(), (Object) null);
+			fail("Expected InvocationTargetException");
+		}
+		catch (InvocationTargetException ex) {
+			assertTrue(ex.getTargetException() instanceof IllegalArgumentException);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void argumentTypeMismatch() throws Exception {
+		compile("concat", String.class, int.class, boolean.class).invoke(new Handler(), "a", "1", true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullPrimitiveArgument() throws Exception {
+		compile("concat", String.class, int.class, boolean.class).invoke(new Handler(), "a", null, true);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void targetTypeMismatch() throws Exception {
+		compile("noop").invoke(new Object());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongNumberOfArguments() throws Exception {
+		compile("noop").invoke(new Handler(), "a");
+	}
+
+	@Test
+	public void notCompilable() throws Exception {
+		Method method = ReflectionUtils.findMethod(Handler.class, "packagePrivate");
+		assertFalse(MethodInvokerCompiler.isCompilable(method));
+		assertNull(MethodInvokerCompiler.compile(method));
+
+		method = ReflectionUtils.findMethod(Handler.class, "nonPublicType", List.class, NonPublicType.class);
+		assertFalse(MethodInvokerCompiler.isCompilable(method));
+
+		method = ReflectionUtils.findMethod(NonPublicType.class, "publicMethod");
+		assertFalse(MethodInvokerCompiler.isCompilable(method));
+	}
+
+	@Test
+	public void invokeWithOrWithoutInvoker() throws Exception {
+		Method method = ReflectionUtils.findMethod(Handler.class, "sum", long.class, double.class);
+		CompiledMethodInvoker invoker = MethodInvokerCompiler.compile(method);
+		assertEquals(3.5d, MethodInvokerCompiler.invoke(invoker, method, new Handler(), 1L, 2.5d));
+		assertEquals(3.5d, MethodInvokerCompiler.invoke(null, method, new Handler(), 1L, 2.5d));
+
+		method = ReflectionUtils.findMethod(Handler.class, "packagePrivate");
+		assertNull(MethodInvokerCompiler.invoke(null, method, new Handler()));
+	}
+
+
+	private static CompiledMethodInvoker compile(String name, Class<?>... parameterTypes) {
+		return MethodInvokerCompiler.compile(ReflectionUtils.findMethod(Handler.class, name, parameterTypes));
+	}
+
+
+	public static class Handler {
+
+		public String concat(String s, int i, boolean b) {
+			return s + i + b;
+		}
+
+		public double sum(long l, double d) {
+			return l + d;
+		}
+
+		public void noop() {
+		}
+
+		public static String staticMethod() {
+			return "static";
+		}
+
+		public void fail(String message) throws IOException {
+			if (message == null) {
+				throw new IllegalArgumentException();
+			}
+			throw new IOException(message);
+		}
+
+		void packagePrivate() {
+		}
+
+		public void nonPublicType(List<String> list, NonPublicType type) {
+		}
+	}
+
+
+	static class NonPublicType {
+
+		public void publicMethod() {
+		}
+	}
+
+}
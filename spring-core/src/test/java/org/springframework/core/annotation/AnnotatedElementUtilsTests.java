@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -733,6 +733,46 @@ public class AnnotatedElementUtilsTests {
 		assertEquals(1, allMergedAnnotations.size());
 	}
 
+	@Test
+	public void mergedAnnotationIsCached() throws Exception {
+		Method method = WebController.class.getMethod("getMappedWithPathAttribute");
+		WebMapping webMapping = findMergedAnnotation(method, WebMapping.class);
+		assertSame(webMapping, findMergedAnnotation(method, WebMapping.class));
+
+		Class<?> element = SpringAppConfigClass.class;
+		ContextConfig contextConfig = getMergedAnnotation(element, ContextConfig.class);
+		assertSame(contextConfig, getMergedAnnotation(element, ContextConfig.class));
+		assertNotSame(contextConfig, findMergedAnnotation(element, ContextConfig.class));
+
+		AnnotationUtils.clearCache();
+		ContextConfig recreated = getMergedAnnotation(element, ContextConfig.class);
+		assertNotSame(contextConfig, recreated);
+		assertEquals(contextConfig, recreated);
+	}
+
+	@Test
+	public void missingMergedAnnotationIsCached() throws Exception {
+		Method method = NonAnnotatedClass.class.getMethod("toString");
+		for (int i = 0; i < 2; i++) {
+			assertNull(getMergedAnnotation(NonAnnotatedClass.class, Transactional.class));
+			assertNull(findMergedAnnotation(method, Transactional.class));
+			assertNull(getMergedAnnotationAttributes(NonAnnotatedClass.class, Transactional.class));
+			assertNull(AnnotatedElementUtils.findMergedAnnotationAttributes(method, TX_NAME, false, false));
+		}
+		assertNotNull(getMergedAnnotationAttributes(TxConfig.class, Transactional.class));
+		assertNotNull(AnnotatedElementUtils.findMergedAnnotationAttributes(TxConfig.class, TX_NAME, false, false));
+	}
+
+	@Test
+	public void mergedAnnotationAttributesAreNotShared() {
+		AnnotationAttributes attributes = getMergedAnnotationAttributes(TxConfig.class, Transactional.class);
+		attributes.put("value", "modified");
+
+		AnnotationAttributes other = getMergedAnnotationAttributes(TxConfig.class, Transactional.class);
+		assertNotSame(attributes, other);
+		assertEquals("TxConfig", other.getString("value"));
+	}
+
 
 	// -------------------------------------------------------------------------
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -641,6 +641,86 @@ public class GenericConversionServiceTests {
 				conversionService.convert("test", TypeDescriptor.valueOf(String.class), new TypeDescriptor(getClass().getField("integerCollection"))));
 	}
 
+	@Test
+	public void frozenConversionServiceUsesDispatchTable() {
+		conversionService.addConverterFactory(new StringToNumberConverterFactory());
+		conversionService.addConverter(new ColorConverter());
+		assertFalse(conversionService.isFrozen());
+		conversionService.freeze();
+		assertTrue(conversionService.isFrozen());
+		assertEquals(0, conversionService.getDispatchHitCount());
+		assertEquals(0, conversionService.getDispatchMissCount());
+
+		assertEquals(Integer.valueOf(3), conversionService.convert("3", Integer.class));
+		assertEquals(Integer.valueOf(3), conversionService.convert("3", int.class));
+		assertEquals(Color.BLACK, conversionService.convert("#000000", Color.class));
+		assertTrue(conversionService.canConvert(String.class, Long.class));
+		assertFalse(conversionService.canConvert(Integer.class, Color.class));
+		assertEquals(Long.valueOf(3), conversionService.convert("3", TypeDescriptor.valueOf(Long.class)));
+		assertEquals(4, conversionService.getDispatchHitCount());
+		assertEquals(2, conversionService.getDispatchMissCount());
+
+		assertEquals(Color.BLACK, conversionService.convert("#000000", Color.class));
+		assertFalse(conversionService.canConvert(Integer.class, Color.class));
+		assertEquals(6, conversionService.getDispatchHitCount());
+		assertEquals(2, conversionService.getDispatchMissCount());
+	}
+
+	@Test
+	public void frozenConversionServiceWithConditionalConverter() throws Exception {
+		conversionService.addConverter(new ColorConverter());
+		conversionService.addConverter(new MyConditionalColorConverter());
+		conversionService.freeze();
+
+		assertEquals(Color.BLACK, conversionService.convert("#000000", Color.class));
+		assertEquals(Color.BLACK, conversionService.convert("000000xxxx",
+				new TypeDescriptor(getClass().getField("activeColor"))));
+		assertEquals(Color.BLACK, conversionService.convert(" #000000 ",
+				new TypeDescriptor(getClass().getField("inactiveColor"))));
+		assertEquals(0, conversionService.getDispatchHitCount());
+		assertEquals(3, conversionService.getDispatchMissCount());
+	}
+
+	@Test
+	public void frozenConversionServiceWithGenericTargetType() throws Exception {
+		conversionService.addConverter(new MyStringToStringCollectionConverter());
+		conversionService.addConverter(new MyStringToIntegerCollectionConverter());
+		conversionService.freeze();
+
+		assertEquals(Collections.singleton("testX"),
+				conversionService.convert("test", TypeDescriptor.valueOf(String.class), new TypeDescriptor(getClass().getField("stringCollection"))));
+		assertEquals(Collections.singleton(4),
+				conversionService.convert("test", TypeDescriptor.valueOf(String.class), new TypeDescriptor(getClass().getField("integerCollection"))));
+	}
+
+	@Test
+	public void unfrozenConversionServiceHasNoDispatchStatistics() {
+		conversionService.addConverterFactory(new StringToNumberConverterFactory());
+		assertEquals(Integer.valueOf(3), conversionService.convert("3", Integer.class));
+		assertEquals(0, conversionService.getDispatchHitCount());
+		assertEquals(0, conversionService.getDispatchMissCount());
+	}
+
+	@Test
+	public void sharedDefaultConversionServiceIsNotFrozen() {
+		GenericConversionService sharedInstance = (GenericConversionService) DefaultConversionService.getSharedInstance();
+		assertFalse(sharedInstance.isFrozen());
+		assertEquals(Integer.valueOf(3), sharedInstance.convert("3", Integer.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void addConverterToFrozenConversionService() {
+		conversionService.freeze();
+		conversionService.addConverter(new ColorConverter());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void removeConvertibleFromFrozenConversionService() {
+		conversionService.addConverter(new ColorConverter());
+		conversionService.freeze();
+		conversionService.removeConvertible(String.class, Color.class);
+	}
+
 
 	@ExampleAnnotation(active = true)
 	public String annotatedString;
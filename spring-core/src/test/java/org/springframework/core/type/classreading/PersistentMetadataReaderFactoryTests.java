@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.AnnotationMetadataTests.DirectAnnotation;
+import org.springframework.core.type.AnnotationMetadataTests.EnumSubclasses;
+import org.springframework.core.type.AnnotationMetadataTests.MetaMetaAnnotation;
+import org.springframework.core.type.AnnotationMetadataTests.NestedAnno;
+import org.springframework.core.type.AnnotationMetadataTests.SomeEnum;
+import org.springframework.core.type.AnnotationMetadataTests.SpecialAttr;
+import org.springframework.core.type.AnnotationMetadataTests.SubclassEnum;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ObjectUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PersistentMetadataReaderFactory}.
+ */
+public class PersistentMetadataReaderFactoryTests {
+
+	private static final String CLASS_NAME = AnnotatedComponent.class.getName();
+
+	private static final String CLASS_FILE = CLASS_NAME.replace('.', '/') + ".class";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File cacheDirectory;
+
+	private File classFile;
+
+
+	@Before
+	public void setup() throws IOException {
+		this.cacheDirectory = this.temporaryFolder.newFolder("cache");
+		this.classFile = new File(this.temporaryFolder.newFolder("classes"), "AnnotatedComponent.class");
+		FileCopyUtils.copy(new ClassPathResource(CLASS_FILE).getInputStream(), new FileOutputStream(this.classFile));
+	}
+
+
+	@Test
+	public void cachedMetadataIsEquivalent() throws IOException {
+		CountingResource resource = new CountingResource(this.classFile);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		AnnotationMetadata recorded = factory.getMetadataReader(resource).getAnnotationMetadata();
+		factory.clearCache();
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		AnnotationMetadata replayed = factory.getMetadataReader(resource).getAnnotationMetadata();
+		assertEquals(1, resource.reads);
+
+		assertMetadataEquals(readMetadata(), recorded);
+		assertMetadataEquals(readMetadata(), replayed);
+	}
+
+	@Test
+	public void metadataIsCachedInMemory() throws IOException {
+		CountingResource resource = new CountingResource(this.classFile);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		MetadataReader reader = factory.getMetadataReader(resource);
+		assertSame(reader, factory.getMetadataReader(resource));
+		assertEquals(1, resource.reads);
+	}
+
+	@Test
+	public void inMemoryCacheHonorsCacheLimit() throws IOException {
+		CountingResource resource = new CountingResource(this.classFile);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.setCacheLimit(0);
+		assertNotSame(factory.getMetadataReader(resource), factory.getMetadataReader(resource));
+	}
+
+	@Test
+	public void pendingMetadataIsNotPersistedWithoutFlush() throws IOException {
+		CountingResource resource = new CountingResource(this.classFile);
+		new PersistentMetadataReaderFactory(this.cacheDirectory).getMetadataReader(resource);
+		new PersistentMetadataReaderFactory(this.cacheDirectory).getMetadataReader(resource);
+		assertEquals(2, resource.reads);
+	}
+
+	@Test
+	public void modifiedClassFileIsReadAgain() throws IOException {
+		CountingResource resource = new CountingResource(this.classFile);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(resource);
+		factory.flush();
+
+		assertTrue(this.classFile.setLastModified(this.classFile.lastModified() - 10000));
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertEquals(CLASS_NAME, factory.getMetadataReader(resource).getClassMetadata().getClassName());
+		assertEquals(2, resource.reads);
+	}
+
+	@Test
+	public void jarEntryIsCached() throws IOException {
+		File jarFile = createJar();
+		CountingResource resource = new CountingResource("jar:" + jarFile.toURI() + "!/" + CLASS_FILE);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(resource);
+		factory.flush();
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertEquals(CLASS_NAME, factory.getMetadataReader(resource).getClassMetadata().getClassName());
+		assertEquals(1, resource.reads);
+	}
+
+	@Test
+	public void modifiedJarIsReadAgain() throws IOException {
+		File jarFile = createJar();
+		CountingResource resource = new CountingResource("jar:" + jarFile.toURI() + "!/" + CLASS_FILE);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(resource);
+		factory.flush();
+
+		assertTrue(jarFile.setLastModified(jarFile.lastModified() - 10000));
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertEquals(CLASS_NAME, factory.getMetadataReader(resource).getClassMetadata().getClassName());
+		assertEquals(2, resource.reads);
+	}
+
+	@Test
+	public void invalidCacheFileIsIgnored() throws IOException {
+		CountingResource resource = new CountingResource(this.classFile);
+		PersistentMetadataReaderFactory factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(resource);
+		factory.flush();
+		File[] cacheFiles = this.cacheDirectory.listFiles();
+		assertEquals(1, cacheFiles.length);
+		FileCopyUtils.copy(new byte[] {0, 1, 2}, cacheFiles[0]);
+
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		assertEquals(CLASS_NAME, factory.getMetadataReader(resource).getClassMetadata().getClassName());
+		assertEquals(2, resource.reads);
+
+		// The cache file is rewritten on flush
+		factory.flush();
+		factory = new PersistentMetadataReaderFactory(this.cacheDirectory);
+		factory.getMetadataReader(resource);
+		assertEquals(2, resource.reads);
+	}
+
+
+	private File createJar() throws IOException {
+		File jarFile = this.temporaryFolder.newFile("classes.jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jarFile));
+		try {
+			out.putNextEntry(new JarEntry(CLASS_FILE));
+			FileCopyUtils.copy(new ClassPathResource(CLASS_FILE).getInputStream(), new NonClosingOutputStream(out));
+			out.closeEntry();
+		}
+		finally {
+			out.close();
+		}
+		return jarFile;
+	}
+
+	private static AnnotationMetadata readMetadata() throws IOException {
+		// Fresh metadata for each comparison, since nested attribute arrays are converted in place
+		return new SimpleMetadataReaderFactory().getMetadataReader(CLASS_NAME).getAnnotationMetadata();
+	}
+
+	private static void assertMetadataEquals(AnnotationMetadata expected, AnnotationMetadata actual) {
+		assertEquals(expected.getClassName(), actual.getClassName());
+		assertEquals(expected.getSuperClassName(), actual.getSuperClassName());
+		assertArrayEquals(expected.getInterfaceNames(), actual.getInterfaceNames());
+		assertArrayEquals(expected.getMemberClassNames(), actual.getMemberClassNames());
+		assertEquals(expected.getEnclosingClassName(), actual.getEnclosingClassName());
+		assertEquals(expected.isIndependent(), actual.isIndependent());
+		assertEquals(expected.isAbstract(), actual.isAbstract());
+		assertEquals(expected.getAnnotationTypes(), actual.getAnnotationTypes());
+		for (String annotationType : expected.getAnnotationTypes()) {
+			assertEquals(expected.getMetaAnnotationTypes(annotationType), actual.getMetaAnnotationTypes(annotationType));
+			assertEquals(describe(expected.getAnnotationAttributes(annotationType)),
+					describe(actual.getAnnotationAttributes(annotationType)));
+			assertEquals(describe(expected.getAllAnnotationAttributes(annotationType, true)),
+					describe(actual.getAllAnnotationAttributes(annotationType, true)));
+			assertEquals(methodNames(expected, annotationType), methodNames(actual, annotationType));
+		}
+	}
+
+	private static String methodNames(AnnotationMetadata metadata, String annotationType) {
+		StringBuilder names = new StringBuilder();
+		for (MethodMetadata method : metadata.getAnnotatedMethods(annotationType)) {
+			names.append(method.getMethodName()).append(':').append(method.getReturnTypeName())
+					.append(':').append(describe(method.getAnnotationAttributes(annotationType))).append(' ');
+		}
+		return names.toString();
+	}
+
+	private static String describe(Object value) {
+		if (value instanceof Map) {
+			StringBuilder result = new StringBuilder("{");
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				result.append(entry.getKey()).append('=').append(describe(entry.getValue())).append(", ");
+			}
+			return result.append('}').toString();
+		}
+		if (value instanceof Collection || value instanceof Object[]) {
+			Collection<?> elements = (value instanceof Collection ?
+					(Collection<?>) value : Arrays.asList((Object[]) value));
+			StringBuilder result = new StringBuilder("[");
+			for (Object element : elements) {
+				result.append(describe(element)).append(", ");
+			}
+			return result.append(']').toString();
+		}
+		return ObjectUtils.nullSafeToString(value);
+	}
+
+
+	@SpecialAttr(clazz = String.class, state = Thread.State.NEW,
+			nestedAnno = @NestedAnno(value = "na", anEnum = SomeEnum.LABEL1, classArray = {String.class}),
+			nestedAnnoArray = {@NestedAnno, @NestedAnno(value = "na1", anEnum = SomeEnum.LABEL2, classArray = {Number.class})})
+	@DirectAnnotation("direct")
+	@MetaMetaAnnotation
+	@EnumSubclasses({SubclassEnum.FOO, SubclassEnum.BAR})
+	@SuppressWarnings("serial")
+	public static class AnnotatedComponent implements Serializable {
+
+		@DirectAnnotation(value = "method", additional = "extra")
+		public String direct() {
+			return null;
+		}
+
+		@MetaMetaAnnotation
+		public void meta() {
+		}
+
+		public void plain() {
+		}
+
+		public static class Member {
+		}
+	}
+
+
+	private static class CountingResource extends UrlResource {
+
+		int reads;
+
+		public CountingResource(File file) throws IOException {
+			super(new FileSystemResource(file).getURL());
+		}
+
+		public CountingResource(String url) throws IOException {
+			super(url);
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			this.reads++;
+			return super.getInputStream();
+		}
+	}
+
+
+	private static class NonClosingOutputStream extends java.io.FilterOutputStream {
+
+		public NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,12 +42,17 @@ import static org.junit.Assert.*;
  */
 public class AntPathMatcherTests {
 
-	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+	protected final AntPathMatcher pathMatcher = createPathMatcher();
 
 	@Rule
 	public final ExpectedException exception = ExpectedException.none();
 
 
+	protected AntPathMatcher createPathMatcher() {
+		return new AntPathMatcher();
+	}
+
+
 	@Test
 	public void match() {
 		// test exact matching
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PrecompiledPathMatcher}, running the complete
+ * {@link AntPathMatcherTests} suite plus tests specific to the compiled
+ * pattern cache and to consistency with {@link AntPathMatcher}.
+ */
+public class PrecompiledPathMatcherTests extends AntPathMatcherTests {
+
+	private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+
+	@Override
+	protected AntPathMatcher createPathMatcher() {
+		return new PrecompiledPathMatcher();
+	}
+
+
+	@Test
+	public void sameResultsAsAntPathMatcher() {
+		assertSameMatch("/hotels/{hotel}", "/hotels/1");
+		assertSameMatch("/hotels/{hotel}/bookings/{booking}", "/hotels/1/bookings/2");
+		assertSameMatch("/{a}-{b}", "/x-y-z");
+		assertSameMatch("/{a}.{b}", "/file.tar.gz");
+		assertSameMatch("/*/{name}.jpg", "/dir/a.b.jpg");
+		assertSameMatch("/**/{name}.*", "/a/b/c/file.html");
+		assertSameMatch("/a/**/b/{c}/**/d", "/a/x/y/b/1/z/d");
+		assertSameMatch("/{id:\\d+}", "/123");
+		assertSameMatch("/{id:\\d+}", "/abc");
+		assertSameMatch("/{id:[a-z]+}-{suffix}", "/abc-123");
+		assertSameMatch("/t?st/*", "/test/");
+		assertSameMatch("/t?st", "/t\nst");
+		assertSameMatch("/{var}", "/line\nbreak");
+		assertSameMatch("/a}b", "/a}b");
+		assertSameMatch("/{a", "/{a");
+		assertSameMatch("/{}", "/{}");
+		assertSameMatch("/x//y", "/x/y");
+		assertSameMatch("/x/*/", "/x/y");
+	}
+
+	@Test
+	public void sameResultsAsAntPathMatcherCaseInsensitive() {
+		pathMatcher.setCaseSensitive(false);
+		antPathMatcher.setCaseSensitive(false);
+		assertSameMatch("/Hotels/{hotel}", "/hotels/Ritz");
+		assertSameMatch("/*.HTML", "/index.html");
+		assertSameMatch("/straße", "/STRAßE");
+		assertSameMatch("/ä", "/Ä");
+	}
+
+	@Test
+	public void compiledPatternCache() {
+		pathMatcher.match("/hotels/{hotel}", "/hotels/1");
+		pathMatcher.match("/hotels/{hotel}", "/hotels/2");
+		pathMatcher.match("/bookings/**", "/bookings/1");
+		assertEquals(2, ((PrecompiledPathMatcher) pathMatcher).compiledPatternCache.size());
+
+		pathMatcher.setCaseSensitive(false);
+		assertTrue(((PrecompiledPathMatcher) pathMatcher).compiledPatternCache.isEmpty());
+	}
+
+	private void assertSameMatch(String pattern, String path) {
+		boolean expected = antPathMatcher.match(pattern, path);
+		assertEquals(pattern + " vs " + path, expected, pathMatcher.match(pattern, path));
+		assertEquals(pattern + " vs " + path, antPathMatcher.matchStart(pattern, path),
+				pathMatcher.matchStart(pattern, path));
+		if (expected) {
+			Map<String, String> variables = antPathMatcher.extractUriTemplateVariables(pattern, path);
+			assertEquals(pattern + " vs " + path, variables, pathMatcher.extractUriTemplateVariables(pattern, path));
+		}
+	}
+
+
+	// Tests specific to the AntPathMatcher string matcher cache
+
+	@Override
+	@Test
+	public void defaultCacheSetting() {
+		match();
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+		assertTrue(((PrecompiledPathMatcher) pathMatcher).compiledPatternCache.size() > 20);
+	}
+
+	@Override
+	@Test
+	public void cachePatternsSetToTrue() {
+		pathMatcher.setCachePatterns(true);
+		defaultCacheSetting();
+	}
+
+	@Override
+	@Test
+	public void preventCreatingStringMatchersIfPathDoesNotStartsWithPatternPrefix() {
+		pathMatcher.match("test?", "test");
+		pathMatcher.match("test/{name}.jpg", "view/test.jpg");
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+	}
+
+	@Override
+	@Test
+	public void creatingStringMatchersIfPatternPrefixCannotDetermineIfPathMatch() {
+		pathMatcher.match("test/{name:[a-z]+}.jpg", "test/lorem.jpg");
+		assertTrue(pathMatcher.stringMatcherCache.isEmpty());
+	}
+
+	@Override
+	@Test
+	public void cachePatternsSetToFalse() {
+		pathMatcher.setCachePatterns(false);
+		match();
+		assertTrue(((PrecompiledPathMatcher) pathMatcher).compiledPatternCache.isEmpty());
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.expression.spel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+/**
+ * Benchmarks for {@link org.springframework.expression.spel.standard.SpelExpression#getValue},
+ * interpreted as well as compiled.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SpelExpressionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"OFF", "IMMEDIATE"})
+		public SpelCompilerMode compilerMode;
+
+		public Root root = new Root();
+
+		public StandardEvaluationContext context;
+
+		public Expression propertyExpression;
+
+		public Expression methodExpression;
+
+		public Expression operatorExpression;
+
+		public Expression mapExpression;
+
+		@Setup
+		public void setup() {
+			SpelExpressionParser parser = new SpelExpressionParser(
+					new SpelParserConfiguration(this.compilerMode, getClass().getClassLoader()));
+			this.context = new StandardEvaluationContext(this.root);
+			this.propertyExpression = parser.parseExpression("person.address.city");
+			this.methodExpression = parser.parseExpression("person.getName().toUpperCase()");
+			this.operatorExpression = parser.parseExpression("person.age > 18 and person.name != null");
+			this.mapExpression = parser.parseExpression("attributes['key']");
+			// Compiled mode kicks in once an expression has been evaluated
+			this.propertyExpression.getValue(this.context);
+			this.methodExpression.getValue(this.context);
+			this.operatorExpression.getValue(this.context);
+			this.mapExpression.getValue(this.context);
+		}
+	}
+
+
+	@Benchmark
+	public void propertyNavigation(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.propertyExpression.getValue(data.context));
+	}
+
+	@Benchmark
+	public void methodInvocation(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.methodExpression.getValue(data.context));
+	}
+
+	@Benchmark
+	public void operators(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.operatorExpression.getValue(data.context));
+	}
+
+	@Benchmark
+	public void mapIndexer(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.mapExpression.getValue(data.context));
+	}
+
+
+	public static class Root {
+
+		private final Person person = new Person();
+
+		private final Map<String, String> attributes = new HashMap<String, String>();
+
+		public Root() {
+			this.attributes.put("key", "value");
+		}
+
+		public Person getPerson() {
+			return this.person;
+		}
+
+		public Map<String, String> getAttributes() {
+			return this.attributes;
+		}
+	}
+
+
+	public static class Person {
+
+		private final Address address = new Address();
+
+		public String getName() {
+			return "Jane";
+		}
+
+		public int getAge() {
+			return 42;
+		}
+
+		public Address getAddress() {
+			return this.address;
+		}
+	}
+
+
+	public static class Address {
+
+		public String getCity() {
+			return "Berlin";
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Benchmarks for row mapping with {@link JdbcTemplate#query}, against an
+ * embedded HSQL database, comparing the common {@link RowMapper} variants.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class JdbcTemplateRowMappingBenchmark {
+
+	private static final String QUERY = "select id, first_name, last_name, age from person";
+
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"10", "1000"})
+		public int rowCount;
+
+		public EmbeddedDatabase database;
+
+		public JdbcTemplate jdbcTemplate;
+
+		public RowMapper<Person> personRowMapper = new PersonRowMapper();
+
+		public RowMapper<Person> beanPropertyRowMapper = new BeanPropertyRowMapper<Person>(Person.class);
+
+		public RowMapper<Long> singleColumnRowMapper = new SingleColumnRowMapper<Long>(Long.class);
+
+		@Setup
+		public void setup() {
+			this.database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL)
+					.generateUniqueName(true).build();
+			this.jdbcTemplate = new JdbcTemplate(this.database);
+			this.jdbcTemplate.execute("create table person (id bigint primary key, " +
+					"first_name varchar(50), last_name varchar(50), age integer)");
+			List<Object[]> rows = new ArrayList<Object[]>(this.rowCount);
+			for (int i = 0; i < this.rowCount; i++) {
+				rows.add(new Object[] {(long) i, "first" + i, "last" + i, i % 100});
+			}
+			this.jdbcTemplate.batchUpdate("insert into person values (?, ?, ?, ?)", rows);
+		}
+
+		@TearDown
+		public void tearDown() {
+			this.database.shutdown();
+		}
+	}
+
+
+	@Benchmark
+	public void customRowMapper(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.jdbcTemplate.query(QUERY, data.personRowMapper));
+	}
+
+	@Benchmark
+	public void beanPropertyRowMapper(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.jdbcTemplate.query(QUERY, data.beanPropertyRowMapper));
+	}
+
+	@Benchmark
+	public void columnMapRowMapper(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.jdbcTemplate.queryForList(QUERY));
+	}
+
+	@Benchmark
+	public void singleColumnRowMapper(BenchmarkData data, Blackhole bh) {
+		bh.consume(data.jdbcTemplate.query("select id from person", data.singleColumnRowMapper));
+	}
+
+
+	public static class Person {
+
+		private long id;
+
+		private String firstName;
+
+		private String lastName;
+
+		private int age;
+
+		public long getId() {
+			return this.id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getFirstName() {
+			return this.firstName;
+		}
+
+		public void setFirstName(String firstName) {
+			this.firstName = firstName;
+		}
+
+		public String getLastName() {
+			return this.lastName;
+		}
+
+		public void setLastName(String lastName) {
+			this.lastName = lastName;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+
+	private static class PersonRowMapper implements RowMapper<Person> {
+
+		@Override
+		public Person mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Person person = new Person();
+			person.setId(rs.getLong(1));
+			person.setFirstName(rs.getString(2));
+			person.setLastName(rs.getString(3));
+			person.setAge(rs.getInt(4));
+			return person;
+		}
+	}
+
+}
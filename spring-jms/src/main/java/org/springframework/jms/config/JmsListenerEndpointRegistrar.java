@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,7 +22,6 @@ import java.util.List;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.InitializingBean;
-import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
 import org.springframework.messaging.handler.annotation.support.MessageHandlerMethodFactory;
 import org.springframework.util.Assert;
@@ -52,7 +51,7 @@ public class JmsListenerEndpointRegistrar implements BeanFactoryAware, Initializ
 
 	private boolean startImmediately;
 
-	private Object mutex = endpointDescriptors;
+	private final Object mutex = this.endpointDescriptors;
 
 
 	/**
@@ -117,9 +116,6 @@ public class JmsListenerEndpointRegistrar implements BeanFactoryAware, Initializ
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		this.beanFactory = beanFactory;
-		if (beanFactory instanceof ConfigurableBeanFactory) {
-			this.mutex = ((ConfigurableBeanFactory) beanFactory).getSingletonMutex();
-		}
 	}
 
 
@@ -129,13 +125,16 @@ public class JmsListenerEndpointRegistrar implements BeanFactoryAware, Initializ
 	}
 
 	protected void registerAllEndpoints() {
+		List<JmsListenerEndpointDescriptor> descriptors;
 		synchronized (this.mutex) {
-			for (JmsListenerEndpointDescriptor descriptor : this.endpointDescriptors) {
-				this.endpointRegistry.registerListenerContainer(
-						descriptor.endpoint, resolveContainerFactory(descriptor));
-			}
+			descriptors = new ArrayList<JmsListenerEndpointDescriptor>(this.endpointDescriptors);
 			this.startImmediately = true;  // trigger immediate startup
 		}
+		// Outside of the lock, since the container factory may have to be obtained from the BeanFactory
+		for (JmsListenerEndpointDescriptor descriptor : descriptors) {
+			this.endpointRegistry.registerListenerContainer(
+					descriptor.endpoint, resolveContainerFactory(descriptor));
+		}
 	}
 
 	private JmsListenerContainerFactory<?> resolveContainerFactory(JmsListenerEndpointDescriptor descriptor) {
@@ -173,14 +172,15 @@ public class JmsListenerEndpointRegistrar implements BeanFactoryAware, Initializ
 		JmsListenerEndpointDescriptor descriptor = new JmsListenerEndpointDescriptor(endpoint, factory);
 
 		synchronized (this.mutex) {
-			if (this.startImmediately) {  // register and start immediately
-				this.endpointRegistry.registerListenerContainer(descriptor.endpoint,
-						resolveContainerFactory(descriptor), true);
-			}
-			else {
+			if (!this.startImmediately) {
 				this.endpointDescriptors.add(descriptor);
+				return;
 			}
 		}
+		// Register and start immediately, outside of the lock since the
+		// container factory may have to be obtained from the BeanFactory
+		this.endpointRegistry.registerListenerContainer(descriptor.endpoint,
+				resolveContainerFactory(descriptor), true);
 	}
 
 	/**
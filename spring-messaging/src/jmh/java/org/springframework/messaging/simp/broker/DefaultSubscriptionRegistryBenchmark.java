@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.simp.broker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Benchmarks for {@link DefaultSubscriptionRegistry#findSubscriptions},
+ * comparing the destination index with the destination cache, which is used
+ * for any {@code PathMatcher} other than a plain {@link AntPathMatcher}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultSubscriptionRegistryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"cache", "index"})
+		public String lookup;
+
+		@Param({"100", "1000"})
+		public int sessions;
+
+		@Param({"10", "2000"})
+		public int destinations;
+
+		public DefaultSubscriptionRegistry registry;
+
+		public Message<?>[] messages;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.registry = new DefaultSubscriptionRegistry();
+			if ("cache".equals(this.lookup)) {
+				// Any subclass of AntPathMatcher disables the destination index
+				this.registry.setPathMatcher(new AntPathMatcher() {});
+			}
+			for (int i = 0; i < this.sessions; i++) {
+				String sessionId = "sess" + i;
+				this.registry.registerSubscription(subscribeMessage(sessionId, "1", "/topic/stock/" + (i % this.destinations)));
+				this.registry.registerSubscription(subscribeMessage(sessionId, "2", "/topic/bond/" + (i % this.destinations)));
+				if (i % 10 == 0) {
+					this.registry.registerSubscription(subscribeMessage(sessionId, "3", "/topic/stock/*"));
+				}
+			}
+			this.messages = new Message<?>[this.destinations];
+			for (int i = 0; i < this.destinations; i++) {
+				SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+				accessor.setDestination("/topic/stock/" + i);
+				this.messages[i] = MessageBuilder.createMessage("", accessor.getMessageHeaders());
+			}
+		}
+
+		private Message<?> subscribeMessage(String sessionId, String subscriptionId, String destination) {
+			SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+			accessor.setSessionId(sessionId);
+			accessor.setSubscriptionId(subscriptionId);
+			accessor.setDestination(destination);
+			return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+		}
+	}
+
+
+	@State(Scope.Thread)
+	public static class Counter {
+
+		public int index;
+	}
+
+
+	@Benchmark
+	public void findSubscriptions(BenchmarkData data, Counter counter, Blackhole bh) {
+		counter.index = (counter.index + 1) % data.messages.length;
+		Message<?> message = data.messages[counter.index];
+		bh.consume(data.registry.findSubscriptions(message));
+	}
+
+}
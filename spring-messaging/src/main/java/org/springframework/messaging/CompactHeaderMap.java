@@ -0,0 +1,337 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * A {@link Map} backed by parallel key and value arrays, used as the storage
+ * of {@link MessageHeaders}.
+ *
+ * <p>Messages typically carry a handful of headers, most of them keyed by
+ * constants, so a linear scan that compares keys by identity first is as fast
+ * as hashing, while avoiding the per-entry nodes of a {@link HashMap}. Copying
+ * from another instance, e.g. when a header accessor wraps an existing message,
+ * is a plain array copy. Entries are kept in insertion order.
+ *
+ * <p>Instances are serialized as a {@link HashMap}, which keeps the serialized
+ * form of {@code MessageHeaders} unchanged.
+ *
+ * @since 4.3.25
+ */
+@SuppressWarnings("serial")
+class CompactHeaderMap extends AbstractMap<String, Object> implements Serializable {
+
+	private static final int DEFAULT_CAPACITY = 8;
+
+
+	private String[] keys;
+
+	private Object[] values;
+
+	private int size;
+
+	private int modCount;
+
+	private transient Set<Map.Entry<String, Object>> entrySet;
+
+
+	/**
+	 * Create an empty map with a default capacity.
+	 */
+	public CompactHeaderMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create an empty map with the given capacity.
+	 */
+	public CompactHeaderMap(int capacity) {
+		this.keys = new String[capacity];
+		this.values = new Object[capacity];
+	}
+
+	/**
+	 * Create a map with the entries of the given map, and room for the given
+	 * number of additional entries.
+	 * @param map the entries to copy (may be {@code null})
+	 * @param extraCapacity the number of entries expected to be added
+	 */
+	public CompactHeaderMap(Map<String, Object> map, int extraCapacity) {
+		if (map instanceof CompactHeaderMap) {
+			CompactHeaderMap other = (CompactHeaderMap) map;
+			this.keys = Arrays.copyOf(other.keys, other.size + extraCapacity);
+			this.values = Arrays.copyOf(other.values, other.size + extraCapacity);
+			this.size = other.size;
+		}
+		else {
+			int capacity = (map != null ? map.size() : 0) + extraCapacity;
+			this.keys = new String[capacity];
+			this.values = new Object[capacity];
+			if (map != null) {
+				for (Map.Entry<String, Object> entry : map.entrySet()) {
+					put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (this.size == 0);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return (indexOf(key) != -1);
+	}
+
+	@Override
+	public Object get(Object key) {
+		int index = indexOf(key);
+		return (index != -1 ? this.values[index] : null);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		int index = indexOf(key);
+		if (index != -1) {
+			Object oldValue = this.values[index];
+			this.values[index] = value;
+			return oldValue;
+		}
+		if (this.size == this.keys.length) {
+			int capacity = Math.max(DEFAULT_CAPACITY, this.size * 2);
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+		this.keys[this.size] = key;
+		this.values[this.size] = value;
+		this.size++;
+		this.modCount++;
+		return null;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		int index = indexOf(key);
+		if (index == -1) {
+			return null;
+		}
+		Object oldValue = this.values[index];
+		removeAt(index);
+		return oldValue;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, 0, this.size, null);
+		Arrays.fill(this.values, 0, this.size, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+		return this.entrySet;
+	}
+
+	private int indexOf(Object key) {
+		String[] keys = this.keys;
+		if (key == null) {
+			for (int i = 0; i < this.size; i++) {
+				if (keys[i] == null) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		int hash = key.hashCode();
+		for (int i = 0; i < this.size; i++) {
+			String candidate = keys[i];
+			if (candidate == key || (candidate != null && candidate.hashCode() == hash && candidate.equals(key))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		int moved = this.size - index - 1;
+		if (moved > 0) {
+			System.arraycopy(this.keys, index + 1, this.keys, index, moved);
+			System.arraycopy(this.values, index + 1, this.values, index, moved);
+		}
+		this.size--;
+		this.keys[this.size] = null;
+		this.values[this.size] = null;
+		this.modCount++;
+	}
+
+	private Object writeReplace() {
+		return new HashMap<String, Object>(this);
+	}
+
+
+	private class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+		@Override
+		public Iterator<Map.Entry<String, Object>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void clear() {
+			CompactHeaderMap.this.clear();
+		}
+	}
+
+
+	private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+		private int cursor;
+
+		private int last = -1;
+
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return (this.cursor < size);
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			checkForComodification();
+			if (this.cursor >= size) {
+				throw new NoSuchElementException();
+			}
+			this.last = this.cursor++;
+			return new Entry(this.last);
+		}
+
+		@Override
+		public void remove() {
+			if (this.last == -1) {
+				throw new IllegalStateException();
+			}
+			checkForComodification();
+			removeAt(this.last);
+			this.cursor = this.last;
+			this.last = -1;
+			this.expectedModCount = modCount;
+		}
+
+		private void checkForComodification() {
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+
+	private class Entry implements Map.Entry<String, Object> {
+
+		private final String key;
+
+		private final int index;
+
+		public Entry(int index) {
+			this.key = keys[index];
+			this.index = index;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public Object getValue() {
+			int index = currentIndex();
+			return (index != -1 ? values[index] : null);
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			int index = currentIndex();
+			if (index == -1) {
+				throw new IllegalStateException("Entry for '" + this.key + "' has been removed");
+			}
+			Object oldValue = values[index];
+			values[index] = value;
+			return oldValue;
+		}
+
+		private int currentIndex() {
+			String[] keys = CompactHeaderMap.this.keys;
+			if (this.index < size && keys[this.index] == this.key) {
+				return this.index;
+			}
+			return indexOf(this.key);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> otherEntry = (Map.Entry<?, ?>) other;
+			return (ObjectUtils.nullSafeEquals(this.key, otherEntry.getKey()) &&
+					ObjectUtils.nullSafeEquals(getValue(), otherEntry.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			return (ObjectUtils.nullSafeHashCode(this.key) ^ ObjectUtils.nullSafeHashCode(getValue()));
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + getValue();
+		}
+	}
+
+}
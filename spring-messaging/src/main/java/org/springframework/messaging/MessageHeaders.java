@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,7 +22,6 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -112,12 +111,19 @@ public class MessageHeaders implements Map<String, Object>, Serializable {
 
 	/**
 	 * Constructor providing control over the ID and TIMESTAMP header values.
+	 * <p>As of 4.3.25 this constructor is public, so that headers can be copied
+	 * with an id from a custom {@link IdGenerator}, or with {@link #ID_VALUE_NONE}
+	 * to skip the id altogether.
 	 * @param headers a map with headers to add
-	 * @param id the {@link #ID} header value
-	 * @param timestamp the {@link #TIMESTAMP} header value
+	 * @param id the {@link #ID} header value, {@code null} to generate one with
+	 * the default {@link IdGenerator}, or {@link #ID_VALUE_NONE} for no id
+	 * @param timestamp the {@link #TIMESTAMP} header value, {@code null} for the
+	 * current time, or a negative value for no timestamp
 	 */
-	protected MessageHeaders(Map<String, Object> headers, UUID id, Long timestamp) {
-		this.headers = (headers != null ? new HashMap<String, Object>(headers) : new HashMap<String, Object>());
+	public MessageHeaders(Map<String, Object> headers, UUID id, Long timestamp) {
+		// Copy straight from the backing map of other MessageHeaders
+		this.headers = new CompactHeaderMap(
+				(headers instanceof MessageHeaders ? ((MessageHeaders) headers).headers : headers), 2);
 
 		if (id == null) {
 			this.headers.put(ID, getIdGenerator().generateId());
@@ -147,7 +153,7 @@ public class MessageHeaders implements Map<String, Object>, Serializable {
 	 * @param keysToIgnore the keys of the entries to ignore
 	 */
 	private MessageHeaders(MessageHeaders original, Set<String> keysToIgnore) {
-		this.headers = new HashMap<String, Object>(original.headers.size() - keysToIgnore.size());
+		this.headers = new CompactHeaderMap(original.headers.size() - keysToIgnore.size());
 		for (Map.Entry<String, Object> entry : original.headers.entrySet()) {
 			if (!keysToIgnore.contains(entry.getKey())) {
 				this.headers.put(entry.getKey(), entry.getValue());
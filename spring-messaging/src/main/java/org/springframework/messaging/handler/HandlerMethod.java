@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,7 +24,9 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.CompiledMethodInvoker;
 import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.MethodInvokerCompiler;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.SynthesizingMethodParameter;
@@ -66,6 +68,8 @@ public class HandlerMethod {
 
 	private HandlerMethod resolvedFromHandlerMethod;
 
+	private volatile CompiledMethodInvoker compiledInvoker;
+
 
 	/**
 	 * Create an instance from a bean instance and a method.
@@ -125,6 +129,7 @@ public class HandlerMethod {
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
 		this.resolvedFromHandlerMethod = handlerMethod.resolvedFromHandlerMethod;
+		this.compiledInvoker = handlerMethod.compiledInvoker;
 	}
 
 	/**
@@ -140,6 +145,7 @@ public class HandlerMethod {
 		this.bridgedMethod = handlerMethod.bridgedMethod;
 		this.parameters = handlerMethod.parameters;
 		this.resolvedFromHandlerMethod = handlerMethod;
+		this.compiledInvoker = handlerMethod.compiledInvoker;
 	}
 
 
@@ -192,6 +198,31 @@ public class HandlerMethod {
 		return this.parameters;
 	}
 
+	/**
+	 * Generate a {@link CompiledMethodInvoker} for the bridged method, so that
+	 * the handler method can be invoked without reflection. The invoker is
+	 * retained by any copy of this instance created subsequently, e.g. through
+	 * {@link #createWithResolvedBean()}.
+	 * @return whether an invoker is available, {@code false} if the method is
+	 * not eligible for compilation
+	 * @since 4.3.25
+	 * @see MethodInvokerCompiler#compile
+	 */
+	public boolean compileInvoker() {
+		if (this.compiledInvoker == null) {
+			this.compiledInvoker = MethodInvokerCompiler.compile(this.bridgedMethod);
+		}
+		return (this.compiledInvoker != null);
+	}
+
+	/**
+	 * Return the invoker generated through {@link #compileInvoker()}, if any.
+	 * @since 4.3.25
+	 */
+	public CompiledMethodInvoker getCompiledInvoker() {
+		return this.compiledInvoker;
+	}
+
 	/**
 	 * Return the HandlerMethod return type.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -98,6 +98,8 @@ public abstract class AbstractMethodMessageHandler<T>
 	private final HandlerMethodReturnValueHandlerComposite returnValueHandlers =
 			new HandlerMethodReturnValueHandlerComposite();
 
+	private boolean compileHandlerMethods = false;
+
 	private ApplicationContext applicationContext;
 
 	private final Map<T, HandlerMethod> handlerMethods = new LinkedHashMap<T, HandlerMethod>(64);
@@ -212,6 +214,29 @@ public abstract class AbstractMethodMessageHandler<T>
 		return this.returnValueHandlers.getReturnValueHandlers();
 	}
 
+	/**
+	 * Whether to generate a bytecode invoker for each handler method as it is
+	 * registered, so that it is invoked without reflection, and to bind each
+	 * method parameter to its argument resolver on first invocation.
+	 * <p>Methods that are not eligible, e.g. non-public methods or methods
+	 * declared on non-public classes, are still invoked through reflection.
+	 * <p>Default is "false". This flag must be set before handler methods
+	 * are registered, i.e. before {@link #afterPropertiesSet()}.
+	 * @since 4.3.25
+	 * @see HandlerMethod#compileInvoker()
+	 */
+	public void setCompileHandlerMethods(boolean compileHandlerMethods) {
+		this.compileHandlerMethods = compileHandlerMethods;
+	}
+
+	/**
+	 * Whether handler methods are compiled into bytecode invokers.
+	 * @since 4.3.25
+	 */
+	public boolean isCompileHandlerMethods() {
+		return this.compileHandlerMethods;
+	}
+
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) {
 		this.applicationContext = applicationContext;
@@ -318,6 +343,9 @@ public abstract class AbstractMethodMessageHandler<T>
 	protected void registerHandlerMethod(Object handler, Method method, T mapping) {
 		Assert.notNull(mapping, "Mapping must not be null");
 		HandlerMethod newHandlerMethod = createHandlerMethod(handler, method);
+		if (this.compileHandlerMethods && !newHandlerMethod.compileInvoker() && logger.isDebugEnabled()) {
+			logger.debug("Handler method not eligible for compilation, using reflection: " + newHandlerMethod);
+		}
 		HandlerMethod oldHandlerMethod = this.handlerMethods.get(mapping);
 
 		if (oldHandlerMethod != null && !oldHandlerMethod.equals(newHandlerMethod)) {
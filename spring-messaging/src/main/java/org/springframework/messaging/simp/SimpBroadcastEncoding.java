@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A holder for the encoded form of a message that a broker sends to several
+ * subscribers, shared through the
+ * {@link SimpMessageHeaderAccessor#BROADCAST_ENCODING_HEADER} header by all
+ * copies of the message.
+ *
+ * <p>The copies only differ in the headers that identify the session and the
+ * subscription they are sent to, so an encoder may encode the rest of the
+ * message once, store it here, and reuse it for the other copies. Since each
+ * copy may still be modified on its way to the client, e.g. by a channel
+ * interceptor, an encoder is expected to check that a stored encoding matches
+ * the copy at hand before using it.
+ *
+ * @since 4.3.25
+ * @see org.springframework.messaging.simp.stomp.StompEncoder#encode(Map, byte[], SimpBroadcastEncoding)
+ */
+public class SimpBroadcastEncoding {
+
+	private final Map<Object, Object> encodings = new ConcurrentHashMap<Object, Object>(4);
+
+
+	/**
+	 * Return the encoding stored under the given key, typically the type of
+	 * the encoding, or {@code null} if none.
+	 */
+	public Object getEncoding(Object key) {
+		return this.encodings.get(key);
+	}
+
+	/**
+	 * Store the given encoding under the given key, replacing any encoding
+	 * stored under the same key.
+	 */
+	public void setEncoding(Object key, Object encoding) {
+		this.encodings.put(key, encoding);
+	}
+
+
+	@Override
+	public String toString() {
+		return "SimpBroadcastEncoding[" + this.encodings.size() + " encoding(s)]";
+	}
+
+}
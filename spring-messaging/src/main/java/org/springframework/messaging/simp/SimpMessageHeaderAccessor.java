@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -82,6 +82,14 @@ public class SimpMessageHeaderAccessor extends NativeMessageHeaderAccessor {
 	 */
 	public static final String IGNORE_ERROR = "simpIgnoreError";
 
+	/**
+	 * A header for internal use with messages that a broker sends to several
+	 * subscribers, holding a {@link SimpBroadcastEncoding} shared by all copies
+	 * of the message, so that their common part only needs to be encoded once.
+	 * @since 4.3.25
+	 */
+	public static final String BROADCAST_ENCODING_HEADER = "simpBroadcastEncoding";
+
 
 	/**
 	 * A constructor for creating new message headers.
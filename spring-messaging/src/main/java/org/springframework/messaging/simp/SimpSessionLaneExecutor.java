@@ -0,0 +1,210 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link Executor} that preserves the order of messages per session when
+ * used as the executor of an
+ * {@link org.springframework.messaging.support.ExecutorSubscribableChannel
+ * ExecutorSubscribableChannel}.
+ *
+ * <p>Each {@link MessageHandlingRunnable} is assigned to one of a fixed number
+ * of lanes, based on a hash of the {@link SimpMessageHeaderAccessor#getSessionId
+ * session id} of its message. A lane runs its tasks one at a time, in the order
+ * they were submitted, on the threads of the target executor, so that messages
+ * from the same session are handled sequentially, while messages from different
+ * sessions are handled concurrently, up to the number of lanes. Tasks without a
+ * session id are passed directly to the target executor.
+ *
+ * <p>If the target executor rejects a lane that already has tasks queued,
+ * the lane keeps running them on the current thread instead, so that queued
+ * tasks are never left without a thread to run them.
+ *
+ * @since 4.3.25
+ * @see org.springframework.messaging.simp.config.ChannelRegistration#sessionLanes(int)
+ */
+public class SimpSessionLaneExecutor implements Executor {
+
+	/**
+	 * The maximum number of tasks a lane runs before yielding its thread to
+	 * other lanes waiting in the queue of the target executor.
+	 */
+	private static final int MAX_TASKS_PER_RUN = 32;
+
+	private static final Log logger = LogFactory.getLog(SimpSessionLaneExecutor.class);
+
+
+	private final Executor executor;
+
+	private final Lane[] lanes;
+
+
+	/**
+	 * Create a new {@code SimpSessionLaneExecutor}.
+	 * @param executor the executor to run the tasks of each lane on
+	 * @param laneCount the number of lanes, i.e. the maximum number of
+	 * sessions whose messages are handled concurrently
+	 */
+	public SimpSessionLaneExecutor(Executor executor, int laneCount) {
+		Assert.notNull(executor, "Executor must not be null");
+		Assert.isTrue(laneCount > 0, "Lane count must be greater than 0");
+		this.executor = executor;
+		this.lanes = new Lane[laneCount];
+		for (int i = 0; i < laneCount; i++) {
+			this.lanes[i] = new Lane(i);
+		}
+	}
+
+
+	/**
+	 * Return the executor that the tasks of each lane run on.
+	 */
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * Return the number of lanes.
+	 */
+	public int getLaneCount() {
+		return this.lanes.length;
+	}
+
+	/**
+	 * Return the number of tasks waiting or running in each lane.
+	 */
+	public int[] getLaneQueueDepths() {
+		int[] depths = new int[this.lanes.length];
+		for (int i = 0; i < this.lanes.length; i++) {
+			depths[i] = this.lanes[i].size.get();
+		}
+		return depths;
+	}
+
+
+	@Override
+	public void execute(Runnable task) {
+		String sessionId = getSessionId(task);
+		if (sessionId == null) {
+			this.executor.execute(task);
+		}
+		else {
+			int hash = sessionId.hashCode();
+			hash ^= (hash >>> 16);
+			this.lanes[(hash & Integer.MAX_VALUE) % this.lanes.length].execute(task);
+		}
+	}
+
+	private String getSessionId(Runnable task) {
+		if (task instanceof MessageHandlingRunnable) {
+			Message<?> message = ((MessageHandlingRunnable) task).getMessage();
+			return SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+		}
+		return null;
+	}
+
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("lanes = ").append(this.lanes.length).append(", lane queue depths = [");
+		for (int i = 0; i < this.lanes.length; i++) {
+			sb.append(i > 0 ? ", " : "").append(this.lanes[i].size.get());
+		}
+		return sb.append("]").toString();
+	}
+
+
+	/**
+	 * A queue of tasks run one at a time. The lane is submitted to the target
+	 * executor when its first task is added, and runs until it is empty, or
+	 * re-submits itself after {@link #MAX_TASKS_PER_RUN} tasks. Whichever thread
+	 * takes the size of the lane from 0 owns the lane until it drops back to 0.
+	 */
+	private class Lane implements Runnable {
+
+		private final int index;
+
+		private final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+
+		// Number of tasks in the queue, including the one currently running
+		private final AtomicInteger size = new AtomicInteger();
+
+		public Lane(int index) {
+			this.index = index;
+		}
+
+		public void execute(Runnable task) {
+			this.queue.add(task);
+			if (this.size.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				}
+				catch (RejectedExecutionException ex) {
+					this.queue.remove(task);
+					if (this.size.decrementAndGet() > 0) {
+						// Tasks added in the meantime: still owned by this thread
+						run();
+					}
+					throw ex;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				for (int i = 0; i < MAX_TASKS_PER_RUN; i++) {
+					Runnable task = this.queue.poll();
+					try {
+						task.run();
+					}
+					catch (Throwable ex) {
+						logger.error("Failed to run task in lane " + this.index, ex);
+					}
+					if (this.size.decrementAndGet() == 0) {
+						return;
+					}
+				}
+				try {
+					executor.execute(this);
+					return;
+				}
+				catch (RejectedExecutionException ex) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Lane " + this.index + " rejected with " + this.size.get() +
+								" pending task(s), continuing on current thread", ex);
+					}
+				}
+			}
+		}
+	}
+
+}
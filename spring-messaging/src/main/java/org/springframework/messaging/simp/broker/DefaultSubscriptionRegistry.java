@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 
 package org.springframework.messaging.simp.broker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -25,6 +27,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
@@ -54,6 +57,14 @@ import org.springframework.util.StringUtils;
  * header on subscription messages with Spring EL expressions evaluated against
  * the headers to filter out messages in addition to destination matching.
  *
+ * <p>As of 4.3.25, destination patterns are also indexed in a trie of
+ * destination segments when using an {@link AntPathMatcher} with case-sensitive
+ * matching and without token trimming, as by default. Each destination pattern
+ * is stored under the literal segments it starts with, so that resolving a
+ * destination that is not in the destination cache only needs to match the
+ * patterns found along its segments, rather than the destination patterns of
+ * all sessions.
+ *
  * @author Rossen Stoyanchev
  * @author Sebastien Deleuze
  * @author Juergen Hoeller
@@ -81,6 +92,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	private final DestinationCache destinationCache = new DestinationCache();
 
+	private volatile DestinationIndex destinationIndex = new DestinationIndex(AntPathMatcher.DEFAULT_PATH_SEPARATOR);
+
 	private final SessionSubscriptionRegistry subscriptionRegistry = new SessionSubscriptionRegistry();
 
 
@@ -89,6 +102,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	 */
 	public void setPathMatcher(PathMatcher pathMatcher) {
 		this.pathMatcher = pathMatcher;
+		this.destinationIndex = createDestinationIndex(pathMatcher);
+		this.destinationCache.clear();
 	}
 
 	/**
@@ -146,6 +161,10 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		Expression expression = getSelectorExpression(message.getHeaders());
 		this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
+		DestinationIndex index = this.destinationIndex;
+		if (index != null) {
+			index.addSubscription(destination, sessionId);
+		}
 		this.destinationCache.updateAfterNewSubscription(destination, sessionId, subsId);
 	}
 
@@ -177,6 +196,10 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		if (info != null) {
 			String destination = info.removeSubscription(subsId);
 			if (destination != null) {
+				DestinationIndex index = this.destinationIndex;
+				if (index != null) {
+					index.removeSubscription(destination, info);
+				}
 				this.destinationCache.updateAfterRemovedSubscription(sessionId, subsId);
 			}
 		}
@@ -186,6 +209,10 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	public void unregisterAllSubscriptions(String sessionId) {
 		SessionSubscriptionInfo info = this.subscriptionRegistry.removeSubscriptions(sessionId);
 		if (info != null) {
+			DestinationIndex index = this.destinationIndex;
+			if (index != null) {
+				index.removeSession(info);
+			}
 			this.destinationCache.updateAfterRemovedSession(info);
 		}
 	}
@@ -196,6 +223,28 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		return filterSubscriptions(result, message);
 	}
 
+	/**
+	 * Create an index for the given {@code PathMatcher}, populated with the
+	 * current subscriptions, or return {@code null} if destination patterns
+	 * of the given {@code PathMatcher} cannot be indexed by segment.
+	 */
+	private DestinationIndex createDestinationIndex(PathMatcher pathMatcher) {
+		if (!(pathMatcher instanceof AntPathMatcher)) {
+			return null;
+		}
+		AntPathMatcher antPathMatcher = (AntPathMatcher) pathMatcher;
+		if (!antPathMatcher.isCaseSensitive() || antPathMatcher.isTrimTokens()) {
+			return null;
+		}
+		DestinationIndex index = new DestinationIndex(antPathMatcher.getPathSeparator());
+		for (SessionSubscriptionInfo info : this.subscriptionRegistry.getAllSubscriptions()) {
+			for (String destination : info.getDestinations()) {
+				index.addSubscription(destination, info.getSessionId());
+			}
+		}
+		return index;
+	}
+
 	private MultiValueMap<String, String> filterSubscriptions(
 			MultiValueMap<String, String> allMatches, Message<?> message) {
 
@@ -238,7 +287,184 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	@Override
 	public String toString() {
-		return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " + this.subscriptionRegistry + "]";
+		DestinationIndex index = this.destinationIndex;
+		return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " +
+				(index != null ? index + ", " : "") + this.subscriptionRegistry + "]";
+	}
+
+
+	/**
+	 * An index of destination patterns, organized as a trie of destination
+	 * segments, along with the ids of the sessions subscribed to each pattern.
+	 * A pattern is kept at the node for the literal segments it starts with:
+	 * a fully literal destination at the node for all of its segments, a pattern
+	 * with wildcards or URI template variables at the node for the segments
+	 * before the first one containing any.
+	 * <p>A lookup walks down the segments of the destination, matches the
+	 * patterns of each node along the way, and takes the subscriptions of each
+	 * subscribed session from the {@link SessionSubscriptionRegistry}. Nodes
+	 * are concurrent maps, updated on subscribe and unsubscribe under the index
+	 * monitor, so that lookups do not need to lock.
+	 */
+	private class DestinationIndex {
+
+		private final String pathSeparator;
+
+		private final DestinationNode root = new DestinationNode();
+
+		private volatile int patternCount;
+
+		public DestinationIndex(String pathSeparator) {
+			this.pathSeparator = pathSeparator;
+		}
+
+		public LinkedMultiValueMap<String, String> getSubscriptions(String destination) {
+			Map<String, List<Subscription>> matches = new LinkedHashMap<String, List<Subscription>>();
+			DestinationNode node = this.root;
+			addMatchingSubscriptions(node, destination, matches);
+			for (String segment : tokenize(destination)) {
+				node = node.children.get(segment);
+				if (node == null) {
+					break;
+				}
+				addMatchingSubscriptions(node, destination, matches);
+			}
+
+			LinkedMultiValueMap<String, String> result = new LinkedMultiValueMap<String, String>(matches.size());
+			for (Map.Entry<String, List<Subscription>> entry : matches.entrySet()) {
+				List<Subscription> subscriptions = entry.getValue();
+				if (subscriptions.size() > 1) {
+					// Subscriptions of a session to several matching patterns: keep subscription order
+					Collections.sort(subscriptions);
+				}
+				for (Subscription subscription : subscriptions) {
+					result.add(entry.getKey(), subscription.getId());
+				}
+			}
+			return result;
+		}
+
+		private void addMatchingSubscriptions(DestinationNode node, String destination,
+				Map<String, List<Subscription>> matches) {
+
+			for (Map.Entry<String, Set<String>> entry : node.patterns.entrySet()) {
+				String destinationPattern = entry.getKey();
+				if (!getPathMatcher().match(destinationPattern, destination)) {
+					continue;
+				}
+				for (String sessionId : entry.getValue()) {
+					SessionSubscriptionInfo info = subscriptionRegistry.getSubscriptions(sessionId);
+					Set<Subscription> subscriptions = (info != null ? info.getSubscriptions(destinationPattern) : null);
+					if (subscriptions != null) {
+						List<Subscription> sessionMatches = matches.get(sessionId);
+						if (sessionMatches == null) {
+							sessionMatches = new ArrayList<Subscription>(subscriptions.size());
+							matches.put(sessionId, sessionMatches);
+						}
+						sessionMatches.addAll(subscriptions);
+					}
+				}
+			}
+		}
+
+		public synchronized void addSubscription(String destinationPattern, String sessionId) {
+			DestinationNode node = this.root;
+			for (String segment : getLiteralSegments(destinationPattern)) {
+				DestinationNode child = node.children.get(segment);
+				if (child == null) {
+					child = new DestinationNode();
+					node.children.put(segment, child);
+				}
+				node = child;
+			}
+			Set<String> sessionIds = node.patterns.get(destinationPattern);
+			if (sessionIds == null) {
+				sessionIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(4));
+				node.patterns.put(destinationPattern, sessionIds);
+				this.patternCount++;
+			}
+			sessionIds.add(sessionId);
+		}
+
+		/**
+		 * Remove the session from the given pattern, unless it still has
+		 * subscriptions to it.
+		 */
+		public synchronized void removeSubscription(String destinationPattern, SessionSubscriptionInfo info) {
+			Set<Subscription> subscriptions = info.getSubscriptions(destinationPattern);
+			if (subscriptions == null || subscriptions.isEmpty()) {
+				removeSession(destinationPattern, info.getSessionId());
+			}
+		}
+
+		public synchronized void removeSession(SessionSubscriptionInfo info) {
+			for (String destination : info.getDestinations()) {
+				removeSession(destination, info.getSessionId());
+			}
+		}
+
+		private void removeSession(String destinationPattern, String sessionId) {
+			List<String> segments = getLiteralSegments(destinationPattern);
+			List<DestinationNode> path = new ArrayList<DestinationNode>(segments.size() + 1);
+			DestinationNode node = this.root;
+			path.add(node);
+			for (String segment : segments) {
+				node = node.children.get(segment);
+				if (node == null) {
+					return;
+				}
+				path.add(node);
+			}
+			Set<String> sessionIds = node.patterns.get(destinationPattern);
+			if (sessionIds == null || !sessionIds.remove(sessionId) || !sessionIds.isEmpty()) {
+				return;
+			}
+			node.patterns.remove(destinationPattern);
+			this.patternCount--;
+			// Prune nodes that no longer hold any pattern
+			for (int i = segments.size(); i > 0; i--) {
+				DestinationNode current = path.get(i);
+				if (!current.patterns.isEmpty() || !current.children.isEmpty()) {
+					break;
+				}
+				path.get(i - 1).children.remove(segments.get(i - 1));
+			}
+		}
+
+		private List<String> getLiteralSegments(String destinationPattern) {
+			String[] segments = tokenize(destinationPattern);
+			List<String> literalSegments = new ArrayList<String>(segments.length);
+			for (String segment : segments) {
+				if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+					break;
+				}
+				literalSegments.add(segment);
+			}
+			return literalSegments;
+		}
+
+		private String[] tokenize(String destination) {
+			// Same tokenization as AntPathMatcher, with tokens neither trimmed nor empty
+			return StringUtils.tokenizeToStringArray(destination, this.pathSeparator, false, true);
+		}
+
+		@Override
+		public String toString() {
+			return "index[" + this.patternCount + " destination(s)]";
+		}
+	}
+
+
+	/**
+	 * A node in the {@link DestinationIndex}.
+	 */
+	private static class DestinationNode {
+
+		// segment -> child node
+		final Map<String, DestinationNode> children = new ConcurrentHashMap<String, DestinationNode>(4);
+
+		// destination pattern -> ids of subscribed sessions
+		final Map<String, Set<String>> patterns = new ConcurrentHashMap<String, Set<String>>(2);
 	}
 
 
@@ -268,24 +494,44 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					}
 				};
 
+		/** Number of updates to the subscriptions, incremented under the updateCache lock */
+		private volatile int modificationCount;
+
 
 		public LinkedMultiValueMap<String, String> getSubscriptions(String destination, Message<?> message) {
 			LinkedMultiValueMap<String, String> result = this.accessCache.get(destination);
 			if (result == null) {
-				synchronized (this.updateCache) {
-					result = new LinkedMultiValueMap<String, String>();
-					for (SessionSubscriptionInfo info : subscriptionRegistry.getAllSubscriptions()) {
-						for (String destinationPattern : info.getDestinations()) {
-							if (getPathMatcher().match(destinationPattern, destination)) {
-								for (Subscription subscription : info.getSubscriptions(destinationPattern)) {
-									result.add(info.sessionId, subscription.getId());
-								}
-							}
+				// Resolve without the lock, and only cache the result if no subscription
+				// changed in the meantime, as the update might have missed it.
+				int modificationCount = this.modificationCount;
+				result = resolveSubscriptions(destination);
+				if (!result.isEmpty()) {
+					synchronized (this.updateCache) {
+						if (modificationCount == this.modificationCount) {
+							this.updateCache.put(destination, result.deepCopy());
+							this.accessCache.put(destination, result);
 						}
 					}
-					if (!result.isEmpty()) {
-						this.updateCache.put(destination, result.deepCopy());
-						this.accessCache.put(destination, result);
+				}
+			}
+			return result;
+		}
+
+		private LinkedMultiValueMap<String, String> resolveSubscriptions(String destination) {
+			DestinationIndex index = destinationIndex;
+			if (index != null) {
+				return index.getSubscriptions(destination);
+			}
+			LinkedMultiValueMap<String, String> result = new LinkedMultiValueMap<String, String>();
+			for (SessionSubscriptionInfo info : subscriptionRegistry.getAllSubscriptions()) {
+				for (String destinationPattern : info.getDestinations()) {
+					if (getPathMatcher().match(destinationPattern, destination)) {
+						Set<Subscription> subscriptions = info.getSubscriptions(destinationPattern);
+						if (subscriptions != null) {
+							for (Subscription subscription : subscriptions) {
+								result.add(info.sessionId, subscription.getId());
+							}
+						}
 					}
 				}
 			}
@@ -294,6 +540,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		public void updateAfterNewSubscription(String destination, String sessionId, String subsId) {
 			synchronized (this.updateCache) {
+				this.modificationCount++;
 				for (Map.Entry<String, LinkedMultiValueMap<String, String>> entry : this.updateCache.entrySet()) {
 					String cachedDestination = entry.getKey();
 					if (getPathMatcher().match(destination, cachedDestination)) {
@@ -311,6 +558,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		public void updateAfterRemovedSubscription(String sessionId, String subsId) {
 			synchronized (this.updateCache) {
+				this.modificationCount++;
 				Set<String> destinationsToRemove = new HashSet<String>();
 				for (Map.Entry<String, LinkedMultiValueMap<String, String>> entry : this.updateCache.entrySet()) {
 					String destination = entry.getKey();
@@ -338,6 +586,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		public void updateAfterRemovedSession(SessionSubscriptionInfo info) {
 			synchronized (this.updateCache) {
+				this.modificationCount++;
 				Set<String> destinationsToRemove = new HashSet<String>();
 				for (Map.Entry<String, LinkedMultiValueMap<String, String>> entry : this.updateCache.entrySet()) {
 					String destination = entry.getKey();
@@ -358,6 +607,14 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			}
 		}
 
+		public void clear() {
+			synchronized (this.updateCache) {
+				this.modificationCount++;
+				this.updateCache.clear();
+				this.accessCache.clear();
+			}
+		}
+
 		@Override
 		public String toString() {
 			return "cache[" + this.accessCache.size() + " destination(s)]";
@@ -374,6 +631,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		private final ConcurrentMap<String, SessionSubscriptionInfo> sessions =
 				new ConcurrentHashMap<String, SessionSubscriptionInfo>();
 
+		private final AtomicLong subscriptionCounter = new AtomicLong();
+
 		public SessionSubscriptionInfo getSubscriptions(String sessionId) {
 			return this.sessions.get(sessionId);
 		}
@@ -393,7 +652,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					info = value;
 				}
 			}
-			info.addSubscription(destination, subscriptionId, selectorExpression);
+			info.addSubscription(destination, subscriptionId, selectorExpression,
+					this.subscriptionCounter.getAndIncrement());
 			return info;
 		}
 
@@ -450,7 +710,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return null;
 		}
 
-		public void addSubscription(String destination, String subscriptionId, Expression selectorExpression) {
+		public void addSubscription(String destination, String subscriptionId, Expression selectorExpression,
+				long order) {
 			Set<Subscription> subs = this.destinationLookup.get(destination);
 			if (subs == null) {
 				synchronized (this.destinationLookup) {
@@ -461,7 +722,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					}
 				}
 			}
-			subs.add(new Subscription(subscriptionId, selectorExpression));
+			subs.add(new Subscription(subscriptionId, selectorExpression, order));
 		}
 
 		public String removeSubscription(String subscriptionId) {
@@ -490,16 +751,23 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	}
 
 
-	private static final class Subscription {
+	/**
+	 * A subscription, along with the order in which it was added to the registry.
+	 * Ordering is by subscription order, while equality is by subscription id.
+	 */
+	private static final class Subscription implements Comparable<Subscription> {
 
 		private final String id;
 
 		private final Expression selectorExpression;
 
-		public Subscription(String id, Expression selector) {
+		private final long order;
+
+		public Subscription(String id, Expression selector, long order) {
 			Assert.notNull(id, "Subscription id must not be null");
 			this.id = id;
 			this.selectorExpression = selector;
+			this.order = order;
 		}
 
 		public String getId() {
@@ -510,6 +778,11 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return this.selectorExpression;
 		}
 
+		@Override
+		public int compareTo(Subscription other) {
+			return (this.order < other.order ? -1 : (this.order == other.order ? 0 : 1));
+		}
+
 		@Override
 		public boolean equals(Object other) {
 			return (this == other || (other instanceof Subscription && this.id.equals(((Subscription) other).id)));
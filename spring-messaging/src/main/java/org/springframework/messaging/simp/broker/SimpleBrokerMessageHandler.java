@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpBroadcastEncoding;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
@@ -367,14 +368,18 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 			logger.debug("Broadcasting to " + subscriptions.size() + " sessions.");
 		}
 		long now = System.currentTimeMillis();
+		Object payload = message.getPayload();
+		SimpBroadcastEncoding broadcastEncoding = (isBroadcast(subscriptions) ? new SimpBroadcastEncoding() : null);
 		for (Map.Entry<String, List<String>> subscriptionEntry : subscriptions.entrySet()) {
 			for (String subscriptionId : subscriptionEntry.getValue()) {
 				SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
 				initHeaders(headerAccessor);
 				headerAccessor.setSessionId(subscriptionEntry.getKey());
 				headerAccessor.setSubscriptionId(subscriptionId);
+				if (broadcastEncoding != null) {
+					headerAccessor.setHeader(SimpMessageHeaderAccessor.BROADCAST_ENCODING_HEADER, broadcastEncoding);
+				}
 				headerAccessor.copyHeadersIfAbsent(message.getHeaders());
-				Object payload = message.getPayload();
 				Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
 				try {
 					getClientOutboundChannel().send(reply);
@@ -394,6 +399,17 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 	}
 
+	/**
+	 * Whether the message is sent to more than one subscription, in which case
+	 * all copies share a {@link SimpBroadcastEncoding}.
+	 */
+	private boolean isBroadcast(MultiValueMap<String, String> subscriptions) {
+		if (subscriptions.size() != 1) {
+			return (subscriptions.size() > 1);
+		}
+		return (subscriptions.values().iterator().next().size() > 1);
+	}
+
 	@Override
 	public String toString() {
 		return "SimpleBrokerMessageHandler [" + this.subscriptionRegistry + "]";
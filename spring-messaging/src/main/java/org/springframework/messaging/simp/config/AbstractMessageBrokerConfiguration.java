@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.BeanInitializationException;
@@ -38,6 +39,7 @@ import org.springframework.messaging.converter.StringMessageConverter;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.HandlerMethodReturnValueHandler;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpSessionLaneExecutor;
 import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
 import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
 import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
@@ -121,8 +123,9 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 
 	@Bean
 	public AbstractSubscribableChannel clientInboundChannel() {
-		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(clientInboundChannelExecutor());
 		ChannelRegistration reg = getClientInboundChannelRegistration();
+		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(
+				getChannelExecutor(reg, clientInboundChannelExecutor()));
 		if (reg.hasInterceptors()) {
 			channel.setInterceptors(reg.getInterceptors());
 		}
@@ -156,8 +159,9 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 
 	@Bean
 	public AbstractSubscribableChannel clientOutboundChannel() {
-		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(clientOutboundChannelExecutor());
 		ChannelRegistration reg = getClientOutboundChannelRegistration();
+		ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(
+				getChannelExecutor(reg, clientOutboundChannelExecutor()));
 		if (reg.hasInterceptors()) {
 			channel.setInterceptors(reg.getInterceptors());
 		}
@@ -189,6 +193,11 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 	protected void configureClientOutboundChannel(ChannelRegistration registration) {
 	}
 
+	private Executor getChannelExecutor(ChannelRegistration registration, ThreadPoolTaskExecutor executor) {
+		return (registration.hasSessionLanes() ?
+				new SimpSessionLaneExecutor(executor, registration.getSessionLanes()) : executor);
+	}
+
 	@Bean
 	public AbstractSubscribableChannel brokerChannel() {
 		ChannelRegistration reg = getBrokerRegistry().getBrokerChannelRegistration();
@@ -337,9 +346,14 @@ public abstract class AbstractMessageBrokerConfiguration implements ApplicationC
 		}
 		SimpUserRegistry userRegistry = userRegistry();
 		Assert.isInstanceOf(MultiServerUserRegistry.class, userRegistry, "MultiServerUserRegistry required");
-		return new UserRegistryMessageHandler((MultiServerUserRegistry) userRegistry,
+		UserRegistryMessageHandler handler = new UserRegistryMessageHandler((MultiServerUserRegistry) userRegistry,
 				brokerMessagingTemplate(), getBrokerRegistry().getUserRegistryBroadcast(),
 				messageBrokerTaskScheduler());
+		Integer fullBroadcastInterval = getBrokerRegistry().getUserRegistryFullBroadcastInterval();
+		if (fullBroadcastInterval != null) {
+			handler.setFullBroadcastInterval(fullBroadcastInterval);
+		}
+		return handler;
 	}
 
 	// Expose alias for 4.1 compatibility
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.7
+ * Copyright 2002-2019 the original author or authors.7
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,8 @@ public class ChannelRegistration {
 
 	private TaskExecutorRegistration registration;
 
+	private int sessionLanes;
+
 	private final List<ChannelInterceptor> interceptors = new ArrayList<ChannelInterceptor>();
 
 
@@ -58,6 +60,25 @@ public class ChannelRegistration {
 		return this.registration;
 	}
 
+	/**
+	 * Preserve the order of messages per session, by dispatching each message
+	 * to one of the given number of lanes based on a hash of its session id.
+	 * Each lane handles its messages one at a time on the thread pool backing
+	 * this message channel, so that messages from the same session are handled
+	 * in the order they were sent, while messages from different sessions are
+	 * still handled concurrently.
+	 * <p>The number of lanes is typically the same as the number of threads of
+	 * the thread pool. By default, messages are passed to the thread pool
+	 * directly, without any ordering guarantees.
+	 * @param laneCount the number of lanes
+	 * @since 4.3.25
+	 * @see org.springframework.messaging.simp.SimpSessionLaneExecutor
+	 */
+	public ChannelRegistration sessionLanes(int laneCount) {
+		this.sessionLanes = laneCount;
+		return this;
+	}
+
 	/**
 	 * Configure the given interceptors for this message channel,
 	 * adding them to the channel's current list of interceptors.
@@ -101,6 +122,14 @@ public class ChannelRegistration {
 		return taskExecutor();
 	}
 
+	protected boolean hasSessionLanes() {
+		return (this.sessionLanes > 0);
+	}
+
+	protected int getSessionLanes() {
+		return this.sessionLanes;
+	}
+
 	protected boolean hasInterceptors() {
 		return !this.interceptors.isEmpty();
 	}
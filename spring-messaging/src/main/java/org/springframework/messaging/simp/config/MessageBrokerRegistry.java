@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -108,6 +108,11 @@ public class MessageBrokerRegistry {
 				this.brokerRelayRegistration.getUserRegistryBroadcast() : null);
 	}
 
+	protected Integer getUserRegistryFullBroadcastInterval() {
+		return (this.brokerRelayRegistration != null ?
+				this.brokerRelayRegistration.getUserRegistryFullBroadcastInterval() : null);
+	}
+
 	/**
 	 * Configure one or more prefixes to filter destinations targeting application
 	 * annotated methods. For example destinations prefixed with "/app" may be
@@ -165,6 +170,7 @@ public class MessageBrokerRegistry {
 	 * also used to match message destinations when brokering messages.
 	 * @since 4.1
 	 * @see org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry#setPathMatcher
+	 * @see org.springframework.util.PrecompiledPathMatcher
 	 */
 	public MessageBrokerRegistry setPathMatcher(PathMatcher pathMatcher) {
 		this.pathMatcher = pathMatcher;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -57,6 +57,12 @@ public class StompBrokerRelayRegistration extends AbstractBrokerRegistration {
 
 	private String userRegistryBroadcast;
 
+	private Integer userRegistryFullBroadcastInterval;
+
+	private Integer outboundQueueCapacity;
+
+	private StompBrokerRelayMessageHandler.OverflowStrategy overflowStrategy;
+
 
 	public StompBrokerRelayRegistration(SubscribableChannel clientInboundChannel,
 			MessageChannel clientOutboundChannel, String[] destinationPrefixes) {
@@ -222,6 +228,49 @@ public class StompBrokerRelayRegistration extends AbstractBrokerRegistration {
 		return this.userRegistryBroadcast;
 	}
 
+	/**
+	 * Configure how often the full local user registry is broadcast to the
+	 * {@link #setUserRegistryBroadcast user registry broadcast} destination,
+	 * with only changes broadcast in between.
+	 * <p>By default every broadcast is a full broadcast.
+	 * @since 4.3.25
+	 * @see org.springframework.messaging.simp.user.UserRegistryMessageHandler#setFullBroadcastInterval(int)
+	 */
+	public StompBrokerRelayRegistration setUserRegistryFullBroadcastInterval(int interval) {
+		this.userRegistryFullBroadcastInterval = interval;
+		return this;
+	}
+
+	protected Integer getUserRegistryFullBroadcastInterval() {
+		return this.userRegistryFullBroadcastInterval;
+	}
+
+	/**
+	 * Configure the maximum number of messages per TCP connection that may be
+	 * pending, i.e. forwarded to the broker but not yet written.
+	 * <p>By default the number of pending messages is not limited.
+	 * @since 4.3.25
+	 * @see StompBrokerRelayMessageHandler#setOutboundQueueCapacity(int)
+	 */
+	public StompBrokerRelayRegistration setOutboundQueueCapacity(int outboundQueueCapacity) {
+		this.outboundQueueCapacity = outboundQueueCapacity;
+		return this;
+	}
+
+	/**
+	 * Configure what to do when a message is forwarded on a TCP connection
+	 * whose {@link #setOutboundQueueCapacity outbound queue} is full.
+	 * <p>By default messages are rejected.
+	 * @since 4.3.25
+	 * @see StompBrokerRelayMessageHandler#setOverflowStrategy
+	 */
+	public StompBrokerRelayRegistration setOverflowStrategy(
+			StompBrokerRelayMessageHandler.OverflowStrategy overflowStrategy) {
+
+		this.overflowStrategy = overflowStrategy;
+		return this;
+	}
+
 
 	protected StompBrokerRelayMessageHandler getMessageHandler(SubscribableChannel brokerChannel) {
 
@@ -250,6 +299,12 @@ public class StompBrokerRelayRegistration extends AbstractBrokerRegistration {
 		if (this.tcpClient != null) {
 			handler.setTcpClient(this.tcpClient);
 		}
+		if (this.outboundQueueCapacity != null) {
+			handler.setOutboundQueueCapacity(this.outboundQueueCapacity);
+		}
+		if (this.overflowStrategy != null) {
+			handler.setOverflowStrategy(this.overflowStrategy);
+		}
 
 		handler.setAutoStartup(this.autoStartup);
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -55,6 +55,9 @@ public class BufferingStompDecoder {
 
 	private volatile Integer expectedContentLength;
 
+	// Buffer allocated for assembling chunks, with spare capacity for more chunks
+	private ByteBuffer assemblyBuffer;
+
 
 	/**
 	 * Create a new {@code BufferingStompDecoder} wrapping the given {@code StompDecoder}.
@@ -124,7 +127,17 @@ public class BufferingStompDecoder {
 			result = this.chunks.remove();
 		}
 		else {
-			result = ByteBuffer.allocate(getBufferSize());
+			int size = getBufferSize();
+			result = this.chunks.peek();
+			if (result == this.assemblyBuffer && result.capacity() >= size) {
+				// Append to the left-over content of the previous attempt
+				this.chunks.remove();
+				result.compact();
+			}
+			else {
+				result = ByteBuffer.allocate(size + Math.min(size, this.bufferSizeLimit - size));
+				this.assemblyBuffer = result;
+			}
 			for (ByteBuffer partial : this.chunks) {
 				result.put(partial);
 			}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import reactor.fn.Consumer;
+import reactor.fn.Function;
+import reactor.io.buffer.Buffer;
+import reactor.io.codec.Codec;
+
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+/**
+ * A variant of {@link Reactor2StompCodec} that decodes the body of STOMP frames
+ * into pooled, direct Netty {@link ByteBuf} payloads rather than into heap byte
+ * arrays, which reduces the garbage created on connections with high message
+ * rates.
+ *
+ * <p>Payloads are reference counted and must be released once handled. This is
+ * done by {@link org.springframework.messaging.tcp.reactor.Reactor2TcpClient
+ * Reactor2TcpClient} when {@code releasePayloads} is enabled, after
+ * {@link org.springframework.messaging.tcp.TcpConnectionHandler#handleMessage
+ * handleMessage} returns. A handler that uses a payload beyond that, e.g. on
+ * another thread, must {@link ByteBuf#retain() retain} it, and release it when
+ * done.
+ *
+ * <p>The payload of outbound messages is copied while encoding, and is not
+ * released by this codec.
+ *
+ * @since 4.3.25
+ * @see org.springframework.messaging.tcp.reactor.Reactor2TcpClient#setReleasePayloads
+ */
+public class Reactor2PooledStompCodec extends Codec<Buffer, Message<ByteBuf>, Message<ByteBuf>> {
+
+	private final Function<Message<ByteBuf>, Buffer> encodingFunction;
+
+	private final StompDecoder stompDecoder;
+
+	private final StompDecoder.PayloadReader<ByteBuf> payloadReader;
+
+
+	public Reactor2PooledStompCodec() {
+		this(new StompEncoder(), new StompDecoder(), PooledByteBufAllocator.DEFAULT);
+	}
+
+	public Reactor2PooledStompCodec(StompEncoder encoder, StompDecoder decoder, ByteBufAllocator allocator) {
+		Assert.notNull(encoder, "StompEncoder is required");
+		Assert.notNull(decoder, "StompDecoder is required");
+		Assert.notNull(allocator, "ByteBufAllocator is required");
+		this.encodingFunction = new EncodingFunction(encoder);
+		this.stompDecoder = decoder;
+		this.payloadReader = new ByteBufPayloadReader(allocator);
+	}
+
+
+	@Override
+	public Function<Buffer, Message<ByteBuf>> decoder(Consumer<Message<ByteBuf>> messageConsumer) {
+		return new DecodingFunction(this.stompDecoder, this.payloadReader, messageConsumer);
+	}
+
+	@Override
+	public Function<Message<ByteBuf>, Buffer> encoder() {
+		return this.encodingFunction;
+	}
+
+	@Override
+	public Buffer apply(Message<ByteBuf> message) {
+		return this.encodingFunction.apply(message);
+	}
+
+
+	private static class EncodingFunction implements Function<Message<ByteBuf>, Buffer> {
+
+		private final StompEncoder encoder;
+
+		public EncodingFunction(StompEncoder encoder) {
+			this.encoder = encoder;
+		}
+
+		@Override
+		public Buffer apply(Message<ByteBuf> message) {
+			ByteBuf payload = message.getPayload();
+			byte[] bytes = new byte[payload.readableBytes()];
+			payload.getBytes(payload.readerIndex(), bytes);
+			return new Buffer(ByteBuffer.wrap(this.encoder.encode(message.getHeaders(), bytes)));
+		}
+	}
+
+
+	private static class DecodingFunction implements Function<Buffer, Message<ByteBuf>> {
+
+		private final StompDecoder decoder;
+
+		private final StompDecoder.PayloadReader<ByteBuf> payloadReader;
+
+		private final Consumer<Message<ByteBuf>> messageConsumer;
+
+		public DecodingFunction(StompDecoder decoder, StompDecoder.PayloadReader<ByteBuf> payloadReader,
+				Consumer<Message<ByteBuf>> next) {
+
+			this.decoder = decoder;
+			this.payloadReader = payloadReader;
+			this.messageConsumer = next;
+		}
+
+		@Override
+		public Message<ByteBuf> apply(Buffer buffer) {
+			// Pass on each message as soon as it is decoded, so that no payload
+			// is left unreleased if a subsequent frame fails to decode
+			ByteBuffer byteBuffer = buffer.byteBuffer();
+			while (byteBuffer.hasRemaining()) {
+				Message<ByteBuf> message = this.decoder.decodeMessage(byteBuffer, null, this.payloadReader);
+				if (message == null) {
+					break;
+				}
+				this.messageConsumer.accept(message);
+			}
+			return null;
+		}
+	}
+
+
+	private static class ByteBufPayloadReader implements StompDecoder.PayloadReader<ByteBuf> {
+
+		private final ByteBufAllocator allocator;
+
+		public ByteBufPayloadReader(ByteBufAllocator allocator) {
+			this.allocator = allocator;
+		}
+
+		@Override
+		public ByteBuf read(ByteBuffer buffer, int length) {
+			if (length == 0) {
+				return Unpooled.EMPTY_BUFFER;
+			}
+			ByteBuffer body = buffer.duplicate();
+			body.limit(body.position() + length);
+			ByteBuf payload = this.allocator.directBuffer(length, length);
+			payload.writeBytes(body);
+			buffer.position(body.position());
+			return payload;
+		}
+
+		@Override
+		public ByteBuf heartbeat() {
+			return Unpooled.wrappedBuffer(StompDecoder.HEARTBEAT_PAYLOAD);
+		}
+	}
+
+}
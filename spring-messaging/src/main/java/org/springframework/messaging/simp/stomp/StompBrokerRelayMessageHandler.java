@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,16 @@
 
 package org.springframework.messaging.simp.stomp;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
@@ -45,6 +48,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 import org.springframework.util.concurrent.ListenableFutureTask;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * A {@link org.springframework.messaging.MessageHandler} that handles messages by
@@ -126,6 +130,10 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 	private MessageHeaderInitializer headerInitializer;
 
+	private int outboundQueueCapacity = -1;
+
+	private OverflowStrategy overflowStrategy = OverflowStrategy.REJECT;
+
 	private final Stats stats = new Stats();
 
 	private final Map<String, StompConnectionHandler> connectionHandlers =
@@ -368,6 +376,47 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure the maximum number of messages per TCP connection that may be
+	 * pending, i.e. forwarded to the broker but not yet written to the socket.
+	 * When the broker or network is slow to consume messages, the configured
+	 * {@link #setOverflowStrategy overflow strategy} is applied once this limit
+	 * is reached, rather than buffering without bounds.
+	 * <p>By default this is set to -1, i.e. the number of pending messages is
+	 * not limited. Heartbeats are never held back by this limit.
+	 * @since 4.3.25
+	 */
+	public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+		this.outboundQueueCapacity = outboundQueueCapacity;
+	}
+
+	/**
+	 * Return the configured outbound queue capacity per TCP connection.
+	 * @since 4.3.25
+	 */
+	public int getOutboundQueueCapacity() {
+		return this.outboundQueueCapacity;
+	}
+
+	/**
+	 * Configure what to do when a message is forwarded on a TCP connection
+	 * whose {@link #setOutboundQueueCapacity outbound queue} is full.
+	 * <p>By default this is set to {@link OverflowStrategy#REJECT}.
+	 * @since 4.3.25
+	 */
+	public void setOverflowStrategy(OverflowStrategy overflowStrategy) {
+		Assert.notNull(overflowStrategy, "OverflowStrategy must not be null");
+		this.overflowStrategy = overflowStrategy;
+	}
+
+	/**
+	 * Return the configured overflow strategy.
+	 * @since 4.3.25
+	 */
+	public OverflowStrategy getOverflowStrategy() {
+		return this.overflowStrategy;
+	}
+
 	/**
 	 * Return a String describing internal state and counters.
 	 */
@@ -549,6 +598,8 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 		private volatile boolean isStompConnected;
 
+		private volatile OutboundQueue outboundQueue;
+
 
 		private StompConnectionHandler(String sessionId, StompHeaderAccessor connectHeaders) {
 			this(sessionId, connectHeaders, true);
@@ -570,11 +621,22 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 			return this.tcpConnection;
 		}
 
+		/**
+		 * Return the number of messages pending in the outbound queue, if any.
+		 */
+		public int getOutboundQueueDepth() {
+			OutboundQueue queue = this.outboundQueue;
+			return (queue != null ? queue.getDepth() : 0);
+		}
+
 		@Override
 		public void afterConnected(TcpConnection<byte[]> connection) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("TCP connection opened in session=" + getSessionId());
 			}
+			if (outboundQueueCapacity > 0) {
+				this.outboundQueue = new OutboundQueue(connection);
+			}
 			this.tcpConnection = connection;
 			this.tcpConnection.onReadInactivity(new Runnable() {
 				@Override
@@ -798,7 +860,25 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 				logger.trace("Forwarding " + accessor.getDetailedLogMessage(message.getPayload()));
 			}
 
-			ListenableFuture<Void> future = conn.send((Message<byte[]>) messageToSend);
+			ListenableFuture<Void> future;
+			OutboundQueue queue = this.outboundQueue;
+			if (queue != null) {
+				try {
+					future = queue.send((Message<byte[]>) messageToSend);
+				}
+				catch (MessageDeliveryException ex) {
+					if (!this.isRemoteClientSession) {
+						throw ex;
+					}
+					if (this.tcpConnection != null) {
+						handleTcpConnectionFailure(ex.getMessage(), null);
+					}
+					return EMPTY_TASK;
+				}
+			}
+			else {
+				future = conn.send((Message<byte[]>) messageToSend);
+			}
 			future.addCallback(new ListenableFutureCallback<Void>() {
 				@Override
 				public void onSuccess(Void result) {
@@ -808,7 +888,13 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 				}
 				@Override
 				public void onFailure(Throwable ex) {
-					if (tcpConnection != null) {
+					if (ex instanceof MessageDroppedException) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("Outbound queue full in session " + sessionId + ", dropped " +
+									accessor.getShortLogMessage(message.getPayload()));
+						}
+					}
+					else if (tcpConnection != null) {
 						handleTcpConnectionFailure("failed to forward " +
 								accessor.getShortLogMessage(message.getPayload()), ex);
 					}
@@ -856,6 +942,12 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 			this.isStompConnected = false;
 
+			OutboundQueue queue = this.outboundQueue;
+			this.outboundQueue = null;
+			if (queue != null) {
+				queue.close();
+			}
+
 			TcpConnection<byte[]> conn = this.tcpConnection;
 			this.tcpConnection = null;
 			if (conn != null) {
@@ -973,6 +1065,157 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 	}
 
 
+	/**
+	 * Limits the number of messages pending on a TCP connection, i.e. handed
+	 * to the connection but not yet written, to the configured capacity, and
+	 * applies the {@link OverflowStrategy} beyond that.
+	 */
+	private class OutboundQueue {
+
+		private final TcpConnection<byte[]> connection;
+
+		private final int capacity;
+
+		private final OverflowStrategy overflowStrategy;
+
+		// Messages held back by DROP_OLDEST until pending writes complete
+		private final Deque<PendingMessage> waiting = new ArrayDeque<PendingMessage>();
+
+		private int pendingWrites;
+
+		private boolean closed;
+
+		public OutboundQueue(TcpConnection<byte[]> connection) {
+			this.connection = connection;
+			this.capacity = outboundQueueCapacity;
+			this.overflowStrategy = getOverflowStrategy();
+		}
+
+		public synchronized int getDepth() {
+			return this.pendingWrites + this.waiting.size();
+		}
+
+		/**
+		 * Write the given message, or apply the overflow strategy.
+		 * @throws MessageDeliveryException if the message is rejected, or if the
+		 * connection is closed while waiting for space in the queue
+		 */
+		public ListenableFuture<Void> send(Message<byte[]> message) {
+			PendingMessage dropped = null;
+			try {
+				synchronized (this) {
+					if (this.overflowStrategy == OverflowStrategy.BLOCK) {
+						while (!this.closed && this.pendingWrites >= this.capacity) {
+							try {
+								wait(1000);
+							}
+							catch (InterruptedException ex) {
+								Thread.currentThread().interrupt();
+								throw new MessageDeliveryException(message, "Interrupted while waiting for outbound queue");
+							}
+						}
+					}
+					if (this.closed) {
+						throw new MessageDeliveryException(message, "Connection to broker closed");
+					}
+					if (this.pendingWrites < this.capacity && this.waiting.isEmpty()) {
+						return write(message);
+					}
+					if (this.overflowStrategy == OverflowStrategy.REJECT) {
+						stats.incrementRejectedCount();
+						throw new MessageDeliveryException(message, "Outbound queue to broker full, " +
+								this.pendingWrites + " message(s) pending");
+					}
+					if (this.waiting.size() >= this.capacity) {
+						dropped = this.waiting.poll();
+						stats.incrementDroppedCount();
+					}
+					PendingMessage pending = new PendingMessage(message);
+					this.waiting.add(pending);
+					return pending.future;
+				}
+			}
+			finally {
+				if (dropped != null) {
+					dropped.future.setException(new MessageDroppedException(dropped.message));
+				}
+			}
+		}
+
+		// Invoked with the lock held, so that messages are written in order
+		private ListenableFuture<Void> write(Message<byte[]> message) {
+			this.pendingWrites++;
+			stats.updateMaxOutboundQueueDepth(this.pendingWrites + this.waiting.size());
+			final long startTime = System.nanoTime();
+			ListenableFuture<Void> future = this.connection.send(message);
+			future.addCallback(new ListenableFutureCallback<Void>() {
+				@Override
+				public void onSuccess(Void result) {
+					stats.recordWrite(System.nanoTime() - startTime);
+					afterWrite();
+				}
+				@Override
+				public void onFailure(Throwable ex) {
+					afterWrite();
+				}
+			});
+			return future;
+		}
+
+		private synchronized void afterWrite() {
+			this.pendingWrites--;
+			while (!this.closed && this.pendingWrites < this.capacity && !this.waiting.isEmpty()) {
+				final PendingMessage pending = this.waiting.poll();
+				write(pending.message).addCallback(new ListenableFutureCallback<Void>() {
+					@Override
+					public void onSuccess(Void result) {
+						pending.future.set(result);
+					}
+					@Override
+					public void onFailure(Throwable ex) {
+						pending.future.setException(ex);
+					}
+				});
+			}
+			notifyAll();
+		}
+
+		public void close() {
+			Deque<PendingMessage> discarded;
+			synchronized (this) {
+				this.closed = true;
+				discarded = new ArrayDeque<PendingMessage>(this.waiting);
+				this.waiting.clear();
+				notifyAll();
+			}
+			for (PendingMessage pending : discarded) {
+				pending.future.setException(new MessageDroppedException(pending.message));
+			}
+		}
+	}
+
+
+	private static class PendingMessage {
+
+		private final Message<byte[]> message;
+
+		private final SettableListenableFuture<Void> future = new SettableListenableFuture<Void>();
+
+		public PendingMessage(Message<byte[]> message) {
+			this.message = message;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class MessageDroppedException extends MessageDeliveryException {
+
+		public MessageDroppedException(Message<?> message) {
+			super(message, "Message dropped from outbound queue");
+		}
+	}
+
+
 	private static class StompTcpClientFactory {
 
 		public TcpOperations<byte[]> create(String relayHost, int relayPort, Reactor2StompCodec codec) {
@@ -998,6 +1241,16 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 		private final AtomicInteger disconnect = new AtomicInteger();
 
+		private final AtomicInteger maxOutboundQueueDepth = new AtomicInteger();
+
+		private final AtomicLong dropped = new AtomicLong();
+
+		private final AtomicLong rejected = new AtomicLong();
+
+		private final AtomicLong writeCount = new AtomicLong();
+
+		private final AtomicLong writeTime = new AtomicLong();
+
 		public void incrementConnectCount() {
 			this.connect.incrementAndGet();
 		}
@@ -1010,12 +1263,73 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 			this.disconnect.incrementAndGet();
 		}
 
+		public void updateMaxOutboundQueueDepth(int depth) {
+			int max = this.maxOutboundQueueDepth.get();
+			while (depth > max && !this.maxOutboundQueueDepth.compareAndSet(max, depth)) {
+				max = this.maxOutboundQueueDepth.get();
+			}
+		}
+
+		public void incrementDroppedCount() {
+			this.dropped.incrementAndGet();
+		}
+
+		public void incrementRejectedCount() {
+			this.rejected.incrementAndGet();
+		}
+
+		public void recordWrite(long nanos) {
+			this.writeCount.incrementAndGet();
+			this.writeTime.addAndGet(nanos);
+		}
+
 		public String toString() {
 			return (connectionHandlers.size() + " sessions, " + relayHost + ":" + relayPort +
 					(isBrokerAvailable() ? " (available)" : " (not available)") +
 					", processed CONNECT(" + this.connect.get() + ")-CONNECTED(" +
-					this.connected.get() + ")-DISCONNECT(" + this.disconnect.get() + ")");
+					this.connected.get() + ")-DISCONNECT(" + this.disconnect.get() + ")" +
+					(outboundQueueCapacity > 0 ? getOutboundQueueInfo() : ""));
 		}
+
+		private String getOutboundQueueInfo() {
+			int depth = 0;
+			for (StompConnectionHandler handler : connectionHandlers.values()) {
+				depth += handler.getOutboundQueueDepth();
+			}
+			long count = this.writeCount.get();
+			long averageWriteTime = (count > 0 ? TimeUnit.NANOSECONDS.toMicros(this.writeTime.get() / count) : 0);
+			return (", outbound queues (capacity " + outboundQueueCapacity + ", " + overflowStrategy + ") " +
+					"depth " + depth + ", max depth " + this.maxOutboundQueueDepth.get() +
+					", dropped " + this.dropped.get() + ", rejected " + this.rejected.get() +
+					", avg write time " + averageWriteTime + " us");
+		}
+	}
+
+
+	/**
+	 * Strategy for a message forwarded on a TCP connection whose
+	 * {@link #setOutboundQueueCapacity outbound queue} is full.
+	 * @since 4.3.25
+	 */
+	public enum OverflowStrategy {
+
+		/**
+		 * Block the sending thread until there is space in the queue, or the
+		 * connection is closed.
+		 */
+		BLOCK,
+
+		/**
+		 * Hold the message back, and drop the oldest message held back once as
+		 * many messages are held back as the capacity of the queue.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Reject the message, and for a client session, send a STOMP ERROR frame
+		 * to the client and close its connection to the broker.
+		 */
+		REJECT
 	}
 
 }
@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -41,6 +40,10 @@ import org.springframework.util.MultiValueMap;
  * partial content. The caller is then responsible for dealing with that
  * incomplete content by buffering until there is more input available.
  *
+ * <p>Frames are parsed in place, using absolute reads from the buffer. Command
+ * and well-known header names are matched against pre-encoded constants, and
+ * each header value and body is copied out of the buffer only once.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -53,6 +56,46 @@ public class StompDecoder {
 
 	private static final Log logger = LogFactory.getLog(StompDecoder.class);
 
+	private static final StompCommand[] COMMANDS = StompCommand.values();
+
+	private static final byte[][] COMMAND_NAMES = new byte[COMMANDS.length][];
+
+	/** Header names looked up in place, in order of how common they are */
+	private static final String[] HEADER_NAMES = new String[] {
+			StompHeaderAccessor.STOMP_DESTINATION_HEADER, StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER,
+			StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER, StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER,
+			StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER, StompHeaderAccessor.STOMP_ID_HEADER,
+			StompHeaderAccessor.STOMP_RECEIPT_HEADER, StompHeaderAccessor.STOMP_RECEIPT_ID_HEADER,
+			StompHeaderAccessor.STOMP_ACK_HEADER, StompHeaderAccessor.STOMP_HOST_HEADER,
+			StompHeaderAccessor.STOMP_ACCEPT_VERSION_HEADER, StompHeaderAccessor.STOMP_HEARTBEAT_HEADER,
+			StompHeaderAccessor.STOMP_LOGIN_HEADER, StompHeaderAccessor.STOMP_PASSCODE_HEADER,
+			StompHeaderAccessor.STOMP_VERSION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_HEADER};
+
+	private static final byte[][] HEADER_NAME_BYTES = new byte[HEADER_NAMES.length][];
+
+	static {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			COMMAND_NAMES[i] = COMMANDS[i].name().getBytes(UTF8_CHARSET);
+		}
+		for (int i = 0; i < HEADER_NAMES.length; i++) {
+			HEADER_NAME_BYTES[i] = HEADER_NAMES[i].getBytes(UTF8_CHARSET);
+		}
+	}
+
+	private static final PayloadReader<byte[]> BYTE_ARRAY_PAYLOAD_READER = new PayloadReader<byte[]>() {
+		@Override
+		public byte[] read(ByteBuffer buffer, int length) {
+			byte[] payload = new byte[length];
+			buffer.get(payload);
+			return payload;
+		}
+		@Override
+		public byte[] heartbeat() {
+			return HEARTBEAT_PAYLOAD;
+		}
+	};
+
+
 	private MessageHeaderInitializer headerInitializer;
 
 
@@ -107,7 +150,7 @@ public class StompDecoder {
 	public List<Message<byte[]>> decode(ByteBuffer buffer, MultiValueMap<String, String> partialMessageHeaders) {
 		List<Message<byte[]>> messages = new ArrayList<Message<byte[]>>();
 		while (buffer.hasRemaining()) {
-			Message<byte[]> message = decodeMessage(buffer, partialMessageHeaders);
+			Message<byte[]> message = decodeMessage(buffer, partialMessageHeaders, BYTE_ARRAY_PAYLOAD_READER);
 			if (message != null) {
 				messages.add(message);
 			}
@@ -119,32 +162,40 @@ public class StompDecoder {
 	}
 
 	/**
-	 * Decode a single STOMP frame from the given {@code buffer} into a {@link Message}.
+	 * Decode a single STOMP frame from the given {@code buffer} into a {@link Message},
+	 * reading its body with the given {@link PayloadReader}. The body is read only
+	 * once the frame is known to be complete and valid.
+	 * @return the decoded message, or {@code null} if the frame is incomplete
 	 */
-	private Message<byte[]> decodeMessage(ByteBuffer buffer, MultiValueMap<String, String> headers) {
-		Message<byte[]> decodedMessage = null;
+	<P> Message<P> decodeMessage(ByteBuffer buffer, MultiValueMap<String, String> headers,
+			PayloadReader<P> payloadReader) {
+
+		Message<P> decodedMessage = null;
 		skipLeadingEol(buffer);
 		buffer.mark();
 
-		String command = readCommand(buffer);
-		if (command.length() > 0) {
+		if (buffer.hasRemaining()) {
 			StompHeaderAccessor headerAccessor = null;
-			byte[] payload = null;
-			if (buffer.remaining() > 0) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
+			int payloadLength = -1;
+			int commandStart = buffer.position();
+			int commandLength = readLine(buffer);
+			if (buffer.hasRemaining()) {
+				StompCommand stompCommand = readCommand(buffer, commandStart, commandLength);
 				headerAccessor = StompHeaderAccessor.create(stompCommand);
 				initHeaders(headerAccessor);
 				readHeaders(buffer, headerAccessor);
-				payload = readPayload(buffer, headerAccessor);
+				payloadLength = findPayloadLength(buffer, headerAccessor);
 			}
-			if (payload != null) {
-				if (payload.length > 0) {
+			if (payloadLength >= 0) {
+				if (payloadLength > 0) {
 					StompCommand stompCommand = headerAccessor.getCommand();
 					if (stompCommand != null && !stompCommand.isBodyAllowed()) {
 						throw new StompConversionException(stompCommand +
-								" shouldn't have a payload: length=" + payload.length + ", headers=" + headers);
+								" shouldn't have a payload: length=" + payloadLength + ", headers=" + headers);
 					}
 				}
+				P payload = payloadReader.read(buffer, payloadLength);
+				buffer.get();
 				headerAccessor.updateSimpMessageHeadersFromStompHeaders();
 				headerAccessor.setLeaveMutable(true);
 				decodedMessage = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
@@ -169,7 +220,7 @@ public class StompDecoder {
 			StompHeaderAccessor headerAccessor = StompHeaderAccessor.createForHeartbeat();
 			initHeaders(headerAccessor);
 			headerAccessor.setLeaveMutable(true);
-			decodedMessage = MessageBuilder.createMessage(HEARTBEAT_PAYLOAD, headerAccessor.getMessageHeaders());
+			decodedMessage = MessageBuilder.createMessage(payloadReader.heartbeat(), headerAccessor.getMessageHeaders());
 			if (logger.isTraceEnabled()) {
 				logger.trace("Decoded " + headerAccessor.getDetailedLogMessage(null));
 			}
@@ -197,51 +248,79 @@ public class StompDecoder {
 		}
 	}
 
-	private String readCommand(ByteBuffer buffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (buffer.remaining() > 0 && !tryConsumeEndOfLine(buffer)) {
-			command.write(buffer.get());
+	/**
+	 * Match the command against the names of the {@link StompCommand} constants
+	 * in place, without creating a String for it.
+	 */
+	private StompCommand readCommand(ByteBuffer buffer, int start, int length) {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			if (matches(buffer, start, length, COMMAND_NAMES[i])) {
+				return COMMANDS[i];
+			}
 		}
-		return new String(command.toByteArray(), UTF8_CHARSET);
+		return StompCommand.valueOf(decode(buffer, start, length));
 	}
 
 	private void readHeaders(ByteBuffer buffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
-			while (buffer.hasRemaining()) {
-				if (tryConsumeEndOfLine(buffer)) {
-					headerComplete = true;
-					break;
-				}
-				headerStream.write(buffer.get());
+			int start = buffer.position();
+			int length = readLine(buffer);
+			if (length <= 0) {
+				break;
 			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = new String(headerStream.toByteArray(), UTF8_CHARSET);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
-					if (buffer.remaining() > 0) {
-						throw new StompConversionException("Illegal header: '" + header +
-								"'. A header must be of the form <name>:[<value>].");
-					}
-				}
-				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
-					try {
-						headerAccessor.addNativeHeader(headerName, headerValue);
+			int colonIndex = -1;
+			boolean escapedName = false;
+			boolean escapedValue = false;
+			for (int i = start; i < start + length; i++) {
+				byte b = buffer.get(i);
+				if (b == '\\') {
+					if (colonIndex == -1) {
+						escapedName = true;
 					}
-					catch (InvalidMimeTypeException ex) {
-						if (buffer.remaining() > 0) {
-							throw ex;
-						}
+					else {
+						escapedValue = true;
 					}
 				}
+				else if (b == ':' && colonIndex == -1) {
+					colonIndex = i - start;
+				}
+			}
+			if (colonIndex <= 0) {
+				if (buffer.remaining() > 0) {
+					throw new StompConversionException("Illegal header: '" + decode(buffer, start, length) +
+							"'. A header must be of the form <name>:[<value>].");
+				}
 			}
 			else {
-				break;
+				String headerName = (escapedName ? unescape(decode(buffer, start, colonIndex)) :
+						readHeaderName(buffer, start, colonIndex));
+				String headerValue = decode(buffer, start + colonIndex + 1, length - colonIndex - 1);
+				if (escapedValue) {
+					headerValue = unescape(headerValue);
+				}
+				try {
+					headerAccessor.addNativeHeader(headerName, headerValue);
+				}
+				catch (InvalidMimeTypeException ex) {
+					if (buffer.remaining() > 0) {
+						throw ex;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the constant for a well-known header name, matched in place,
+	 * or otherwise decode the header name.
+	 */
+	private String readHeaderName(ByteBuffer buffer, int start, int length) {
+		for (int i = 0; i < HEADER_NAMES.length; i++) {
+			if (matches(buffer, start, length, HEADER_NAME_BYTES[i])) {
+				return HEADER_NAMES[i];
 			}
 		}
+		return decode(buffer, start, length);
 	}
 
 	/**
@@ -283,7 +362,12 @@ public class StompDecoder {
 		return sb.toString();
 	}
 
-	private byte[] readPayload(ByteBuffer buffer, StompHeaderAccessor headerAccessor) {
+	/**
+	 * Find the length of the body that starts at the current buffer position,
+	 * and verify that it is followed by the terminating null octet.
+	 * @return the length of the body, or -1 if the frame is incomplete
+	 */
+	private int findPayloadLength(ByteBuffer buffer, StompHeaderAccessor headerAccessor) {
 		Integer contentLength;
 		try {
 			contentLength = headerAccessor.getContentLength();
@@ -297,30 +381,75 @@ public class StompDecoder {
 
 		if (contentLength != null && contentLength >= 0) {
 			if (buffer.remaining() > contentLength) {
-				byte[] payload = new byte[contentLength];
-				buffer.get(payload);
-				if (buffer.get() != 0) {
+				if (buffer.get(buffer.position() + contentLength) != 0) {
 					throw new StompConversionException("Frame must be terminated with a null octet");
 				}
-				return payload;
-			}
-			else {
-				return null;
+				return contentLength;
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (buffer.remaining() > 0) {
-				byte b = buffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
+			for (int i = buffer.position(); i < buffer.limit(); i++) {
+				if (buffer.get(i) == 0) {
+					return i - buffer.position();
+				}
+			}
+			buffer.position(buffer.limit());
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the next EOL, and advance the buffer position past it.
+	 * @return the length of the line, excluding the EOL, or -1 if the buffer
+	 * ends before an EOL, in which case the buffer position is at its limit
+	 */
+	private int readLine(ByteBuffer buffer) {
+		int start = buffer.position();
+		int limit = buffer.limit();
+		for (int i = start; i < limit; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n') {
+				buffer.position(i + 1);
+				return i - start;
+			}
+			else if (b == '\r') {
+				if (i + 1 < limit && buffer.get(i + 1) == '\n') {
+					buffer.position(i + 2);
+					return i - start;
 				}
 				else {
-					payload.write(b);
+					throw new StompConversionException("'\\r' must be followed by '\\n'");
 				}
 			}
 		}
-		return null;
+		buffer.position(limit);
+		return -1;
+	}
+
+	private static boolean matches(ByteBuffer buffer, int start, int length, byte[] bytes) {
+		if (length != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String decode(ByteBuffer buffer, int start, int length) {
+		if (length == 0) {
+			return "";
+		}
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, length, UTF8_CHARSET);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, UTF8_CHARSET);
 	}
 
 	/**
@@ -346,4 +475,22 @@ public class StompDecoder {
 		return false;
 	}
 
+
+	/**
+	 * Strategy to read the body of a decoded frame into a message payload.
+	 */
+	interface PayloadReader<P> {
+
+		/**
+		 * Read a payload of the given length, starting at, and advancing, the
+		 * position of the given buffer.
+		 */
+		P read(ByteBuffer buffer, int length);
+
+		/**
+		 * Return the payload for a heartbeat.
+		 */
+		P heartbeat();
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.messaging.simp.stomp;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -30,6 +31,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpBroadcastEncoding;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.NativeMessageHeaderAccessor;
@@ -122,6 +124,92 @@ public class StompEncoder  {
 		}
 	}
 
+	/**
+	 * Encodes the given payload and headers of a MESSAGE frame that is one of
+	 * several copies of a message sent to subscribers. The part of the frame
+	 * that is common to all copies, i.e. everything except for the
+	 * "subscription" and "message-id" headers, is taken from the given
+	 * {@code SimpBroadcastEncoding} if it matches the given payload and headers,
+	 * or encoded and stored there for the next copies otherwise.
+	 * <p>Other frames are encoded as with {@link #encode(Map, byte[])}.
+	 * @param headers the headers
+	 * @param payload the payload
+	 * @param broadcastEncoding the encoding shared by all copies of the message
+	 * @return the encoded message
+	 * @since 4.3.25
+	 */
+	public byte[] encode(Map<String, Object> headers, byte[] payload, SimpBroadcastEncoding broadcastEncoding) {
+		Assert.notNull(headers, "'headers' is required");
+		Assert.notNull(payload, "'payload' is required");
+		Assert.notNull(broadcastEncoding, "'broadcastEncoding' is required");
+
+		@SuppressWarnings("unchecked")
+		Map<String, List<String>> nativeHeaders =
+				(Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+		if (nativeHeaders == null || !StompCommand.MESSAGE.equals(StompHeaderAccessor.getCommand(headers))) {
+			return encode(headers, payload);
+		}
+
+		if (logger.isTraceEnabled()) {
+			logger.trace("Encoding STOMP MESSAGE, headers=" + nativeHeaders);
+		}
+
+		try {
+			SharedFrame sharedFrame = (SharedFrame) broadcastEncoding.getEncoding(SharedFrame.class);
+			if (sharedFrame == null || !sharedFrame.matches(nativeHeaders, payload)) {
+				sharedFrame = encodeSharedFrame(nativeHeaders, payload);
+				broadcastEncoding.setEncoding(SharedFrame.class, sharedFrame);
+			}
+
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(64);
+			DataOutputStream output = new DataOutputStream(baos);
+			for (String name : SharedFrame.EXCLUDED_HEADERS) {
+				List<String> values = nativeHeaders.get(name);
+				if (values != null) {
+					writeHeader(name, values, true, output);
+				}
+			}
+
+			byte[] head = sharedFrame.head;
+			byte[] tail = sharedFrame.tail;
+			int size = baos.size();
+			byte[] frame = new byte[head.length + size + tail.length];
+			System.arraycopy(head, 0, frame, 0, head.length);
+			System.arraycopy(baos.toByteArray(), 0, frame, head.length, size);
+			System.arraycopy(tail, 0, frame, head.length + size, tail.length);
+			return frame;
+		}
+		catch (IOException ex) {
+			throw new StompConversionException("Failed to encode STOMP frame, headers=" + headers,  ex);
+		}
+	}
+
+	private SharedFrame encodeSharedFrame(Map<String, List<String>> nativeHeaders, byte[] payload)
+			throws IOException {
+
+		Map<String, List<String>> sharedHeaders = new LinkedHashMap<String, List<String>>(nativeHeaders.size());
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+		DataOutputStream output = new DataOutputStream(baos);
+		output.write(StompCommand.MESSAGE.toString().getBytes(StompDecoder.UTF8_CHARSET));
+		output.write(LF);
+		for (Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
+			if (SharedFrame.isShared(entry.getKey())) {
+				writeHeader(entry.getKey(), entry.getValue(), true, output);
+				sharedHeaders.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+			}
+		}
+		byte[] head = baos.toByteArray();
+
+		baos = new ByteArrayOutputStream(32 + payload.length);
+		output = new DataOutputStream(baos);
+		writeContentLength(payload, output);
+		output.write(LF);
+		writeBody(payload, output);
+		output.write((byte) 0);
+
+		return new SharedFrame(sharedHeaders, payload, head, baos.toByteArray());
+	}
+
 	private void writeHeaders(StompCommand command, Map<String, Object> headers, byte[] payload,
 			DataOutputStream output) throws IOException {
 
@@ -150,23 +238,33 @@ public class StompEncoder  {
 				values = Collections.singletonList(StompHeaderAccessor.getPasscode(headers));
 			}
 
-			byte[] encodedKey = encodeHeaderKey(entry.getKey(), shouldEscape);
-			for (String value : values) {
-				output.write(encodedKey);
-				output.write(COLON);
-				output.write(encodeHeaderValue(value, shouldEscape));
-				output.write(LF);
-			}
+			writeHeader(entry.getKey(), values, shouldEscape, output);
 		}
 
 		if (command.requiresContentLength()) {
-			int contentLength = payload.length;
-			output.write("content-length:".getBytes(StompDecoder.UTF8_CHARSET));
-			output.write(Integer.toString(contentLength).getBytes(StompDecoder.UTF8_CHARSET));
+			writeContentLength(payload, output);
+		}
+	}
+
+	private void writeHeader(String name, List<String> values, boolean shouldEscape, DataOutputStream output)
+			throws IOException {
+
+		byte[] encodedKey = encodeHeaderKey(name, shouldEscape);
+		for (String value : values) {
+			output.write(encodedKey);
+			output.write(COLON);
+			output.write(encodeHeaderValue(value, shouldEscape));
 			output.write(LF);
 		}
 	}
 
+	private void writeContentLength(byte[] payload, DataOutputStream output) throws IOException {
+		int contentLength = payload.length;
+		output.write("content-length:".getBytes(StompDecoder.UTF8_CHARSET));
+		output.write(Integer.toString(contentLength).getBytes(StompDecoder.UTF8_CHARSET));
+		output.write(LF);
+	}
+
 	private byte[] encodeHeaderKey(String input, boolean escape) {
 		String inputToUse = (escape ? escape(input) : input);
 		if (this.headerKeyAccessCache.containsKey(inputToUse)) {
@@ -231,4 +329,52 @@ public class StompEncoder  {
 		output.write(payload);
 	}
 
+
+	/**
+	 * The part of a MESSAGE frame shared by all copies of a broadcast message,
+	 * along with the headers and payload it was encoded from.
+	 */
+	private static class SharedFrame {
+
+		static final String[] EXCLUDED_HEADERS = new String[] {
+				StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER};
+
+		private final Map<String, List<String>> headers;
+
+		private final byte[] payload;
+
+		final byte[] head;
+
+		final byte[] tail;
+
+		SharedFrame(Map<String, List<String>> headers, byte[] payload, byte[] head, byte[] tail) {
+			this.headers = headers;
+			this.payload = payload;
+			this.head = head;
+			this.tail = tail;
+		}
+
+		static boolean isShared(String headerName) {
+			return !(StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER.equals(headerName) ||
+					StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER.equals(headerName) ||
+					StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER.equals(headerName));
+		}
+
+		boolean matches(Map<String, List<String>> nativeHeaders, byte[] payload) {
+			if (payload != this.payload) {
+				return false;
+			}
+			int count = 0;
+			for (Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
+				if (isShared(entry.getKey())) {
+					if (!entry.getValue().equals(this.headers.get(entry.getKey()))) {
+						return false;
+					}
+					count++;
+				}
+			}
+			return (count == this.headers.size());
+		}
+	}
+
 }
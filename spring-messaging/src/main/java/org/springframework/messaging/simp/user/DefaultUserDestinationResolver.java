@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,9 @@ package org.springframework.messaging.simp.user;
 import java.security.Principal;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,12 +47,21 @@ import org.springframework.util.StringUtils;
  * "/user/{username}" prefix is removed and a suffix based on active session id's
  * is added, e.g. "/queue/position-updates-useri9oqdfzo".
  *
+ * <p>With a {@link MultiServerUserRegistry}, where looking up the sessions of
+ * a user involves the user registries of all servers, the session ids of a
+ * user on other servers are cached until a broadcast from another server
+ * changes them, while sessions on the local server are always looked up in
+ * the local registry.
+ *
  * @author Rossen Stoyanchev
  * @author Brian Clozel
  * @since 4.0
  */
 public class DefaultUserDestinationResolver implements UserDestinationResolver {
 
+	/** Default maximum number of users for which session ids are cached (1024) */
+	public static final int DEFAULT_CACHE_LIMIT = 1024;
+
 	private static final Log logger = LogFactory.getLog(DefaultUserDestinationResolver.class);
 
 
@@ -60,6 +71,11 @@ public class DefaultUserDestinationResolver implements UserDestinationResolver {
 
 	private boolean removeLeadingSlash = false;
 
+	private int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	private final Map<String, CachedSessionIds> remoteSessionIdCache =
+			new ConcurrentHashMap<String, CachedSessionIds>();
+
 
 	/**
 	 * Create an instance that will access user session id information through
@@ -121,6 +137,27 @@ public class DefaultUserDestinationResolver implements UserDestinationResolver {
 		return this.removeLeadingSlash;
 	}
 
+	/**
+	 * Specify the maximum number of users for which to cache the ids of their
+	 * sessions on other servers, when using a {@link MultiServerUserRegistry}.
+	 * Set this to 0 to always look up session ids in all user registries.
+	 * <p>By default this is set to {@link #DEFAULT_CACHE_LIMIT} (1024).
+	 * @param cacheLimit the maximum number of users to cache
+	 * @since 4.3.25
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+		this.remoteSessionIdCache.clear();
+	}
+
+	/**
+	 * Return the maximum number of users for which session ids are cached.
+	 * @since 4.3.25
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
 	/**
 	 * Provide the {@code PathMatcher} in use for working with destinations
 	 * which in turn helps to determine whether the leading slash should be
@@ -228,6 +265,23 @@ public class DefaultUserDestinationResolver implements UserDestinationResolver {
 	}
 
 	private Set<String> getSessionIdsByUser(String userName, String sessionId) {
+		if (this.cacheLimit > 0 && this.userRegistry instanceof MultiServerUserRegistry) {
+			MultiServerUserRegistry registry = (MultiServerUserRegistry) this.userRegistry;
+			Set<String> localSessionIds = registry.getLocalSessionIds(userName);
+			Set<String> remoteSessionIds = getCachedRemoteSessionIds(registry, userName);
+			if (sessionId != null && (localSessionIds.contains(sessionId) || remoteSessionIds.contains(sessionId))) {
+				return Collections.singleton(sessionId);
+			}
+			if (remoteSessionIds.isEmpty()) {
+				return localSessionIds;
+			}
+			if (localSessionIds.isEmpty()) {
+				return remoteSessionIds;
+			}
+			Set<String> sessionIds = new HashSet<String>(localSessionIds);
+			sessionIds.addAll(remoteSessionIds);
+			return sessionIds;
+		}
 		Set<String> sessionIds;
 		SimpUser user = this.userRegistry.getUser(userName);
 		if (user != null) {
@@ -248,6 +302,21 @@ public class DefaultUserDestinationResolver implements UserDestinationResolver {
 		return sessionIds;
 	}
 
+	private Set<String> getCachedRemoteSessionIds(MultiServerUserRegistry registry, String userName) {
+		// Look up the version first, so that cached session ids are at least as recent
+		long version = registry.getRemoteVersion(userName);
+		CachedSessionIds cached = this.remoteSessionIdCache.get(userName);
+		if (cached != null && cached.version == version) {
+			return cached.sessionIds;
+		}
+		Set<String> sessionIds = Collections.unmodifiableSet(registry.getRemoteSessionIds(userName));
+		if (this.remoteSessionIdCache.size() >= this.cacheLimit) {
+			this.remoteSessionIdCache.clear();
+		}
+		this.remoteSessionIdCache.put(userName, new CachedSessionIds(sessionIds, version));
+		return sessionIds;
+	}
+
 	protected boolean checkDestination(String destination, String requiredPrefix) {
 		return destination.startsWith(requiredPrefix);
 	}
@@ -274,6 +343,23 @@ public class DefaultUserDestinationResolver implements UserDestinationResolver {
 	}
 
 
+	/**
+	 * The ids of the remote sessions of a user, along with the remote version
+	 * of the registry for that user they were looked up for.
+	 */
+	private static class CachedSessionIds {
+
+		private final Set<String> sessionIds;
+
+		private final long version;
+
+		public CachedSessionIds(Set<String> sessionIds, long version) {
+			this.sessionIds = sessionIds;
+			this.version = version;
+		}
+	}
+
+
 	/**
 	 * A temporary placeholder for a parsed source "user" destination.
 	 */
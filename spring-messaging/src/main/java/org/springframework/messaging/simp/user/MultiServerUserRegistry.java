@@ -18,6 +18,8 @@ package org.springframework.messaging.simp.user;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.SmartApplicationListener;
@@ -41,12 +44,20 @@ import org.springframework.util.ObjectUtils;
  * handled by {@link UserRegistryMessageHandler} which in turn notifies this
  * registry when updates are received.
  *
+ * <p>Broadcasts may contain only the users that changed since the previous
+ * broadcast from the same server, see
+ * {@link UserRegistryMessageHandler#setFullBroadcastInterval(int)}, in which
+ * case they are applied to the snapshot of that server kept so far.
+ *
  * @author Rossen Stoyanchev
  * @since 4.2
  */
 @SuppressWarnings("serial")
 public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicationListener {
 
+	/* Number of counters for remote changes, each shared by the users with the same name hash */
+	private static final int REMOTE_VERSION_COUNT = 256;
+
 	private final String id;
 
 	private final SimpUserRegistry localRegistry;
@@ -58,6 +69,16 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 	/* Cross-server session lookup (e.g. same user connected to multiple servers) */
 	private final SessionLookup sessionLookup = new SessionLookup();
 
+	/* Incremented after remote changes to the sessions of users, by user name hash */
+	private final AtomicLongArray remoteVersions = new AtomicLongArray(REMOTE_VERSION_COUNT);
+
+	/* Users in the last broadcast of the local registry, the base for a delta */
+	private Map<String, TransferSimpUser> lastBroadcastUsers;
+
+	private long lastBroadcastVersion;
+
+	private final Object broadcastMonitor = new Object();
+
 
 	/**
 	 * Create an instance wrapping the local user registry.
@@ -156,18 +177,104 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 	}
 
 
+	// Internal methods for DefaultUserDestinationResolver to cache remote user lookups
+
+	/**
+	 * Return the ids of the sessions of the given user in the local registry.
+	 */
+	Set<String> getLocalSessionIds(String userName) {
+		SimpUser user = this.localRegistry.getUser(userName);
+		if (user == null) {
+			return Collections.emptySet();
+		}
+		Set<SimpSession> sessions = user.getSessions();
+		Set<String> sessionIds = new HashSet<String>(sessions.size());
+		for (SimpSession session : sessions) {
+			sessionIds.add(session.getId());
+		}
+		return sessionIds;
+	}
+
+	/**
+	 * Return the ids of the sessions of the given user in remote registries.
+	 */
+	Set<String> getRemoteSessionIds(String userName) {
+		Set<String> sessionIds = null;
+		for (UserRegistrySnapshot registry : this.remoteRegistries.values()) {
+			TransferSimpUser user = registry.getUserMap().get(userName);
+			if (user != null) {
+				if (sessionIds == null) {
+					sessionIds = new HashSet<String>(user.sessions.size());
+				}
+				user.addSessionIds(sessionIds);
+			}
+		}
+		return (sessionIds != null ? sessionIds : Collections.<String>emptySet());
+	}
+
+	/**
+	 * Return a number that is incremented after the sessions of the given user
+	 * in remote registries have changed, and possibly after changes to other
+	 * users as well. Changes to subscriptions only, or to the local registry,
+	 * do not affect it.
+	 */
+	long getRemoteVersion(String userName) {
+		return this.remoteVersions.get(getRemoteVersionIndex(userName));
+	}
+
+	private void remoteSessionsChanged(Collection<String> userNames) {
+		for (String userName : userNames) {
+			this.remoteVersions.incrementAndGet(getRemoteVersionIndex(userName));
+		}
+	}
+
+	private static int getRemoteVersionIndex(String userName) {
+		int hash = userName.hashCode();
+		return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % REMOTE_VERSION_COUNT;
+	}
+
+
 	// Internal methods for UserRegistryMessageHandler to manage broadcasts
 
 	Object getLocalRegistryDto() {
-		return new UserRegistrySnapshot(this.id, this.localRegistry);
+		return getLocalRegistryDto(false);
+	}
+
+	/**
+	 * Create the DTO to broadcast for the local registry.
+	 * @param delta whether to include only the users that changed since the
+	 * previous broadcast, rather than all users
+	 */
+	Object getLocalRegistryDto(boolean delta) {
+		synchronized (this.broadcastMonitor) {
+			UserRegistrySnapshot snapshot = new UserRegistrySnapshot(this.id, this.localRegistry);
+			snapshot.setVersion(++this.lastBroadcastVersion);
+			UserRegistrySnapshot result =
+					(delta && this.lastBroadcastUsers != null ? snapshot.createDelta(this.lastBroadcastUsers) : snapshot);
+			this.lastBroadcastUsers = snapshot.getUserMap();
+			return result;
+		}
 	}
 
 	void addRemoteRegistryDto(Message<?> message, MessageConverter converter, long expirationPeriod) {
 		UserRegistrySnapshot registry = (UserRegistrySnapshot) converter.fromMessage(message, UserRegistrySnapshot.class);
-		if (registry != null && !registry.getId().equals(this.id)) {
+		if (registry == null || registry.getId().equals(this.id)) {
+			return;
+		}
+		Set<String> changedUserNames = new HashSet<String>();
+		if (registry.isDelta()) {
+			UserRegistrySnapshot current = this.remoteRegistries.get(registry.getId());
+			if (current == null) {
+				return;
+			}
+			current.applyDelta(registry, expirationPeriod, this.sessionLookup, changedUserNames);
+		}
+		else {
 			registry.init(expirationPeriod, this.sessionLookup);
-			this.remoteRegistries.put(registry.getId(), registry);
+			UserRegistrySnapshot previous = this.remoteRegistries.put(registry.getId(), registry);
+			registry.collectChangedUserNames(previous, changedUserNames);
 		}
+		remoteSessionsChanged(changedUserNames);
 	}
 
 	void purgeExpiredRegistries() {
@@ -177,6 +284,7 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 			Map.Entry<String, UserRegistrySnapshot> entry = iterator.next();
 			if (entry.getValue().isExpired(now)) {
 				iterator.remove();
+				remoteSessionsChanged(entry.getValue().getUserMap().keySet());
 			}
 		}
 	}
@@ -191,6 +299,10 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 	/**
 	 * Holds a copy of a SimpUserRegistry for the purpose of broadcasting to and
 	 * receiving broadcasts from other application servers.
+	 * <p>A delta holds only the users that were added or changed, and the names
+	 * of the users that were removed, since the broadcast with the previous
+	 * version. Broadcasts from servers on earlier versions have no version, and
+	 * are always full snapshots.
 	 */
 	private static class UserRegistrySnapshot {
 
@@ -198,7 +310,13 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 
 		private Map<String, TransferSimpUser> users;
 
-		private long expirationTime;
+		private volatile long version;
+
+		private boolean delta;
+
+		private Set<String> removedUsers;
+
+		private volatile long expirationTime;
 
 		/**
 		 * Default constructor for JSON deserialization.
@@ -235,17 +353,124 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 			return this.users;
 		}
 
+		public void setVersion(long version) {
+			this.version = version;
+		}
+
+		public long getVersion() {
+			return this.version;
+		}
+
+		public void setDelta(boolean delta) {
+			this.delta = delta;
+		}
+
+		public boolean isDelta() {
+			return this.delta;
+		}
+
+		public void setRemovedUsers(Set<String> removedUsers) {
+			this.removedUsers = removedUsers;
+		}
+
+		public Set<String> getRemovedUsers() {
+			return this.removedUsers;
+		}
+
 		public boolean isExpired(long now) {
 			return (now > this.expirationTime);
 		}
 
 		public void init(long expirationPeriod, SessionLookup sessionLookup) {
 			this.expirationTime = System.currentTimeMillis() + expirationPeriod;
+			// Concurrent map, since deltas are applied while users are looked up
+			this.users = new ConcurrentHashMap<String, TransferSimpUser>(this.users);
 			for (TransferSimpUser user : this.users.values()) {
 				user.afterDeserialization(sessionLookup);
 			}
 		}
 
+		/**
+		 * Create a delta with the changes in this snapshot compared to the users
+		 * of the previous snapshot.
+		 */
+		public UserRegistrySnapshot createDelta(Map<String, TransferSimpUser> previousUsers) {
+			UserRegistrySnapshot delta = new UserRegistrySnapshot();
+			delta.id = this.id;
+			delta.version = this.version;
+			delta.delta = true;
+			delta.users = new HashMap<String, TransferSimpUser>();
+			for (TransferSimpUser user : this.users.values()) {
+				TransferSimpUser previousUser = previousUsers.get(user.getName());
+				if (previousUser == null || !previousUser.hasSameSessions(user)) {
+					delta.users.put(user.getName(), user);
+				}
+			}
+			delta.removedUsers = new HashSet<String>();
+			for (String userName : previousUsers.keySet()) {
+				if (!this.users.containsKey(userName)) {
+					delta.removedUsers.add(userName);
+				}
+			}
+			return delta;
+		}
+
+		/**
+		 * Add the names of the users whose sessions differ from the given
+		 * previous snapshot of the same server.
+		 * @param previous the previous snapshot, possibly {@code null}
+		 * @param changedUserNames the set to add the names of changed users to
+		 */
+		public void collectChangedUserNames(UserRegistrySnapshot previous, Set<String> changedUserNames) {
+			Map<String, TransferSimpUser> previousUsers =
+					(previous != null ? previous.getUserMap() : Collections.<String, TransferSimpUser>emptyMap());
+			for (TransferSimpUser user : this.users.values()) {
+				TransferSimpUser previousUser = previousUsers.get(user.getName());
+				if (previousUser == null || !previousUser.hasSameSessionIds(user)) {
+					changedUserNames.add(user.getName());
+				}
+			}
+			for (String userName : previousUsers.keySet()) {
+				if (!this.users.containsKey(userName)) {
+					changedUserNames.add(userName);
+				}
+			}
+		}
+
+		/**
+		 * Apply a delta received for this snapshot, unless it does not follow
+		 * the version of this snapshot in which case the users are left as they
+		 * are until the next full snapshot is received.
+		 * @param changedUserNames the set to add the names of users to whose
+		 * sessions changed
+		 */
+		public synchronized void applyDelta(UserRegistrySnapshot delta, long expirationPeriod,
+				SessionLookup sessionLookup, Set<String> changedUserNames) {
+
+			// The remote server is alive, even if we missed a broadcast
+			this.expirationTime = System.currentTimeMillis() + expirationPeriod;
+			if (delta.getVersion() != this.version + 1) {
+				return;
+			}
+			this.version = delta.getVersion();
+			if (delta.users != null) {
+				for (TransferSimpUser user : delta.users.values()) {
+					user.afterDeserialization(sessionLookup);
+					TransferSimpUser previousUser = this.users.put(user.getName(), user);
+					if (previousUser == null || !previousUser.hasSameSessionIds(user)) {
+						changedUserNames.add(user.getName());
+					}
+				}
+			}
+			if (delta.removedUsers != null) {
+				for (String userName : delta.removedUsers) {
+					if (this.users.remove(userName) != null) {
+						changedUserNames.add(userName);
+					}
+				}
+			}
+		}
+
 		public Set<SimpSubscription> findSubscriptions(SimpSubscriptionMatcher matcher) {
 			Set<SimpSubscription> result = new HashSet<SimpSubscription>();
 			for (TransferSimpUser user : this.users.values()) {
@@ -351,12 +576,49 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 			}
 		}
 
+		private void addSessionIds(Set<String> sessionIds) {
+			for (SimpSession session : this.sessions) {
+				sessionIds.add(session.getId());
+			}
+		}
+
 		private void addSessions(Map<String, SimpSession> map) {
 			for (SimpSession session : this.sessions) {
 				map.put(session.getId(), session);
 			}
 		}
 
+		private boolean hasSameSessionIds(TransferSimpUser other) {
+			if (this.sessions.size() != other.sessions.size()) {
+				return false;
+			}
+			Set<String> otherSessionIds = new HashSet<String>(other.sessions.size());
+			other.addSessionIds(otherSessionIds);
+			for (TransferSimpSession session : this.sessions) {
+				if (!otherSessionIds.contains(session.getId())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean hasSameSessions(TransferSimpUser other) {
+			if (this.sessions.size() != other.sessions.size()) {
+				return false;
+			}
+			Map<String, TransferSimpSession> otherSessions = new HashMap<String, TransferSimpSession>(other.sessions.size());
+			for (TransferSimpSession session : other.sessions) {
+				otherSessions.put(session.getId(), session);
+			}
+			for (TransferSimpSession session : this.sessions) {
+				TransferSimpSession otherSession = otherSessions.get(session.getId());
+				if (otherSession == null || !session.hasSameSubscriptions(otherSession)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
 
 		@Override
 		public boolean equals(Object other) {
@@ -439,6 +701,18 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 			}
 		}
 
+		private boolean hasSameSubscriptions(TransferSimpSession other) {
+			return getDestinationsById().equals(other.getDestinationsById());
+		}
+
+		private Map<String, String> getDestinationsById() {
+			Map<String, String> map = new HashMap<String, String>(this.subscriptions.size());
+			for (TransferSimpSubscription subscription : this.subscriptions) {
+				map.put(subscription.getId(), subscription.getDestination());
+			}
+			return map;
+		}
+
 		@Override
 		public boolean equals(Object other) {
 			return (this == other || (other instanceof SimpSession && this.id.equals(((SimpSession) other).getId())));
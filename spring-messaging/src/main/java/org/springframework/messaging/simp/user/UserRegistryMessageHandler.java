@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -56,6 +56,8 @@ public class UserRegistryMessageHandler implements MessageHandler, ApplicationLi
 
 	private long registryExpirationPeriod = 20 * 1000;
 
+	private int fullBroadcastInterval = 1;
+
 
 	/**
 	 * Constructor.
@@ -104,10 +106,38 @@ public class UserRegistryMessageHandler implements MessageHandler, ApplicationLi
 		return this.registryExpirationPeriod;
 	}
 
+	/**
+	 * Configure how often the full local user registry is broadcast, as a number
+	 * of broadcasts. The broadcasts in between contain only the users that were
+	 * added, changed, or removed since the previous broadcast, so that the cost
+	 * of keeping registries in sync depends on how many users connect and
+	 * disconnect rather than on the total number of users.
+	 * <p>Servers that miss a broadcast keep their last known copy of the users
+	 * of the sending server until the next full broadcast.
+	 * <p>By default this is set to 1, i.e. every broadcast is a full broadcast.
+	 * Only use a higher value if all servers run a version that understands
+	 * partial broadcasts, i.e. 4.3.25 or higher.
+	 * @param interval the number of broadcasts between full broadcasts
+	 * @since 4.3.25
+	 */
+	public void setFullBroadcastInterval(int interval) {
+		Assert.isTrue(interval > 0, "Full broadcast interval must be greater than 0");
+		this.fullBroadcastInterval = interval;
+	}
+
+	/**
+	 * Return the configured full broadcast interval.
+	 * @since 4.3.25
+	 */
+	public int getFullBroadcastInterval() {
+		return this.fullBroadcastInterval;
+	}
+
 
 	@Override
 	public void onApplicationEvent(BrokerAvailabilityEvent event) {
 		if (event.isBrokerAvailable()) {
+			this.schedulerTask.reset();
 			long delay = getRegistryExpirationPeriod() / 2;
 			this.scheduledFuture = this.scheduler.scheduleWithFixedDelay(this.schedulerTask, delay);
 		}
@@ -129,13 +159,21 @@ public class UserRegistryMessageHandler implements MessageHandler, ApplicationLi
 
 	private class UserRegistryTask implements Runnable {
 
+		private volatile int broadcastCount;
+
+		public void reset() {
+			// Start with a full broadcast, remote servers may have missed some
+			this.broadcastCount = 0;
+		}
+
 		@Override
 		public void run() {
 			try {
 				SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
 				accessor.setHeader(SimpMessageHeaderAccessor.IGNORE_ERROR, true);
 				accessor.setLeaveMutable(true);
-				Object payload = userRegistry.getLocalRegistryDto();
+				boolean delta = (this.broadcastCount++ % getFullBroadcastInterval() != 0);
+				Object payload = userRegistry.getLocalRegistryDto(delta);
 				brokerTemplate.convertAndSend(getBroadcastDestination(), payload, accessor.getMessageHeaders());
 			}
 			finally {
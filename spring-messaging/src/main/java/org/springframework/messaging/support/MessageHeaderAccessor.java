@@ -260,10 +260,17 @@ public class MessageHeaderAccessor {
 	 * Return a copy of the underlying header values as a {@link MessageHeaders} object.
 	 * <p>This method can be invoked many times, with modifications in between
 	 * where each new call returns a fresh copy of the current header values.
+	 * <p>The {@link MessageHeaders#ID id} of the copy is obtained from the
+	 * {@code IdGenerator} configured through {@link IdTimestampMessageHeaderInitializer},
+	 * if any, and is left out altogether if id generation is disabled there.
 	 * @since 4.1
 	 */
 	public MessageHeaders toMessageHeaders() {
-		return new MessageHeaders(this.headers);
+		if (this.idGenerator == null) {
+			return new MessageHeaders(this.headers);
+		}
+		UUID id = this.idGenerator.generateId();
+		return new MessageHeaders(this.headers, (id != null ? id : MessageHeaders.ID_VALUE_NONE), null);
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -43,6 +43,12 @@ import org.springframework.util.ObjectUtils;
  * reversely to translate Spring {@link Message} headers to a message to send to an
  * external source.
  *
+ * <p>When wrapping a message whose headers were created through another,
+ * now immutable native header accessor, the native headers of that message
+ * are shared until they are first modified, so that handing a message over
+ * to another accessor, e.g. on its way from the broker to a client, does not
+ * copy them unless necessary.
+ *
  * @author Rossen Stoyanchev
  * @since 4.0
  */
@@ -51,6 +57,9 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 	public static final String NATIVE_HEADERS = "nativeHeaders";
 
 
+	private boolean nativeHeadersShared;
+
+
 	/**
 	 * A protected constructor to create new headers.
 	 */
@@ -73,13 +82,14 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 	 */
 	protected NativeMessageHeaderAccessor(Message<?> message) {
 		super(message);
-		if (message != null) {
-			@SuppressWarnings("unchecked")
-			Map<String, List<String>> map = (Map<String, List<String>>) getHeader(NATIVE_HEADERS);
-			if (map != null) {
-				// Force removal since setHeader checks for equality
-				removeHeader(NATIVE_HEADERS);
-				setHeader(NATIVE_HEADERS, new LinkedMultiValueMap<String, String>(map));
+		if (message != null && getNativeHeaders() != null) {
+			NativeMessageHeaderAccessor accessor = getAccessor(message, NativeMessageHeaderAccessor.class);
+			if (accessor != null && !accessor.isMutable()) {
+				// Native headers made read-only in setImmutable: copy when first modified
+				this.nativeHeadersShared = true;
+			}
+			else {
+				copyNativeHeaders();
 			}
 		}
 	}
@@ -89,6 +99,27 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 		return (Map<String, List<String>>) getHeader(NATIVE_HEADERS);
 	}
 
+	/**
+	 * Return the native headers for modification, copying them first if they
+	 * are still shared with the message this accessor was created from.
+	 */
+	private Map<String, List<String>> getNativeHeadersToUpdate() {
+		if (this.nativeHeadersShared) {
+			copyNativeHeaders();
+		}
+		return getNativeHeaders();
+	}
+
+	private void copyNativeHeaders() {
+		Map<String, List<String>> map = getNativeHeaders();
+		if (map != null) {
+			// Force removal since setHeader checks for equality
+			removeHeader(NATIVE_HEADERS);
+			setHeader(NATIVE_HEADERS, new LinkedMultiValueMap<String, String>(map));
+		}
+		this.nativeHeadersShared = false;
+	}
+
 	/**
 	 * Return a copy of the native header values or an empty map.
 	 */
@@ -149,7 +180,7 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 		if (value == null) {
 			if (map != null && map.get(name) != null) {
 				setModified(true);
-				map.remove(name);
+				getNativeHeadersToUpdate().remove(name);
 			}
 			return;
 		}
@@ -159,9 +190,9 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 		}
 		List<String> values = new LinkedList<String>();
 		values.add(value);
-		if (!ObjectUtils.nullSafeEquals(values, getHeader(name))) {
+		if (!ObjectUtils.nullSafeEquals(values, map.get(name))) {
 			setModified(true);
-			map.put(name, values);
+			getNativeHeadersToUpdate().put(name, values);
 		}
 	}
 
@@ -173,7 +204,7 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 		if (value == null) {
 			return;
 		}
-		Map<String, List<String>> nativeHeaders = getNativeHeaders();
+		Map<String, List<String>> nativeHeaders = getNativeHeadersToUpdate();
 		if (nativeHeaders == null) {
 			nativeHeaders = new LinkedMultiValueMap<String, String>(4);
 			setHeader(NATIVE_HEADERS, nativeHeaders);
@@ -201,10 +232,10 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 	public List<String> removeNativeHeader(String name) {
 		Assert.state(isMutable(), "Already immutable");
 		Map<String, List<String>> nativeHeaders = getNativeHeaders();
-		if (nativeHeaders == null) {
+		if (nativeHeaders == null || !nativeHeaders.containsKey(name)) {
 			return null;
 		}
-		return nativeHeaders.remove(name);
+		return getNativeHeadersToUpdate().remove(name);
 	}
 
 	@SuppressWarnings("unchecked")
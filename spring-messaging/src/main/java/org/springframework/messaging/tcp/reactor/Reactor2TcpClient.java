@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.Properties;
 
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
 import org.reactivestreams.Publisher;
@@ -94,6 +95,8 @@ public class Reactor2TcpClient<P> implements TcpOperations<P> {
 
 	private boolean stopping;
 
+	private boolean releasePayloads;
+
 
 	/**
 	 * A constructor that creates a {@link TcpClientSpec TcpClientSpec} factory
@@ -180,6 +183,29 @@ public class Reactor2TcpClient<P> implements TcpOperations<P> {
 	}
 
 
+	/**
+	 * Whether to release reference counted message payloads, such as the pooled
+	 * buffers decoded by {@link org.springframework.messaging.simp.stomp.Reactor2PooledStompCodec
+	 * Reactor2PooledStompCodec}, once {@link TcpConnectionHandler#handleMessage}
+	 * returns. A handler that uses a payload beyond that must retain it.
+	 * <p>By default this is set to {@code false}, i.e. handlers are responsible
+	 * for releasing payloads.
+	 * @since 4.3.25
+	 * @see io.netty.util.ReferenceCounted
+	 */
+	public void setReleasePayloads(boolean releasePayloads) {
+		this.releasePayloads = releasePayloads;
+	}
+
+	/**
+	 * Whether reference counted message payloads are released after handling.
+	 * @since 4.3.25
+	 */
+	public boolean isReleasePayloads() {
+		return this.releasePayloads;
+	}
+
+
 	@Override
 	public ListenableFuture<Void> connect(final TcpConnectionHandler<P> connectionHandler) {
 		Assert.notNull(connectionHandler, "TcpConnectionHandler must not be null");
@@ -205,7 +231,7 @@ public class Reactor2TcpClient<P> implements TcpOperations<P> {
 		}
 
 		Promise<Void> promise = tcpClient.start(
-				new MessageChannelStreamHandler<P>(connectionHandler, cleanupTask));
+				new MessageChannelStreamHandler<P>(connectionHandler, cleanupTask, this.releasePayloads));
 
 		return new PassThroughPromiseToListenableFutureAdapter<Void>(
 				promise.onError(new Consumer<Throwable>() {
@@ -244,7 +270,7 @@ public class Reactor2TcpClient<P> implements TcpOperations<P> {
 		}
 
 		Stream<Tuple2<InetSocketAddress, Integer>> stream = tcpClient.start(
-				new MessageChannelStreamHandler<P>(connectionHandler, cleanupTask),
+				new MessageChannelStreamHandler<P>(connectionHandler, cleanupTask, this.releasePayloads),
 				new ReactorReconnectAdapter(strategy));
 
 		return new PassThroughPromiseToListenableFutureAdapter<Void>(stream.next().after());
@@ -346,9 +372,14 @@ public class Reactor2TcpClient<P> implements TcpOperations<P> {
 
 		private final Runnable cleanupTask;
 
-		public MessageChannelStreamHandler(TcpConnectionHandler<P> connectionHandler, Runnable cleanupTask) {
+		private final boolean releasePayloads;
+
+		public MessageChannelStreamHandler(TcpConnectionHandler<P> connectionHandler, Runnable cleanupTask,
+				boolean releasePayloads) {
+
 			this.connectionHandler = connectionHandler;
 			this.cleanupTask = cleanupTask;
+			this.releasePayloads = releasePayloads;
 		}
 
 		@Override
@@ -371,7 +402,14 @@ public class Reactor2TcpClient<P> implements TcpOperations<P> {
 					.consume(new Consumer<Message<P>>() {
 						@Override
 						public void accept(Message<P> message) {
-							connectionHandler.handleMessage(message);
+							try {
+								connectionHandler.handleMessage(message);
+							}
+							finally {
+								if (releasePayloads) {
+									ReferenceCountUtil.release(message.getPayload());
+								}
+							}
 						}
 					});
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.util.SerializationTestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link CompactHeaderMap}.
+ */
+public class CompactHeaderMapTests {
+
+	private final CompactHeaderMap map = new CompactHeaderMap(2);
+
+
+	@Test
+	public void putAndGet() {
+		assertNull(this.map.put("a", 1));
+		assertNull(this.map.put("b", 2));
+		assertNull(this.map.put("c", 3));
+		assertEquals(1, this.map.put("a", 10));
+
+		assertEquals(3, this.map.size());
+		assertEquals(10, this.map.get("a"));
+		assertEquals(3, this.map.get(new String("c")));
+		assertNull(this.map.get("d"));
+		assertTrue(this.map.containsKey("b"));
+		assertFalse(this.map.containsKey("d"));
+	}
+
+	@Test
+	public void nullKeyAndValue() {
+		this.map.put(null, "a");
+		this.map.put("b", null);
+
+		assertEquals("a", this.map.get(null));
+		assertTrue(this.map.containsKey("b"));
+		assertNull(this.map.get("b"));
+		assertEquals(2, this.map.size());
+	}
+
+	@Test
+	public void remove() {
+		this.map.put("a", 1);
+		this.map.put("b", 2);
+		this.map.put("c", 3);
+
+		assertEquals(2, this.map.remove("b"));
+		assertNull(this.map.remove("b"));
+		assertEquals(Arrays.asList("a", "c"), new ArrayList<String>(this.map.keySet()));
+		assertEquals(3, this.map.get("c"));
+
+		this.map.clear();
+		assertTrue(this.map.isEmpty());
+	}
+
+	@Test
+	public void iteratorRemove() {
+		this.map.put("a", 1);
+		this.map.put("b", 2);
+		this.map.put("c", 3);
+
+		Iterator<Map.Entry<String, Object>> iterator = this.map.entrySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getKey().equals("b")) {
+				iterator.remove();
+			}
+		}
+		assertEquals(Arrays.asList("a", "c"), new ArrayList<String>(this.map.keySet()));
+	}
+
+	@Test
+	public void entrySetValue() {
+		this.map.put("a", 1);
+		this.map.entrySet().iterator().next().setValue(2);
+		assertEquals(2, this.map.get("a"));
+	}
+
+	@Test
+	public void copy() {
+		this.map.put("a", 1);
+		CompactHeaderMap copy = new CompactHeaderMap(this.map, 1);
+		copy.put("a", 2);
+		copy.put("b", 3);
+
+		assertEquals(1, this.map.get("a"));
+		assertEquals(1, this.map.size());
+		assertEquals(2, copy.get("a"));
+		assertEquals(2, copy.size());
+	}
+
+	@Test
+	public void equalsAndHashCode() {
+		Map<String, Object> other = new HashMap<String, Object>();
+		other.put("a", 1);
+		other.put("b", "2");
+		this.map.putAll(other);
+
+		assertEquals(other, this.map);
+		assertEquals(this.map, other);
+		assertEquals(other.hashCode(), this.map.hashCode());
+	}
+
+	@Test
+	public void serializedAsHashMap() throws Exception {
+		this.map.put("a", 1);
+		Object output = SerializationTestUtils.serializeAndDeserialize(this.map);
+		assertEquals(HashMap.class, output.getClass());
+		assertEquals(this.map, output);
+	}
+
+}
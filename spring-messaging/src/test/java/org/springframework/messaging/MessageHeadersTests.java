@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,11 @@
 
 package org.springframework.messaging;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -156,6 +159,26 @@ public class MessageHeadersTests {
 		assertTrue(keys.contains("key2"));
 	}
 
+	@Test
+	public void testHeaderKeysInInsertionOrder() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("key1", "val1");
+		map.put("key2", "val2");
+		MessageHeaders headers = new MessageHeaders(new MessageHeaders(map));
+		assertEquals(Arrays.asList("key1", "key2", MessageHeaders.ID, MessageHeaders.TIMESTAMP),
+				new ArrayList<String>(headers.keySet()));
+	}
+
+	@Test
+	public void testEqualsAndHashCode() {
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("key1", "val1");
+		MessageHeaders headers = new MessageHeaders(map, MessageHeaders.ID_VALUE_NONE, -1L);
+		assertEquals(map, headers);
+		assertEquals(map.hashCode(), headers.hashCode());
+		assertEquals(headers, new MessageHeaders(headers, MessageHeaders.ID_VALUE_NONE, -1L));
+	}
+
 	@Test
 	public void serializeWithAllSerializableHeaders() throws Exception {
 		Map<String, Object> map = new HashMap<String, Object>();
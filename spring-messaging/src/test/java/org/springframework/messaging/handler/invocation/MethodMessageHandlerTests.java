@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -132,13 +132,35 @@ public class MethodMessageHandlerTests {
 		assertNotNull(this.testController.arguments.get("exception"));
 	}
 
+	@Test
+	public void compiledHandlerMethods() {
+		TestMethodMessageHandler handler = new TestMethodMessageHandler();
+		handler.setApplicationContext(new StaticApplicationContext());
+		handler.setDestinationPrefixes(Arrays.asList("/test"));
+		handler.setCompileHandlerMethods(true);
+		handler.afterPropertiesSet();
+		handler.registerHandler(this.testController);
+
+		for (HandlerMethod handlerMethod : handler.getHandlerMethods().values()) {
+			assertNotNull(handlerMethod.getCompiledInvoker());
+		}
+
+		handler.handleMessage(toDestination("/test/handlerArgumentResolver"));
+		assertEquals("handlerArgumentResolver", this.testController.method);
+		assertNotNull(this.testController.arguments.get("message"));
+
+		handler.handleMessage(toDestination("/test/handlerThrowsExc"));
+		assertEquals("illegalStateException", this.testController.method);
+		assertNotNull(this.testController.arguments.get("exception"));
+	}
+
 	private Message<?> toDestination(String destination) {
 		return MessageBuilder.withPayload(new byte[0]).setHeader(DESTINATION_HEADER, destination).build();
 	}
 
 
 	@SuppressWarnings("unused")
-	private static class TestController {
+	public static class TestController {
 
 		public String method;
 
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link SimpSessionLaneExecutor}.
+ */
+public class SimpSessionLaneExecutorTests {
+
+	private final ManualExecutor targetExecutor = new ManualExecutor();
+
+	private final SimpSessionLaneExecutor executor = new SimpSessionLaneExecutor(this.targetExecutor, 4);
+
+	private final List<String> handled = new ArrayList<String>();
+
+
+	@Test
+	public void tasksOfSameSessionRunInOrder() {
+		this.executor.execute(new TestTask("sess1", "a", this.handled));
+		this.executor.execute(new TestTask("sess1", "b", this.handled));
+		this.executor.execute(new TestTask("sess1", "c", this.handled));
+
+		assertEquals(1, this.targetExecutor.tasks.size());
+		assertEquals(3, sum(this.executor.getLaneQueueDepths()));
+
+		this.targetExecutor.runAll();
+
+		assertEquals(Arrays.asList("a", "b", "c"), this.handled);
+		assertEquals(0, sum(this.executor.getLaneQueueDepths()));
+	}
+
+	@Test
+	public void tasksOfDifferentSessionsInDifferentLanes() {
+		String sessionId1 = "sess1";
+		String sessionId2 = findSessionInOtherLane(sessionId1);
+		this.executor.execute(new TestTask(sessionId1, "a", this.handled));
+		this.executor.execute(new TestTask(sessionId2, "b", this.handled));
+
+		assertEquals(2, this.targetExecutor.tasks.size());
+	}
+
+	@Test
+	public void tasksWithoutSessionRunDirectly() {
+		TestTask task = new TestTask(null, "a", this.handled);
+		this.executor.execute(task);
+
+		assertEquals(1, this.targetExecutor.tasks.size());
+		assertSame(task, this.targetExecutor.tasks.peek());
+		assertEquals(0, sum(this.executor.getLaneQueueDepths()));
+	}
+
+	@Test
+	public void laneYieldsAfterMaxTasks() {
+		for (int i = 0; i < 40; i++) {
+			this.executor.execute(new TestTask("sess1", String.valueOf(i), this.handled));
+		}
+		this.targetExecutor.tasks.poll().run();
+
+		assertEquals(32, this.handled.size());
+		assertEquals(1, this.targetExecutor.tasks.size());
+		assertEquals(8, sum(this.executor.getLaneQueueDepths()));
+
+		this.targetExecutor.runAll();
+		assertEquals(40, this.handled.size());
+		assertEquals("39", this.handled.get(39));
+	}
+
+	@Test
+	public void failedTaskDoesNotStallLane() {
+		this.executor.execute(new TestTask("sess1", "a", this.handled));
+		this.executor.execute(new TestTask("sess1", null, this.handled));
+		this.executor.execute(new TestTask("sess1", "c", this.handled));
+		this.targetExecutor.runAll();
+
+		assertEquals(Arrays.asList("a", "c"), this.handled);
+		assertEquals(0, sum(this.executor.getLaneQueueDepths()));
+	}
+
+	@Test
+	public void laneContinuesOnCurrentThreadWhenResubmitRejected() {
+		for (int i = 0; i < 40; i++) {
+			this.executor.execute(new TestTask("sess1", String.valueOf(i), this.handled));
+		}
+		Runnable lane = this.targetExecutor.tasks.poll();
+		this.targetExecutor.rejecting = true;
+		lane.run();
+
+		assertEquals(40, this.handled.size());
+		assertEquals(0, this.targetExecutor.tasks.size());
+		assertEquals(0, sum(this.executor.getLaneQueueDepths()));
+	}
+
+	@Test
+	public void rejectedLaneCanBeSubmittedAgain() {
+		this.targetExecutor.rejecting = true;
+		try {
+			this.executor.execute(new TestTask("sess1", "a", this.handled));
+			fail("Expected RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			// expected
+		}
+		assertEquals(0, sum(this.executor.getLaneQueueDepths()));
+
+		this.targetExecutor.rejecting = false;
+		this.executor.execute(new TestTask("sess1", "b", this.handled));
+		this.targetExecutor.runAll();
+		assertEquals(Arrays.asList("b"), this.handled);
+	}
+
+	@Test
+	public void orderPreservedWithThreadPool() throws Exception {
+		ExecutorService threadPool = Executors.newFixedThreadPool(4);
+		try {
+			SimpSessionLaneExecutor laneExecutor = new SimpSessionLaneExecutor(threadPool, 4);
+			int sessionCount = 8;
+			int taskCount = 1000;
+			List<List<String>> results = new ArrayList<List<String>>();
+			CountDownLatch latch = new CountDownLatch(sessionCount * taskCount);
+			for (int i = 0; i < sessionCount; i++) {
+				results.add(new ArrayList<String>());
+			}
+			for (int i = 0; i < taskCount; i++) {
+				for (int j = 0; j < sessionCount; j++) {
+					laneExecutor.execute(new TestTask("sess" + j, String.valueOf(i), results.get(j), latch));
+				}
+			}
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			for (List<String> result : results) {
+				assertEquals(taskCount, result.size());
+				for (int i = 0; i < taskCount; i++) {
+					assertEquals(String.valueOf(i), result.get(i));
+				}
+			}
+		}
+		finally {
+			threadPool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void toStringShowsLaneQueueDepths() {
+		this.executor.execute(new TestTask("sess1", "a", this.handled));
+		assertTrue(this.executor.toString().startsWith("lanes = 4, lane queue depths = ["));
+		assertTrue(this.executor.toString().contains("1"));
+	}
+
+
+	private String findSessionInOtherLane(String sessionId) {
+		SimpSessionLaneExecutor executor = new SimpSessionLaneExecutor(new ManualExecutor(), 4);
+		executor.execute(new TestTask(sessionId, "a", this.handled));
+		int[] depths = executor.getLaneQueueDepths();
+		for (int i = 0; ; i++) {
+			String candidate = "sess" + i;
+			executor.execute(new TestTask(candidate, "a", this.handled));
+			int[] newDepths = executor.getLaneQueueDepths();
+			for (int j = 0; j < depths.length; j++) {
+				if (depths[j] == 0 && newDepths[j] == 1) {
+					return candidate;
+				}
+			}
+			depths = newDepths;
+		}
+	}
+
+	private static int sum(int[] values) {
+		int sum = 0;
+		for (int value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+
+	private static class ManualExecutor implements Executor {
+
+		private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+		private boolean rejecting;
+
+		@Override
+		public void execute(Runnable task) {
+			if (this.rejecting) {
+				throw new RejectedExecutionException();
+			}
+			this.tasks.add(task);
+		}
+
+		public void runAll() {
+			Runnable task;
+			while ((task = this.tasks.poll()) != null) {
+				task.run();
+			}
+		}
+	}
+
+
+	private static class TestTask implements MessageHandlingRunnable {
+
+		private final Message<?> message;
+
+		private final String name;
+
+		private final List<String> handled;
+
+		private final CountDownLatch latch;
+
+		public TestTask(String sessionId, String name, List<String> handled) {
+			this(sessionId, name, handled, null);
+		}
+
+		public TestTask(String sessionId, String name, List<String> handled, CountDownLatch latch) {
+			SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+			accessor.setSessionId(sessionId);
+			this.message = MessageBuilder.createMessage("", accessor.getMessageHeaders());
+			this.name = name;
+			this.handled = handled;
+			this.latch = latch;
+		}
+
+		@Override
+		public Message<?> getMessage() {
+			return this.message;
+		}
+
+		@Override
+		public MessageHandler getMessageHandler() {
+			return null;
+		}
+
+		@Override
+		public void run() {
+			if (this.name == null) {
+				throw new IllegalStateException("Expected failure");
+			}
+			// Not synchronized: tasks of the same session must not run concurrently
+			this.handled.add(this.name);
+			if (this.latch != null) {
+				this.latch.countDown();
+			}
+		}
+	}
+
+}
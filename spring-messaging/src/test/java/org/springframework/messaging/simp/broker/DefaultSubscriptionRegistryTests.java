@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 
 import static org.junit.Assert.assertEquals;
@@ -439,6 +440,81 @@ public class DefaultSubscriptionRegistryTests {
 		assertEquals(2, this.registry.findSubscriptions(createMessage("/bar")).size());
 	}
 
+	@Test
+	public void findSubscriptionsWithDoubleWildcardPattern() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/topic/*/ibm"));
+
+		assertEquals(Collections.singletonList("1"),
+				this.registry.findSubscriptions(createMessage("/topic")).get("sess1"));
+		assertEquals(Arrays.asList("1", "2"),
+				this.registry.findSubscriptions(createMessage("/topic/stock/ibm")).get("sess1"));
+		assertEquals(Collections.singletonList("1"),
+				this.registry.findSubscriptions(createMessage("/topic/stock/ibm/price")).get("sess1"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/queue/stock")).size());
+	}
+
+	@Test
+	public void findSubscriptionsWithDotSeparator() {
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "price.stock.*"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "1", "price.stock.ibm"));
+		this.registry.registerSubscription(subscribeMessage("sess3", "1", "price.**"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("price.stock.ibm"));
+		assertEquals(3, actual.size());
+		assertEquals(1, this.registry.findSubscriptions(createMessage("price.bond")).size());
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/price/stock/ibm")).size());
+	}
+
+	@Test
+	public void findSubscriptionsWithCaseInsensitivePathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.registry.setPathMatcher(pathMatcher);
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/PRICE"));
+
+		assertEquals(1, this.registry.findSubscriptions(createMessage("/topic/price")).size());
+	}
+
+	@Test
+	public void setPathMatcherAfterSubscriptions() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "price.*"));
+		assertEquals(1, this.registry.findSubscriptions(createMessage("price.stock.ibm")).size());
+
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("price.stock.ibm")).size());
+		assertEquals(1, this.registry.findSubscriptions(createMessage("price.stock")).size());
+	}
+
+	@Test
+	public void unregisterSubscriptionsPrunesIndex() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/stock/ibm"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/topic/stock/*"));
+		this.registry.registerSubscription(subscribeMessage("sess2", "1", "/topic/stock/ibm"));
+		assertEquals("DefaultSubscriptionRegistry[cache[0 destination(s)], index[2 destination(s)], registry[2 sessions]]",
+				this.registry.toString());
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess1", "1"));
+		this.registry.unregisterAllSubscriptions("sess2");
+		assertEquals(Collections.singletonList("2"),
+				this.registry.findSubscriptions(createMessage("/topic/stock/ibm")).get("sess1"));
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess1", "2"));
+		assertEquals(0, this.registry.findSubscriptions(createMessage("/topic/stock/ibm")).size());
+		assertEquals("DefaultSubscriptionRegistry[cache[0 destination(s)], index[0 destination(s)], registry[1 sessions]]",
+				this.registry.toString());
+	}
+
+	@Test
+	public void indexWithAntPathMatcherSubclass() {
+		this.registry.setPathMatcher(new AntPathMatcher() {});
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/stock/*"));
+		assertEquals("DefaultSubscriptionRegistry[cache[0 destination(s)], index[1 destination(s)], registry[1 sessions]]",
+				this.registry.toString());
+		assertEquals(1, this.registry.findSubscriptions(createMessage("/topic/stock/ibm")).size());
+	}
+
 	private Message<?> createMessage(String destination) {
 		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
 		accessor.setDestination(destination);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -151,6 +151,27 @@ public class SimpleBrokerMessageHandlerTests {
 		assertTrue(messageCaptured(sess2, "sub3", "/bar"));
 	}
 
+	@Test
+	public void broadcastEncodingSharedBySubscribers() {
+
+		this.messageHandler.start();
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess2", "sub2", "/bar"));
+
+		this.messageHandler.handleMessage(createMessage("/foo", "message1"));
+		this.messageHandler.handleMessage(createMessage("/bar", "message2"));
+
+		verify(this.clientOutboundChannel, times(3)).send(this.messageCaptor.capture());
+		List<Message<?>> captured = this.messageCaptor.getAllValues();
+
+		Object encoding = captured.get(0).getHeaders().get(SimpMessageHeaderAccessor.BROADCAST_ENCODING_HEADER);
+		assertNotNull(encoding);
+		assertSame(encoding, captured.get(1).getHeaders().get(SimpMessageHeaderAccessor.BROADCAST_ENCODING_HEADER));
+		assertNull(captured.get(2).getHeaders().get(SimpMessageHeaderAccessor.BROADCAST_ENCODING_HEADER));
+	}
+
 	@Test
 	public void connect() {
 
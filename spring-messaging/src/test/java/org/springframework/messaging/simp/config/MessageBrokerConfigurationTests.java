@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -47,6 +48,7 @@ import org.springframework.messaging.handler.invocation.HandlerMethodReturnValue
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpSessionLaneExecutor;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
 import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
@@ -126,6 +128,11 @@ public class MessageBrokerConfigurationTests {
 		assertEquals(11, taskExecutor.getCorePoolSize());
 		assertEquals(12, taskExecutor.getMaxPoolSize());
 		assertEquals(13, taskExecutor.getKeepAliveSeconds());
+
+		Executor channelExecutor = ((ExecutorSubscribableChannel) channel).getExecutor();
+		assertThat(channelExecutor, Matchers.instanceOf(SimpSessionLaneExecutor.class));
+		assertSame(taskExecutor, ((SimpSessionLaneExecutor) channelExecutor).getExecutor());
+		assertEquals(4, ((SimpSessionLaneExecutor) channelExecutor).getLaneCount());
 	}
 
 	@Test
@@ -611,6 +618,7 @@ public class MessageBrokerConfigurationTests {
 			registration.interceptors(this.interceptor);
 			registration.taskExecutor(new CustomThreadPoolTaskExecutor())
 					.corePoolSize(11).maxPoolSize(12).keepAliveSeconds(13).queueCapacity(14);
+			registration.sessionLanes(4);
 		}
 
 		@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,6 +49,8 @@ public class StompBrokerRelayRegistrationTests {
 		registration.setSystemHeartbeatReceiveInterval(123);
 		registration.setSystemHeartbeatSendInterval(456);
 		registration.setVirtualHost("example.org");
+		registration.setOutboundQueueCapacity(100);
+		registration.setOverflowStrategy(StompBrokerRelayMessageHandler.OverflowStrategy.BLOCK);
 
 		StompBrokerRelayMessageHandler handler = registration.getMessageHandler(new StubMessageChannel());
 
@@ -60,6 +62,8 @@ public class StompBrokerRelayRegistrationTests {
 		assertEquals(123, handler.getSystemHeartbeatReceiveInterval());
 		assertEquals(456, handler.getSystemHeartbeatSendInterval());
 		assertEquals("example.org", handler.getVirtualHost());
+		assertEquals(100, handler.getOutboundQueueCapacity());
+		assertEquals(StompBrokerRelayMessageHandler.OverflowStrategy.BLOCK, handler.getOverflowStrategy());
 	}
 
 }
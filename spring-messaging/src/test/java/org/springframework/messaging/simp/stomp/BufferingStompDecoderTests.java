@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.messaging.simp.stomp;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -204,6 +205,28 @@ public class BufferingStompDecoderTests {
 		stompDecoder.decode(toByteBuffer(payload));
 	}
 
+	@Test
+	public void messagesInManyChunksNoContentLength() {
+		BufferingStompDecoder stompDecoder = new BufferingStompDecoder(STOMP_DECODER, 128);
+		String frames = "SEND\na:alpha\n\nPayload1\0" + "SEND\na:alpha\n\nPayload2\0" + "SEND\na:alpha";
+
+		List<Message<byte[]>> messages = new ArrayList<Message<byte[]>>();
+		for (int i = 0; i < frames.length(); i += 3) {
+			messages.addAll(stompDecoder.decode(toByteBuffer(frames.substring(i, Math.min(i + 3, frames.length())))));
+		}
+
+		assertEquals(2, messages.size());
+		assertEquals("Payload1", new String(messages.get(0).getPayload()));
+		assertEquals("Payload2", new String(messages.get(1).getPayload()));
+		assertEquals(12, stompDecoder.getBufferSize());
+
+		messages = stompDecoder.decode(toByteBuffer("\n\nPayload3\0"));
+		assertEquals(1, messages.size());
+		assertEquals("alpha", StompHeaderAccessor.wrap(messages.get(0)).getFirstNativeHeader("a"));
+		assertEquals("Payload3", new String(messages.get(0).getPayload()));
+		assertEquals(0, stompDecoder.getBufferSize());
+	}
+
 	private ByteBuffer toByteBuffer(String chunk) {
 		return ByteBuffer.wrap(chunk.getBytes(Charset.forName("UTF-8")));
 	}
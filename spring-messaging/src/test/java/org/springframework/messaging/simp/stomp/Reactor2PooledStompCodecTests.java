@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Test;
+import reactor.fn.Consumer;
+import reactor.fn.Function;
+import reactor.io.buffer.Buffer;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link Reactor2PooledStompCodec}.
+ */
+public class Reactor2PooledStompCodecTests {
+
+	private final List<Message<ByteBuf>> messages = new ArrayList<>();
+
+	private final Reactor2PooledStompCodec codec = new Reactor2PooledStompCodec();
+
+	private final Function<Buffer, Message<ByteBuf>> decoder = this.codec.decoder(new Consumer<Message<ByteBuf>>() {
+		@Override
+		public void accept(Message<ByteBuf> message) {
+			messages.add(message);
+		}
+	});
+
+
+	@After
+	public void release() {
+		for (Message<ByteBuf> message : this.messages) {
+			message.getPayload().release();
+		}
+	}
+
+
+	@Test
+	public void decodeFrameWithContentLength() {
+		decode("SEND\ndestination:/topic/foo\ncontent-length:5\n\nHello\0");
+
+		assertEquals(1, this.messages.size());
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(this.messages.get(0));
+		assertEquals(StompCommand.SEND, headers.getCommand());
+		assertEquals("/topic/foo", headers.getDestination());
+
+		ByteBuf payload = this.messages.get(0).getPayload();
+		assertTrue(payload.isDirect());
+		assertEquals(1, payload.refCnt());
+		assertEquals("Hello", payload.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void decodeFrameWithoutContentLength() {
+		decode("SEND\ndestination:/topic/foo\n\nHello\0");
+
+		assertEquals(1, this.messages.size());
+		assertEquals("Hello", this.messages.get(0).getPayload().toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void decodeFrameWithNoBody() {
+		decode("DISCONNECT\n\n\0");
+
+		assertEquals(1, this.messages.size());
+		assertEquals(0, this.messages.get(0).getPayload().readableBytes());
+	}
+
+	@Test
+	public void decodeMultipleFramesAndPartialFrame() {
+		Buffer buffer = new Buffer(ByteBuffer.wrap(("SEND\ndestination:/topic/a\n\nA\0" +
+				"SEND\ndestination:/topic/b\n\nB\0SEND\ndestin").getBytes(StandardCharsets.UTF_8)));
+		this.decoder.apply(buffer);
+
+		assertEquals(2, this.messages.size());
+		assertEquals("A", this.messages.get(0).getPayload().toString(StandardCharsets.UTF_8));
+		assertEquals("B", this.messages.get(1).getPayload().toString(StandardCharsets.UTF_8));
+		assertEquals(58, buffer.byteBuffer().position());
+	}
+
+	@Test
+	public void decodeHeartbeat() {
+		decode("\n");
+
+		assertEquals(1, this.messages.size());
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(this.messages.get(0));
+		assertEquals(SimpMessageType.HEARTBEAT, headers.getMessageType());
+	}
+
+	@Test
+	public void decodeFrameWithoutNullOctet() {
+		try {
+			decode("SEND\ndestination:/topic/a\ncontent-length:1\n\nAB");
+			fail("Expected StompConversionException");
+		}
+		catch (StompConversionException ex) {
+			assertTrue(this.messages.isEmpty());
+		}
+	}
+
+	@Test
+	public void encodeFrame() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
+		headers.setDestination("/topic/foo");
+		ByteBuf payload = Unpooled.copiedBuffer("Hello", StandardCharsets.UTF_8);
+		Message<ByteBuf> message = MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+
+		Buffer buffer = this.codec.encoder().apply(message);
+
+		ByteBuffer byteBuffer = buffer.byteBuffer();
+		byte[] bytes = new byte[byteBuffer.remaining()];
+		byteBuffer.get(bytes);
+		assertEquals("SEND\ndestination:/topic/foo\ncontent-length:5\n\nHello\0",
+				new String(bytes, StandardCharsets.UTF_8));
+		assertEquals(1, payload.refCnt());
+		assertEquals(5, payload.readableBytes());
+	}
+
+
+	private void decode(String stompFrame) {
+		this.decoder.apply(new Buffer(ByteBuffer.wrap(stompFrame.getBytes(StandardCharsets.UTF_8))));
+	}
+
+}
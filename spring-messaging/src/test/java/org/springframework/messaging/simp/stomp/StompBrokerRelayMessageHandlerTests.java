@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,12 +23,16 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.StubMessageChannel;
@@ -43,6 +47,7 @@ import org.springframework.messaging.tcp.TcpConnectionHandler;
 import org.springframework.messaging.tcp.TcpOperations;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureTask;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * Unit tests for StompBrokerRelayMessageHandler.
@@ -220,6 +225,108 @@ public class StompBrokerRelayMessageHandlerTests {
 		assertSame(message, captor.getValue());
 	}
 
+	@Test
+	public void outboundQueueRejectSendsErrorFrame() throws Exception {
+
+		this.brokerRelay.setOutboundQueueCapacity(1);
+		this.brokerRelay.start();
+		connectSession("sess1");
+
+		this.tcpClient.connection.setHoldWrites(true);
+		this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", "/topic/foo"));
+		this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", "/topic/foo"));
+
+		assertEquals(3, this.tcpClient.getSentMessages().size());
+		List<Message<byte[]>> sent = this.outboundChannel.getMessages();
+		StompHeaderAccessor accessor = StompHeaderAccessor.wrap(sent.get(sent.size() - 1));
+		assertEquals(StompCommand.ERROR, accessor.getCommand());
+		assertEquals("sess1", accessor.getSessionId());
+		assertTrue(this.brokerRelay.getStatsInfo(), this.brokerRelay.getStatsInfo().contains("rejected 1"));
+		assertEquals(1, this.brokerRelay.getConnectionCount());
+	}
+
+	@Test(expected = MessageDeliveryException.class)
+	public void outboundQueueRejectOnSystemSession() throws Exception {
+
+		this.brokerRelay.setOutboundQueueCapacity(1);
+		this.brokerRelay.start();
+		this.tcpClient.handleMessage(connectedMessage());
+
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+		accessor.setDestination("/topic/foo");
+		accessor.setHeader(SimpMessageHeaderAccessor.IGNORE_ERROR, true);
+		accessor.setLeaveMutable(true);
+
+		// System session messages wait for the write, unless errors are ignored
+		this.tcpClient.connection.setHoldWrites(true);
+		this.brokerRelay.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+		this.brokerRelay.handleMessage(message(StompCommand.SEND, null, null, "/topic/foo"));
+	}
+
+	@Test
+	public void outboundQueueDropOldest() throws Exception {
+
+		this.brokerRelay.setOutboundQueueCapacity(1);
+		this.brokerRelay.setOverflowStrategy(StompBrokerRelayMessageHandler.OverflowStrategy.DROP_OLDEST);
+		this.brokerRelay.start();
+		connectSession("sess1");
+
+		this.tcpClient.connection.setHoldWrites(true);
+		for (String destination : Arrays.asList("/topic/a", "/topic/b", "/topic/c")) {
+			this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", destination));
+		}
+
+		assertEquals(3, this.tcpClient.getSentMessages().size());
+		assertTrue(this.brokerRelay.getStatsInfo(), this.brokerRelay.getStatsInfo().contains("depth 2"));
+		assertTrue(this.brokerRelay.getStatsInfo(), this.brokerRelay.getStatsInfo().contains("dropped 1"));
+
+		this.tcpClient.connection.completeWrites();
+
+		assertEquals(4, this.tcpClient.getSentMessages().size());
+		assertEquals("/topic/a", this.tcpClient.getSentHeaders(2).getDestination());
+		assertEquals("/topic/c", this.tcpClient.getSentHeaders(3).getDestination());
+		assertTrue(this.brokerRelay.getStatsInfo(), this.brokerRelay.getStatsInfo().contains("depth 1"));
+	}
+
+	@Test
+	public void outboundQueueBlock() throws Exception {
+
+		this.brokerRelay.setOutboundQueueCapacity(1);
+		this.brokerRelay.setOverflowStrategy(StompBrokerRelayMessageHandler.OverflowStrategy.BLOCK);
+		this.brokerRelay.start();
+		connectSession("sess1");
+
+		this.tcpClient.connection.setHoldWrites(true);
+		this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", "/topic/a"));
+
+		CountDownLatch latch = new CountDownLatch(1);
+		new Thread(() -> {
+			this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", "/topic/b"));
+			latch.countDown();
+		}).start();
+
+		assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+		assertEquals(3, this.tcpClient.getSentMessages().size());
+
+		this.tcpClient.connection.completeWrites();
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(4, this.tcpClient.getSentMessages().size());
+		assertEquals("/topic/b", this.tcpClient.getSentHeaders(3).getDestination());
+	}
+
+	private void connectSession(String sessionId) {
+		this.brokerRelay.handleMessage(connectMessage(sessionId, "joe"));
+		this.tcpClient.handleMessage(connectedMessage());
+		assertEquals(2, this.tcpClient.getSentMessages().size());
+	}
+
+	private Message<byte[]> connectedMessage() {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECTED);
+		accessor.setLeaveMutable(true);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
 	private Message<byte[]> connectMessage(String sessionId, String user) {
 		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.CONNECT);
 		headers.setSessionId(sessionId);
@@ -268,7 +375,7 @@ public class StompBrokerRelayMessageHandlerTests {
 
 	private static class StubTcpOperations implements TcpOperations<byte[]> {
 
-		private StubTcpConnection connection = new StubTcpConnection();
+		private final StubTcpConnection connection = new StubTcpConnection();
 
 		private TcpConnectionHandler<byte[]> connectionHandler;
 
@@ -313,16 +420,37 @@ public class StompBrokerRelayMessageHandlerTests {
 
 	private static class StubTcpConnection implements TcpConnection<byte[]> {
 
-		private final List<Message<byte[]>> messages = new ArrayList<>();
+		private final List<Message<byte[]>> messages = new CopyOnWriteArrayList<>();
+
+		private final List<SettableListenableFuture<Void>> pendingWrites = new CopyOnWriteArrayList<>();
+
+		private volatile boolean holdWrites;
 
 
 		public List<Message<byte[]>> getMessages() {
 			return this.messages;
 		}
 
+		public void setHoldWrites(boolean holdWrites) {
+			this.holdWrites = holdWrites;
+		}
+
+		public void completeWrites() {
+			this.holdWrites = false;
+			for (SettableListenableFuture<Void> future : this.pendingWrites) {
+				this.pendingWrites.remove(future);
+				future.set(null);
+			}
+		}
+
 		@Override
 		public ListenableFuture<Void> send(Message<byte[]> message) {
 			this.messages.add(message);
+			if (this.holdWrites) {
+				SettableListenableFuture<Void> future = new SettableListenableFuture<>();
+				this.pendingWrites.add(future);
+				return future;
+			}
 			return getVoidFuture();
 		}
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link StompDecoder}, complementing the decoding tests in
+ * {@link StompCodecTests} with buffers other than plain heap buffers.
+ */
+public class StompDecoderTests {
+
+	private static final String FRAME =
+			"SEND\ndestination:/app/über\ncontent-type:text/plain\nx\\cfoo:b\\nar\n\nMessage body\0";
+
+	private final StompDecoder decoder = new StompDecoder();
+
+
+	@Test
+	public void decodeFrameFromDirectBuffer() {
+		byte[] bytes = FRAME.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+
+		assertFrame(this.decoder.decode(buffer));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void decodeFrameFromSlicedBuffer() {
+		byte[] bytes = ("xxx" + FRAME + "xxx").getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 3, bytes.length - 6).slice();
+
+		assertFrame(this.decoder.decode(buffer));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void decodeFrameWithWellKnownHeaderNames() {
+		ByteBuffer buffer = ByteBuffer.wrap(FRAME.getBytes(StandardCharsets.UTF_8));
+		Message<byte[]> message = this.decoder.decode(buffer).get(0);
+
+		Map<String, List<String>> nativeHeaders = StompHeaderAccessor.wrap(message).toNativeHeaderMap();
+		for (String name : nativeHeaders.keySet()) {
+			if (name.equals(StompHeaderAccessor.STOMP_DESTINATION_HEADER)) {
+				assertSame(StompHeaderAccessor.STOMP_DESTINATION_HEADER, name);
+			}
+			else if (name.equals(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER)) {
+				assertSame(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, name);
+			}
+		}
+	}
+
+	@Test
+	public void decodeIncompleteFrameFromDirectBuffer() {
+		byte[] bytes = FRAME.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length - 5);
+		buffer.put(bytes, 0, bytes.length - 5).flip();
+
+		assertTrue(this.decoder.decode(buffer).isEmpty());
+		assertEquals(0, buffer.position());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeFrameWithUnknownCommand() {
+		this.decoder.decode(ByteBuffer.wrap("SENT\n\n\0".getBytes(StandardCharsets.UTF_8)));
+	}
+
+
+	private void assertFrame(List<Message<byte[]>> messages) {
+		assertEquals(1, messages.size());
+		StompHeaderAccessor accessor = StompHeaderAccessor.wrap(messages.get(0));
+		assertEquals(StompCommand.SEND, accessor.getCommand());
+		assertEquals("/app/über", accessor.getDestination());
+		assertEquals("text/plain", accessor.getFirstNativeHeader("content-type"));
+		assertEquals("b\nar", accessor.getFirstNativeHeader("x:foo"));
+		assertEquals("Message body", new String(messages.get(0).getPayload(), StandardCharsets.UTF_8));
+	}
+
+}
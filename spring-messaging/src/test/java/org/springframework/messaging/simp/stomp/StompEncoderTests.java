@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.messaging.simp.SimpBroadcastEncoding;
+import org.springframework.util.MimeTypeUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link StompEncoder}.
+ */
+public class StompEncoderTests {
+
+	private final StompEncoder encoder = new StompEncoder();
+
+	private final SimpBroadcastEncoding broadcastEncoding = new SimpBroadcastEncoding();
+
+	private final byte[] payload = "Message body".getBytes(StandardCharsets.UTF_8);
+
+
+	@Test
+	public void encodeBroadcastMessage() {
+		String frame = encodeBroadcast(createHeaders("sub1", "sess1-1"));
+
+		assertEquals("MESSAGE\ndestination:/topic/price\ncontent-type:text/plain\nx\\cfoo:bar\n" +
+				"subscription:sub1\nmessage-id:sess1-1\ncontent-length:12\n\nMessage body\0", frame);
+	}
+
+	@Test
+	public void encodeBroadcastMessageCopies() {
+		encodeBroadcast(createHeaders("sub1", "sess1-1"));
+		String frame = encodeBroadcast(createHeaders("sub2", "sess2-1"));
+
+		assertEquals("MESSAGE\ndestination:/topic/price\ncontent-type:text/plain\nx\\cfoo:bar\n" +
+				"subscription:sub2\nmessage-id:sess2-1\ncontent-length:12\n\nMessage body\0", frame);
+	}
+
+	@Test
+	public void encodeBroadcastMessageCopyWithDifferentHeaders() {
+		encodeBroadcast(createHeaders("sub1", "sess1-1"));
+		StompHeaderAccessor accessor = createAccessor("sub2", "sess2-1");
+		accessor.setNativeHeader("x:foo", "baz");
+		String frame = encodeBroadcast(accessor.getMessageHeaders());
+
+		assertEquals("MESSAGE\ndestination:/topic/price\ncontent-type:text/plain\nx\\cfoo:baz\n" +
+				"subscription:sub2\nmessage-id:sess2-1\ncontent-length:12\n\nMessage body\0", frame);
+
+		accessor = createAccessor("sub3", "sess3-1");
+		accessor.setNativeHeader("x-bar", "foo");
+		frame = encodeBroadcast(accessor.getMessageHeaders());
+
+		assertEquals("MESSAGE\ndestination:/topic/price\ncontent-type:text/plain\nx\\cfoo:bar\nx-bar:foo\n" +
+				"subscription:sub3\nmessage-id:sess3-1\ncontent-length:12\n\nMessage body\0", frame);
+	}
+
+	@Test
+	public void encodeBroadcastMessageCopyWithDifferentPayload() {
+		encodeBroadcast(createHeaders("sub1", "sess1-1"));
+		byte[] payload = "Other body".getBytes(StandardCharsets.UTF_8);
+		byte[] frame = this.encoder.encode(createHeaders("sub2", "sess2-1"), payload, this.broadcastEncoding);
+
+		assertEquals("MESSAGE\ndestination:/topic/price\ncontent-type:text/plain\nx\\cfoo:bar\n" +
+				"subscription:sub2\nmessage-id:sess2-1\ncontent-length:10\n\nOther body\0",
+				new String(frame, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void encodeBroadcastMessageDecodesAsRegularMessage() {
+		Map<String, Object> headers = createHeaders("sub1", "sess1-1");
+		StompDecoder decoder = new StompDecoder();
+		StompHeaderAccessor expected = StompHeaderAccessor.wrap(
+				decoder.decode(ByteBuffer.wrap(this.encoder.encode(headers, this.payload))).get(0));
+		StompHeaderAccessor actual = StompHeaderAccessor.wrap(decoder.decode(ByteBuffer.wrap(
+				this.encoder.encode(headers, this.payload, this.broadcastEncoding))).get(0));
+
+		assertEquals(expected.toNativeHeaderMap(), actual.toNativeHeaderMap());
+	}
+
+	@Test
+	public void encodeBroadcastOfOtherFrame() {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+		accessor.setReceiptId("r1");
+		byte[] frame = this.encoder.encode(accessor.getMessageHeaders(), new byte[0], this.broadcastEncoding);
+
+		assertEquals("RECEIPT\nreceipt-id:r1\n\n\0", new String(frame, StandardCharsets.UTF_8));
+	}
+
+
+	private String encodeBroadcast(Map<String, Object> headers) {
+		byte[] frame = this.encoder.encode(headers, this.payload, this.broadcastEncoding);
+		return new String(frame, StandardCharsets.UTF_8);
+	}
+
+	private Map<String, Object> createHeaders(String subscriptionId, String messageId) {
+		return createAccessor(subscriptionId, messageId).getMessageHeaders();
+	}
+
+	private StompHeaderAccessor createAccessor(String subscriptionId, String messageId) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		accessor.setDestination("/topic/price");
+		accessor.setContentType(MimeTypeUtils.TEXT_PLAIN);
+		accessor.setNativeHeader("x:foo", "bar");
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setMessageId(messageId);
+		return accessor;
+	}
+
+}
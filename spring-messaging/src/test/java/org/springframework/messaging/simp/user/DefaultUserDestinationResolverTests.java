@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,11 +17,17 @@
 package org.springframework.messaging.simp.user;
 
 import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.context.event.SmartApplicationListener;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.TestPrincipal;
@@ -228,6 +234,69 @@ public class DefaultUserDestinationResolverTests {
 		assertNull(actual);
 	}
 
+	@Test
+	public void handleMessageWithCachedRemoteSessionIds() {
+		SimpUserRegistry localRegistry = mock(SimpUserRegistry.class,
+				withSettings().extraInterfaces(SmartApplicationListener.class));
+		TestSimpUser simpUser = new TestSimpUser("joe");
+		simpUser.addSessions(new TestSimpSession("123"));
+		when(localRegistry.getUser("joe")).thenReturn(simpUser);
+
+		MultiServerUserRegistry userRegistry = new MultiServerUserRegistry(localRegistry);
+		DefaultUserDestinationResolver resolver = new DefaultUserDestinationResolver(userRegistry);
+
+		TestSimpUser remoteUser = new TestSimpUser("joe");
+		remoteUser.addSessions(new TestSimpSession("456"));
+		SimpUserRegistry remoteRegistry = mock(SimpUserRegistry.class);
+		when(remoteRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(remoteUser));
+		MessageConverter converter = new MappingJackson2MessageConverter();
+		Object registryDto = new MultiServerUserRegistry(remoteRegistry).getLocalRegistryDto();
+		userRegistry.addRemoteRegistryDto(converter.toMessage(registryDto, null), converter, 20000);
+
+		TestPrincipal user = new TestPrincipal("joe");
+		Message<?> message = createMessage(SimpMessageType.MESSAGE, user, "123", "/user/joe/queue/foo");
+		UserDestinationResult actual = resolver.resolveDestination(message);
+		assertEquals(Collections.singleton("/queue/foo-user123"), actual.getTargetDestinations());
+
+		message = createMessage(SimpMessageType.MESSAGE, user, "789", "/user/joe/queue/foo");
+		actual = resolver.resolveDestination(message);
+		assertEquals(new HashSet<String>(Arrays.asList("/queue/foo-user123", "/queue/foo-user456")),
+				actual.getTargetDestinations());
+
+		// Local session connected: no need to invalidate cached remote sessions
+		simpUser.addSessions(new TestSimpSession("abc"));
+		actual = resolver.resolveDestination(message);
+		assertEquals(3, actual.getTargetDestinations().size());
+		assertTrue(actual.getTargetDestinations().contains("/queue/foo-userabc"));
+
+		// Remote session connected
+		remoteUser.addSessions(new TestSimpSession("def"));
+		registryDto = new MultiServerUserRegistry(remoteRegistry).getLocalRegistryDto();
+		userRegistry.addRemoteRegistryDto(converter.toMessage(registryDto, null), converter, 20000);
+		actual = resolver.resolveDestination(message);
+		assertEquals(4, actual.getTargetDestinations().size());
+		assertTrue(actual.getTargetDestinations().contains("/queue/foo-userdef"));
+	}
+
+	@Test
+	public void handleMessageWithCacheDisabled() {
+		SimpUserRegistry localRegistry = mock(SimpUserRegistry.class,
+				withSettings().extraInterfaces(SmartApplicationListener.class));
+		TestSimpUser simpUser = new TestSimpUser("joe");
+		simpUser.addSessions(new TestSimpSession("123"));
+		when(localRegistry.getUser("joe")).thenReturn(simpUser);
+
+		DefaultUserDestinationResolver resolver =
+				new DefaultUserDestinationResolver(new MultiServerUserRegistry(localRegistry));
+		resolver.setCacheLimit(0);
+
+		TestPrincipal user = new TestPrincipal("joe");
+		Message<?> message = createMessage(SimpMessageType.MESSAGE, user, "123", "/user/joe/queue/foo");
+		resolver.resolveDestination(message);
+		resolver.resolveDestination(message);
+		verify(localRegistry, times(2)).getUser("joe");
+	}
+
 	private Message<?> createMessage(SimpMessageType type, Principal user, String sessionId, String destination) {
 		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(type);
 		if (destination != null) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,9 +30,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import org.springframework.context.event.SmartApplicationListener;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
 
 /**
  * Unit tests for {@link MultiServerUserRegistry}.
@@ -193,4 +195,121 @@ public class MultiServerUserRegistryTests {
 		assertEquals(0, this.registry.getUserCount());
 	}
 
+	@Test
+	public void deltaBroadcast() throws Exception {
+
+		// Prepare full broadcast from remote server
+		TestSimpUser joe = new TestSimpUser("joe");
+		joe.addSessions(new TestSimpSession("sess1"));
+		SimpUserRegistry testRegistry = mock(SimpUserRegistry.class);
+		when(testRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(joe));
+		MultiServerUserRegistry remoteRegistry = new MultiServerUserRegistry(testRegistry);
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(true)), this.converter, 20000);
+		assertEquals(1, this.registry.getUserCount());
+
+		// Add user
+		TestSimpUser jane = new TestSimpUser("jane");
+		jane.addSessions(new TestSimpSession("sess2"));
+		when(testRegistry.getUsers()).thenReturn(new HashSet<SimpUser>(Arrays.asList(joe, jane)));
+		Message<?> message = toMessage(remoteRegistry.getLocalRegistryDto(true));
+		assertFalse(new String((byte[]) message.getPayload(), "UTF-8").contains("joe"));
+
+		this.registry.addRemoteRegistryDto(message, this.converter, 20000);
+		assertEquals(2, this.registry.getUserCount());
+		assertNotNull(this.registry.getUser("jane").getSession("sess2"));
+
+		// Remove user
+		when(testRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(jane));
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(true)), this.converter, 20000);
+		assertEquals(1, this.registry.getUserCount());
+		assertNull(this.registry.getUser("joe"));
+		assertNotNull(this.registry.getUser("jane"));
+	}
+
+	@Test
+	public void deltaBroadcastIgnoredWhenOutOfSequence() throws Exception {
+
+		TestSimpUser joe = new TestSimpUser("joe");
+		joe.addSessions(new TestSimpSession("sess1"));
+		TestSimpUser jane = new TestSimpUser("jane");
+		jane.addSessions(new TestSimpSession("sess2"));
+		SimpUserRegistry testRegistry = mock(SimpUserRegistry.class);
+		when(testRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(joe));
+		MultiServerUserRegistry remoteRegistry = new MultiServerUserRegistry(testRegistry);
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(true)), this.converter, 20000);
+
+		// Delta lost in transit
+		when(testRegistry.getUsers()).thenReturn(new HashSet<SimpUser>(Arrays.asList(joe, jane)));
+		remoteRegistry.getLocalRegistryDto(true);
+
+		when(testRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(jane));
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(true)), this.converter, 20000);
+		assertEquals(1, this.registry.getUserCount());
+		assertNotNull(this.registry.getUser("joe"));
+
+		// Next full broadcast catches up
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(false)), this.converter, 20000);
+		assertEquals(1, this.registry.getUserCount());
+		assertNull(this.registry.getUser("joe"));
+		assertNotNull(this.registry.getUser("jane"));
+	}
+
+	@Test
+	public void remoteVersionIncrementedOnRemoteSessionChange() throws Exception {
+
+		SimpUserRegistry localRegistry = mock(SimpUserRegistry.class,
+				withSettings().extraInterfaces(SmartApplicationListener.class));
+		MultiServerUserRegistry registry = new MultiServerUserRegistry(localRegistry);
+
+		long version = registry.getRemoteVersion("joe");
+		registry.onApplicationEvent(new BrokerAvailabilityEvent(true, this));
+		assertEquals(version, registry.getRemoteVersion("joe"));
+
+		TestSimpUser joe = new TestSimpUser("joe");
+		TestSimpSession session = new TestSimpSession("sess1");
+		joe.addSessions(session);
+		SimpUserRegistry testRegistry = mock(SimpUserRegistry.class);
+		when(testRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(joe));
+		MultiServerUserRegistry remoteRegistry = new MultiServerUserRegistry(testRegistry);
+		registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto()), this.converter, -1);
+		assertNotEquals(version, registry.getRemoteVersion("joe"));
+		assertEquals(Collections.singleton("sess1"), registry.getRemoteSessionIds("joe"));
+		version = registry.getRemoteVersion("joe");
+
+		// Unchanged snapshot
+		registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto()), this.converter, -1);
+		assertEquals(version, registry.getRemoteVersion("joe"));
+
+		// Subscriptions only
+		session.addSubscriptions(new TestSimpSubscription("sub1", "/match"));
+		registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto()), this.converter, -1);
+		assertEquals(version, registry.getRemoteVersion("joe"));
+
+		registry.purgeExpiredRegistries();
+		assertNotEquals(version, registry.getRemoteVersion("joe"));
+		assertEquals(Collections.emptySet(), registry.getRemoteSessionIds("joe"));
+	}
+
+	@Test
+	public void remoteVersionIncrementedOnDeltaBroadcast() throws Exception {
+
+		TestSimpUser joe = new TestSimpUser("joe");
+		joe.addSessions(new TestSimpSession("sess1"));
+		SimpUserRegistry testRegistry = mock(SimpUserRegistry.class);
+		when(testRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(joe));
+		MultiServerUserRegistry remoteRegistry = new MultiServerUserRegistry(testRegistry);
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(true)), this.converter, 20000);
+		long version = this.registry.getRemoteVersion("joe");
+
+		joe.addSessions(new TestSimpSession("sess2"));
+		this.registry.addRemoteRegistryDto(toMessage(remoteRegistry.getLocalRegistryDto(true)), this.converter, 20000);
+		assertNotEquals(version, this.registry.getRemoteVersion("joe"));
+		assertEquals(new HashSet<String>(Arrays.asList("sess1", "sess2")), this.registry.getRemoteSessionIds("joe"));
+	}
+
+
+	private Message<?> toMessage(Object registryDto) {
+		return this.converter.toMessage(registryDto, null);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import static org.mockito.Mockito.*;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 
 import org.junit.Before;
@@ -131,6 +132,46 @@ public class UserRegistryMessageHandlerTests {
 		assertNotNull(remoteRegistry.getUser("jane"));
 	}
 
+	@Test
+	public void broadcastRegistryWithFullBroadcastInterval() throws Exception {
+
+		TestSimpUser simpUser1 = new TestSimpUser("joe");
+		TestSimpUser simpUser2 = new TestSimpUser("jane");
+		simpUser1.addSessions(new TestSimpSession("123"));
+		simpUser2.addSessions(new TestSimpSession("456"));
+		when(this.localRegistry.getUsers()).thenReturn(Collections.<SimpUser>singleton(simpUser1));
+
+		this.handler.setFullBroadcastInterval(2);
+		Runnable runnable = getUserRegistryTask();
+		runnable.run();
+
+		when(this.localRegistry.getUsers()).thenReturn(new HashSet<SimpUser>(Arrays.asList(simpUser1, simpUser2)));
+		runnable.run();
+		runnable.run();
+
+		ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+		verify(this.brokerChannel, times(3)).send(captor.capture());
+
+		List<Message> messages = captor.getAllValues();
+		MultiServerUserRegistry remoteRegistry = new MultiServerUserRegistry(mock(SimpUserRegistry.class));
+		remoteRegistry.addRemoteRegistryDto(messages.get(0), this.converter, 20000);
+		assertEquals(1, remoteRegistry.getUserCount());
+
+		// Delta with the new user only
+		String payload = new String((byte[]) messages.get(1).getPayload(), "UTF-8");
+		assertTrue(payload.contains("jane"));
+		assertFalse(payload.contains("joe"));
+		remoteRegistry.addRemoteRegistryDto(messages.get(1), this.converter, 20000);
+		assertEquals(2, remoteRegistry.getUserCount());
+
+		// Full broadcast
+		payload = new String((byte[]) messages.get(2).getPayload(), "UTF-8");
+		assertTrue(payload.contains("jane"));
+		assertTrue(payload.contains("joe"));
+		remoteRegistry.addRemoteRegistryDto(messages.get(2), this.converter, 20000);
+		assertEquals(2, remoteRegistry.getUserCount());
+	}
+
 	@Test
 	public void handleMessage() throws Exception {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -311,6 +311,30 @@ public class MessageHeaderAccessorTests {
 		assertNotNull(headers.getTimestamp());
 	}
 
+	@Test
+	public void toMessageHeadersWithIdGenerationDisabled() {
+		IdTimestampMessageHeaderInitializer initializer = new IdTimestampMessageHeaderInitializer();
+		initializer.setDisableIdGeneration();
+		MessageHeaderAccessor accessor = new MessageHeaderAccessor();
+		initializer.initHeaders(accessor);
+		accessor.setHeader("foo", "bar");
+
+		Message<String> message = MessageBuilder.withPayload("payload").setHeaders(accessor).build();
+		assertNull(message.getHeaders().getId());
+		assertNotNull(message.getHeaders().getTimestamp());
+		assertEquals("bar", message.getHeaders().get("foo"));
+	}
+
+	@Test
+	public void toMessageHeadersWithCustomIdGenerator() {
+		final UUID id = new UUID(0L, 23L);
+		MessageHeaderAccessor accessor = new MessageHeaderAccessor();
+		accessor.setIdGenerator(() -> id);
+
+		assertSame(id, accessor.toMessageHeaders().getId());
+		assertNotNull(new MessageHeaderAccessor().toMessageHeaders().getId());
+	}
+
 	@Test
 	public void getShortLogMessagePayload() {
 		MessageHeaderAccessor accessor = new MessageHeaderAccessor();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -79,6 +79,38 @@ public class NativeMessageHeaderAccessorTests {
 		assertNotSame(inputNativeHeaders, actual.get(NativeMessageHeaderAccessor.NATIVE_HEADERS));
 	}
 
+	@Test
+	public void createFromImmutableMessageSharesNativeHeadersUntilModified() {
+		NativeMessageHeaderAccessor sourceAccessor = new NativeMessageHeaderAccessor();
+		sourceAccessor.setNativeHeader("foo", "bar");
+		Message<String> message = MessageBuilder.createMessage("p", sourceAccessor.getMessageHeaders());
+		Object sourceNativeHeaders = message.getHeaders().get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+
+		NativeMessageHeaderAccessor headerAccessor = new NativeMessageHeaderAccessor(message);
+		headerAccessor.setNativeHeader("foo", "bar");
+		assertFalse(headerAccessor.isModified());
+		assertSame(sourceNativeHeaders, headerAccessor.getHeader(NativeMessageHeaderAccessor.NATIVE_HEADERS));
+
+		headerAccessor.addNativeHeader("bar", "baz");
+		assertTrue(headerAccessor.isModified());
+		assertNotSame(sourceNativeHeaders, headerAccessor.getHeader(NativeMessageHeaderAccessor.NATIVE_HEADERS));
+		assertEquals(Collections.singletonList("baz"), headerAccessor.getNativeHeader("bar"));
+		assertNull(sourceAccessor.getNativeHeader("bar"));
+	}
+
+	@Test
+	public void createFromMutableMessageCopiesNativeHeaders() {
+		NativeMessageHeaderAccessor sourceAccessor = new NativeMessageHeaderAccessor();
+		sourceAccessor.setNativeHeader("foo", "bar");
+		sourceAccessor.setLeaveMutable(true);
+		Message<String> message = MessageBuilder.createMessage("p", sourceAccessor.getMessageHeaders());
+
+		NativeMessageHeaderAccessor headerAccessor = new NativeMessageHeaderAccessor(message);
+		sourceAccessor.setNativeHeader("foo", "baz");
+
+		assertEquals("bar", headerAccessor.getFirstNativeHeader("foo"));
+	}
+
 	@Test
 	public void createFromMessageNull() {
 		NativeMessageHeaderAccessor headerAccessor = new NativeMessageHeaderAccessor((Message<?>) null);
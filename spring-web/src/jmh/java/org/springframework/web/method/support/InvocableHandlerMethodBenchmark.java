@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.web.method.support;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.support.DefaultDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.annotation.ErrorsMethodArgumentResolver;
+import org.springframework.web.method.annotation.MapMethodProcessor;
+import org.springframework.web.method.annotation.ModelMethodProcessor;
+import org.springframework.web.method.annotation.RequestHeaderMapMethodArgumentResolver;
+import org.springframework.web.method.annotation.RequestHeaderMethodArgumentResolver;
+import org.springframework.web.method.annotation.RequestParamMapMethodArgumentResolver;
+import org.springframework.web.method.annotation.RequestParamMethodArgumentResolver;
+import org.springframework.web.method.annotation.SessionStatusMethodArgumentResolver;
+
+/**
+ * Benchmarks for {@link InvocableHandlerMethod#invokeForRequest}, comparing
+ * reflective invocation with a {@link HandlerMethod#compileInvoker() compiled}
+ * invoker and bound argument resolvers.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class InvocableHandlerMethodBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"false", "true"})
+		public boolean compiled;
+
+		public HandlerMethod handlerMethod;
+
+		public HandlerMethodArgumentResolverComposite argumentResolvers;
+
+		public NativeWebRequest webRequest;
+
+		public ModelAndViewContainer mavContainer = new ModelAndViewContainer();
+
+		@Setup
+		public void setup() throws Exception {
+			Method method = Handler.class.getMethod("handle", String.class, int.class, String.class);
+			this.handlerMethod = new HandlerMethod(new Handler(), method);
+			if (this.compiled) {
+				this.handlerMethod.compileInvoker();
+			}
+
+			// Resolver order as in RequestMappingHandlerAdapter
+			this.argumentResolvers = new HandlerMethodArgumentResolverComposite();
+			this.argumentResolvers.addResolver(new RequestParamMethodArgumentResolver(null, false));
+			this.argumentResolvers.addResolver(new RequestParamMapMethodArgumentResolver());
+			this.argumentResolvers.addResolver(new RequestHeaderMethodArgumentResolver(null));
+			this.argumentResolvers.addResolver(new RequestHeaderMapMethodArgumentResolver());
+			this.argumentResolvers.addResolver(new ModelMethodProcessor());
+			this.argumentResolvers.addResolver(new MapMethodProcessor());
+			this.argumentResolvers.addResolver(new ErrorsMethodArgumentResolver());
+			this.argumentResolvers.addResolver(new SessionStatusMethodArgumentResolver());
+
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/handle");
+			request.addParameter("name", "value");
+			request.addParameter("count", "42");
+			request.addHeader("Accept", "application/json");
+			this.webRequest = new ServletWebRequest(request, new MockHttpServletResponse());
+		}
+	}
+
+
+	@Benchmark
+	public void invokeForRequest(BenchmarkData data, Blackhole bh) throws Exception {
+		// A new instance per request, as in RequestMappingHandlerAdapter
+		InvocableHandlerMethod invocable = new InvocableHandlerMethod(data.handlerMethod);
+		invocable.setHandlerMethodArgumentResolvers(data.argumentResolvers);
+		invocable.setDataBinderFactory(new DefaultDataBinderFactory(null));
+		bh.consume(invocable.invokeForRequest(data.webRequest, data.mavContainer));
+	}
+
+
+	public static class Handler {
+
+		public String handle(@RequestParam("name") String name, @RequestParam("count") int count,
+				@RequestHeader("Accept") String accept) {
+
+			return name + count + accept;
+		}
+	}
+
+}
@@ -0,0 +1,637 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.UsesJava7;
+import org.springframework.util.StringUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * {@link ClientHttpRequest} implementation based on the JDK's
+ * {@link AsynchronousSocketChannel}.
+ *
+ * <p>Created via the {@link NioClientHttpRequestFactory}.
+ *
+ * @since 4.3.25
+ */
+@UsesJava7
+class NioClientHttpRequest extends AbstractBufferingAsyncClientHttpRequest implements ClientHttpRequest {
+
+	private static final Charset HEADER_CHARSET = Charset.forName("ISO-8859-1");
+
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+
+	private final NioClientHttpRequestFactory factory;
+
+	private final NioClientHttpRequestFactory.ConnectionPool connectionPool;
+
+	private final URI uri;
+
+	private final HttpMethod method;
+
+
+	public NioClientHttpRequest(NioClientHttpRequestFactory factory,
+			NioClientHttpRequestFactory.ConnectionPool connectionPool, URI uri, HttpMethod method) {
+
+		this.factory = factory;
+		this.connectionPool = connectionPool;
+		this.uri = uri;
+		this.method = method;
+	}
+
+
+	@Override
+	public HttpMethod getMethod() {
+		return this.method;
+	}
+
+	@Override
+	public URI getURI() {
+		return this.uri;
+	}
+
+	@Override
+	public ClientHttpResponse execute() throws IOException {
+		try {
+			return executeAsync().get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted during request execution", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			else {
+				throw new IOException(ex.getMessage(), ex.getCause());
+			}
+		}
+	}
+
+	@Override
+	protected ListenableFuture<ClientHttpResponse> executeInternal(
+			HttpHeaders headers, byte[] bufferedOutput) throws IOException {
+
+		SettableListenableFuture<ClientHttpResponse> responseFuture =
+				new SettableListenableFuture<ClientHttpResponse>();
+		// Resolve in the calling thread: connecting may happen on an I/O thread
+		InetSocketAddress address = new InetSocketAddress(connectionPool.getHost(), connectionPool.getPort());
+		if (address.isUnresolved()) {
+			responseFuture.setException(new UnknownHostException(connectionPool.getHost()));
+			return responseFuture;
+		}
+		new Exchange(address, encodeRequest(headers, bufferedOutput), responseFuture).start();
+		return responseFuture;
+	}
+
+	private byte[] encodeRequest(HttpHeaders headers, byte[] body) {
+		StringBuilder builder = new StringBuilder(256);
+		builder.append(this.method.name()).append(' ');
+		String path = this.uri.getRawPath();
+		builder.append(StringUtils.hasLength(path) ? path : "/");
+		if (this.uri.getRawQuery() != null) {
+			builder.append('?').append(this.uri.getRawQuery());
+		}
+		builder.append(" HTTP/1.1\r\n");
+		if (!headers.containsKey(HttpHeaders.HOST)) {
+			builder.append(HttpHeaders.HOST).append(": ").append(this.uri.getHost());
+			if (this.uri.getPort() != -1) {
+				builder.append(':').append(this.uri.getPort());
+			}
+			builder.append("\r\n");
+		}
+		for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+			for (String value : entry.getValue()) {
+				builder.append(entry.getKey()).append(": ").append(value).append("\r\n");
+			}
+		}
+		builder.append("\r\n");
+		byte[] head = builder.toString().getBytes(HEADER_CHARSET);
+		byte[] request = new byte[head.length + body.length];
+		System.arraycopy(head, 0, request, 0, head.length);
+		System.arraycopy(body, 0, request, head.length, body.length);
+		return request;
+	}
+
+
+	/**
+	 * The exchange of a request and its response over a single connection,
+	 * driven by the completion of asynchronous channel operations.
+	 */
+	private class Exchange implements NioClientHttpRequestFactory.ConnectionCallback {
+
+		private final InetSocketAddress address;
+
+		private final byte[] request;
+
+		private final SettableListenableFuture<ClientHttpResponse> responseFuture;
+
+		private NioClientHttpRequestFactory.Connection connection;
+
+		private boolean reused;
+
+		private boolean requestWritten;
+
+		private boolean retried;
+
+		private ResponseParser parser;
+
+		private volatile boolean connectTimedOut;
+
+		public Exchange(InetSocketAddress address, byte[] request,
+				SettableListenableFuture<ClientHttpResponse> responseFuture) {
+
+			this.address = address;
+			this.request = request;
+			this.responseFuture = responseFuture;
+		}
+
+		public void start() {
+			this.connection = null;
+			this.requestWritten = false;
+			this.parser = new ResponseParser(method == HttpMethod.HEAD, factory.getMaxResponseSize());
+			connectionPool.acquire(this);
+		}
+
+		@Override
+		public void connectionAvailable(NioClientHttpRequestFactory.Connection connection) {
+			if (this.responseFuture.isCancelled()) {
+				connectionPool.release(connection, connection != null);
+			}
+			else if (connection != null) {
+				this.connection = connection;
+				this.reused = true;
+				write();
+			}
+			else {
+				connect();
+			}
+		}
+
+		private void connect() {
+			final AsynchronousSocketChannel channel;
+			try {
+				channel = AsynchronousSocketChannel.open(factory.getChannelGroup());
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			catch (IOException ex) {
+				connectionPool.release(null, false);
+				this.responseFuture.setException(ex);
+				return;
+			}
+			this.connection = new NioClientHttpRequestFactory.Connection(channel);
+			this.reused = false;
+			final ScheduledFuture<?> timeout = scheduleConnectTimeout();
+			try {
+				channel.connect(this.address, null, new CompletionHandler<Void, Void>() {
+					@Override
+					public void completed(Void result, Void attachment) {
+						if (timeout != null) {
+							timeout.cancel(false);
+						}
+						write();
+					}
+					@Override
+					public void failed(Throwable ex, Void attachment) {
+						if (timeout != null) {
+							timeout.cancel(false);
+						}
+						handleFailure(connectTimedOut ? new SocketTimeoutException("Connect timed out") : ex);
+					}
+				});
+			}
+			catch (RuntimeException ex) {
+				handleFailure(ex);
+			}
+		}
+
+		private ScheduledFuture<?> scheduleConnectTimeout() {
+			int connectTimeout = factory.getConnectTimeout();
+			if (connectTimeout <= 0) {
+				return null;
+			}
+			final NioClientHttpRequestFactory.Connection connection = this.connection;
+			return factory.getTimeoutScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					connectTimedOut = true;
+					connection.close();
+				}
+			}, connectTimeout, TimeUnit.MILLISECONDS);
+		}
+
+		private void write() {
+			ByteBuffer buffer = ByteBuffer.wrap(this.request);
+			try {
+				this.connection.getChannel().write(buffer, buffer, new CompletionHandler<Integer, ByteBuffer>() {
+					@Override
+					public void completed(Integer result, ByteBuffer buffer) {
+						if (buffer.hasRemaining()) {
+							try {
+								connection.getChannel().write(buffer, buffer, this);
+							}
+							catch (RuntimeException ex) {
+								handleFailure(ex);
+							}
+						}
+						else {
+							requestWritten = true;
+							read();
+						}
+					}
+					@Override
+					public void failed(Throwable ex, ByteBuffer buffer) {
+						handleFailure(ex);
+					}
+				});
+			}
+			catch (RuntimeException ex) {
+				handleFailure(ex);
+			}
+		}
+
+		private void read() {
+			ByteBuffer buffer = this.connection.getReadBuffer();
+			buffer.clear();
+			CompletionHandler<Integer, ByteBuffer> handler = new CompletionHandler<Integer, ByteBuffer>() {
+				@Override
+				public void completed(Integer result, ByteBuffer buffer) {
+					if (result == -1) {
+						handleEndOfStream();
+						return;
+					}
+					buffer.flip();
+					boolean complete;
+					try {
+						complete = parser.parse(buffer);
+					}
+					catch (IOException ex) {
+						handleFailure(ex);
+						return;
+					}
+					if (complete) {
+						complete(!buffer.hasRemaining());
+					}
+					else {
+						read();
+					}
+				}
+				@Override
+				public void failed(Throwable ex, ByteBuffer buffer) {
+					handleFailure(ex instanceof InterruptedByTimeoutException ?
+							new SocketTimeoutException("Read timed out") : ex);
+				}
+			};
+			try {
+				int readTimeout = factory.getReadTimeout();
+				if (readTimeout > 0) {
+					this.connection.getChannel().read(buffer, readTimeout, TimeUnit.MILLISECONDS, buffer, handler);
+				}
+				else {
+					this.connection.getChannel().read(buffer, buffer, handler);
+				}
+			}
+			catch (RuntimeException ex) {
+				handleFailure(ex);
+			}
+		}
+
+		private void handleEndOfStream() {
+			if (this.parser.isReadingUntilClose()) {
+				complete(false);
+			}
+			else {
+				handleFailure(new IOException("Connection closed before the response was complete"));
+			}
+		}
+
+		private void handleFailure(Throwable ex) {
+			if (ex instanceof IOException && !(ex instanceof SocketTimeoutException) && isRetryable()) {
+				// Most likely a pooled connection that the server has closed meanwhile
+				this.retried = true;
+				connectionPool.release(this.connection, false);
+				start();
+				return;
+			}
+			connectionPool.release(this.connection, false);
+			this.responseFuture.setException(ex);
+		}
+
+		/**
+		 * Whether the request may be sent again over another connection: once,
+		 * if it failed over a reused connection before any response data, and
+		 * either the request is idempotent or it was not fully written yet.
+		 */
+		private boolean isRetryable() {
+			return (this.reused && !this.retried && !this.parser.hasReceivedData() &&
+					(!this.requestWritten || isIdempotent(method)));
+		}
+
+		private boolean isIdempotent(HttpMethod method) {
+			return (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS ||
+					method == HttpMethod.TRACE || method == HttpMethod.PUT || method == HttpMethod.DELETE);
+		}
+
+		private void complete(boolean reusable) {
+			ClientHttpResponse response = this.parser.createResponse();
+			connectionPool.release(this.connection, reusable && this.parser.isKeepAlive());
+			this.responseFuture.set(response);
+		}
+	}
+
+
+	/**
+	 * Incremental parser for an HTTP/1.1 response, aggregating the body.
+	 */
+	private static class ResponseParser {
+
+		private static final int STATUS_LINE = 0;
+
+		private static final int HEADERS = 1;
+
+		private static final int BODY = 2;
+
+		private static final int CHUNK_SIZE = 3;
+
+		private static final int CHUNK_DATA = 4;
+
+		private static final int CHUNK_END = 5;
+
+		private static final int TRAILERS = 6;
+
+		private static final int UNTIL_CLOSE = 7;
+
+		private static final int DONE = 8;
+
+		private final boolean headRequest;
+
+		private final int maxResponseSize;
+
+		private final StringBuilder line = new StringBuilder(64);
+
+		private int state = STATUS_LINE;
+
+		private boolean receivedData;
+
+		private boolean keepAlive;
+
+		private int statusCode;
+
+		private String statusText;
+
+		private HttpHeaders headers = new HttpHeaders();
+
+		private long remaining;
+
+		private ByteArrayOutputStream body;
+
+		public ResponseParser(boolean headRequest, int maxResponseSize) {
+			this.headRequest = headRequest;
+			this.maxResponseSize = maxResponseSize;
+		}
+
+		public boolean hasReceivedData() {
+			return this.receivedData;
+		}
+
+		public boolean isReadingUntilClose() {
+			return (this.state == UNTIL_CLOSE);
+		}
+
+		public boolean isKeepAlive() {
+			return this.keepAlive;
+		}
+
+		/**
+		 * Consume the given data.
+		 * @return {@code true} once the response is complete, in which case
+		 * the buffer may still contain unconsumed data
+		 */
+		public boolean parse(ByteBuffer buffer) throws IOException {
+			if (buffer.hasRemaining()) {
+				this.receivedData = true;
+			}
+			while (buffer.hasRemaining() && this.state != DONE) {
+				String line;
+				switch (this.state) {
+					case STATUS_LINE:
+						line = readLine(buffer);
+						if (line != null && !line.isEmpty()) {
+							parseStatusLine(line);
+							this.state = HEADERS;
+						}
+						break;
+					case HEADERS:
+						line = readLine(buffer);
+						if (line != null) {
+							if (line.isEmpty()) {
+								headersComplete();
+							}
+							else {
+								parseHeader(line);
+							}
+						}
+						break;
+					case BODY:
+					case CHUNK_DATA:
+						int length = (int) Math.min(this.remaining, buffer.remaining());
+						writeBody(buffer, length);
+						this.remaining -= length;
+						if (this.remaining == 0) {
+							this.state = (this.state == BODY ? DONE : CHUNK_END);
+						}
+						break;
+					case CHUNK_SIZE:
+						line = readLine(buffer);
+						if (line != null) {
+							long chunkSize = parseChunkSize(line);
+							if (chunkSize == 0) {
+								this.state = TRAILERS;
+							}
+							else {
+								this.remaining = chunkSize;
+								this.state = CHUNK_DATA;
+							}
+						}
+						break;
+					case CHUNK_END:
+						if (readLine(buffer) != null) {
+							this.state = CHUNK_SIZE;
+						}
+						break;
+					case TRAILERS:
+						line = readLine(buffer);
+						if (line != null && line.isEmpty()) {
+							this.state = DONE;
+						}
+						break;
+					case UNTIL_CLOSE:
+						writeBody(buffer, buffer.remaining());
+						break;
+				}
+			}
+			return (this.state == DONE);
+		}
+
+		private String readLine(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				char c = (char) (buffer.get() & 0xFF);
+				if (c == '\n') {
+					int length = this.line.length();
+					if (length > 0 && this.line.charAt(length - 1) == '\r') {
+						this.line.setLength(length - 1);
+					}
+					String result = this.line.toString();
+					this.line.setLength(0);
+					return result;
+				}
+				if (this.line.length() >= MAX_LINE_LENGTH) {
+					throw new IOException("Response line exceeds maximum length of " + MAX_LINE_LENGTH);
+				}
+				this.line.append(c);
+			}
+			return null;
+		}
+
+		private void parseStatusLine(String line) throws IOException {
+			int index = line.indexOf(' ');
+			if (!line.startsWith("HTTP/") || index == -1 || line.length() < index + 4) {
+				throw new IOException("Invalid response status line: " + line);
+			}
+			try {
+				this.statusCode = Integer.parseInt(line.substring(index + 1, index + 4));
+			}
+			catch (NumberFormatException ex) {
+				throw new IOException("Invalid response status line: " + line);
+			}
+			this.statusText = (line.length() > index + 5 ? line.substring(index + 5) : "");
+			this.keepAlive = !line.startsWith("HTTP/1.0 ");
+		}
+
+		private void parseHeader(String line) throws IOException {
+			int index = line.indexOf(':');
+			if (index <= 0) {
+				throw new IOException("Invalid response header: " + line);
+			}
+			String name = line.substring(0, index).trim();
+			String value = line.substring(index + 1).trim();
+			this.headers.add(name, value);
+			if (HttpHeaders.CONNECTION.equalsIgnoreCase(name)) {
+				for (String token : StringUtils.tokenizeToStringArray(value, ",")) {
+					if ("close".equalsIgnoreCase(token)) {
+						this.keepAlive = false;
+					}
+					else if ("keep-alive".equalsIgnoreCase(token)) {
+						this.keepAlive = true;
+					}
+				}
+			}
+		}
+
+		private void headersComplete() throws IOException {
+			if (this.statusCode >= 100 && this.statusCode < 200 && this.statusCode != 101) {
+				// Interim response: the final one follows on the same connection
+				this.headers = new HttpHeaders();
+				this.state = STATUS_LINE;
+				return;
+			}
+			if (this.headRequest || this.statusCode < 200 || this.statusCode == 204 || this.statusCode == 304) {
+				this.state = DONE;
+				return;
+			}
+			String transferEncoding = this.headers.getFirst(HttpHeaders.TRANSFER_ENCODING);
+			if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+				this.body = new ByteArrayOutputStream(1024);
+				this.state = CHUNK_SIZE;
+				return;
+			}
+			long contentLength;
+			try {
+				contentLength = this.headers.getContentLength();
+			}
+			catch (NumberFormatException ex) {
+				throw new IOException("Invalid response Content-Length: " +
+						this.headers.getFirst(HttpHeaders.CONTENT_LENGTH));
+			}
+			if (contentLength > this.maxResponseSize) {
+				throw new IOException("Response exceeds maximum size of " + this.maxResponseSize + " bytes");
+			}
+			if (contentLength >= 0) {
+				this.body = new ByteArrayOutputStream((int) contentLength);
+				this.remaining = contentLength;
+				this.state = (contentLength > 0 ? BODY : DONE);
+			}
+			else {
+				this.body = new ByteArrayOutputStream(1024);
+				this.keepAlive = false;
+				this.state = UNTIL_CLOSE;
+			}
+		}
+
+		private long parseChunkSize(String line) throws IOException {
+			int index = line.indexOf(';');
+			String size = (index != -1 ? line.substring(0, index) : line).trim();
+			try {
+				long chunkSize = Long.parseLong(size, 16);
+				if (chunkSize < 0) {
+					throw new NumberFormatException();
+				}
+				return chunkSize;
+			}
+			catch (NumberFormatException ex) {
+				throw new IOException("Invalid chunk size: " + line);
+			}
+		}
+
+		private void writeBody(ByteBuffer buffer, int length) throws IOException {
+			if (this.body.size() + (long) length > this.maxResponseSize) {
+				throw new IOException("Response exceeds maximum size of " + this.maxResponseSize + " bytes");
+			}
+			this.body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+			buffer.position(buffer.position() + length);
+		}
+
+		public ClientHttpResponse createResponse() {
+			byte[] content = (this.body != null ? this.body.toByteArray() : new byte[0]);
+			return new NioClientHttpResponse(this.statusCode, this.statusText, this.headers, content);
+		}
+	}
+
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.UsesJava7;
+import org.springframework.util.Assert;
+import org.springframework.util.CustomizableThreadCreator;
+
+/**
+ * {@link org.springframework.http.client.ClientHttpRequestFactory} implementation
+ * that uses the JDK's {@link AsynchronousSocketChannel} to execute HTTP/1.1
+ * requests without blocking a thread per request.
+ *
+ * <p>Connections are kept alive and pooled per host and port: a connection is
+ * returned to its pool as soon as the response has been read, and is reused by
+ * the next request to the same host. The number of concurrently open connections
+ * per host can be limited, in which case further requests are queued until a
+ * connection is released. A request sent over a pooled connection that turns
+ * out to have been closed by the server is retried once over another connection,
+ * provided that its method is idempotent, or that it failed before being fully
+ * written. Host names are resolved in the thread that executes the request.
+ *
+ * <p>Request bodies are buffered, and responses are read fully (up to the
+ * {@linkplain #setMaxResponseSize maximum response size}) before the returned
+ * future completes. Only {@code http} URIs are supported.
+ *
+ * @since 4.3.25
+ */
+@UsesJava7
+public class NioClientHttpRequestFactory implements ClientHttpRequestFactory,
+		AsyncClientHttpRequestFactory, DisposableBean {
+
+	/**
+	 * The default maximum response size.
+	 * @see #setMaxResponseSize(int)
+	 */
+	public static final int DEFAULT_MAX_RESPONSE_SIZE = 1024 * 1024 * 10;
+
+	/**
+	 * The default maximum number of idle connections kept per host.
+	 * @see #setMaxIdleConnectionsPerHost(int)
+	 */
+	public static final int DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST = 8;
+
+	/**
+	 * The default time (in milliseconds) that an idle connection is kept.
+	 * @see #setIdleTimeout(int)
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT = 15000;
+
+
+	private final AsynchronousChannelGroup channelGroup;
+
+	private final boolean defaultChannelGroup;
+
+	private int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+
+	private int connectTimeout = -1;
+
+	private int readTimeout = -1;
+
+	private int maxConnectionsPerHost = -1;
+
+	private int maxIdleConnectionsPerHost = DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST;
+
+	private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	private final ConcurrentMap<String, ConnectionPool> connectionPools =
+			new ConcurrentHashMap<String, ConnectionPool>();
+
+	private volatile ScheduledExecutorService timeoutScheduler;
+
+
+	/**
+	 * Create a new {@code NioClientHttpRequestFactory} with a default
+	 * {@link AsynchronousChannelGroup}.
+	 */
+	public NioClientHttpRequestFactory() {
+		int ioWorkerCount = Runtime.getRuntime().availableProcessors();
+		try {
+			this.channelGroup = AsynchronousChannelGroup.withFixedThreadPool(ioWorkerCount,
+					new DaemonThreadFactory(getClass().getSimpleName() + "-"));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Could not create AsynchronousChannelGroup", ex);
+		}
+		this.defaultChannelGroup = true;
+	}
+
+	/**
+	 * Create a new {@code NioClientHttpRequestFactory} with the given
+	 * {@link AsynchronousChannelGroup}.
+	 * <p><b>NOTE:</b> the given group will <strong>not</strong> be
+	 * {@linkplain AsynchronousChannelGroup#shutdown() shutdown} by this factory;
+	 * doing so becomes the responsibility of the caller.
+	 */
+	public NioClientHttpRequestFactory(AsynchronousChannelGroup channelGroup) {
+		Assert.notNull(channelGroup, "AsynchronousChannelGroup must not be null");
+		this.channelGroup = channelGroup;
+		this.defaultChannelGroup = false;
+	}
+
+
+	/**
+	 * Set the default maximum response size.
+	 * <p>By default this is set to {@link #DEFAULT_MAX_RESPONSE_SIZE}.
+	 */
+	public void setMaxResponseSize(int maxResponseSize) {
+		this.maxResponseSize = maxResponseSize;
+	}
+
+	/**
+	 * Set the connect timeout (in milliseconds).
+	 * A timeout value of 0 or less specifies an infinite timeout.
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * Set the read timeout (in milliseconds), i.e. the maximum time to wait
+	 * for response data to arrive. A timeout value of 0 or less specifies an
+	 * infinite timeout.
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Set the maximum number of connections that may be open to the same host
+	 * at any time. Requests beyond this limit are queued until a connection
+	 * becomes available.
+	 * <p>By default this is set to -1, i.e. unlimited.
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Set the maximum number of idle connections to keep alive per host.
+	 * A value of 0 closes every connection after its response has been read.
+	 * <p>By default this is set to {@link #DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST}.
+	 */
+	public void setMaxIdleConnectionsPerHost(int maxIdleConnectionsPerHost) {
+		Assert.isTrue(maxIdleConnectionsPerHost >= 0, "'maxIdleConnectionsPerHost' must not be negative");
+		this.maxIdleConnectionsPerHost = maxIdleConnectionsPerHost;
+	}
+
+	/**
+	 * Set the time (in milliseconds) after which an idle connection is no
+	 * longer reused. This should be shorter than the keep-alive timeout of the
+	 * servers called, so that connections are not reused just as the server
+	 * closes them.
+	 * <p>By default this is set to {@link #DEFAULT_IDLE_TIMEOUT}.
+	 */
+	public void setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		return createRequestInternal(uri, httpMethod);
+	}
+
+	@Override
+	public AsyncClientHttpRequest createAsyncRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		return createRequestInternal(uri, httpMethod);
+	}
+
+	private NioClientHttpRequest createRequestInternal(URI uri, HttpMethod httpMethod) {
+		if (!"http".equalsIgnoreCase(uri.getScheme())) {
+			throw new IllegalArgumentException("Only 'http' URIs are supported: " + uri);
+		}
+		return new NioClientHttpRequest(this, getConnectionPool(uri), uri, httpMethod);
+	}
+
+	private ConnectionPool getConnectionPool(URI uri) {
+		int port = (uri.getPort() != -1 ? uri.getPort() : 80);
+		String key = uri.getHost() + ":" + port;
+		ConnectionPool pool = this.connectionPools.get(key);
+		if (pool == null) {
+			pool = new ConnectionPool(uri.getHost(), port);
+			ConnectionPool existing = this.connectionPools.putIfAbsent(key, pool);
+			if (existing != null) {
+				pool = existing;
+			}
+		}
+		return pool;
+	}
+
+	AsynchronousChannelGroup getChannelGroup() {
+		return this.channelGroup;
+	}
+
+	int getMaxResponseSize() {
+		return this.maxResponseSize;
+	}
+
+	int getConnectTimeout() {
+		return this.connectTimeout;
+	}
+
+	int getReadTimeout() {
+		return this.readTimeout;
+	}
+
+	ScheduledExecutorService getTimeoutScheduler() {
+		if (this.timeoutScheduler == null) {
+			synchronized (this) {
+				if (this.timeoutScheduler == null) {
+					ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+							new DaemonThreadFactory(getClass().getSimpleName() + "-timeout-"));
+					scheduler.setRemoveOnCancelPolicy(true);
+					this.timeoutScheduler = scheduler;
+				}
+			}
+		}
+		return this.timeoutScheduler;
+	}
+
+
+	@Override
+	public void destroy() throws IOException {
+		for (ConnectionPool pool : this.connectionPools.values()) {
+			pool.closeIdleConnections();
+		}
+		this.connectionPools.clear();
+		if (this.timeoutScheduler != null) {
+			this.timeoutScheduler.shutdownNow();
+		}
+		if (this.defaultChannelGroup) {
+			// Clean up the AsynchronousChannelGroup if we created it in the constructor
+			this.channelGroup.shutdownNow();
+		}
+	}
+
+
+	/**
+	 * An open connection, along with the buffer used to read from it.
+	 */
+	static class Connection {
+
+		private final AsynchronousSocketChannel channel;
+
+		private final ByteBuffer readBuffer = ByteBuffer.allocate(8192);
+
+		private long lastUsed;
+
+		public Connection(AsynchronousSocketChannel channel) {
+			this.channel = channel;
+		}
+
+		public AsynchronousSocketChannel getChannel() {
+			return this.channel;
+		}
+
+		public ByteBuffer getReadBuffer() {
+			return this.readBuffer;
+		}
+
+		public void close() {
+			try {
+				this.channel.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
+
+	/**
+	 * Callback for a request waiting on a {@link ConnectionPool}.
+	 */
+	interface ConnectionCallback {
+
+		/**
+		 * Invoked with a pooled connection to use, or with {@code null}
+		 * if a new connection should be opened.
+		 */
+		void connectionAvailable(Connection connection);
+	}
+
+
+	/**
+	 * Pool of the connections to a single host and port.
+	 */
+	class ConnectionPool {
+
+		private final String host;
+
+		private final int port;
+
+		private final Deque<Connection> idleConnections = new ArrayDeque<Connection>();
+
+		private final Queue<ConnectionCallback> waiting = new ArrayDeque<ConnectionCallback>();
+
+		private int openConnections;
+
+		public ConnectionPool(String host, int port) {
+			this.host = host;
+			this.port = port;
+		}
+
+		public String getHost() {
+			return this.host;
+		}
+
+		public int getPort() {
+			return this.port;
+		}
+
+		/**
+		 * Obtain a connection for the given callback, either right away or
+		 * as soon as a connection becomes available.
+		 */
+		public void acquire(ConnectionCallback callback) {
+			Connection connection = null;
+			List<Connection> expired = null;
+			synchronized (this) {
+				long now = System.currentTimeMillis();
+				while ((connection = this.idleConnections.pollFirst()) != null) {
+					if (connection.getChannel().isOpen() &&
+							(idleTimeout <= 0 || now - connection.lastUsed < idleTimeout)) {
+						break;
+					}
+					if (expired == null) {
+						expired = new ArrayList<Connection>();
+					}
+					expired.add(connection);
+					this.openConnections--;
+				}
+				if (connection == null) {
+					if (maxConnectionsPerHost > 0 && this.openConnections >= maxConnectionsPerHost) {
+						this.waiting.add(callback);
+						callback = null;
+					}
+					else {
+						this.openConnections++;
+					}
+				}
+			}
+			closeAll(expired);
+			if (callback != null) {
+				callback.connectionAvailable(connection);
+			}
+		}
+
+		/**
+		 * Release a connection once its response has been read, either
+		 * keeping it for reuse or closing it.
+		 * @param connection the connection, or {@code null} if it could not
+		 * be opened in the first place
+		 * @param reusable whether the connection may be reused
+		 */
+		public void release(Connection connection, boolean reusable) {
+			ConnectionCallback next;
+			synchronized (this) {
+				next = this.waiting.poll();
+				if (!reusable || connection == null) {
+					if (next == null) {
+						this.openConnections--;
+					}
+				}
+				else if (next == null) {
+					if (this.idleConnections.size() < maxIdleConnectionsPerHost) {
+						connection.lastUsed = System.currentTimeMillis();
+						this.idleConnections.addFirst(connection);
+						return;
+					}
+					this.openConnections--;
+					reusable = false;
+				}
+			}
+			if (!reusable && connection != null) {
+				connection.close();
+			}
+			if (next != null) {
+				// The slot of the released connection passes on to the next request
+				next.connectionAvailable(reusable ? connection : null);
+			}
+		}
+
+		public void closeIdleConnections() {
+			List<Connection> connections;
+			synchronized (this) {
+				connections = new ArrayList<Connection>(this.idleConnections);
+				this.openConnections -= this.idleConnections.size();
+				this.idleConnections.clear();
+			}
+			closeAll(connections);
+		}
+
+		private void closeAll(List<Connection> connections) {
+			if (connections != null) {
+				for (Connection connection : connections) {
+					connection.close();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * ThreadFactory for the daemon threads used by this factory.
+	 */
+	@SuppressWarnings("serial")
+	private static class DaemonThreadFactory extends CustomizableThreadCreator implements ThreadFactory {
+
+		public DaemonThreadFactory(String threadNamePrefix) {
+			super(threadNamePrefix);
+			setDaemon(true);
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			return createThread(runnable);
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * {@link ClientHttpResponse} implementation for the {@link NioClientHttpRequestFactory}.
+ *
+ * <p>The response body has been read in full by the time this response is
+ * created, and the underlying connection released to its pool.
+ *
+ * @since 4.3.25
+ */
+class NioClientHttpResponse extends AbstractClientHttpResponse {
+
+	private final int statusCode;
+
+	private final String statusText;
+
+	private final HttpHeaders headers;
+
+	private final InputStream body;
+
+
+	public NioClientHttpResponse(int statusCode, String statusText, HttpHeaders headers, byte[] body) {
+		this.statusCode = statusCode;
+		this.statusText = statusText;
+		this.headers = headers;
+		this.body = new ByteArrayInputStream(body);
+	}
+
+
+	@Override
+	public int getRawStatusCode() throws IOException {
+		return this.statusCode;
+	}
+
+	@Override
+	public String getStatusText() throws IOException {
+		return this.statusText;
+	}
+
+	@Override
+	public HttpHeaders getHeaders() {
+		return this.headers;
+	}
+
+	@Override
+	public InputStream getBody() throws IOException {
+		return this.body;
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
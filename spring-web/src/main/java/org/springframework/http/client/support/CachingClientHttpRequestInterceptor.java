@@ -0,0 +1,661 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * {@link ClientHttpRequestInterceptor} and {@link AsyncClientHttpRequestInterceptor}
+ * that caches the responses to {@code GET} requests, and collapses identical
+ * {@code GET} requests in flight into a single call.
+ *
+ * <p>Responses with a {@code 200} status are cached as long as they are fresh
+ * according to their {@code Cache-Control: max-age} (or {@code s-maxage})
+ * directive or {@code Expires} header. Stale responses, as well as responses
+ * marked {@code no-cache}, are kept if they carry an {@code ETag} or
+ * {@code Last-Modified} header, and revalidated with a conditional request:
+ * a {@code 304 Not Modified} answer is served from the cache. Responses
+ * marked {@code no-store} or {@code private} are not cached, and {@code Vary}
+ * headers are honored.
+ *
+ * <p>While a request is in flight, identical requests (same URI and headers)
+ * wait for its response rather than making their own call. Response bodies are
+ * read fully into memory if they are cached, or if identical requests wait for
+ * them, while other responses are returned as they are.
+ *
+ * <p>Since an instance is typically shared by all callers of a
+ * {@code RestTemplate}, requests that carry an {@code Authorization} header,
+ * that are conditional, or that ask for {@code no-cache} or {@code no-store}
+ * pass through unchanged. Note that this interceptor only sees headers added
+ * by interceptors that precede it.
+ *
+ * <p>Cached entries are evicted in least recently used order once the total
+ * size of the cached bodies exceeds the {@linkplain #setMaxCacheSize maximum
+ * cache size}.
+ *
+ * @since 4.3.25
+ */
+public class CachingClientHttpRequestInterceptor implements ClientHttpRequestInterceptor,
+		AsyncClientHttpRequestInterceptor {
+
+	/**
+	 * The default maximum cache size in bytes.
+	 * @see #setMaxCacheSize(long)
+	 */
+	public static final long DEFAULT_MAX_CACHE_SIZE = 10 * 1024 * 1024;
+
+
+	private long maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+	private final Map<String, CachedResponse> cache = new LinkedHashMap<String, CachedResponse>(64, 0.75f, true);
+
+	private long cacheSize;
+
+	private final ConcurrentMap<String, RequestInFlight> requestsInFlight =
+			new ConcurrentHashMap<String, RequestInFlight>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+
+	/**
+	 * Set the maximum total size, in bytes, of the cached response bodies.
+	 * A value of 0 disables caching, while still collapsing requests in flight.
+	 * <p>By default this is set to {@link #DEFAULT_MAX_CACHE_SIZE}.
+	 */
+	public void setMaxCacheSize(long maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+		synchronized (this.cache) {
+			evictIfNecessary();
+		}
+	}
+
+	/**
+	 * Return the maximum total size, in bytes, of the cached response bodies.
+	 */
+	public long getMaxCacheSize() {
+		return this.maxCacheSize;
+	}
+
+	/**
+	 * Return the number of requests served from the cache, either directly
+	 * or after a successful revalidation.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/**
+	 * Return the number of cacheable requests that received a new response.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	/**
+	 * Return the number of requests that were collapsed into an identical
+	 * request in flight.
+	 */
+	public long getCoalescedCount() {
+		return this.coalescedCount.get();
+	}
+
+	/**
+	 * Remove all cached responses.
+	 */
+	public void clearCache() {
+		synchronized (this.cache) {
+			this.cache.clear();
+			this.cacheSize = 0;
+		}
+	}
+
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+			ClientHttpRequestExecution execution) throws IOException {
+
+		if (!isCacheable(request)) {
+			return execution.execute(request, body);
+		}
+		String cacheKey = request.getURI().toString();
+		CachedResponse cachedResponse = getCachedResponse(cacheKey, request);
+		if (cachedResponse != null && cachedResponse.isFresh()) {
+			this.hitCount.incrementAndGet();
+			return cachedResponse.createResponse();
+		}
+		String requestKey = getRequestKey(request);
+		RequestInFlight inFlight = new RequestInFlight();
+		RequestInFlight existing = this.requestsInFlight.putIfAbsent(requestKey, inFlight);
+		if (existing != null) {
+			if (existing.join()) {
+				this.coalescedCount.incrementAndGet();
+				return awaitResponse(existing.future);
+			}
+			// Response about to be returned unbuffered to its caller
+			return execution.execute(request, body);
+		}
+		try {
+			addConditionalHeaders(request, cachedResponse);
+			ClientHttpResponse response = execution.execute(request, body);
+			CachedResponse result = handleResponse(cacheKey, request, cachedResponse, response, inFlight);
+			this.requestsInFlight.remove(requestKey, inFlight);
+			if (result == null) {
+				return response;
+			}
+			inFlight.future.set(result);
+			return result.createResponse();
+		}
+		catch (IOException ex) {
+			this.requestsInFlight.remove(requestKey, inFlight);
+			inFlight.future.setException(ex);
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			this.requestsInFlight.remove(requestKey, inFlight);
+			inFlight.future.setException(ex);
+			throw ex;
+		}
+	}
+
+	@Override
+	public ListenableFuture<ClientHttpResponse> intercept(final HttpRequest request, byte[] body,
+			AsyncClientHttpRequestExecution execution) throws IOException {
+
+		if (!isCacheable(request)) {
+			return execution.executeAsync(request, body);
+		}
+		final String cacheKey = request.getURI().toString();
+		final CachedResponse cachedResponse = getCachedResponse(cacheKey, request);
+		if (cachedResponse != null && cachedResponse.isFresh()) {
+			this.hitCount.incrementAndGet();
+			SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<ClientHttpResponse>();
+			result.set(cachedResponse.createResponse());
+			return result;
+		}
+		final String requestKey = getRequestKey(request);
+		final RequestInFlight inFlight = new RequestInFlight();
+		RequestInFlight existing = this.requestsInFlight.putIfAbsent(requestKey, inFlight);
+		if (existing != null) {
+			if (existing.join()) {
+				this.coalescedCount.incrementAndGet();
+				return createResponseFuture(existing.future);
+			}
+			// Response about to be returned unbuffered to its caller
+			return execution.executeAsync(request, body);
+		}
+		ListenableFuture<ClientHttpResponse> responseFuture;
+		try {
+			addConditionalHeaders(request, cachedResponse);
+			responseFuture = execution.executeAsync(request, body);
+		}
+		catch (IOException ex) {
+			this.requestsInFlight.remove(requestKey, inFlight);
+			inFlight.future.setException(ex);
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			this.requestsInFlight.remove(requestKey, inFlight);
+			inFlight.future.setException(ex);
+			throw ex;
+		}
+		final SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<ClientHttpResponse>();
+		responseFuture.addCallback(new ListenableFutureCallback<ClientHttpResponse>() {
+			@Override
+			public void onSuccess(ClientHttpResponse response) {
+				CachedResponse cached;
+				try {
+					cached = handleResponse(cacheKey, request, cachedResponse, response, inFlight);
+				}
+				catch (Throwable ex) {
+					onFailure(ex);
+					return;
+				}
+				requestsInFlight.remove(requestKey, inFlight);
+				if (cached == null) {
+					result.set(response);
+				}
+				else {
+					inFlight.future.set(cached);
+					result.set(cached.createResponse());
+				}
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				requestsInFlight.remove(requestKey, inFlight);
+				inFlight.future.setException(ex);
+				result.setException(ex);
+			}
+		});
+		return result;
+	}
+
+
+	/**
+	 * Whether the given request may be served from the cache, or collapsed
+	 * into an identical request in flight.
+	 */
+	protected boolean isCacheable(HttpRequest request) {
+		if (request.getMethod() != HttpMethod.GET) {
+			return false;
+		}
+		HttpHeaders headers = request.getHeaders();
+		if (headers.containsKey(HttpHeaders.AUTHORIZATION) || headers.containsKey(HttpHeaders.RANGE) ||
+				headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)) {
+			return false;
+		}
+		Map<String, String> cacheControl = getDirectives(headers.getCacheControl());
+		if (cacheControl.containsKey("no-cache") || cacheControl.containsKey("no-store")) {
+			return false;
+		}
+		return !getDirectives(headers.getPragma()).containsKey("no-cache");
+	}
+
+	private String getRequestKey(HttpRequest request) {
+		return request.getURI() + " " + request.getHeaders();
+	}
+
+	private void addConditionalHeaders(HttpRequest request, CachedResponse cachedResponse) {
+		if (cachedResponse != null) {
+			HttpHeaders headers = cachedResponse.getHeaders();
+			if (headers.getETag() != null) {
+				request.getHeaders().set(HttpHeaders.IF_NONE_MATCH, headers.getETag());
+			}
+			if (headers.containsKey(HttpHeaders.LAST_MODIFIED)) {
+				request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, headers.getFirst(HttpHeaders.LAST_MODIFIED));
+			}
+		}
+	}
+
+	/**
+	 * Cache the given response if possible, and buffer it if cached or if
+	 * identical requests wait for it.
+	 * @return the buffered response, or {@code null} if the response is to be
+	 * returned as it is
+	 */
+	private CachedResponse handleResponse(String cacheKey, HttpRequest request, CachedResponse cachedResponse,
+			ClientHttpResponse response, RequestInFlight inFlight) throws IOException {
+
+		boolean close = true;
+		try {
+			int statusCode = response.getRawStatusCode();
+			if (cachedResponse != null && statusCode == HttpStatus.NOT_MODIFIED.value()) {
+				this.hitCount.incrementAndGet();
+				CachedResponse revalidated = cachedResponse.revalidate(response.getHeaders());
+				putCachedResponse(cacheKey, revalidated);
+				return revalidated;
+			}
+			this.missCount.incrementAndGet();
+			HttpHeaders headers = response.getHeaders();
+			long expirationTime = getExpirationTime(headers);
+			boolean store = (statusCode == HttpStatus.OK.value() && isStorable(headers, expirationTime) &&
+					headers.getContentLength() <= this.maxCacheSize);
+			if (!store) {
+				if (cachedResponse != null) {
+					removeCachedResponse(cacheKey);
+				}
+				if (inFlight.closeIfNoWaiters()) {
+					close = false;
+					return null;
+				}
+			}
+			byte[] body = StreamUtils.copyToByteArray(response.getBody());
+			CachedResponse result = new CachedResponse(statusCode, response.getStatusText(), headers,
+					body, getVaryValues(request, headers), expirationTime);
+			if (store) {
+				putCachedResponse(cacheKey, result);
+			}
+			return result;
+		}
+		finally {
+			if (close) {
+				response.close();
+			}
+		}
+	}
+
+	private ClientHttpResponse awaitResponse(ListenableFuture<CachedResponse> future) throws IOException {
+		try {
+			return future.get().createResponse();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for identical request in flight", ex);
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else {
+				throw new IOException(cause.getMessage(), cause);
+			}
+		}
+	}
+
+	private ListenableFuture<ClientHttpResponse> createResponseFuture(ListenableFuture<CachedResponse> future) {
+		// A separate future per caller, so that cancelling one leaves the others unaffected
+		final SettableListenableFuture<ClientHttpResponse> result = new SettableListenableFuture<ClientHttpResponse>();
+		future.addCallback(new ListenableFutureCallback<CachedResponse>() {
+			@Override
+			public void onSuccess(CachedResponse cachedResponse) {
+				result.set(cachedResponse.createResponse());
+			}
+			@Override
+			public void onFailure(Throwable ex) {
+				result.setException(ex);
+			}
+		});
+		return result;
+	}
+
+
+	private CachedResponse getCachedResponse(String cacheKey, HttpRequest request) {
+		CachedResponse cachedResponse;
+		synchronized (this.cache) {
+			cachedResponse = this.cache.get(cacheKey);
+		}
+		return (cachedResponse != null && cachedResponse.matches(request) ? cachedResponse : null);
+	}
+
+	private void putCachedResponse(String cacheKey, CachedResponse cachedResponse) {
+		synchronized (this.cache) {
+			CachedResponse previous = this.cache.remove(cacheKey);
+			if (previous != null) {
+				this.cacheSize -= previous.getSize();
+			}
+			if (cachedResponse.getSize() <= this.maxCacheSize) {
+				this.cache.put(cacheKey, cachedResponse);
+				this.cacheSize += cachedResponse.getSize();
+				evictIfNecessary();
+			}
+		}
+	}
+
+	private void removeCachedResponse(String cacheKey) {
+		synchronized (this.cache) {
+			CachedResponse previous = this.cache.remove(cacheKey);
+			if (previous != null) {
+				this.cacheSize -= previous.getSize();
+			}
+		}
+	}
+
+	private void evictIfNecessary() {
+		Iterator<CachedResponse> iterator = this.cache.values().iterator();
+		while (this.cacheSize > this.maxCacheSize && iterator.hasNext()) {
+			this.cacheSize -= iterator.next().getSize();
+			iterator.remove();
+		}
+	}
+
+
+	private static Map<String, List<String>> getVaryValues(HttpRequest request, HttpHeaders headers) {
+		List<String> vary = headers.getVary();
+		if (vary.isEmpty()) {
+			return null;
+		}
+		Map<String, List<String>> varyValues = new LinkedHashMap<String, List<String>>(vary.size());
+		for (String name : vary) {
+			varyValues.put(name, request.getHeaders().get(name));
+		}
+		return varyValues;
+	}
+
+	/**
+	 * Parse the given {@code Cache-Control} or {@code Pragma} header value into
+	 * a map of lower-case directive names to their (possibly {@code null})
+	 * argument. A field-qualified directive such as {@code no-cache="Set-Cookie"}
+	 * is keyed by its plain name, and thus handled like its unqualified form.
+	 */
+	private static Map<String, String> getDirectives(String headerValue) {
+		if (headerValue == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> directives = new LinkedHashMap<String, String>();
+		for (String directive : StringUtils.tokenizeToStringArray(headerValue.toLowerCase(), ",")) {
+			int index = directive.indexOf('=');
+			if (index == -1) {
+				directives.put(directive, null);
+			}
+			else {
+				directives.put(directive.substring(0, index).trim(), directive.substring(index + 1).trim());
+			}
+		}
+		return directives;
+	}
+
+	private static long getExpirationTime(HttpHeaders headers) {
+		long now = System.currentTimeMillis();
+		Map<String, String> cacheControl = getDirectives(headers.getCacheControl());
+		if (cacheControl.containsKey("no-cache")) {
+			return 0;
+		}
+		long maxAge = parseSeconds(cacheControl.get("s-maxage"));
+		if (maxAge < 0) {
+			maxAge = parseSeconds(cacheControl.get("max-age"));
+		}
+		if (maxAge >= 0) {
+			return now + maxAge * 1000;
+		}
+		long expires = headers.getExpires();
+		if (expires != -1) {
+			long date;
+			try {
+				date = headers.getDate();
+			}
+			catch (IllegalArgumentException ex) {
+				date = -1;
+			}
+			return now + (expires - (date != -1 ? date : now));
+		}
+		return 0;
+	}
+
+	private static long parseSeconds(String value) {
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(StringUtils.trimAllWhitespace(value).replace("\"", ""));
+		}
+		catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	private static boolean isStorable(HttpHeaders headers, long expirationTime) {
+		Map<String, String> cacheControl = getDirectives(headers.getCacheControl());
+		if (cacheControl.containsKey("no-store") || cacheControl.containsKey("private")) {
+			return false;
+		}
+		if (headers.getVary().contains("*")) {
+			return false;
+		}
+		return (expirationTime > System.currentTimeMillis() || headers.getETag() != null ||
+				headers.containsKey(HttpHeaders.LAST_MODIFIED));
+	}
+
+
+	/**
+	 * A request in flight, along with the number of identical requests waiting
+	 * for its response.
+	 */
+	private static class RequestInFlight {
+
+		private final SettableListenableFuture<CachedResponse> future = new SettableListenableFuture<CachedResponse>();
+
+		// -1 once the response is returned unbuffered, and no request can join anymore
+		private final AtomicInteger waiters = new AtomicInteger();
+
+		/**
+		 * Wait for the response of this request.
+		 * @return {@code false} if the response is not going to be buffered
+		 */
+		public boolean join() {
+			while (true) {
+				int count = this.waiters.get();
+				if (count < 0) {
+					return false;
+				}
+				if (this.waiters.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Prevent any further request from joining, unless some have already.
+		 * @return {@code true} if no request waits for the response
+		 */
+		public boolean closeIfNoWaiters() {
+			return this.waiters.compareAndSet(0, -1);
+		}
+	}
+
+
+	/**
+	 * A buffered response, along with the information to decide whether it
+	 * may be reused.
+	 */
+	private static class CachedResponse {
+
+		private final int statusCode;
+
+		private final String statusText;
+
+		private final HttpHeaders headers;
+
+		private final byte[] body;
+
+		private final Map<String, List<String>> varyValues;
+
+		private final long expirationTime;
+
+		public CachedResponse(int statusCode, String statusText, HttpHeaders headers, byte[] body,
+				Map<String, List<String>> varyValues, long expirationTime) {
+
+			this.statusCode = statusCode;
+			this.statusText = statusText;
+			this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+			this.body = body;
+			this.varyValues = varyValues;
+			this.expirationTime = expirationTime;
+		}
+
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		public long getSize() {
+			return this.body.length;
+		}
+
+		public boolean isFresh() {
+			return (this.expirationTime > System.currentTimeMillis());
+		}
+
+		public boolean matches(HttpRequest request) {
+			if (this.varyValues != null) {
+				for (Map.Entry<String, List<String>> entry : this.varyValues.entrySet()) {
+					if (!ObjectUtils.nullSafeEquals(entry.getValue(), request.getHeaders().get(entry.getKey()))) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Return a copy of this response, with the headers updated from the
+		 * given {@code 304 Not Modified} response headers.
+		 */
+		public CachedResponse revalidate(HttpHeaders notModifiedHeaders) {
+			HttpHeaders headers = new HttpHeaders();
+			headers.putAll(this.headers);
+			for (Map.Entry<String, List<String>> entry : notModifiedHeaders.entrySet()) {
+				if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey()) &&
+						!HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(entry.getKey())) {
+					headers.put(entry.getKey(), entry.getValue());
+				}
+			}
+			return new CachedResponse(this.statusCode, this.statusText, headers, this.body,
+					this.varyValues, getExpirationTime(headers));
+		}
+
+		public ClientHttpResponse createResponse() {
+			return new AbstractClientHttpResponse() {
+				private final InputStream body = new ByteArrayInputStream(CachedResponse.this.body);
+				@Override
+				public int getRawStatusCode() {
+					return statusCode;
+				}
+				@Override
+				public String getStatusText() {
+					return statusText;
+				}
+				@Override
+				public HttpHeaders getHeaders() {
+					return headers;
+				}
+				@Override
+				public InputStream getBody() {
+					return this.body;
+				}
+				@Override
+				public void close() {
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+
+/**
+ * Cache of memory-mapped file contents, used by {@link ResourceHttpMessageConverter}
+ * and {@link ResourceRegionHttpMessageConverter} to serve small, frequently
+ * requested files without opening and reading them for every request.
+ *
+ * <p>Only files up to the {@linkplain #setMaxResourceSize maximum resource size}
+ * are cached. Entries are evicted in least recently used order once the total
+ * size of the mapped files exceeds the cache limit, and are mapped again when
+ * the length or last-modified time of a file changes.
+ *
+ * <p>Note that a file must not be truncated in place while it is mapped:
+ * static assets should be replaced rather than rewritten. Also, the memory of
+ * an evicted mapping is only released once the mapped buffer is garbage collected.
+ *
+ * @since 4.3.25
+ */
+public class MappedResourceCache {
+
+	/**
+	 * The default maximum size of a cached file in bytes.
+	 * @see #setMaxResourceSize(long)
+	 */
+	public static final long DEFAULT_MAX_RESOURCE_SIZE = 64 * 1024;
+
+
+	private final long cacheLimit;
+
+	private long maxResourceSize = DEFAULT_MAX_RESOURCE_SIZE;
+
+	private final Map<String, MappedContent> cache = new LinkedHashMap<String, MappedContent>(64, 0.75f, true);
+
+	private long cacheSize;
+
+
+	/**
+	 * Create a new {@code MappedResourceCache}.
+	 * @param cacheLimit the maximum total size of the mapped files in bytes
+	 */
+	public MappedResourceCache(long cacheLimit) {
+		Assert.isTrue(cacheLimit > 0, "'cacheLimit' must be greater than 0");
+		this.cacheLimit = cacheLimit;
+	}
+
+
+	/**
+	 * Return the maximum total size of the mapped files in bytes.
+	 */
+	public long getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Set the maximum size of a file to cache, in bytes. Larger files are
+	 * not mapped.
+	 * <p>By default this is set to {@link #DEFAULT_MAX_RESOURCE_SIZE}.
+	 */
+	public void setMaxResourceSize(long maxResourceSize) {
+		this.maxResourceSize = maxResourceSize;
+	}
+
+	/**
+	 * Return the maximum size of a file to cache, in bytes.
+	 */
+	public long getMaxResourceSize() {
+		return this.maxResourceSize;
+	}
+
+	/**
+	 * Return the total size of the currently mapped files in bytes.
+	 */
+	public long getCacheSize() {
+		synchronized (this.cache) {
+			return this.cacheSize;
+		}
+	}
+
+	/**
+	 * Return the content of the given file, mapping it if necessary.
+	 * @param file the file
+	 * @return a read-only buffer with the content of the file, positioned at 0,
+	 * or {@code null} if the file is empty, too large to cache, or not a file
+	 * @throws IOException if the file could not be mapped
+	 */
+	public ByteBuffer getContent(File file) throws IOException {
+		long length = file.length();
+		if (length == 0 || length > this.maxResourceSize || length > this.cacheLimit) {
+			return null;
+		}
+		long lastModified = file.lastModified();
+		String key = file.getPath();
+		MappedContent content;
+		synchronized (this.cache) {
+			content = this.cache.get(key);
+		}
+		if (content == null || content.length != length || content.lastModified != lastModified) {
+			if (!file.isFile()) {
+				return null;
+			}
+			content = new MappedContent(map(file, length), length, lastModified);
+			putContent(key, content);
+		}
+		return content.buffer.duplicate();
+	}
+
+	/**
+	 * Remove all mapped files from this cache.
+	 */
+	public void clear() {
+		synchronized (this.cache) {
+			this.cache.clear();
+			this.cacheSize = 0;
+		}
+	}
+
+	private MappedByteBuffer map(File file, long length) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+		}
+		finally {
+			try {
+				randomAccessFile.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
+	private void putContent(String key, MappedContent content) {
+		synchronized (this.cache) {
+			MappedContent previous = this.cache.put(key, content);
+			if (previous != null) {
+				this.cacheSize -= previous.length;
+			}
+			this.cacheSize += content.length;
+			Iterator<MappedContent> iterator = this.cache.values().iterator();
+			while (this.cacheSize > this.cacheLimit && iterator.hasNext()) {
+				this.cacheSize -= iterator.next().length;
+				iterator.remove();
+			}
+		}
+	}
+
+
+	private static class MappedContent {
+
+		private final ByteBuffer buffer;
+
+		private final long length;
+
+		private final long lastModified;
+
+		public MappedContent(ByteBuffer buffer, long length, long lastModified) {
+			this.buffer = buffer;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.http.converter;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,6 +38,13 @@ import org.springframework.util.StreamUtils;
  * if available - is used to determine the {@code Content-Type} of written resources.
  * If JAF is not available, {@code application/octet-stream} is used.
  *
+ * <p>The content of file-based resources, i.e. a
+ * {@link org.springframework.core.io.FileSystemResource}, a
+ * {@link org.springframework.core.io.PathResource}, or a {@code file:} URL, is written with
+ * {@link java.nio.channels.FileChannel#transferTo} if the response body stream
+ * is a {@link java.nio.channels.WritableByteChannel}, and can be served from a
+ * {@link #setMappedResourceCache MappedResourceCache}.
+ *
  * @author Arjen Poutsma
  * @author Juergen Hoeller
  * @author Kazuki Shimizu
@@ -48,11 +56,33 @@ public class ResourceHttpMessageConverter extends AbstractHttpMessageConverter<R
 			"javax.activation.FileTypeMap", ResourceHttpMessageConverter.class.getClassLoader());
 
 
+	private MappedResourceCache mappedResourceCache;
+
+
 	public ResourceHttpMessageConverter() {
 		super(MediaType.ALL);
 	}
 
 
+	/**
+	 * Set the cache of memory-mapped files to serve the content of small
+	 * file-based resources from.
+	 * <p>By default no cache is used.
+	 * @since 4.3.25
+	 */
+	public void setMappedResourceCache(MappedResourceCache mappedResourceCache) {
+		this.mappedResourceCache = mappedResourceCache;
+	}
+
+	/**
+	 * Return the configured cache of memory-mapped files, if any.
+	 * @since 4.3.25
+	 */
+	public MappedResourceCache getMappedResourceCache() {
+		return this.mappedResourceCache;
+	}
+
+
 	@Override
 	protected boolean supports(Class<?> clazz) {
 		return Resource.class.isAssignableFrom(clazz);
@@ -105,6 +135,11 @@ public class ResourceHttpMessageConverter extends AbstractHttpMessageConverter<R
 	protected void writeContent(Resource resource, HttpOutputMessage outputMessage)
 			throws IOException, HttpMessageNotWritableException {
 		try {
+			File file = ResourceTransferUtils.getFile(resource);
+			if (file != null && ResourceTransferUtils.transfer(
+					file, 0, Long.MAX_VALUE, outputMessage.getBody(), this.mappedResourceCache)) {
+				return;
+			}
 			InputStream in = resource.getInputStream();
 			try {
 				StreamUtils.copy(in, outputMessage.getBody());
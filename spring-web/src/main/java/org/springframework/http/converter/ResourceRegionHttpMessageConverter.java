@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.http.converter;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -23,6 +24,7 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
+import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
@@ -37,6 +39,13 @@ import org.springframework.util.StreamUtils;
  * Implementation of {@link HttpMessageConverter} that can write a single {@link ResourceRegion},
  * or Collections of {@link ResourceRegion ResourceRegions}.
  *
+ * <p>Regions of file-based resources, i.e. a
+ * {@link org.springframework.core.io.FileSystemResource}, a
+ * {@link org.springframework.core.io.PathResource}, or a {@code file:} URL, are written with
+ * {@link java.nio.channels.FileChannel#transferTo} if the response body stream
+ * is a {@link java.nio.channels.WritableByteChannel}, and can be served from a
+ * {@link #setMappedResourceCache MappedResourceCache}.
+ *
  * @author Brian Clozel
  * @author Juergen Hoeller
  * @since 4.3
@@ -46,11 +55,34 @@ public class ResourceRegionHttpMessageConverter extends AbstractGenericHttpMessa
 	private static final boolean jafPresent = ClassUtils.isPresent(
 			"javax.activation.FileTypeMap", ResourceHttpMessageConverter.class.getClassLoader());
 
+
+	private MappedResourceCache mappedResourceCache;
+
+
 	public ResourceRegionHttpMessageConverter() {
 		super(MediaType.ALL);
 	}
 
 
+	/**
+	 * Set the cache of memory-mapped files to serve regions of small
+	 * file-based resources from.
+	 * <p>By default no cache is used.
+	 * @since 4.3.25
+	 */
+	public void setMappedResourceCache(MappedResourceCache mappedResourceCache) {
+		this.mappedResourceCache = mappedResourceCache;
+	}
+
+	/**
+	 * Return the configured cache of memory-mapped files, if any.
+	 * @since 4.3.25
+	 */
+	public MappedResourceCache getMappedResourceCache() {
+		return this.mappedResourceCache;
+	}
+
+
 	@Override
 	@SuppressWarnings("unchecked")
 	protected MediaType getDefaultContentType(Object object) {
@@ -153,18 +185,7 @@ public class ResourceRegionHttpMessageConverter extends AbstractGenericHttpMessa
 		responseHeaders.add("Content-Range", "bytes " + start + '-' + end + '/' + resourceLength);
 		responseHeaders.setContentLength(rangeLength);
 
-		InputStream in = region.getResource().getInputStream();
-		try {
-			StreamUtils.copyRange(in, outputMessage.getBody(), start, end);
-		}
-		finally {
-			try {
-				in.close();
-			}
-			catch (IOException ex) {
-				// ignore
-			}
-		}
+		writeRegionContent(region.getResource(), start, end, outputMessage.getBody());
 	}
 
 	private void writeResourceRegionCollection(Collection<ResourceRegion> resourceRegions,
@@ -181,38 +202,46 @@ public class ResourceRegionHttpMessageConverter extends AbstractGenericHttpMessa
 		for (ResourceRegion region : resourceRegions) {
 			long start = region.getPosition();
 			long end = start + region.getCount() - 1;
-			InputStream in = region.getResource().getInputStream();
-			try {
-				// Writing MIME header.
+			// Writing MIME header.
+			println(out);
+			print(out, "--" + boundaryString);
+			println(out);
+			if (contentType != null) {
+				print(out, "Content-Type: " + contentType.toString());
 				println(out);
-				print(out, "--" + boundaryString);
-				println(out);
-				if (contentType != null) {
-					print(out, "Content-Type: " + contentType.toString());
-					println(out);
-				}
-				Long resourceLength = region.getResource().contentLength();
-				end = Math.min(end, resourceLength - 1);
-				print(out, "Content-Range: bytes " + start + '-' + end + '/' + resourceLength);
-				println(out);
-				println(out);
-				// Printing content
-				StreamUtils.copyRange(in, out, start, end);
-			}
-			finally {
-				try {
-					in.close();
-				}
-				catch (IOException ex) {
-					// ignore
-				}
 			}
+			Long resourceLength = region.getResource().contentLength();
+			end = Math.min(end, resourceLength - 1);
+			print(out, "Content-Range: bytes " + start + '-' + end + '/' + resourceLength);
+			println(out);
+			println(out);
+			// Printing content
+			writeRegionContent(region.getResource(), start, end, out);
 		}
 
 		println(out);
 		print(out, "--" + boundaryString + "--");
 	}
 
+	private void writeRegionContent(Resource resource, long start, long end, OutputStream out) throws IOException {
+		File file = ResourceTransferUtils.getFile(resource);
+		if (file != null && ResourceTransferUtils.transfer(file, start, end - start + 1, out, this.mappedResourceCache)) {
+			return;
+		}
+		InputStream in = resource.getInputStream();
+		try {
+			StreamUtils.copyRange(in, out, start, end);
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
 	private static void println(OutputStream os) throws IOException {
 		os.write('\r');
 		os.write('\n');
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.converter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.PathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Write the content of file-based {@link Resource Resources} through
+ * {@link FileChannel#transferTo} when the target stream is also a channel,
+ * or from a {@link MappedResourceCache}.
+ *
+ * @since 4.3.25
+ */
+abstract class ResourceTransferUtils {
+
+	private static final boolean pathPresent = ClassUtils.isPresent(
+			"java.nio.file.Path", ResourceTransferUtils.class.getClassLoader());
+
+
+	/**
+	 * Return the file behind the given resource, if it is a
+	 * {@link FileSystemResource}, a {@link PathResource}, or a {@link UrlResource}
+	 * for a {@code file:} URL (as resolved from "file:" resource locations).
+	 * @return the file, or {@code null} if not file-based
+	 */
+	public static File getFile(Resource resource) {
+		if (resource instanceof FileSystemResource) {
+			return ((FileSystemResource) resource).getFile();
+		}
+		try {
+			if ((pathPresent && resource instanceof PathResource) ||
+					(resource instanceof UrlResource && ResourceUtils.isFileURL(resource.getURL()))) {
+				return resource.getFile();
+			}
+		}
+		catch (IOException ex) {
+			// not on the default file system
+		}
+		return null;
+	}
+
+	/**
+	 * Write the given range of the file to the given stream, if possible
+	 * without copying it through an intermediate buffer.
+	 * @param file the file to write
+	 * @param position the position of the first byte to write
+	 * @param count the maximum number of bytes to write
+	 * @param out the stream to write to
+	 * @param cache the cache of mapped files to use (may be {@code null})
+	 * @return {@code true} if the content has been written, or {@code false}
+	 * if it should be copied from the resource's {@code InputStream} instead
+	 */
+	public static boolean transfer(File file, long position, long count, OutputStream out,
+			MappedResourceCache cache) throws IOException {
+
+		if (cache != null) {
+			ByteBuffer content = cache.getContent(file);
+			if (content != null) {
+				int start = (int) Math.min(position, content.limit());
+				int end = (count < content.limit() - start ? (int) (start + count) : content.limit());
+				content.limit(end).position(start);
+				write(content, out);
+				return true;
+			}
+		}
+		WritableByteChannel channel = getChannel(out);
+		if (channel == null) {
+			return false;
+		}
+		FileInputStream in = new FileInputStream(file);
+		try {
+			out.flush();
+			FileChannel fileChannel = in.getChannel();
+			while (count > 0) {
+				long transferred = fileChannel.transferTo(position, count, channel);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+				count -= transferred;
+			}
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+		return true;
+	}
+
+	private static void write(ByteBuffer content, OutputStream out) throws IOException {
+		WritableByteChannel channel = getChannel(out);
+		if (channel != null) {
+			out.flush();
+			while (content.hasRemaining()) {
+				channel.write(content);
+			}
+		}
+		else {
+			byte[] buffer = new byte[Math.min(content.remaining(), StreamUtils.BUFFER_SIZE)];
+			while (content.hasRemaining()) {
+				int length = Math.min(content.remaining(), buffer.length);
+				content.get(buffer, 0, length);
+				out.write(buffer, 0, length);
+			}
+		}
+	}
+
+	private static WritableByteChannel getChannel(OutputStream out) {
+		if (out instanceof WritableByteChannel) {
+			return (WritableByteChannel) out;
+		}
+		if (out instanceof FileOutputStream) {
+			return ((FileOutputStream) out).getChannel();
+		}
+		return null;
+	}
+
+}
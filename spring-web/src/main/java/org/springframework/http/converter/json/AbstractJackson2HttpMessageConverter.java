@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,12 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -32,8 +37,10 @@ import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
 import com.fasterxml.jackson.databind.type.TypeFactory;
@@ -46,7 +53,10 @@ import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.UsesJava8;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.TypeUtils;
 
 /**
@@ -67,8 +77,18 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 
 	public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
 
+	/**
+	 * Default maximum number of cached {@code ObjectReader} and {@code ObjectWriter} instances.
+	 * @since 4.3.25
+	 * @see #setCacheLimit
+	 */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
 	private static final MediaType TEXT_EVENT_STREAM = new MediaType("text", "event-stream");
 
+	private static final boolean streamAvailable = ClassUtils.isPresent(
+			"java.util.stream.Stream", AbstractJackson2HttpMessageConverter.class.getClassLoader());
+
 
 	protected ObjectMapper objectMapper;
 
@@ -76,6 +96,32 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 
 	private PrettyPrinter ssePrettyPrinter;
 
+	private boolean streamingWrite = false;
+
+	private int streamingFlushCount = 100;
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Cache of ObjectReader instances, in least-recently-used order */
+	@SuppressWarnings("serial")
+	private final Map<CacheKey, ObjectReader> readerCache =
+			new LinkedHashMap<CacheKey, ObjectReader>(64, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CacheKey, ObjectReader> eldest) {
+					return size() > getCacheLimit();
+				}
+			};
+
+	/** Cache of ObjectWriter instances, in least-recently-used order */
+	@SuppressWarnings("serial")
+	private final Map<CacheKey, ObjectWriter> writerCache =
+			new LinkedHashMap<CacheKey, ObjectWriter>(64, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<CacheKey, ObjectWriter> eldest) {
+					return size() > getCacheLimit();
+				}
+			};
+
 
 	protected AbstractJackson2HttpMessageConverter(ObjectMapper objectMapper) {
 		init(objectMapper);
@@ -115,6 +161,7 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 		Assert.notNull(objectMapper, "ObjectMapper must not be null");
 		this.objectMapper = objectMapper;
 		configurePrettyPrint();
+		clearCache();
 	}
 
 	/**
@@ -136,6 +183,7 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 	public void setPrettyPrint(boolean prettyPrint) {
 		this.prettyPrint = prettyPrint;
 		configurePrettyPrint();
+		clearCache();
 	}
 
 	private void configurePrettyPrint() {
@@ -144,6 +192,85 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 		}
 	}
 
+	/**
+	 * Whether to write {@link Collection}, {@link Iterator} and Java 8
+	 * {@code Stream} values as an array one element at a time, flushing the
+	 * output every {@link #setStreamingFlushCount number of elements}, so that
+	 * large results are sent as they are produced rather than at the end.
+	 * A {@code Stream} is closed once written.
+	 * <p>Note that once the output has been flushed, the response is committed,
+	 * so a failure to serialize a subsequent element leaves a truncated response.
+	 * <p>The default is {@code false}.
+	 * @since 4.3.25
+	 */
+	public void setStreamingWrite(boolean streamingWrite) {
+		this.streamingWrite = streamingWrite;
+	}
+
+	/**
+	 * Whether {@link #setStreamingWrite streaming} of multi-value types is enabled.
+	 * @since 4.3.25
+	 */
+	public boolean isStreamingWrite() {
+		return this.streamingWrite;
+	}
+
+	/**
+	 * Set the number of elements to write between flushes of the output when
+	 * {@link #setStreamingWrite streaming}.
+	 * <p>By default this is set to 100.
+	 * @since 4.3.25
+	 */
+	public void setStreamingFlushCount(int streamingFlushCount) {
+		Assert.isTrue(streamingFlushCount > 0, "Streaming flush count must be greater than 0");
+		this.streamingFlushCount = streamingFlushCount;
+	}
+
+	/**
+	 * Return the number of elements to write between flushes of the output.
+	 * @since 4.3.25
+	 */
+	public int getStreamingFlushCount() {
+		return this.streamingFlushCount;
+	}
+
+	/**
+	 * Specify the maximum number of {@link ObjectReader} and {@link ObjectWriter}
+	 * instances to cache, each one set up for a given target type and JSON view,
+	 * so that the type does not have to be resolved and the root (de)serializer
+	 * looked up for every message.
+	 * <p>Cached instances capture the configuration of the {@code ObjectMapper}
+	 * at the time of their creation. They are discarded when a different
+	 * {@code ObjectMapper} is set, but not when the current one is reconfigured,
+	 * which Jackson expects to happen before it is first used anyway.
+	 * <p>Once the limit is reached, the least recently used instance is evicted
+	 * to make room for a new one.
+	 * <p>Default is 256. Set this to 0 to disable caching.
+	 * @since 4.3.25
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+		clearCache();
+	}
+
+	/**
+	 * Return the maximum number of cached {@code ObjectReader} and
+	 * {@code ObjectWriter} instances.
+	 * @since 4.3.25
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	private void clearCache() {
+		synchronized (this.readerCache) {
+			this.readerCache.clear();
+		}
+		synchronized (this.writerCache) {
+			this.writerCache.clear();
+		}
+	}
+
 
 	@Override
 	public boolean canRead(Class<?> clazz, MediaType mediaType) {
@@ -169,6 +296,9 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 		if (!canWrite(mediaType)) {
 			return false;
 		}
+		if (this.streamingWrite && streamAvailable && StreamDelegate.isStream(clazz)) {
+			return true;
+		}
 		AtomicReference<Throwable> causeRef = new AtomicReference<Throwable>();
 		if (this.objectMapper.canSerialize(clazz, causeRef)) {
 			return true;
@@ -213,28 +343,23 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
 			throws IOException, HttpMessageNotReadableException {
 
-		JavaType javaType = getJavaType(clazz, null);
-		return readJavaType(javaType, inputMessage);
+		return readJavaType(clazz, null, inputMessage);
 	}
 
 	@Override
 	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
 			throws IOException, HttpMessageNotReadableException {
 
-		JavaType javaType = getJavaType(type, contextClass);
-		return readJavaType(javaType, inputMessage);
+		return readJavaType(type, contextClass, inputMessage);
 	}
 
-	private Object readJavaType(JavaType javaType, HttpInputMessage inputMessage) {
+	private Object readJavaType(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
 		try {
+			Class<?> deserializationView = null;
 			if (inputMessage instanceof MappingJacksonInputMessage) {
-				Class<?> deserializationView = ((MappingJacksonInputMessage) inputMessage).getDeserializationView();
-				if (deserializationView != null) {
-					return this.objectMapper.readerWithView(deserializationView).forType(javaType).
-							readValue(inputMessage.getBody());
-				}
+				deserializationView = ((MappingJacksonInputMessage) inputMessage).getDeserializationView();
 			}
-			return this.objectMapper.readValue(inputMessage.getBody(), javaType);
+			return getObjectReader(type, contextClass, deserializationView).readValue(inputMessage.getBody());
 		}
 		catch (JsonProcessingException ex) {
 			throw new HttpMessageNotReadableException("JSON parse error: " + ex.getOriginalMessage(), ex);
@@ -257,7 +382,7 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 			Object value = object;
 			Class<?> serializationView = null;
 			FilterProvider filters = null;
-			JavaType javaType = null;
+			Type targetType = null;
 
 			if (object instanceof MappingJacksonValue) {
 				MappingJacksonValue container = (MappingJacksonValue) object;
@@ -266,23 +391,39 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 				filters = container.getFilters();
 			}
 			if (type != null && value != null && TypeUtils.isAssignable(type, value.getClass())) {
-				javaType = getJavaType(type, null);
+				targetType = type;
 			}
 
-			ObjectWriter objectWriter = (serializationView != null ?
-					this.objectMapper.writerWithView(serializationView) : this.objectMapper.writer());
+			boolean streaming = (this.streamingWrite && isStreamable(value));
+			ObjectWriter objectWriter = getObjectWriter(targetType, serializationView, streaming);
 			if (filters != null) {
 				objectWriter = objectWriter.with(filters);
 			}
-			if (javaType != null && javaType.isContainerType()) {
-				objectWriter = objectWriter.forType(javaType);
-			}
 			SerializationConfig config = objectWriter.getConfig();
 			if (contentType != null && contentType.isCompatibleWith(TEXT_EVENT_STREAM) &&
 					config.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
 				objectWriter = objectWriter.with(this.ssePrettyPrinter);
 			}
-			objectWriter.writeValue(generator, value);
+
+			if (streaming) {
+				if (value instanceof Collection) {
+					writeElements(generator, objectWriter, ((Collection<?>) value).iterator());
+				}
+				else if (value instanceof Iterator) {
+					writeElements(generator, objectWriter, (Iterator<?>) value);
+				}
+				else {
+					try {
+						writeElements(generator, objectWriter, StreamDelegate.iterator(value));
+					}
+					finally {
+						StreamDelegate.close(value);
+					}
+				}
+			}
+			else {
+				objectWriter.writeValue(generator, value);
+			}
 
 			writeSuffix(generator, object);
 			generator.flush();
@@ -292,6 +433,110 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 		}
 	}
 
+	/**
+	 * Return an {@code ObjectReader} for the given target type and view,
+	 * from the cache if possible.
+	 */
+	private ObjectReader getObjectReader(Type type, Class<?> contextClass, Class<?> view) {
+		CacheKey key = (this.cacheLimit > 0 ? new CacheKey(type, contextClass, view, false) : null);
+		ObjectReader objectReader = null;
+		if (key != null) {
+			synchronized (this.readerCache) {
+				objectReader = this.readerCache.get(key);
+			}
+		}
+		if (objectReader == null) {
+			JavaType javaType = getJavaType(type, contextClass);
+			objectReader = (view != null ?
+					this.objectMapper.readerWithView(view).forType(javaType) : this.objectMapper.readerFor(javaType));
+			if (key != null) {
+				synchronized (this.readerCache) {
+					this.readerCache.put(key, objectReader);
+				}
+			}
+		}
+		return objectReader;
+	}
+
+	/**
+	 * Return an {@code ObjectWriter} for the given target type and view,
+	 * from the cache if possible.
+	 * @param type the declared type of the value, or {@code null} if unknown
+	 * @param view the serialization view, if any
+	 * @param streaming whether the writer is for the elements of a streamed value
+	 */
+	private ObjectWriter getObjectWriter(Type type, Class<?> view, boolean streaming) throws JsonMappingException {
+		CacheKey key = (this.cacheLimit > 0 ? new CacheKey(type, null, view, streaming) : null);
+		ObjectWriter objectWriter = null;
+		if (key != null) {
+			synchronized (this.writerCache) {
+				objectWriter = this.writerCache.get(key);
+			}
+		}
+		if (objectWriter == null) {
+			objectWriter = (view != null ? this.objectMapper.writerWithView(view) : this.objectMapper.writer());
+			JavaType javaType = (type != null ? getJavaType(type, null) : null);
+			if (streaming) {
+				JavaType elementType = getPolymorphicElementType(javaType, objectWriter.getConfig());
+				if (elementType != null) {
+					objectWriter = objectWriter.forType(elementType);
+				}
+			}
+			else if (javaType != null && javaType.isContainerType()) {
+				objectWriter = objectWriter.forType(javaType);
+			}
+			if (key != null) {
+				synchronized (this.writerCache) {
+					this.writerCache.put(key, objectWriter);
+				}
+			}
+		}
+		return objectWriter;
+	}
+
+	private boolean isStreamable(Object value) {
+		return (value instanceof Collection || value instanceof Iterator ||
+				(value != null && streamAvailable && StreamDelegate.isStream(value.getClass())));
+	}
+
+	/**
+	 * Return the declared element type if it requires polymorphic type handling,
+	 * or {@code null} to serialize each element based on its runtime type, which
+	 * is what Jackson does for the elements of a container type as well.
+	 */
+	private JavaType getPolymorphicElementType(JavaType javaType, SerializationConfig config)
+			throws JsonMappingException {
+
+		if (javaType == null) {
+			return null;
+		}
+		JavaType elementType = (javaType.isContainerType() ? javaType.getContentType() : javaType.containedType(0));
+		if (elementType == null || elementType.getRawClass() == Object.class) {
+			return null;
+		}
+		return (this.objectMapper.getSerializerFactory().createTypeSerializer(config, elementType) != null ?
+				elementType : null);
+	}
+
+	/**
+	 * Write the given elements as an array, flushing the generator every
+	 * {@link #getStreamingFlushCount()} elements rather than after each one.
+	 */
+	private void writeElements(JsonGenerator generator, ObjectWriter objectWriter, Iterator<?> elements)
+			throws IOException {
+
+		SequenceWriter sequenceWriter = objectWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+				.writeValuesAsArray(generator);
+		int count = 0;
+		while (elements.hasNext()) {
+			sequenceWriter.write(elements.next());
+			if (++count % this.streamingFlushCount == 0) {
+				generator.flush();
+			}
+		}
+		sequenceWriter.close();
+	}
+
 	/**
 	 * Write a prefix before the main content.
 	 * @param generator the generator to use for writing content.
@@ -423,4 +668,66 @@ public abstract class AbstractJackson2HttpMessageConverter extends AbstractGener
 		return super.getContentLength(object, contentType);
 	}
 
+
+	/**
+	 * Key for cached {@code ObjectReader} and {@code ObjectWriter} instances.
+	 */
+	private static final class CacheKey {
+
+		private final Type type;
+
+		private final Class<?> contextClass;
+
+		private final Class<?> view;
+
+		private final boolean streaming;
+
+		public CacheKey(Type type, Class<?> contextClass, Class<?> view, boolean streaming) {
+			this.type = type;
+			this.contextClass = contextClass;
+			this.view = view;
+			this.streaming = streaming;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey otherKey = (CacheKey) other;
+			return (ObjectUtils.nullSafeEquals(this.type, otherKey.type) &&
+					this.contextClass == otherKey.contextClass && this.view == otherKey.view &&
+					this.streaming == otherKey.streaming);
+		}
+
+		@Override
+		public int hashCode() {
+			return (ObjectUtils.nullSafeHashCode(this.type) * 31 + ObjectUtils.nullSafeHashCode(this.contextClass)) * 31 +
+					ObjectUtils.nullSafeHashCode(this.view) + (this.streaming ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * Inner class to avoid a hard dependency on Java 8.
+	 */
+	@UsesJava8
+	private static class StreamDelegate {
+
+		public static boolean isStream(Class<?> type) {
+			return Stream.class.isAssignableFrom(type);
+		}
+
+		public static Iterator<?> iterator(Object stream) {
+			return ((Stream<?>) stream).iterator();
+		}
+
+		public static void close(Object stream) {
+			((Stream<?>) stream).close();
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -43,6 +43,10 @@ import org.springframework.web.util.WebUtils;
  * (e.g. a {@link org.springframework.web.servlet.View}) is still rendered.
  * As such, this filter only saves bandwidth, not server performance.
  *
+ * <p>The response content is buffered in order to compute the ETag. For large
+ * or streamed responses, consider setting a {@link #setContentCacheLimit
+ * content cache limit}, beyond which the content is sent without an ETag.
+ *
  * @author Arjen Poutsma
  * @author Rossen Stoyanchev
  * @author Brian Clozel
@@ -68,6 +72,8 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 	private boolean writeWeakETag = false;
 
+	private int contentCacheLimit = -1;
+
 
 	/**
 	 * Set whether the ETag value written to the response should be weak, as per RFC 7232.
@@ -88,6 +94,28 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		return this.writeWeakETag;
 	}
 
+	/**
+	 * Set the maximum number of bytes of response content to buffer for
+	 * generating an ETag. Once a response exceeds this limit, the content
+	 * buffered so far is written to the response and the rest of the content
+	 * is streamed through without buffering, and without an ETag, since the
+	 * ETag header has to be sent ahead of the content.
+	 * <p>By default this is set to -1, i.e. no limit.
+	 * @since 4.3.25
+	 */
+	public void setContentCacheLimit(int contentCacheLimit) {
+		this.contentCacheLimit = contentCacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of bytes of response content to buffer for
+	 * generating an ETag.
+	 * @since 4.3.25
+	 */
+	public int getContentCacheLimit() {
+		return this.contentCacheLimit;
+	}
+
 
 	/**
 	 * The default value is {@code false} so that the filter may delay the generation
@@ -104,7 +132,9 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 
 		HttpServletResponse responseToUse = response;
 		if (!isAsyncDispatch(request) && !(response instanceof ContentCachingResponseWrapper)) {
-			responseToUse = new HttpStreamingAwareContentCachingResponseWrapper(response, request);
+			responseToUse = (this.contentCacheLimit >= 0 ?
+					new HttpStreamingAwareContentCachingResponseWrapper(response, request, this.contentCacheLimit) :
+					new HttpStreamingAwareContentCachingResponseWrapper(response, request));
 		}
 
 		filterChain.doFilter(request, responseToUse);
@@ -124,6 +154,12 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 		if (rawResponse.isCommitted()) {
 			responseWrapper.copyBodyToResponse();
 		}
+		else if (responseWrapper.isContentCacheLimitExceeded()) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Response content exceeds cache limit [" + this.contentCacheLimit + "], no ETag");
+			}
+			responseWrapper.copyBodyToResponse();
+		}
 		else if (isEligibleForEtag(request, responseWrapper, statusCode, responseWrapper.getContentInputStream())) {
 			String responseETag = generateETagHeaderValue(responseWrapper.getContentInputStream(), this.writeWeakETag);
 			rawResponse.setHeader(HEADER_ETAG, responseETag);
@@ -228,6 +264,13 @@ public class ShallowEtagHeaderFilter extends OncePerRequestFilter {
 			this.request = request;
 		}
 
+		public HttpStreamingAwareContentCachingResponseWrapper(HttpServletResponse response, HttpServletRequest request,
+				int contentCacheLimit) {
+
+			super(response, contentCacheLimit);
+			this.request = request;
+		}
+
 		@Override
 		public ServletOutputStream getOutputStream() throws IOException {
 			return (useRawResponse() ? getResponse().getOutputStream() : super.getOutputStream());
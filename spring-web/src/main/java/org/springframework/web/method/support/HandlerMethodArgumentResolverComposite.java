@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.MethodParameter;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
 
@@ -47,12 +48,18 @@ public class HandlerMethodArgumentResolverComposite implements HandlerMethodArgu
 	private final Map<MethodParameter, HandlerMethodArgumentResolver> argumentResolverCache =
 			new ConcurrentHashMap<MethodParameter, HandlerMethodArgumentResolver>(256);
 
+	// Keyed by array content (ConcurrentReferenceHashMap uses ObjectUtils.nullSafeEquals),
+	// so that copies of a HandlerMethod and equal parameter arrays share their bindings
+	private final Map<MethodParameter[], HandlerMethodArgumentResolver[]> argumentResolverBindings =
+			new ConcurrentReferenceHashMap<MethodParameter[], HandlerMethodArgumentResolver[]>(256);
+
 
 	/**
 	 * Add the given {@link HandlerMethodArgumentResolver}.
 	 */
 	public HandlerMethodArgumentResolverComposite addResolver(HandlerMethodArgumentResolver resolver) {
 		this.argumentResolvers.add(resolver);
+		this.argumentResolverBindings.clear();
 		return this;
 	}
 
@@ -65,6 +72,7 @@ public class HandlerMethodArgumentResolverComposite implements HandlerMethodArgu
 			for (HandlerMethodArgumentResolver resolver : resolvers) {
 				this.argumentResolvers.add(resolver);
 			}
+			this.argumentResolverBindings.clear();
 		}
 		return this;
 	}
@@ -77,6 +85,7 @@ public class HandlerMethodArgumentResolverComposite implements HandlerMethodArgu
 			for (HandlerMethodArgumentResolver resolver : resolvers) {
 				this.argumentResolvers.add(resolver);
 			}
+			this.argumentResolverBindings.clear();
 		}
 		return this;
 	}
@@ -94,6 +103,7 @@ public class HandlerMethodArgumentResolverComposite implements HandlerMethodArgu
 	 */
 	public void clear() {
 		this.argumentResolvers.clear();
+		this.argumentResolverBindings.clear();
 	}
 
 
@@ -121,6 +131,28 @@ public class HandlerMethodArgumentResolverComposite implements HandlerMethodArgu
 		return resolver.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
 	}
 
+	/**
+	 * Return the {@link HandlerMethodArgumentResolver} bound to each of the given
+	 * method parameters, so that the parameters of a handler method can be resolved
+	 * without a lookup per parameter on every invocation. The binding is cached
+	 * for the given array instance, typically {@code HandlerMethod#getMethodParameters()}.
+	 * @param parameters the method parameters
+	 * @return an array of the same length with the resolver for each parameter,
+	 * or {@code null} elements for parameters not supported by any resolver
+	 * @since 4.3.25
+	 */
+	public HandlerMethodArgumentResolver[] getArgumentResolvers(MethodParameter[] parameters) {
+		HandlerMethodArgumentResolver[] result = this.argumentResolverBindings.get(parameters);
+		if (result == null) {
+			result = new HandlerMethodArgumentResolver[parameters.length];
+			for (int i = 0; i < parameters.length; i++) {
+				result[i] = getArgumentResolver(parameters[i]);
+			}
+			this.argumentResolverBindings.put(parameters, result);
+		}
+		return result;
+	}
+
 	/**
 	 * Find a registered {@link HandlerMethodArgumentResolver} that supports the given method parameter.
 	 */
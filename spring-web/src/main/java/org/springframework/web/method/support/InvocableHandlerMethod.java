@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,10 +21,10 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 
 import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodInvokerCompiler;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.util.ClassUtils;
-import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.support.SessionStatus;
 import org.springframework.web.bind.support.WebDataBinderFactory;
@@ -145,6 +145,8 @@ public class InvocableHandlerMethod extends HandlerMethod {
 			Object... providedArgs) throws Exception {
 		// 获取当前handler所声明的所有参数，主要包括参数名，参数类型，参数位置，所标注的注解等等属性
 		MethodParameter[] parameters = getMethodParameters();
+		HandlerMethodArgumentResolver[] resolvers = (getCompiledInvoker() != null ?
+				this.argumentResolvers.getArgumentResolvers(parameters) : null);
 		Object[] args = new Object[parameters.length];
 		for (int i = 0; i < parameters.length; i++) {
 			MethodParameter parameter = parameters[i];
@@ -159,7 +161,22 @@ public class InvocableHandlerMethod extends HandlerMethod {
 			// ArgumentResolver，判断哪种类型的Resolver支持对当前参数的解析，这里的判断
 			// 方式比较简单，比如RequestParamMethodArgumentResolver就是判断当前参数
 			// 是否使用@RequestParam注解进行了标注
-			if (this.argumentResolvers.supportsParameter(parameter)) {
+			if (resolvers != null) {
+				// Compiled mode: use the resolver bound to the parameter
+				if (resolvers[i] != null) {
+					try {
+						args[i] = resolvers[i].resolveArgument(parameter, mavContainer, request, this.dataBinderFactory);
+						continue;
+					}
+					catch (Exception ex) {
+						if (logger.isDebugEnabled()) {
+							logger.debug(getArgumentResolutionErrorMessage("Failed to resolve", i), ex);
+						}
+						throw ex;
+					}
+				}
+			}
+			else if (this.argumentResolvers.supportsParameter(parameter)) {
 				try {
 					args[i] = this.argumentResolvers.resolveArgument(
 							parameter, mavContainer, request, this.dataBinderFactory);
@@ -206,11 +223,12 @@ public class InvocableHandlerMethod extends HandlerMethod {
 
 	/**
 	 * Invoke the handler method with the given argument values.
+	 * <p>Uses the {@link #getCompiledInvoker() compiled invoker}, if available,
+	 * or reflection otherwise.
 	 */
 	protected Object doInvoke(Object... args) throws Exception {
-		ReflectionUtils.makeAccessible(getBridgedMethod());
 		try {
-			return getBridgedMethod().invoke(getBean(), args);
+			return MethodInvokerCompiler.invoke(getCompiledInvoker(), getBridgedMethod(), getBean(), args);
 		}
 		catch (IllegalArgumentException ex) {
 			assertTargetBean(getBridgedMethod(), getBean(), args);
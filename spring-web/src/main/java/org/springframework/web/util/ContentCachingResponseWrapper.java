@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.web.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
@@ -35,6 +36,10 @@ import org.springframework.util.FastByteArrayOutputStream;
  *
  * <p>Used e.g. by {@link org.springframework.web.filter.ShallowEtagHeaderFilter}.
  *
+ * <p>If created with a content cache limit, content is cached only up to that
+ * limit. Once it is exceeded, the cached content is copied to the underlying
+ * response and any further content is written through to it directly.
+ *
  * @author Juergen Hoeller
  * @since 4.1.3
  * @see ContentCachingRequestWrapper
@@ -51,6 +56,10 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 
 	private Integer contentLength;
 
+	private final Integer contentCacheLimit;
+
+	private boolean overflow;
+
 
 	/**
 	 * Create a new ContentCachingResponseWrapper for the given servlet response.
@@ -58,6 +67,20 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 	 */
 	public ContentCachingResponseWrapper(HttpServletResponse response) {
 		super(response);
+		this.contentCacheLimit = null;
+	}
+
+	/**
+	 * Create a new ContentCachingResponseWrapper for the given servlet response.
+	 * @param response the original servlet response
+	 * @param contentCacheLimit the maximum number of bytes to cache per response,
+	 * beyond which content is written through to the original response
+	 * @since 4.3.25
+	 * @see #isContentCacheLimitExceeded()
+	 */
+	public ContentCachingResponseWrapper(HttpServletResponse response, int contentCacheLimit) {
+		super(response);
+		this.contentCacheLimit = contentCacheLimit;
 	}
 
 
@@ -125,11 +148,18 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 	@Override
 	public void flushBuffer() throws IOException {
 		// do not flush the underlying response as the content as not been copied to it yet
+		if (this.overflow) {
+			super.flushBuffer();
+		}
 	}
 
 	@Override
 	public void setContentLength(int len) {
-		if (len > this.content.size()) {
+		if (this.overflow) {
+			super.setContentLength(len);
+			return;
+		}
+		if (len > this.content.size() && isWithinContentCacheLimit(len)) {
 			this.content.resize(len);
 		}
 		this.contentLength = len;
@@ -142,7 +172,11 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 					Integer.MAX_VALUE + "): " + len);
 		}
 		int lenInt = (int) len;
-		if (lenInt > this.content.size()) {
+		if (this.overflow) {
+			super.setContentLength(lenInt);
+			return;
+		}
+		if (lenInt > this.content.size() && isWithinContentCacheLimit(lenInt)) {
 			this.content.resize(lenInt);
 		}
 		this.contentLength = lenInt;
@@ -150,7 +184,7 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 
 	@Override
 	public void setBufferSize(int size) {
-		if (size > this.content.size()) {
+		if (size > this.content.size() && isWithinContentCacheLimit(size)) {
 			this.content.resize(size);
 		}
 	}
@@ -196,6 +230,17 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 		return this.content.size();
 	}
 
+	/**
+	 * Whether the content cache limit has been exceeded, in which case the
+	 * content has been written through to the original response, and the
+	 * cached content is no longer complete.
+	 * @since 4.3.25
+	 * @see #ContentCachingResponseWrapper(HttpServletResponse, int)
+	 */
+	public boolean isContentCacheLimitExceeded() {
+		return this.overflow;
+	}
+
 	/**
 	 * Copy the complete cached body content to the response.
 	 * @since 4.2
@@ -225,17 +270,79 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 		}
 	}
 
+	private boolean isWithinContentCacheLimit(int size) {
+		return (this.contentCacheLimit == null || size <= this.contentCacheLimit);
+	}
+
+	private void writeContent(int b) throws IOException {
+		if (cacheContent(1)) {
+			this.content.write(b);
+		}
+		else {
+			getResponse().getOutputStream().write(b);
+		}
+	}
+
+	private void writeContent(byte[] b, int off, int len) throws IOException {
+		if (cacheContent(len)) {
+			this.content.write(b, off, len);
+		}
+		else {
+			getResponse().getOutputStream().write(b, off, len);
+		}
+	}
+
+	/**
+	 * Check whether the given number of bytes can still be cached and, if not,
+	 * copy the content cached so far to the original response.
+	 * @return {@code true} if the bytes are to be cached, {@code false} if they
+	 * are to be written to the original response
+	 */
+	private boolean cacheContent(int len) throws IOException {
+		if (!this.overflow && !isWithinContentCacheLimit(this.content.size() + len)) {
+			this.overflow = true;
+			copyBodyToResponse(false);
+		}
+		return !this.overflow;
+	}
+
 
 	private class ResponseServletOutputStream extends ServletOutputStream {
 
 		@Override
 		public void write(int b) throws IOException {
-			content.write(b);
+			writeContent(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			writeContent(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (overflow) {
+				getResponse().getOutputStream().flush();
+			}
+		}
+	}
+
+
+	/**
+	 * Target of the {@link ResponsePrintWriter}, ignoring the flush that follows
+	 * every write so that it does not reach the original response once the
+	 * content cache limit has been exceeded.
+	 */
+	private class ResponseWriterOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			writeContent(b);
 		}
 
 		@Override
 		public void write(byte[] b, int off, int len) throws IOException {
-			content.write(b, off, len);
+			writeContent(b, off, len);
 		}
 	}
 
@@ -243,7 +350,7 @@ public class ContentCachingResponseWrapper extends HttpServletResponseWrapper {
 	private class ResponsePrintWriter extends PrintWriter {
 
 		public ResponsePrintWriter(String characterEncoding) throws UnsupportedEncodingException {
-			super(new OutputStreamWriter(content, characterEncoding));
+			super(new OutputStreamWriter(new ResponseWriterOutputStream(), characterEncoding));
 		}
 
 		@Override
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StreamUtils;
+
+import static org.junit.Assert.*;
+
+public class NioAsyncClientHttpRequestFactoryTests extends AbstractAsyncHttpRequestFactoryTestCase {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+
+	@Override
+	protected AsyncClientHttpRequestFactory createRequestFactory() {
+		return new NioClientHttpRequestFactory();
+	}
+
+	@Override
+	@Test
+	public void httpMethods() throws Exception {
+		super.httpMethods();
+		assertHttpMethod("patch", HttpMethod.PATCH);
+	}
+
+	@Test
+	public void connectionReused() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody("foo"));
+		server.enqueue(new MockResponse().setChunkedBody("bar", 1));
+		server.enqueue(new MockResponse().setBody("baz"));
+		server.start();
+		try {
+			URI uri = server.url("/").uri();
+			assertEquals("foo", executeAndGetBody(uri));
+			assertEquals("bar", executeAndGetBody(uri));
+			assertEquals("baz", executeAndGetBody(uri));
+			assertEquals(0, server.takeRequest().getSequenceNumber());
+			assertEquals(1, server.takeRequest().getSequenceNumber());
+			assertEquals(2, server.takeRequest().getSequenceNumber());
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void connectionNotReusedAfterConnectionClose() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody("foo").setHeader("Connection", "close")
+				.setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+		server.enqueue(new MockResponse().setBody("bar"));
+		server.start();
+		try {
+			URI uri = server.url("/").uri();
+			assertEquals("foo", executeAndGetBody(uri));
+			assertEquals("bar", executeAndGetBody(uri));
+			assertEquals(0, server.takeRequest().getSequenceNumber());
+			assertEquals(0, server.takeRequest().getSequenceNumber());
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void staleConnectionRetried() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody("foo").setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+		server.enqueue(new MockResponse().setBody("bar"));
+		server.start();
+		try {
+			URI uri = server.url("/").uri();
+			assertEquals("foo", executeAndGetBody(uri));
+			assertEquals("bar", executeAndGetBody(uri));
+			assertEquals(2, server.getRequestCount());
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void staleConnectionNotRetriedForPost() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setBody("foo").setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+		server.enqueue(new MockResponse().setBody("bar"));
+		server.start();
+		try {
+			URI uri = server.url("/").uri();
+			assertEquals("foo", executeAndGetBody(uri));
+			try {
+				this.factory.createAsyncRequest(uri, HttpMethod.POST).executeAsync().get();
+				fail("Expected IOException");
+			}
+			catch (ExecutionException ex) {
+				assertTrue(ex.getCause() instanceof IOException);
+			}
+			assertEquals(1, server.getRequestCount());
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@Test
+	public void unknownHost() throws Exception {
+		try {
+			this.factory.createAsyncRequest(new URI("http://unknown.invalid/"), HttpMethod.GET).executeAsync().get();
+			fail("Expected UnknownHostException");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof UnknownHostException);
+		}
+	}
+
+	@Test
+	public void maxConnectionsPerHost() throws Exception {
+		((NioClientHttpRequestFactory) this.factory).setMaxConnectionsPerHost(1);
+		MockWebServer server = new MockWebServer();
+		for (int i = 0; i < 3; i++) {
+			server.enqueue(new MockResponse().setBody("foo" + i));
+		}
+		server.start();
+		try {
+			URI uri = server.url("/").uri();
+			List<Future<ClientHttpResponse>> futures = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				futures.add(this.factory.createAsyncRequest(uri, HttpMethod.GET).executeAsync());
+			}
+			for (Future<ClientHttpResponse> future : futures) {
+				future.get().close();
+			}
+			for (int i = 0; i < 3; i++) {
+				assertEquals(i, server.takeRequest().getSequenceNumber());
+			}
+		}
+		finally {
+			server.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void httpsNotSupported() throws Exception {
+		this.factory.createAsyncRequest(new URI("https://example.com"), HttpMethod.GET);
+	}
+
+	private String executeAndGetBody(URI uri) throws Exception {
+		ClientHttpResponse response = this.factory.createAsyncRequest(uri, HttpMethod.GET).executeAsync().get();
+		try {
+			return StreamUtils.copyToString(response.getBody(), UTF_8);
+		}
+		finally {
+			response.close();
+		}
+	}
+
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CachingClientHttpRequestInterceptor}.
+ */
+public class CachingClientHttpRequestInterceptorTests {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final CachingClientHttpRequestInterceptor interceptor = new CachingClientHttpRequestInterceptor();
+
+	private final List<HttpRequest> executedRequests = new CopyOnWriteArrayList<>();
+
+
+	@Test
+	public void freshResponseServedFromCache() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60");
+
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "foo"));
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+		assertEquals(1, this.executedRequests.size());
+		assertEquals(1, this.interceptor.getHitCount());
+		assertEquals(1, this.interceptor.getMissCount());
+	}
+
+	@Test
+	public void staleResponseRevalidated() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("no-cache");
+		headers.setETag("\"v1\"");
+
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "foo"));
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.NOT_MODIFIED, new HttpHeaders(), ""));
+		assertEquals(2, this.executedRequests.size());
+		assertNull(this.executedRequests.get(0).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals("\"v1\"", this.executedRequests.get(1).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(1, this.interceptor.getHitCount());
+
+		headers.setETag("\"v2\"");
+		assertEquals("bar", execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+		assertEquals("bar", execute(createRequest("/foo"), HttpStatus.NOT_MODIFIED, new HttpHeaders(), ""));
+		assertEquals("\"v2\"", this.executedRequests.get(3).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	@Test
+	public void revalidatedResponseRefreshed() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=0");
+		headers.setETag("\"v1\"");
+		HttpHeaders notModifiedHeaders = new HttpHeaders();
+		notModifiedHeaders.setCacheControl("max-age=60");
+
+		execute(createRequest("/foo"), HttpStatus.OK, headers, "foo");
+		execute(createRequest("/foo"), HttpStatus.NOT_MODIFIED, notModifiedHeaders, "");
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+		assertEquals(2, this.executedRequests.size());
+		assertEquals(2, this.interceptor.getHitCount());
+	}
+
+	@Test
+	public void responseNotCached() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60, no-store");
+		execute(createRequest("/foo"), HttpStatus.OK, headers, "foo");
+		assertEquals("bar", execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+
+		headers.setCacheControl("max-age=60");
+		execute(createRequest("/bar"), HttpStatus.NOT_FOUND, headers, "foo");
+		assertEquals("bar", execute(createRequest("/bar"), HttpStatus.OK, headers, "bar"));
+
+		execute(createRequest("/baz"), HttpStatus.OK, new HttpHeaders(), "foo");
+		assertEquals("bar", execute(createRequest("/baz"), HttpStatus.OK, headers, "bar"));
+
+		assertEquals(6, this.executedRequests.size());
+		assertEquals(0, this.interceptor.getHitCount());
+	}
+
+	@Test
+	public void responseNotCachedReturnedUnbuffered() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("no-store");
+		ClientHttpResponse response = createResponse(HttpStatus.OK, headers, "foo");
+		assertSame(response, this.interceptor.intercept(createRequest("/foo"), new byte[0],
+				(ClientHttpRequestExecution) (request, body) -> response));
+
+		headers.setCacheControl("max-age=60");
+		headers.setContentLength(1024);
+		this.interceptor.setMaxCacheSize(1023);
+		ClientHttpResponse largeResponse = createResponse(HttpStatus.OK, headers, "foo");
+		assertSame(largeResponse, this.interceptor.intercept(createRequest("/bar"), new byte[0],
+				(ClientHttpRequestExecution) (request, body) -> largeResponse));
+	}
+
+	@Test
+	public void noCacheAfterSharedMaxAge() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("s-maxage=60, no-cache");
+		headers.setETag("\"v1\"");
+
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "foo"));
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.NOT_MODIFIED, new HttpHeaders(), ""));
+		assertEquals(2, this.executedRequests.size());
+	}
+
+	@Test
+	public void directiveNamesMatchedExactly() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60, x-private-ext, x-no-store=\"1\"");
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "foo"));
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+
+		HttpRequest request = createRequest("/foo");
+		request.getHeaders().setCacheControl("x-no-cache-ext");
+		request.getHeaders().setPragma("x-no-cache");
+		assertEquals("foo", execute(request, HttpStatus.OK, headers, "bar"));
+
+		assertEquals(1, this.executedRequests.size());
+		assertEquals(2, this.interceptor.getHitCount());
+	}
+
+	@Test
+	public void fieldQualifiedNoCacheRevalidated() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60, no-cache=\"Set-Cookie\"");
+		headers.setETag("\"v1\"");
+
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.OK, headers, "foo"));
+		assertEquals("foo", execute(createRequest("/foo"), HttpStatus.NOT_MODIFIED, new HttpHeaders(), ""));
+		assertEquals(2, this.executedRequests.size());
+		assertEquals("\"v1\"", this.executedRequests.get(1).getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(1, this.interceptor.getHitCount());
+	}
+
+	@Test
+	public void requestNotCacheable() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60");
+		execute(createRequest("/foo"), HttpStatus.OK, headers, "foo");
+
+		HttpRequest request = createRequest("/foo");
+		request.getHeaders().set(HttpHeaders.AUTHORIZATION, "Basic Zm9vOmJhcg==");
+		assertEquals("bar", execute(request, HttpStatus.OK, headers, "bar"));
+
+		request = createRequest("/foo");
+		request.getHeaders().setCacheControl("no-cache");
+		assertEquals("bar", execute(request, HttpStatus.OK, headers, "bar"));
+
+		request = new HttpRequestWrapper(createRequest("/foo")) {
+			@Override
+			public HttpMethod getMethod() {
+				return HttpMethod.POST;
+			}
+		};
+		assertEquals("bar", execute(request, HttpStatus.OK, headers, "bar"));
+
+		assertEquals(4, this.executedRequests.size());
+		assertEquals(1, this.interceptor.getMissCount());
+	}
+
+	@Test
+	public void varyHeader() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60");
+		headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+
+		HttpRequest request = createRequest("/foo");
+		request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+		execute(request, HttpStatus.OK, headers, "json");
+		request = createRequest("/foo");
+		request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_XML));
+		assertEquals("xml", execute(request, HttpStatus.OK, headers, "xml"));
+		request = createRequest("/foo");
+		request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_XML));
+		assertEquals("xml", execute(request, HttpStatus.OK, headers, "foo"));
+
+		assertEquals(2, this.executedRequests.size());
+	}
+
+	@Test
+	public void leastRecentlyUsedEvicted() throws Exception {
+		this.interceptor.setMaxCacheSize(10);
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60");
+
+		execute(createRequest("/a"), HttpStatus.OK, headers, "aaaa");
+		execute(createRequest("/b"), HttpStatus.OK, headers, "bbbb");
+		execute(createRequest("/a"), HttpStatus.OK, headers, "");
+		execute(createRequest("/c"), HttpStatus.OK, headers, "cccc");
+		assertEquals(3, this.executedRequests.size());
+
+		assertEquals("aaaa", execute(createRequest("/a"), HttpStatus.OK, headers, ""));
+		assertEquals("cccc", execute(createRequest("/c"), HttpStatus.OK, headers, ""));
+		assertEquals("", execute(createRequest("/b"), HttpStatus.OK, headers, ""));
+		assertEquals(4, this.executedRequests.size());
+
+		execute(createRequest("/d"), HttpStatus.OK, headers, "01234567890");
+		assertEquals("", execute(createRequest("/d"), HttpStatus.OK, headers, ""));
+	}
+
+	@Test
+	public void requestsInFlightCoalesced() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("no-store");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> getBody(this.interceptor.intercept(createRequest("/foo"),
+					new byte[0], (ClientHttpRequestExecution) (request, body) -> {
+						started.countDown();
+						try {
+							release.await();
+						}
+						catch (InterruptedException ex) {
+							throw new IOException(ex);
+						}
+						this.executedRequests.add(request);
+						return createResponse(HttpStatus.OK, headers, "foo");
+					})));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Future<String> second = executor.submit(() -> execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+			while (this.interceptor.getCoalescedCount() == 0) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+			assertEquals("foo", first.get(5, TimeUnit.SECONDS));
+			assertEquals("foo", second.get(5, TimeUnit.SECONDS));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, this.executedRequests.size());
+		assertEquals(1, this.interceptor.getCoalescedCount());
+
+		assertEquals("bar", execute(createRequest("/foo"), HttpStatus.OK, headers, "bar"));
+	}
+
+	@Test
+	public void asyncRequestsInFlightCoalesced() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setCacheControl("max-age=60");
+		SettableListenableFuture<ClientHttpResponse> responseFuture = new SettableListenableFuture<>();
+
+		ListenableFuture<ClientHttpResponse> first = this.interceptor.intercept(createRequest("/foo"), new byte[0],
+				(AsyncClientHttpRequestExecution) (request, body) -> {
+					this.executedRequests.add(request);
+					return responseFuture;
+				});
+		ListenableFuture<ClientHttpResponse> second = this.interceptor.intercept(createRequest("/foo"), new byte[0],
+				(AsyncClientHttpRequestExecution) (request, body) -> {
+					throw new IllegalStateException("Unexpected request");
+				});
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+
+		responseFuture.set(createResponse(HttpStatus.OK, headers, "foo"));
+		assertEquals("foo", getBody(first.get()));
+		assertEquals("foo", getBody(second.get()));
+
+		ListenableFuture<ClientHttpResponse> third = this.interceptor.intercept(createRequest("/foo"), new byte[0],
+				(AsyncClientHttpRequestExecution) (request, body) -> {
+					throw new IllegalStateException("Unexpected request");
+				});
+		assertEquals("foo", getBody(third.get()));
+		assertEquals(1, this.executedRequests.size());
+		assertEquals(1, this.interceptor.getCoalescedCount());
+		assertEquals(1, this.interceptor.getHitCount());
+	}
+
+	@Test
+	public void asyncRequestFailure() throws Exception {
+		SettableListenableFuture<ClientHttpResponse> responseFuture = new SettableListenableFuture<>();
+		ListenableFuture<ClientHttpResponse> first = this.interceptor.intercept(createRequest("/foo"), new byte[0],
+				(AsyncClientHttpRequestExecution) (request, body) -> responseFuture);
+		ListenableFuture<ClientHttpResponse> second = this.interceptor.intercept(createRequest("/foo"), new byte[0],
+				(AsyncClientHttpRequestExecution) (request, body) -> responseFuture);
+
+		IOException failure = new IOException("Connection refused");
+		responseFuture.setException(failure);
+		for (ListenableFuture<ClientHttpResponse> future : Arrays.asList(first, second)) {
+			try {
+				future.get();
+				fail("Expected ExecutionException");
+			}
+			catch (ExecutionException ex) {
+				assertSame(failure, ex.getCause());
+			}
+		}
+
+		assertEquals("bar", execute(createRequest("/foo"), HttpStatus.OK, new HttpHeaders(), "bar"));
+	}
+
+
+	private HttpRequest createRequest(String path) {
+		final URI uri = URI.create("http://example.com" + path);
+		final HttpHeaders headers = new HttpHeaders();
+		return new HttpRequest() {
+			@Override
+			public HttpMethod getMethod() {
+				return HttpMethod.GET;
+			}
+			@Override
+			public URI getURI() {
+				return uri;
+			}
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+	}
+
+	private String execute(HttpRequest request, HttpStatus status, HttpHeaders headers, String body)
+			throws IOException {
+
+		ClientHttpResponse response = this.interceptor.intercept(request, new byte[0], (ClientHttpRequestExecution) (req, content) -> {
+			this.executedRequests.add(req);
+			return createResponse(status, headers, body);
+		});
+		return getBody(response);
+	}
+
+	private static ClientHttpResponse createResponse(HttpStatus status, HttpHeaders headers, String body) {
+		final HttpHeaders responseHeaders = new HttpHeaders();
+		responseHeaders.putAll(headers);
+		final InputStream content = new ByteArrayInputStream(body.getBytes(UTF_8));
+		return new AbstractClientHttpResponse() {
+			@Override
+			public int getRawStatusCode() {
+				return status.value();
+			}
+			@Override
+			public String getStatusText() {
+				return status.getReasonPhrase();
+			}
+			@Override
+			public HttpHeaders getHeaders() {
+				return responseHeaders;
+			}
+			@Override
+			public InputStream getBody() {
+				return content;
+			}
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	private static String getBody(ClientHttpResponse response) throws IOException {
+		try {
+			return StreamUtils.copyToString(response.getBody(), UTF_8);
+		}
+		finally {
+			response.close();
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.converter;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.util.FileCopyUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MappedResourceCache}.
+ */
+public class MappedResourceCacheTests {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final MappedResourceCache cache = new MappedResourceCache(10);
+
+
+	@Test
+	public void getContent() throws Exception {
+		File file = createFile("a", "foo");
+
+		assertEquals("foo", getContent(file));
+		assertEquals("foo", getContent(file));
+		assertEquals(3, this.cache.getCacheSize());
+	}
+
+	@Test
+	public void getContentAfterModification() throws Exception {
+		File file = createFile("a", "foo");
+		assertEquals("foo", getContent(file));
+
+		FileCopyUtils.copy("foobar".getBytes(UTF_8), file);
+		assertEquals("foobar", getContent(file));
+		assertEquals(6, this.cache.getCacheSize());
+	}
+
+	@Test
+	public void getContentNotCached() throws Exception {
+		this.cache.setMaxResourceSize(4);
+
+		assertNull(this.cache.getContent(createFile("a", "foobar")));
+		assertNull(this.cache.getContent(createFile("b", "")));
+		assertNull(this.cache.getContent(new File(this.folder.getRoot(), "c")));
+		assertNull(this.cache.getContent(this.folder.newFolder("d")));
+		assertEquals(0, this.cache.getCacheSize());
+	}
+
+	@Test
+	public void leastRecentlyUsedEvicted() throws Exception {
+		File a = createFile("a", "aaaa");
+		File b = createFile("b", "bbbb");
+		File c = createFile("c", "cccc");
+
+		getContent(a);
+		getContent(b);
+		getContent(a);
+		getContent(c);
+		assertEquals(8, this.cache.getCacheSize());
+
+		FileCopyUtils.copy("aaa".getBytes(UTF_8), a);
+		getContent(a);
+		assertEquals(7, this.cache.getCacheSize());
+
+		this.cache.clear();
+		assertEquals(0, this.cache.getCacheSize());
+	}
+
+
+	private File createFile(String name, String content) throws Exception {
+		File file = this.folder.newFile(name);
+		FileCopyUtils.copy(content.getBytes(UTF_8), file);
+		return file;
+	}
+
+	private String getContent(File file) throws Exception {
+		ByteBuffer buffer = this.cache.getContent(file);
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+}
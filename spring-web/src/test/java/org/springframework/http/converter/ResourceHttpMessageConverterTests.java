@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,17 +16,25 @@
 
 package org.springframework.http.converter;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
 import org.springframework.http.MockHttpInputMessage;
 import org.springframework.http.MockHttpOutputMessage;
@@ -47,6 +55,9 @@ public class ResourceHttpMessageConverterTests {
 
 	private final ResourceHttpMessageConverter converter = new ResourceHttpMessageConverter();
 
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
 
 	@Test
 	public void canReadResource() {
@@ -139,4 +150,46 @@ public class ResourceHttpMessageConverterTests {
 		assertEquals(0, outputMessage.getHeaders().getContentLength());
 	}
 
+	@Test
+	public void writeFileResourceToChannel() throws Exception {
+		Resource resource = new FileSystemResource(new ClassPathResource("logo.jpg", getClass()).getFile());
+		File target = this.folder.newFile();
+		final OutputStream body = new FileOutputStream(target);
+		HttpOutputMessage outputMessage = new HttpOutputMessage() {
+			private final HttpHeaders headers = new HttpHeaders();
+			@Override
+			public HttpHeaders getHeaders() {
+				return this.headers;
+			}
+			@Override
+			public OutputStream getBody() {
+				return body;
+			}
+		};
+		try {
+			converter.write(resource, MediaType.IMAGE_JPEG, outputMessage);
+		}
+		finally {
+			body.close();
+		}
+
+		assertEquals(resource.contentLength(), outputMessage.getHeaders().getContentLength());
+		assertArrayEquals(FileCopyUtils.copyToByteArray(resource.getInputStream()), FileCopyUtils.copyToByteArray(target));
+	}
+
+	@Test
+	public void writeFileResourceFromMappedResourceCache() throws Exception {
+		MappedResourceCache cache = new MappedResourceCache(1024 * 1024);
+		converter.setMappedResourceCache(cache);
+		Resource resource = new FileSystemResource(new ClassPathResource("logo.jpg", getClass()).getFile());
+		byte[] expected = FileCopyUtils.copyToByteArray(resource.getInputStream());
+
+		for (int i = 0; i < 2; i++) {
+			MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+			converter.write(resource, MediaType.IMAGE_JPEG, outputMessage);
+			assertArrayEquals(expected, outputMessage.getBodyAsBytes());
+		}
+		assertEquals(expected.length, cache.getCacheSize());
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,9 @@
 package org.springframework.http.converter;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -24,18 +27,23 @@ import java.util.Collections;
 import java.util.List;
 
 import org.hamcrest.Matchers;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.http.MockHttpOutputMessage;
+import org.springframework.util.FileCopyUtils;
 import org.springframework.util.StringUtils;
 
 import static org.hamcrest.Matchers.is;
@@ -52,6 +60,9 @@ public class ResourceRegionHttpMessageConverterTests {
 
 	private final ResourceRegionHttpMessageConverter converter = new ResourceRegionHttpMessageConverter();
 
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void canReadResource() {
 		assertFalse(converter.canRead(Resource.class, MediaType.APPLICATION_OCTET_STREAM));
@@ -162,4 +173,60 @@ public class ResourceRegionHttpMessageConverterTests {
 		assertThat(outputMessage.getBodyAsString(Charset.forName("UTF-8")), is("Spring"));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void partialContentByteRangeFromMappedResourceCache() throws Exception {
+		MappedResourceCache cache = new MappedResourceCache(1024);
+		converter.setMappedResourceCache(cache);
+		Resource body = new FileSystemResource(new ClassPathResource("byterangeresource.txt", getClass()).getFile());
+
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		converter.write(HttpRange.createByteRange(7).toResourceRegion(body), MediaType.TEXT_PLAIN, outputMessage);
+		assertThat(outputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE), is("bytes 7-38/39"));
+		assertThat(outputMessage.getBodyAsString(Charset.forName("UTF-8")), is("Framework test resource content."));
+
+		outputMessage = new MockHttpOutputMessage();
+		converter.write(HttpRange.createByteRange(0, 5).toResourceRegion(body), MediaType.TEXT_PLAIN, outputMessage);
+		assertThat(outputMessage.getBodyAsString(Charset.forName("UTF-8")), is("Spring"));
+		assertThat(cache.getCacheSize(), is(39L));
+	}
+
+	@Test
+	public void partialContentMultipleByteRangesToChannel() throws Exception {
+		Resource body = new FileSystemResource(new ClassPathResource("byterangeresource.txt", getClass()).getFile());
+		List<ResourceRegion> regions = new ArrayList<ResourceRegion>();
+		for (HttpRange range : HttpRange.parseRanges("bytes=0-5,7-15")) {
+			regions.add(range.toResourceRegion(body));
+		}
+		File target = this.folder.newFile();
+		final OutputStream out = new FileOutputStream(target);
+		final HttpHeaders headers = new HttpHeaders();
+		HttpOutputMessage outputMessage = new HttpOutputMessage() {
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+			@Override
+			public OutputStream getBody() {
+				return out;
+			}
+		};
+		try {
+			converter.write(regions, MediaType.TEXT_PLAIN, outputMessage);
+		}
+		finally {
+			out.close();
+		}
+
+		String boundary = "--" + headers.getContentType().toString().substring(30);
+		String content = new String(FileCopyUtils.copyToByteArray(target), "UTF-8");
+		String[] ranges = StringUtils.tokenizeToStringArray(content, "\r\n", false, true);
+		assertThat(ranges[0], is(boundary));
+		assertThat(ranges[2], is("Content-Range: bytes 0-5/39"));
+		assertThat(ranges[3], is("Spring"));
+		assertThat(ranges[4], is(boundary));
+		assertThat(ranges[6], is("Content-Range: bytes 7-15/39"));
+		assertThat(ranges[7], is("Framework"));
+		assertThat(ranges[8], is(boundary + "--"));
+	}
+
+}
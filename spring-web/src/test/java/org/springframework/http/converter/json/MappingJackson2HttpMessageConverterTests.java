@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,13 +16,20 @@
 
 package org.springframework.http.converter.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonView;
@@ -35,6 +42,8 @@ import org.junit.Test;
 import org.skyscreamer.jsonassert.JSONAssert;
 
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
 import org.springframework.http.MockHttpInputMessage;
 import org.springframework.http.MockHttpOutputMessage;
@@ -448,6 +457,194 @@ public class MappingJackson2HttpMessageConverterTests {
 		assertTrue(result.contains("\"number\":123"));
 	}
 
+	@Test
+	public void writeStreamingCollection() throws Exception {
+		this.converter.setStreamingWrite(true);
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		List<MyBean> beans = new ArrayList<>();
+		MyBean foo = new MyBean();
+		foo.setString("Foo");
+		foo.setNumber(42);
+		beans.add(foo);
+		MyBean bar = new MyBean();
+		bar.setString("Bar");
+		bar.setNumber(123);
+		beans.add(bar);
+		ParameterizedTypeReference<List<MyInterface>> typeReference =
+				new ParameterizedTypeReference<List<MyInterface>>() {};
+
+		this.converter.writeInternal(beans, typeReference.getType(), outputMessage);
+
+		String result = outputMessage.getBodyAsString(Charset.forName("UTF-8"));
+		assertThat(result, startsWith("[{"));
+		assertThat(result, endsWith("}]"));
+		assertTrue(result.contains("\"string\":\"Foo\""));
+		assertTrue(result.contains("\"number\":42"));
+		assertTrue(result.contains("\"string\":\"Bar\""));
+		assertTrue(result.contains("\"number\":123"));
+	}
+
+	@Test
+	public void writeStreamingIterator() throws Exception {
+		this.converter.setStreamingWrite(true);
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+		this.converter.writeInternal(Arrays.asList("foo", "bar").iterator(), null, outputMessage);
+
+		assertEquals("[\"foo\",\"bar\"]", outputMessage.getBodyAsString(Charset.forName("UTF-8")));
+	}
+
+	@Test
+	public void writeStreamingStream() throws Exception {
+		this.converter.setStreamingWrite(true);
+		assertTrue(this.converter.canWrite(Stream.class, MediaType.APPLICATION_JSON));
+
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		AtomicBoolean closed = new AtomicBoolean();
+		Stream<String> stream = Stream.of("foo", "bar").onClose(() -> closed.set(true));
+
+		this.converter.writeInternal(stream, null, outputMessage);
+
+		assertEquals("[\"foo\",\"bar\"]", outputMessage.getBodyAsString(Charset.forName("UTF-8")));
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void writeStreamingFlushCount() throws Exception {
+		this.converter.setStreamingWrite(true);
+		this.converter.setStreamingFlushCount(2);
+		AtomicInteger flushCount = new AtomicInteger();
+		ByteArrayOutputStream body = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushCount.incrementAndGet();
+			}
+		};
+		HttpHeaders headers = new HttpHeaders();
+		HttpOutputMessage outputMessage = new HttpOutputMessage() {
+			@Override
+			public OutputStream getBody() {
+				return body;
+			}
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+
+		this.converter.writeInternal(Arrays.asList(1, 2, 3, 4, 5), null, outputMessage);
+
+		assertEquals("[1,2,3,4,5]", body.toString("UTF-8"));
+		assertEquals(3, flushCount.get());
+	}
+
+	@Test
+	public void readAndWriteWithCache() throws Exception {
+		AtomicInteger javaTypeCount = new AtomicInteger();
+		MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter() {
+			@Override
+			protected JavaType getJavaType(Type type, Class<?> contextClass) {
+				javaTypeCount.incrementAndGet();
+				return super.getJavaType(type, contextClass);
+			}
+		};
+
+		String body = "{\"string\":\"Foo\",\"number\":42}";
+		for (int i = 0; i < 2; i++) {
+			MockHttpInputMessage inputMessage = new MockHttpInputMessage(body.getBytes("UTF-8"));
+			inputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			MyBean result = (MyBean) converter.read(MyBean.class, inputMessage);
+			assertEquals("Foo", result.getString());
+			assertEquals(42, result.getNumber());
+		}
+		assertEquals(1, javaTypeCount.get());
+
+		MyBean bean = new MyBean();
+		bean.setString("Foo");
+		ParameterizedTypeReference<List<MyBean>> typeReference = new ParameterizedTypeReference<List<MyBean>>() {};
+		for (int i = 0; i < 2; i++) {
+			MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+			converter.writeInternal(Collections.singletonList(bean), typeReference.getType(), outputMessage);
+			assertThat(outputMessage.getBodyAsString(Charset.forName("UTF-8")), containsString("\"string\":\"Foo\""));
+		}
+		assertEquals(2, javaTypeCount.get());
+
+		converter.setPrettyPrint(true);
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		converter.writeInternal(Collections.singletonList(bean), typeReference.getType(), outputMessage);
+		assertThat(outputMessage.getBodyAsString(Charset.forName("UTF-8")), containsString("\"string\" : \"Foo\""));
+		assertEquals(3, javaTypeCount.get());
+	}
+
+	@Test
+	public void readAndWriteWithCacheDisabled() throws Exception {
+		AtomicInteger javaTypeCount = new AtomicInteger();
+		MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter() {
+			@Override
+			protected JavaType getJavaType(Type type, Class<?> contextClass) {
+				javaTypeCount.incrementAndGet();
+				return super.getJavaType(type, contextClass);
+			}
+		};
+		converter.setCacheLimit(0);
+
+		String body = "{\"string\":\"Foo\",\"number\":42}";
+		for (int i = 0; i < 2; i++) {
+			MockHttpInputMessage inputMessage = new MockHttpInputMessage(body.getBytes("UTF-8"));
+			inputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			converter.read(MyBean.class, inputMessage);
+		}
+		assertEquals(2, javaTypeCount.get());
+	}
+
+	@Test
+	public void readWithCacheEvictsLeastRecentlyUsed() throws Exception {
+		AtomicInteger javaTypeCount = new AtomicInteger();
+		MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter() {
+			@Override
+			protected JavaType getJavaType(Type type, Class<?> contextClass) {
+				javaTypeCount.incrementAndGet();
+				return super.getJavaType(type, contextClass);
+			}
+		};
+		converter.setCacheLimit(2);
+
+		Class<?>[] types = new Class<?>[] {MyBean.class, MyBase.class, MyBean.class, Map.class, MyBean.class, MyBase.class};
+		int[] expectedCounts = new int[] {1, 2, 2, 3, 3, 4};
+		for (int i = 0; i < types.length; i++) {
+			MockHttpInputMessage inputMessage = new MockHttpInputMessage("{\"string\":\"Foo\"}".getBytes("UTF-8"));
+			inputMessage.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			converter.read(types[i], inputMessage);
+			assertEquals("Unexpected lookups after reading " + types[i].getSimpleName(),
+					expectedCounts[i], javaTypeCount.get());
+		}
+	}
+
+	@Test
+	public void jsonViewWithCache() throws Exception {
+		JacksonViewBean bean = new JacksonViewBean();
+		bean.setWithView1("with");
+		bean.setWithView2("with");
+		bean.setWithoutView("without");
+
+		for (int i = 0; i < 2; i++) {
+			MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+			MappingJacksonValue jacksonValue = new MappingJacksonValue(bean);
+			jacksonValue.setSerializationView(MyJacksonView1.class);
+			this.converter.writeInternal(jacksonValue, JacksonViewBean.class, outputMessage);
+			String result = outputMessage.getBodyAsString(Charset.forName("UTF-8"));
+			assertThat(result, containsString("\"withView1\":\"with\""));
+			assertThat(result, not(containsString("\"withView2\":\"with\"")));
+		}
+
+		MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+		MappingJacksonValue jacksonValue = new MappingJacksonValue(bean);
+		jacksonValue.setSerializationView(MyJacksonView2.class);
+		this.converter.writeInternal(jacksonValue, JacksonViewBean.class, outputMessage);
+		String result = outputMessage.getBodyAsString(Charset.forName("UTF-8"));
+		assertThat(result, not(containsString("\"withView1\":\"with\"")));
+		assertThat(result, containsString("\"withView2\":\"with\""));
+	}
 
 	interface MyInterface {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -215,17 +215,113 @@ public class InvocableHandlerMethodTests {
 		}
 	}
 
+	@Test
+	public void resolveArgWithCompiledInvoker() throws Exception {
+		StubArgumentResolver intResolver = new StubArgumentResolver(Integer.class, 99);
+		StubArgumentResolver stringResolver = new StubArgumentResolver(String.class, "value");
+
+		HandlerMethodArgumentResolverComposite composite = new HandlerMethodArgumentResolverComposite();
+		composite.addResolver(intResolver);
+		composite.addResolver(stringResolver);
+		assertTrue(handlerMethod.compileInvoker());
+		handlerMethod.setHandlerMethodArgumentResolvers(composite);
+
+		assertEquals("99-value", handlerMethod.invokeForRequest(webRequest, null));
+		assertEquals("1-value", handlerMethod.invokeForRequest(webRequest, null, 1));
+		assertEquals(1, intResolver.getResolvedParameters().size());
+		assertEquals(2, stringResolver.getResolvedParameters().size());
+
+		HandlerMethodArgumentResolver[] resolvers = composite.getArgumentResolvers(handlerMethod.getMethodParameters());
+		assertArrayEquals(new HandlerMethodArgumentResolver[] {intResolver, stringResolver}, resolvers);
+		assertSame(resolvers, composite.getArgumentResolvers(handlerMethod.getMethodParameters()));
+	}
+
+	@Test
+	public void compiledInvokerRetainedByCopies() throws Exception {
+		assertTrue(handlerMethod.compileInvoker());
+		InvocableHandlerMethod copy = new InvocableHandlerMethod(handlerMethod.createWithResolvedBean());
+		assertSame(handlerMethod.getCompiledInvoker(), copy.getCompiledInvoker());
+		assertEquals("1-value", copy.invokeForRequest(webRequest, null, 1, "value"));
+	}
+
+	@Test
+	public void cannotResolveArgWithCompiledInvoker() throws Exception {
+		assertTrue(handlerMethod.compileInvoker());
+		try {
+			handlerMethod.invokeForRequest(webRequest, null);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage().contains("No suitable resolver for argument 0 of type 'java.lang.Integer'"));
+		}
+	}
+
+	@Test
+	public void illegalArgumentExceptionWithCompiledInvoker() throws Exception {
+		HandlerMethodArgumentResolverComposite composite = new HandlerMethodArgumentResolverComposite();
+		composite.addResolver(new StubArgumentResolver(Integer.class, "__invalid__"));
+		composite.addResolver(new StubArgumentResolver(String.class, "value"));
+		assertTrue(handlerMethod.compileInvoker());
+		handlerMethod.setHandlerMethodArgumentResolvers(composite);
+
+		try {
+			handlerMethod.invokeForRequest(webRequest, null);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getCause() instanceof IllegalArgumentException);
+			assertTrue(ex.getMessage().contains("[0] [type=java.lang.String] [value=__invalid__]"));
+		}
+	}
+
+	@Test
+	public void invocationTargetExceptionWithCompiledInvoker() throws Exception {
+		Throwable expected = new Exception("error");
+		try {
+			invokeExceptionRaisingHandler(expected, true);
+		}
+		catch (Exception actual) {
+			assertSame(expected, actual);
+		}
+
+		expected = new Throwable("error");
+		try {
+			invokeExceptionRaisingHandler(expected, true);
+		}
+		catch (IllegalStateException actual) {
+			assertSame(expected, actual.getCause());
+			assertTrue(actual.getMessage().contains("Failed to invoke handler method"));
+		}
+	}
+
+	@Test
+	public void compileInvokerNotEligible() throws Exception {
+		Method method = PackagePrivateHandler.class.getDeclaredMethod("handle", String.class);
+		InvocableHandlerMethod hm = new InvocableHandlerMethod(new PackagePrivateHandler(), method);
+		assertFalse(hm.compileInvoker());
+		assertNull(hm.getCompiledInvoker());
+		assertEquals("value", hm.invokeForRequest(webRequest, null, "value"));
+	}
+
 
 	private void invokeExceptionRaisingHandler(Throwable expected) throws Exception {
+		invokeExceptionRaisingHandler(expected, false);
+	}
+
+	private void invokeExceptionRaisingHandler(Throwable expected, boolean compile) throws Exception {
 		Method method = ExceptionRaisingHandler.class.getDeclaredMethod("raiseException");
 		Object handler = new ExceptionRaisingHandler(expected);
-		new InvocableHandlerMethod(handler, method).invokeForRequest(webRequest, null);
+		InvocableHandlerMethod hm = new InvocableHandlerMethod(handler, method);
+		if (compile) {
+			assertTrue(hm.compileInvoker());
+		}
+		hm.invokeForRequest(webRequest, null);
 		fail("Expected exception");
 	}
 
 
 	@SuppressWarnings("unused")
-	private static class Handler {
+	public static class Handler {
 
 		public String handle(Integer intArg, String stringArg) {
 			return intArg + "-" + stringArg;
@@ -237,7 +333,7 @@ public class InvocableHandlerMethodTests {
 
 
 	@SuppressWarnings("unused")
-	private static class ExceptionRaisingHandler {
+	public static class ExceptionRaisingHandler {
 
 		private final Throwable t;
 
@@ -251,6 +347,14 @@ public class InvocableHandlerMethodTests {
 	}
 
 
+	static class PackagePrivateHandler {
+
+		public String handle(String value) {
+			return value;
+		}
+	}
+
+
 	private static class ExceptionRaisingArgumentResolver implements HandlerMethodArgumentResolver {
 
 		@Override
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.web.servlet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.mock.web.test.MockHttpServletResponse;
+import org.springframework.mock.web.test.MockServletConfig;
+import org.springframework.mock.web.test.MockServletContext;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.handler.AbstractHandlerMethodMapping;
+
+/**
+ * Benchmarks for {@link DispatcherServlet#doDispatch}, through
+ * {@link DispatcherServlet#service}, for annotated controllers configured
+ * with {@link EnableWebMvc @EnableWebMvc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DispatcherServletBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"false", "true"})
+		public boolean usePathPatternIndex;
+
+		@Param({"false", "true"})
+		public boolean compileHandlerMethods;
+
+		public DispatcherServlet servlet;
+
+		@Setup
+		public void setup() throws Exception {
+			MockServletContext servletContext = new MockServletContext();
+			AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+			context.register(WebConfig.class);
+			context.addBeanFactoryPostProcessor(new BeanFactoryPostProcessor() {
+				@Override
+				public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+					beanFactory.addBeanPostProcessor(
+							new HandlerMappingPostProcessor(usePathPatternIndex, compileHandlerMethods));
+				}
+			});
+			this.servlet = new DispatcherServlet(context);
+			this.servlet.init(new MockServletConfig(servletContext));
+		}
+
+		@TearDown
+		public void tearDown() {
+			this.servlet.destroy();
+		}
+	}
+
+
+	@Benchmark
+	public void directPath(BenchmarkData data, Blackhole bh) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/hello");
+		request.addParameter("name", "world");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		data.servlet.service(request, response);
+		bh.consume(response.getContentAsString());
+	}
+
+	@Benchmark
+	public void uriTemplatePath(BenchmarkData data, Blackhole bh) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/persons/42/addresses/7");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		data.servlet.service(request, response);
+		bh.consume(response.getContentAsString());
+	}
+
+	@Benchmark
+	public void notFound(BenchmarkData data, Blackhole bh) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/unknown");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		data.servlet.service(request, response);
+		bh.consume(response.getStatus());
+	}
+
+
+	@Configuration
+	@EnableWebMvc
+	static class WebConfig {
+
+		@Bean
+		public BenchmarkController benchmarkController() {
+			return new BenchmarkController();
+		}
+	}
+
+
+	@Controller
+	public static class BenchmarkController {
+
+		@GetMapping("/hello")
+		@ResponseBody
+		public String hello(@RequestParam("name") String name) {
+			return "Hello " + name;
+		}
+
+		@GetMapping("/persons/{id}")
+		@ResponseBody
+		public String person(@PathVariable("id") long id) {
+			return "Person " + id;
+		}
+
+		@GetMapping("/persons/{id}/addresses/{addressId}")
+		@ResponseBody
+		public String address(@PathVariable("id") long id, @PathVariable("addressId") int addressId) {
+			return "Address " + addressId + " of person " + id;
+		}
+
+		@GetMapping("/static/**")
+		@ResponseBody
+		public String resource() {
+			return "resource";
+		}
+	}
+
+
+	private static class HandlerMappingPostProcessor implements BeanPostProcessor {
+
+		private final boolean usePathPatternIndex;
+
+		private final boolean compileHandlerMethods;
+
+		public HandlerMappingPostProcessor(boolean usePathPatternIndex, boolean compileHandlerMethods) {
+			this.usePathPatternIndex = usePathPatternIndex;
+			this.compileHandlerMethods = compileHandlerMethods;
+		}
+
+		@Override
+		public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+			if (bean instanceof AbstractHandlerMethodMapping) {
+				((AbstractHandlerMethodMapping<?>) bean).setUsePathPatternIndex(this.usePathPatternIndex);
+				((AbstractHandlerMethodMapping<?>) bean).setCompileHandlerMethods(this.compileHandlerMethods);
+			}
+			return bean;
+		}
+
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			return bean;
+		}
+	}
+
+}
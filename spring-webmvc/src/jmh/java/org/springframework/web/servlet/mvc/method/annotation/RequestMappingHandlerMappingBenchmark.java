@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.mock.web.test.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.support.StaticWebApplicationContext;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+
+/**
+ * Benchmarks for the handler lookup of {@link RequestMappingHandlerMapping}
+ * with a configurable number of URI template mappings, with and without the
+ * {@link RequestMappingHandlerMapping#setUsePathPatternIndex path pattern index}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RequestMappingHandlerMappingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"10", "100", "1000"})
+		public int mappingCount;
+
+		@Param({"false", "true"})
+		public boolean usePathPatternIndex;
+
+		public RequestMappingHandlerMapping handlerMapping;
+
+		public MockHttpServletRequest directPathRequest;
+
+		public MockHttpServletRequest patternRequest;
+
+		public MockHttpServletRequest wildcardRequest;
+
+		public MockHttpServletRequest unmatchedRequest;
+
+		@Setup
+		public void setup() throws Exception {
+			this.handlerMapping = new RequestMappingHandlerMapping();
+			this.handlerMapping.setUsePathPatternIndex(this.usePathPatternIndex);
+			this.handlerMapping.setApplicationContext(new StaticWebApplicationContext());
+
+			Handler handler = new Handler();
+			Method method = Handler.class.getMethod("handle");
+			for (int i = 0; i < this.mappingCount; i++) {
+				register(handler, method, "/api/resource" + i, RequestMethod.GET);
+				register(handler, method, "/api/resource" + i + "/{id}", RequestMethod.GET);
+				register(handler, method, "/api/resource" + i + "/{id}/items/{itemId}", RequestMethod.PUT);
+			}
+			register(handler, method, "/static/**", RequestMethod.GET);
+
+			int last = this.mappingCount - 1;
+			this.directPathRequest = new MockHttpServletRequest("GET", "/api/resource" + last);
+			this.patternRequest = new MockHttpServletRequest("PUT", "/api/resource" + last + "/42/items/7");
+			this.wildcardRequest = new MockHttpServletRequest("GET", "/static/css/main.css");
+			this.unmatchedRequest = new MockHttpServletRequest("GET", "/api/unknown/42");
+		}
+
+		private void register(Handler handler, Method method, String path, RequestMethod requestMethod) {
+			RequestMappingInfo info = RequestMappingInfo.paths(path).methods(requestMethod).build();
+			this.handlerMapping.registerMapping(info, handler, method);
+		}
+	}
+
+
+	@Benchmark
+	public void directPath(BenchmarkData data, Blackhole bh) throws Exception {
+		bh.consume(data.handlerMapping.getHandler(data.directPathRequest));
+	}
+
+	@Benchmark
+	public void uriTemplatePattern(BenchmarkData data, Blackhole bh) throws Exception {
+		bh.consume(data.handlerMapping.getHandler(data.patternRequest));
+	}
+
+	@Benchmark
+	public void wildcardPattern(BenchmarkData data, Blackhole bh) throws Exception {
+		bh.consume(data.handlerMapping.getHandler(data.wildcardRequest));
+	}
+
+	@Benchmark
+	public void noMatch(BenchmarkData data, Blackhole bh) throws Exception {
+		bh.consume(data.handlerMapping.getHandler(data.unmatchedRequest));
+	}
+
+
+	public static class Handler {
+
+		public String handle() {
+			return "handled";
+		}
+	}
+
+}
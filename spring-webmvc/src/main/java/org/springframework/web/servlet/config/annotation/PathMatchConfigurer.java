@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -43,6 +43,8 @@ public class PathMatchConfigurer {
 
 	private Boolean registeredSuffixPatternMatch;
 
+	private Boolean pathPatternIndex;
+
 	private UrlPathHelper urlPathHelper;
 
 	private PathMatcher pathMatcher;
@@ -83,6 +85,19 @@ public class PathMatchConfigurer {
 		return this;
 	}
 
+	/**
+	 * Whether to index URL patterns in a trie of path segments so that only
+	 * mappings with potentially matching patterns are checked for a request,
+	 * which benefits applications with a large number of pattern mappings.
+	 * <p>By default this is set to "false".
+	 * @since 4.3.25
+	 * @see org.springframework.web.servlet.handler.AbstractHandlerMethodMapping#setUsePathPatternIndex
+	 */
+	public PathMatchConfigurer setUsePathPatternIndex(Boolean pathPatternIndex) {
+		this.pathPatternIndex = pathPatternIndex;
+		return this;
+	}
+
 	/**
 	 * Set the UrlPathHelper to use for resolution of lookup paths.
 	 * <p>Use this to override the default UrlPathHelper with a custom subclass,
@@ -97,6 +112,8 @@ public class PathMatchConfigurer {
 	/**
 	 * Set the PathMatcher implementation to use for matching URL paths
 	 * against registered URL patterns. Default is AntPathMatcher.
+	 * <p>Consider {@link org.springframework.util.PrecompiledPathMatcher} for
+	 * the same matching semantics with precompiled patterns.
 	 * @see org.springframework.util.AntPathMatcher
 	 */
 	public PathMatchConfigurer setPathMatcher(PathMatcher pathMatcher) {
@@ -117,6 +134,10 @@ public class PathMatchConfigurer {
 		return this.registeredSuffixPatternMatch;
 	}
 
+	public Boolean isUsePathPatternIndex() {
+		return this.pathPatternIndex;
+	}
+
 	public UrlPathHelper getUrlPathHelper() {
 		return this.urlPathHelper;
 	}
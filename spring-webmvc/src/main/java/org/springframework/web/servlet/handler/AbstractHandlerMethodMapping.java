@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,10 +36,12 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
@@ -87,6 +90,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 	private HandlerMethodMappingNamingStrategy<T> namingStrategy;
 
+	private boolean usePathPatternIndex = false;
+
+	private boolean compileHandlerMethods = false;
+
 	private final MappingRegistry mappingRegistry = new MappingRegistry();
 
 
@@ -120,6 +127,56 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 		return this.namingStrategy;
 	}
 
+	/**
+	 * Whether to index the URL patterns of registered mappings in a trie of
+	 * path segments, so that the lookup of a request that does not match a
+	 * direct (non-pattern) URL only checks mappings whose patterns may match,
+	 * rather than all registered mappings.
+	 * <p>Only patterns consisting of literal and URI variable segments, e.g.
+	 * {@code "/orders/{id}/items"}, are indexed; mappings with any other kind
+	 * of pattern are still checked on every lookup. Patterns are split with
+	 * the path separator and case sensitivity of the configured
+	 * {@link AntPathMatcher}; with any other {@link PathMatcher}, no pattern
+	 * is indexed.
+	 * <p>Default is "false". If changed after handler methods have been
+	 * registered, the index is rebuilt from the registered mappings.
+	 * @since 4.3.25
+	 */
+	public void setUsePathPatternIndex(boolean usePathPatternIndex) {
+		this.mappingRegistry.setUsePathPatternIndex(usePathPatternIndex);
+	}
+
+	/**
+	 * Whether URL patterns are indexed in a trie of path segments.
+	 * @since 4.3.25
+	 */
+	public boolean isUsePathPatternIndex() {
+		return this.usePathPatternIndex;
+	}
+
+	/**
+	 * Whether to generate a bytecode invoker for each handler method as it is
+	 * registered, so that it is invoked without reflection, and to bind each
+	 * method parameter to its argument resolver on first invocation.
+	 * <p>Methods that are not eligible, e.g. non-public methods or methods
+	 * declared on non-public classes, are still invoked through reflection.
+	 * <p>Default is "false". This flag must be set before handler methods
+	 * are registered, i.e. before {@link #afterPropertiesSet()}.
+	 * @since 4.3.25
+	 * @see HandlerMethod#compileInvoker()
+	 */
+	public void setCompileHandlerMethods(boolean compileHandlerMethods) {
+		this.compileHandlerMethods = compileHandlerMethods;
+	}
+
+	/**
+	 * Whether handler methods are compiled into bytecode invokers.
+	 * @since 4.3.25
+	 */
+	public boolean isCompileHandlerMethods() {
+		return this.compileHandlerMethods;
+	}
+
 	/**
 	 * Return a (read-only) map with all mappings and HandlerMethod's.
 	 */
@@ -347,8 +404,13 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			if (this.usePathPatternIndex) {
+				addMatchingMappings(this.mappingRegistry.getMappingsByPatternIndex(lookupPath), matches, request);
+			}
+			else {
+				// No choice but to go through all mappings...
+				addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			}
 		}
 		//如果不为空
 		if (!matches.isEmpty()) {
@@ -488,6 +550,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<String, T>();
 
+		private PathSegmentTrie<T> patternIndex;
+
+		private final List<T> unindexedMappings = new ArrayList<T>();
+
 		private final Map<String, List<HandlerMethod>> nameLookup =
 				new ConcurrentHashMap<String, List<HandlerMethod>>();
 
@@ -512,6 +578,42 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings whose patterns may match the given URL path,
+		 * followed by all mappings with patterns that could not be indexed.
+		 * Not thread-safe.
+		 * @see #acquireReadLock()
+		 * @see #setUsePathPatternIndex(boolean)
+		 */
+		public Collection<T> getMappingsByPatternIndex(String urlPath) {
+			Set<T> candidates = (this.patternIndex != null ?
+					this.patternIndex.getCandidates(urlPath) : new LinkedHashSet<T>());
+			candidates.addAll(this.unindexedMappings);
+			return candidates;
+		}
+
+		/**
+		 * Enable or disable the index of URL patterns, rebuilding it from the
+		 * currently registered mappings.
+		 * @see #setUsePathPatternIndex(boolean)
+		 */
+		public void setUsePathPatternIndex(boolean enabled) {
+			this.readWriteLock.writeLock().lock();
+			try {
+				usePathPatternIndex = enabled;
+				this.patternIndex = null;
+				this.unindexedMappings.clear();
+				if (enabled) {
+					for (T mapping : this.mappingLookup.keySet()) {
+						addToPatternIndex(mapping);
+					}
+				}
+			}
+			finally {
+				this.readWriteLock.writeLock().unlock();
+			}
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -547,6 +649,9 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			try {
 				//创建HandlerMethod实例
 				HandlerMethod handlerMethod = createHandlerMethod(handler, method);
+				if (compileHandlerMethods && !handlerMethod.compileInvoker() && logger.isDebugEnabled()) {
+					logger.debug("Handler method not eligible for compilation, using reflection: " + handlerMethod);
+				}
 				//确定RequestMappingInfo唯一
 				assertUniqueMethodMapping(handlerMethod, mapping);
 
@@ -562,6 +667,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.urlLookup.add(url, mapping);
 				}
 
+				if (usePathPatternIndex) {
+					addToPatternIndex(mapping);
+				}
+
 				String name = null;
 				if (getNamingStrategy() != null) {
 					name = getNamingStrategy().getName(handlerMethod, mapping);
@@ -601,6 +710,44 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return urls;
 		}
 
+		private void addToPatternIndex(T mapping) {
+			if (this.patternIndex == null) {
+				this.patternIndex = createPatternIndex();
+			}
+			Set<String> patterns = getMappingPathPatterns(mapping);
+			if (this.patternIndex == null || patterns.isEmpty()) {
+				this.unindexedMappings.add(mapping);
+				return;
+			}
+			for (String pattern : patterns) {
+				if (!this.patternIndex.isIndexable(pattern)) {
+					this.unindexedMappings.add(mapping);
+					return;
+				}
+			}
+			for (String pattern : patterns) {
+				this.patternIndex.add(pattern, mapping);
+			}
+		}
+
+		private PathSegmentTrie<T> createPatternIndex() {
+			PathMatcher pathMatcher = getPathMatcher();
+			if (pathMatcher instanceof AntPathMatcher) {
+				AntPathMatcher antPathMatcher = (AntPathMatcher) pathMatcher;
+				return new PathSegmentTrie<T>(antPathMatcher.getPathSeparator(),
+						antPathMatcher.isCaseSensitive(), antPathMatcher.isTrimTokens());
+			}
+			return null;
+		}
+
+		private void removeFromPatternIndex(T mapping) {
+			if (!this.unindexedMappings.remove(mapping) && this.patternIndex != null) {
+				for (String pattern : getMappingPathPatterns(mapping)) {
+					this.patternIndex.remove(pattern, mapping);
+				}
+			}
+		}
+
 		private void addMappingName(String name, HandlerMethod handlerMethod) {
 			List<HandlerMethod> oldList = this.nameLookup.get(name);
 			if (oldList == null) {
@@ -650,6 +797,10 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					}
 				}
 
+				if (usePathPatternIndex) {
+					removeFromPatternIndex(definition.getMapping());
+				}
+
 				removeMappingName(definition);
 
 				this.corsLookup.remove(definition.getHandlerMethod());
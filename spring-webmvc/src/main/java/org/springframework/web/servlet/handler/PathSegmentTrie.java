@@ -0,0 +1,252 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * A trie of URL path segments used to narrow down the mappings that need to be
+ * checked for a given lookup path, as an alternative to iterating over all
+ * registered mappings.
+ *
+ * <p>Only patterns made up of literal segments and segments consisting of a
+ * single URI template variable (e.g. {@code "/orders/{id}/items"}) can be
+ * indexed. Callers are expected to keep track of mappings with any other kind
+ * of pattern (e.g. containing {@code "*"}, {@code "?"} or {@code "**"}) and to
+ * check those separately.
+ *
+ * <p>The candidates returned from {@link #getCandidates} are a superset of the
+ * mappings whose patterns match the lookup path: suffix pattern matches and
+ * trailing slashes are accounted for, and URI variable constraints such as
+ * {@code "{id:\\d+}"} are not evaluated. Hence the actual match must still be
+ * performed on each candidate. Candidates are returned in order of specificity,
+ * i.e. with literal segments visited before URI variable segments.
+ *
+ * <p>Patterns and lookup paths are split into segments with the path separator,
+ * case sensitivity and token trimming of the
+ * {@link org.springframework.util.AntPathMatcher} used to match the candidates.
+ *
+ * <p>This class is not thread-safe; access is guarded by the read-write lock
+ * of the {@code MappingRegistry} in {@link AbstractHandlerMethodMapping}.
+ *
+ * @since 4.3.25
+ * @param <T> the mapping type
+ */
+class PathSegmentTrie<T> {
+
+	private final String pathSeparator;
+
+	private final boolean caseSensitive;
+
+	private final boolean trimTokens;
+
+	private final Node<T> root = new Node<T>();
+
+
+	/**
+	 * Create a new {@code PathSegmentTrie} with the defaults of
+	 * {@link org.springframework.util.AntPathMatcher}.
+	 */
+	public PathSegmentTrie() {
+		this("/", true, false);
+	}
+
+	/**
+	 * Create a new {@code PathSegmentTrie}.
+	 * @param pathSeparator the path separator to split patterns and paths with
+	 * @param caseSensitive whether literal segments are matched case-sensitively
+	 * @param trimTokens whether to trim the segments of patterns and paths
+	 */
+	public PathSegmentTrie(String pathSeparator, boolean caseSensitive, boolean trimTokens) {
+		this.pathSeparator = pathSeparator;
+		this.caseSensitive = caseSensitive;
+		this.trimTokens = trimTokens;
+	}
+
+
+	/**
+	 * Whether the given pattern can be indexed, i.e. whether it consists of
+	 * literal and URI variable segments only.
+	 */
+	public boolean isIndexable(String pattern) {
+		if (!StringUtils.hasLength(pattern)) {
+			return false;
+		}
+		for (String segment : tokenize(pattern)) {
+			if (!isVariableSegment(segment) && !isLiteralSegment(segment)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add the given mapping under the given pattern.
+	 * @param pattern the pattern, which must be {@link #isIndexable indexable}
+	 * @param mapping the mapping to add
+	 */
+	public void add(String pattern, T mapping) {
+		Node<T> node = this.root;
+		for (String segment : tokenize(pattern)) {
+			node = (isVariableSegment(segment) ? node.getOrCreateVariableChild() : node.getOrCreateChild(segment));
+		}
+		if (!node.mappings.contains(mapping)) {
+			node.mappings.add(mapping);
+		}
+	}
+
+	/**
+	 * Remove the given mapping from under the given pattern, pruning any
+	 * nodes that become empty.
+	 * @param pattern the pattern the mapping was added with
+	 * @param mapping the mapping to remove
+	 */
+	public void remove(String pattern, T mapping) {
+		remove(this.root, tokenize(pattern), 0, mapping);
+	}
+
+	private boolean remove(Node<T> node, String[] segments, int index, T mapping) {
+		if (index == segments.length) {
+			node.mappings.remove(mapping);
+			return node.isEmpty();
+		}
+		String segment = segments[index];
+		if (isVariableSegment(segment)) {
+			if (node.variableChild != null && remove(node.variableChild, segments, index + 1, mapping)) {
+				node.variableChild = null;
+			}
+		}
+		else if (node.children != null) {
+			Node<T> child = node.children.get(segment);
+			if (child != null && remove(child, segments, index + 1, mapping)) {
+				node.children.remove(segment);
+			}
+		}
+		return node.isEmpty();
+	}
+
+	/**
+	 * Return the mappings whose pattern may match the given lookup path.
+	 * @param lookupPath the lookup path within the current servlet mapping
+	 * @return the candidate mappings, possibly empty but never {@code null}
+	 */
+	public Set<T> getCandidates(String lookupPath) {
+		Set<T> candidates = new LinkedHashSet<T>();
+		collectCandidates(this.root, tokenize(lookupPath), 0, candidates);
+		return candidates;
+	}
+
+	private void collectCandidates(Node<T> node, String[] segments, int index, Collection<T> candidates) {
+		if (index == segments.length) {
+			candidates.addAll(node.mappings);
+			return;
+		}
+		String segment = segments[index];
+		if (node.children != null) {
+			Node<T> child = node.children.get(segment);
+			if (child != null) {
+				collectCandidates(child, segments, index + 1, candidates);
+			}
+			if (index == segments.length - 1) {
+				// Suffix pattern match: "/users" also matches "/users.json"
+				int dotIndex = segment.lastIndexOf('.');
+				while (dotIndex > 0) {
+					child = node.children.get(segment.substring(0, dotIndex));
+					if (child != null) {
+						collectCandidates(child, segments, index + 1, candidates);
+					}
+					dotIndex = segment.lastIndexOf('.', dotIndex - 1);
+				}
+			}
+		}
+		if (node.variableChild != null) {
+			collectCandidates(node.variableChild, segments, index + 1, candidates);
+		}
+	}
+
+
+	private String[] tokenize(String path) {
+		String[] segments = StringUtils.tokenizeToStringArray(path, this.pathSeparator, this.trimTokens, true);
+		if (!this.caseSensitive) {
+			for (int i = 0; i < segments.length; i++) {
+				if (!isVariableSegment(segments[i])) {
+					segments[i] = segments[i].toLowerCase(Locale.ENGLISH);
+				}
+			}
+		}
+		return segments;
+	}
+
+	private static boolean isVariableSegment(String segment) {
+		return (segment.length() > 2 && segment.charAt(0) == '{' &&
+				segment.charAt(segment.length() - 1) == '}' && segment.indexOf('{', 1) == -1);
+	}
+
+	private static boolean isLiteralSegment(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if (c == '*' || c == '?' || c == '{' || c == '}') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private static class Node<T> {
+
+		private final List<T> mappings = new ArrayList<T>(1);
+
+		private Map<String, Node<T>> children;
+
+		private Node<T> variableChild;
+
+		public Node<T> getOrCreateChild(String segment) {
+			if (this.children == null) {
+				this.children = new HashMap<String, Node<T>>(4);
+			}
+			Node<T> child = this.children.get(segment);
+			if (child == null) {
+				child = new Node<T>();
+				this.children.put(segment, child);
+			}
+			return child;
+		}
+
+		public Node<T> getOrCreateVariableChild() {
+			if (this.variableChild == null) {
+				this.variableChild = new Node<T>();
+			}
+			return this.variableChild;
+		}
+
+		public boolean isEmpty() {
+			return (this.mappings.isEmpty() && this.variableChild == null &&
+					(this.children == null || this.children.isEmpty()));
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,6 +42,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.MappedResourceCache;
 import org.springframework.http.converter.ResourceHttpMessageConverter;
 import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
 import org.springframework.http.server.ServletServerHttpRequest;
@@ -121,6 +122,8 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 
 	private ResourceRegionHttpMessageConverter resourceRegionHttpMessageConverter;
 
+	private MappedResourceCache mappedResourceCache;
+
 	private ContentNegotiationManager contentNegotiationManager;
 
 	private PathExtensionContentNegotiationStrategy contentNegotiationStrategy;
@@ -245,6 +248,25 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 		return this.resourceRegionHttpMessageConverter;
 	}
 
+	/**
+	 * Configure a cache of memory-mapped files for the default resource and
+	 * resource region converters to serve small file-based resources from.
+	 * <p>By default no cache is used. Note that this does not apply to
+	 * {@linkplain #setResourceHttpMessageConverter custom converters}.
+	 * @since 4.3.25
+	 */
+	public void setMappedResourceCache(MappedResourceCache mappedResourceCache) {
+		this.mappedResourceCache = mappedResourceCache;
+	}
+
+	/**
+	 * Return the configured cache of memory-mapped files, if any.
+	 * @since 4.3.25
+	 */
+	public MappedResourceCache getMappedResourceCache() {
+		return this.mappedResourceCache;
+	}
+
 	/**
 	 * Configure a {@code ContentNegotiationManager} to help determine the
 	 * media types for resources being served. If the manager contains a path
@@ -320,9 +342,11 @@ public class ResourceHttpRequestHandler extends WebContentGenerator
 
 		if (this.resourceHttpMessageConverter == null) {
 			this.resourceHttpMessageConverter = new ResourceHttpMessageConverter();
+			this.resourceHttpMessageConverter.setMappedResourceCache(this.mappedResourceCache);
 		}
 		if (this.resourceRegionHttpMessageConverter == null) {
 			this.resourceRegionHttpMessageConverter = new ResourceRegionHttpMessageConverter();
+			this.resourceRegionHttpMessageConverter.setMappedResourceCache(this.mappedResourceCache);
 		}
 
 		this.contentNegotiationStrategy = initContentNegotiationStrategy();
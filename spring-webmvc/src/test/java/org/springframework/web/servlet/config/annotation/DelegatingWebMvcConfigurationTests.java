@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -200,6 +200,7 @@ public class DelegatingWebMvcConfigurationTests {
 			public void configurePathMatch(PathMatchConfigurer configurer) {
 				configurer.setUseRegisteredSuffixPatternMatch(true)
 						.setUseTrailingSlashMatch(false)
+						.setUsePathPatternIndex(true)
 						.setUrlPathHelper(pathHelper)
 						.setPathMatcher(pathMatcher);
 			}
@@ -214,6 +215,8 @@ public class DelegatingWebMvcConfigurationTests {
 				true, handlerMapping.useSuffixPatternMatch());
 		assertEquals("PathMatchConfigurer should configure TrailingSlashMatch",
 				false, handlerMapping.useTrailingSlashMatch());
+		assertEquals("PathMatchConfigurer should configure PathPatternIndex",
+				true, handlerMapping.isUsePathPatternIndex());
 		assertEquals("PathMatchConfigurer should configure UrlPathHelper",
 				pathHelper, handlerMapping.getUrlPathHelper());
 		assertEquals("PathMatchConfigurer should configure PathMatcher",
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.web.servlet.handler;
 import static org.junit.Assert.*;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -97,6 +99,67 @@ public class HandlerMethodMappingTests {
 		assertEquals(result, request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE));
 	}
 
+	@Test
+	public void patternMatchWithPathPatternIndex() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new IndexedHandlerMethodMapping();
+		mapping.setUsePathPatternIndex(true);
+		mapping.registerMapping("/orders/{id}", this.handler, this.method1);
+		mapping.registerMapping("/orders/{id}/items", this.handler, this.method2);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1/items");
+		HandlerMethod result = mapping.getHandlerInternal(request);
+		assertEquals(method2, result.getMethod());
+
+		Collection<String> candidates = mapping.getMappingRegistry().getMappingsByPatternIndex("/orders/1");
+		assertEquals(Collections.singletonList("/orders/{id}"), new ArrayList<>(candidates));
+	}
+
+	@Test
+	public void patternMatchWithPathPatternIndexAndUnindexedPattern() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new IndexedHandlerMethodMapping();
+		mapping.setUsePathPatternIndex(true);
+		mapping.registerMapping("/orders/{id}", this.handler, this.method1);
+		mapping.registerMapping("/**/items", this.handler, this.method2);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1/items");
+		HandlerMethod result = mapping.getHandlerInternal(request);
+		assertEquals(method2, result.getMethod());
+
+		mapping.unregisterMapping("/**/items");
+		mapping.unregisterMapping("/orders/{id}");
+		assertTrue(mapping.getMappingRegistry().getMappingsByPatternIndex("/orders/1/items").isEmpty());
+		assertTrue(mapping.getMappingRegistry().getMappingsByPatternIndex("/orders/1").isEmpty());
+	}
+
+	@Test
+	public void patternMatchWithPathPatternIndexEnabledAfterRegistration() throws Exception {
+		AbstractHandlerMethodMapping<String> mapping = new IndexedHandlerMethodMapping();
+		mapping.registerMapping("/orders/{id}", this.handler, this.method1);
+		mapping.registerMapping("/orders/{id}/items", this.handler, this.method2);
+		mapping.setUsePathPatternIndex(true);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1/items");
+		HandlerMethod result = mapping.getHandlerInternal(request);
+		assertEquals(method2, result.getMethod());
+
+		mapping.setUsePathPatternIndex(false);
+		result = mapping.getHandlerInternal(request);
+		assertEquals(method2, result.getMethod());
+	}
+
+	@Test
+	public void patternMatchWithPathPatternIndexAndCaseInsensitivePathMatcher() throws Exception {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		IndexedHandlerMethodMapping mapping = new IndexedHandlerMethodMapping(pathMatcher);
+		mapping.setUsePathPatternIndex(true);
+		mapping.registerMapping("/Orders/{id}", this.handler, this.method1);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1");
+		HandlerMethod result = mapping.getHandlerInternal(request);
+		assertEquals(method1, result.getMethod());
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void ambiguousMatch() throws Exception {
 		this.mapping.registerMapping("/f?o", this.handler, this.method1);
@@ -293,6 +356,54 @@ public class HandlerMethodMappingTests {
 
 	}
 
+	/**
+	 * Variant of {@link MyHandlerMethodMapping} that exposes pattern keys as
+	 * path patterns, matching them with the configured {@link PathMatcher},
+	 * for use with the path pattern index.
+	 */
+	private static class IndexedHandlerMethodMapping extends AbstractHandlerMethodMapping<String> {
+
+		private UrlPathHelper pathHelper = new UrlPathHelper();
+
+
+		public IndexedHandlerMethodMapping() {
+			this(new AntPathMatcher());
+		}
+
+		public IndexedHandlerMethodMapping(PathMatcher pathMatcher) {
+			setPathMatcher(pathMatcher);
+		}
+
+		@Override
+		protected boolean isHandler(Class<?> beanType) {
+			return true;
+		}
+
+		@Override
+		protected String getMappingForMethod(Method method, Class<?> handlerType) {
+			String methodName = method.getName();
+			return methodName.startsWith("handler") ? methodName : null;
+		}
+
+		@Override
+		protected Set<String> getMappingPathPatterns(String key) {
+			return Collections.singleton(key);
+		}
+
+		@Override
+		protected String getMatchingMapping(String pattern, HttpServletRequest request) {
+			String lookupPath = this.pathHelper.getLookupPathForRequest(request);
+			return getPathMatcher().match(pattern, lookupPath) ? pattern : null;
+		}
+
+		@Override
+		protected Comparator<String> getMappingComparator(HttpServletRequest request) {
+			String lookupPath = this.pathHelper.getLookupPathForRequest(request);
+			return getPathMatcher().getPatternComparator(lookupPath);
+		}
+
+	}
+
 	private static class SimpleMappingNamingStrategy implements HandlerMethodMappingNamingStrategy<String> {
 
 		@Override
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PathSegmentTrie}.
+ */
+public class PathSegmentTrieTests {
+
+	private final PathSegmentTrie<String> trie = new PathSegmentTrie<String>();
+
+
+	@Test
+	public void isIndexable() {
+		assertTrue(this.trie.isIndexable("/"));
+		assertTrue(this.trie.isIndexable("/orders"));
+		assertTrue(this.trie.isIndexable("/orders/{id}/items"));
+		assertTrue(this.trie.isIndexable("/orders/{id:\\d+}"));
+		assertTrue(this.trie.isIndexable("/static/app.js"));
+
+		assertFalse(this.trie.isIndexable(""));
+		assertFalse(this.trie.isIndexable("/orders/*"));
+		assertFalse(this.trie.isIndexable("/orders/**"));
+		assertFalse(this.trie.isIndexable("/orders/?"));
+		assertFalse(this.trie.isIndexable("/orders/{id}.{ext}"));
+		assertFalse(this.trie.isIndexable("/orders/order-{id}"));
+		assertFalse(this.trie.isIndexable("/orders/{id:\\d{3}}"));
+	}
+
+	@Test
+	public void literalBeforeVariable() {
+		this.trie.add("/orders/{id}", "var");
+		this.trie.add("/orders/new", "literal");
+		this.trie.add("/orders/{id}/items", "items");
+
+		assertEquals(Arrays.asList("literal", "var"), new ArrayList<>(this.trie.getCandidates("/orders/new")));
+		assertEquals(Collections.singletonList("var"), new ArrayList<>(this.trie.getCandidates("/orders/1")));
+		assertEquals(Collections.singletonList("items"), new ArrayList<>(this.trie.getCandidates("/orders/1/items")));
+		assertTrue(this.trie.getCandidates("/orders").isEmpty());
+		assertTrue(this.trie.getCandidates("/orders/1/items/2").isEmpty());
+	}
+
+	@Test
+	public void suffixAndTrailingSlash() {
+		this.trie.add("/orders", "orders");
+		this.trie.add("/files/a.b", "file");
+
+		assertEquals(Collections.singletonList("orders"), new ArrayList<>(this.trie.getCandidates("/orders.json")));
+		assertEquals(Collections.singletonList("orders"), new ArrayList<>(this.trie.getCandidates("/orders/")));
+		assertEquals(Collections.singletonList("file"), new ArrayList<>(this.trie.getCandidates("/files/a.b.json")));
+	}
+
+	@Test
+	public void duplicateCandidates() {
+		this.trie.add("/orders/{id}", "orders");
+		this.trie.add("/orders/{name}", "orders");
+		this.trie.add("/orders/list", "orders");
+
+		assertEquals(Collections.singletonList("orders"), new ArrayList<>(this.trie.getCandidates("/orders/list")));
+	}
+
+	@Test
+	public void customPathSeparator() {
+		PathSegmentTrie<String> trie = new PathSegmentTrie<>(".", true, false);
+		trie.add("orders.{id}", "var");
+		trie.add("orders.new", "literal");
+
+		assertEquals(Arrays.asList("literal", "var"), new ArrayList<>(trie.getCandidates("orders.new")));
+		assertEquals(Collections.singletonList("var"), new ArrayList<>(trie.getCandidates("orders.1")));
+		assertTrue(trie.getCandidates("orders/new").isEmpty());
+	}
+
+	@Test
+	public void caseInsensitive() {
+		PathSegmentTrie<String> trie = new PathSegmentTrie<>("/", false, false);
+		trie.add("/Orders/{Id}", "var");
+		trie.add("/orders/NEW", "literal");
+
+		assertEquals(Arrays.asList("literal", "var"), new ArrayList<>(trie.getCandidates("/ORDERS/new")));
+		assertEquals(Collections.singletonList("var"), new ArrayList<>(trie.getCandidates("/orders/1")));
+	}
+
+	@Test
+	public void trimTokens() {
+		PathSegmentTrie<String> trie = new PathSegmentTrie<>("/", true, true);
+		trie.add("/orders/{id}", "var");
+
+		assertEquals(Collections.singletonList("var"), new ArrayList<>(trie.getCandidates("/ orders /1")));
+	}
+
+	@Test
+	public void remove() {
+		this.trie.add("/orders/{id}", "var");
+		this.trie.add("/orders/new", "literal");
+
+		this.trie.remove("/orders/new", "literal");
+		assertEquals(Collections.singletonList("var"), new ArrayList<>(this.trie.getCandidates("/orders/new")));
+
+		this.trie.remove("/orders/{id}", "var");
+		assertTrue(this.trie.getCandidates("/orders/new").isEmpty());
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.web.socket.sockjs.support;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Benchmarks for re-scheduling SockJS session heartbeats, i.e. cancelling the
+ * pending heartbeat of a session and scheduling the next one, as done for each
+ * message sent, comparing a {@link ThreadPoolTaskScheduler} with a
+ * {@link HashedWheelTaskScheduler}.
+ */
+@BenchmarkMode(Mode.Throughput)
+public class HashedWheelTaskSchedulerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkData {
+
+		@Param({"threadPool", "wheel"})
+		public String scheduler;
+
+		@Param({"1000", "100000"})
+		public int sessions;
+
+		public TaskScheduler taskScheduler;
+
+		public ScheduledFuture<?>[] heartbeats;
+
+		public final Runnable heartbeatTask = new Runnable() {
+			@Override
+			public void run() {
+			}
+		};
+
+		@Setup(Level.Trial)
+		public void setup() {
+			if ("wheel".equals(this.scheduler)) {
+				this.taskScheduler = new HashedWheelTaskScheduler();
+			}
+			else {
+				ThreadPoolTaskScheduler threadPoolScheduler = new ThreadPoolTaskScheduler();
+				threadPoolScheduler.setPoolSize(Runtime.getRuntime().availableProcessors());
+				threadPoolScheduler.setRemoveOnCancelPolicy(true);
+				threadPoolScheduler.afterPropertiesSet();
+				this.taskScheduler = threadPoolScheduler;
+			}
+			this.heartbeats = new ScheduledFuture<?>[this.sessions];
+			for (int i = 0; i < this.sessions; i++) {
+				this.heartbeats[i] = this.taskScheduler.schedule(this.heartbeatTask, nextHeartbeatTime());
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			if (this.taskScheduler instanceof HashedWheelTaskScheduler) {
+				((HashedWheelTaskScheduler) this.taskScheduler).destroy();
+			}
+			else {
+				((ThreadPoolTaskScheduler) this.taskScheduler).destroy();
+			}
+		}
+
+		public Date nextHeartbeatTime() {
+			return new Date(System.currentTimeMillis() + 25000);
+		}
+	}
+
+
+	@State(Scope.Thread)
+	public static class Counter {
+
+		public int index;
+	}
+
+
+	@Benchmark
+	public ScheduledFuture<?> rescheduleHeartbeat(BenchmarkData data, Counter counter) {
+		counter.index = (counter.index + 1) % data.sessions;
+		data.heartbeats[counter.index].cancel(false);
+		ScheduledFuture<?> future = data.taskScheduler.schedule(data.heartbeatTask, data.nextHeartbeatTime());
+		data.heartbeats[counter.index] = future;
+		return future;
+	}
+
+}
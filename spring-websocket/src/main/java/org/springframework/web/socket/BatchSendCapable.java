@@ -0,0 +1,38 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.socket;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An interface for WebSocket sessions that can send several messages at once,
+ * e.g. in a single transport frame.
+ *
+ * @since 4.3.25
+ * @see WebSocketSession
+ * @see org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator#setCoalesceMessages
+ */
+public interface BatchSendCapable {
+
+	/**
+	 * Send the given messages, in order.
+	 * @param messages the messages to send
+	 */
+	void sendMessages(List<? extends WebSocketMessage<?>> messages) throws IOException;
+
+}
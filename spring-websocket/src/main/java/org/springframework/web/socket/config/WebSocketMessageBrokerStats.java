@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.messaging.simp.SimpSessionLaneExecutor;
 import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
@@ -61,6 +62,8 @@ public class WebSocketMessageBrokerStats {
 
 	private ThreadPoolExecutor inboundChannelExecutor;
 
+	private SimpSessionLaneExecutor inboundChannelLaneExecutor;
+
 	private ThreadPoolExecutor outboundChannelExecutor;
 
 	private ScheduledThreadPoolExecutor sockJsTaskScheduler;
@@ -96,6 +99,16 @@ public class WebSocketMessageBrokerStats {
 		this.inboundChannelExecutor = inboundChannelExecutor.getThreadPoolExecutor();
 	}
 
+	/**
+	 * Set the executor dispatching incoming messages to the lanes of the
+	 * {@link #setInboundChannelExecutor inbound channel executor}, if any,
+	 * in order to include the queue depth of each lane in the stats.
+	 * @since 4.3.25
+	 */
+	public void setInboundChannelLaneExecutor(SimpSessionLaneExecutor inboundChannelLaneExecutor) {
+		this.inboundChannelLaneExecutor = inboundChannelLaneExecutor;
+	}
+
 	public void setOutboundChannelExecutor(ThreadPoolTaskExecutor outboundChannelExecutor) {
 		this.outboundChannelExecutor = outboundChannelExecutor.getThreadPoolExecutor();
 	}
@@ -162,7 +175,23 @@ public class WebSocketMessageBrokerStats {
 	 * Get stats about the executor processing incoming messages from WebSocket clients.
 	 */
 	public String getClientInboundExecutorStatsInfo() {
-		return (this.inboundChannelExecutor != null ? getExecutorStatsInfo(this.inboundChannelExecutor) : "null");
+		if (this.inboundChannelExecutor == null) {
+			return "null";
+		}
+		String info = getExecutorStatsInfo(this.inboundChannelExecutor);
+		return (this.inboundChannelLaneExecutor != null ? info + ", " + this.inboundChannelLaneExecutor : info);
+	}
+
+	/**
+	 * Get the number of messages waiting or being processed in each lane of
+	 * the executor processing incoming messages from WebSocket clients, or
+	 * an empty array if messages are not dispatched to lanes.
+	 * @since 4.3.25
+	 * @see org.springframework.messaging.simp.config.ChannelRegistration#sessionLanes(int)
+	 */
+	public int[] getClientInboundLaneQueueDepths() {
+		return (this.inboundChannelLaneExecutor != null ?
+				this.inboundChannelLaneExecutor.getLaneQueueDepths() : new int[0]);
 	}
 
 	/**
@@ -68,6 +68,8 @@ public class SockJsServiceRegistration {
 
 	private SockJsMessageCodec messageCodec;
 
+	private Boolean timingWheelEnabled;
+
 
 	public SockJsServiceRegistration(TaskScheduler defaultTaskScheduler) {
 		this.taskScheduler = defaultTaskScheduler;
@@ -240,6 +242,19 @@ public class SockJsServiceRegistration {
 		return this;
 	}
 
+	/**
+	 * Whether to schedule heart-beat messages and the check for timed-out
+	 * sessions on a hashed timing wheel, with due tasks run on the TaskScheduler.
+	 * This makes scheduling and cancelling heart-beats O(1) with many sessions.
+	 * <p>The default value is "false".
+	 * @since 4.3.25
+	 * @see TransportHandlingSockJsService#setTimingWheelEnabled
+	 */
+	public SockJsServiceRegistration setTimingWheelEnabled(boolean timingWheelEnabled) {
+		this.timingWheelEnabled = timingWheelEnabled;
+		return this;
+	}
+
 	protected SockJsService getSockJsService() {
 		TransportHandlingSockJsService service = createSockJsService();
 		service.setHandshakeInterceptors(this.interceptors);
@@ -272,6 +287,9 @@ public class SockJsServiceRegistration {
 		if (this.messageCodec != null) {
 			service.setMessageCodec(this.messageCodec);
 		}
+		if (this.timingWheelEnabled != null) {
+			service.setTimingWheelEnabled(this.timingWheelEnabled);
+		}
 		return service;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -79,6 +79,15 @@ public class WebMvcStompEndpointRegistry implements StompEndpointRegistry {
 		if (transportRegistration.getSendBufferSizeLimit() != null) {
 			this.subProtocolWebSocketHandler.setSendBufferSizeLimit(transportRegistration.getSendBufferSizeLimit());
 		}
+		if (transportRegistration.getCoalesceSendMessages() != null) {
+			this.subProtocolWebSocketHandler.setCoalesceSendMessages(transportRegistration.getCoalesceSendMessages());
+		}
+		if (transportRegistration.getSendFlushInterval() != null) {
+			this.subProtocolWebSocketHandler.setSendFlushInterval(transportRegistration.getSendFlushInterval());
+			if (this.subProtocolWebSocketHandler.getTaskScheduler() == null) {
+				this.subProtocolWebSocketHandler.setTaskScheduler(defaultSockJsTaskScheduler);
+			}
+		}
 
 		this.stompHandler = new StompSubProtocolHandler();
 		this.stompHandler.setUserSessionRegistry(userSessionRegistry);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,13 @@
 
 package org.springframework.web.socket.config.annotation;
 
+import java.util.concurrent.Executor;
+
 import org.springframework.beans.factory.config.CustomScopeConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpSessionLaneExecutor;
 import org.springframework.messaging.simp.SimpSessionScope;
 import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
 import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
@@ -27,6 +30,8 @@ import org.springframework.messaging.simp.config.AbstractMessageBrokerConfigurat
 import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
 import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.messaging.simp.user.UserSessionRegistryAdapter;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
@@ -124,6 +129,13 @@ public abstract class WebSocketMessageBrokerConfigurationSupport extends Abstrac
 		stats.setSubProtocolWebSocketHandler((SubProtocolWebSocketHandler) subProtocolWebSocketHandler());
 		stats.setStompBrokerRelay(brokerRelay);
 		stats.setInboundChannelExecutor(clientInboundChannelExecutor());
+		AbstractSubscribableChannel inboundChannel = clientInboundChannel();
+		if (inboundChannel instanceof ExecutorSubscribableChannel) {
+			Executor executor = ((ExecutorSubscribableChannel) inboundChannel).getExecutor();
+			if (executor instanceof SimpSessionLaneExecutor) {
+				stats.setInboundChannelLaneExecutor((SimpSessionLaneExecutor) executor);
+			}
+		}
 		stats.setOutboundChannelExecutor(clientOutboundChannelExecutor());
 		stats.setSockJsTaskScheduler(messageBrokerTaskScheduler());
 		return stats;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,10 @@ public class WebSocketTransportRegistration {
 
 	private Integer sendBufferSizeLimit;
 
+	private Boolean coalesceSendMessages;
+
+	private Integer sendFlushInterval;
+
 	private final List<WebSocketHandlerDecoratorFactory> decoratorFactories =
 			new ArrayList<WebSocketHandlerDecoratorFactory>(2);
 
@@ -145,6 +149,47 @@ public class WebSocketTransportRegistration {
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Whether to send the messages buffered for a session as one batch, which
+	 * SockJS sessions write as a single multi-message frame, rather than one
+	 * message at a time.
+	 * <p>By default this is not enabled.
+	 * @since 4.3.25
+	 */
+	public WebSocketTransportRegistration setCoalesceSendMessages(boolean coalesceSendMessages) {
+		this.coalesceSendMessages = coalesceSendMessages;
+		return this;
+	}
+
+	/**
+	 * Protected accessor for internal use.
+	 */
+	protected Boolean getCoalesceSendMessages() {
+		return this.coalesceSendMessages;
+	}
+
+	/**
+	 * Configure a time (in milliseconds) to buffer messages to a session for
+	 * before they are flushed together, trading a few milliseconds of latency
+	 * for fewer writes on sessions that receive many small messages. Messages
+	 * are then flushed on the message broker task scheduler and always sent
+	 * in batches, see {@link #setCoalesceSendMessages}.
+	 * <p>By default this is 0, i.e. messages are sent immediately.
+	 * @param flushInterval the flush interval in milliseconds
+	 * @since 4.3.25
+	 */
+	public WebSocketTransportRegistration setSendFlushInterval(int flushInterval) {
+		this.sendFlushInterval = flushInterval;
+		return this;
+	}
+
+	/**
+	 * Protected accessor for internal use.
+	 */
+	protected Integer getSendFlushInterval() {
+		return this.sendFlushInterval;
+	}
+
 	/**
 	 * Configure one or more factories to decorate the handler used to process
 	 * WebSocket messages. This may be useful in some advanced use cases, for
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,8 +17,12 @@
 package org.springframework.web.socket.handler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -26,6 +30,9 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+import org.springframework.web.socket.BatchSendCapable;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
@@ -39,6 +46,13 @@ import org.springframework.web.socket.WebSocketSession;
  * At that time, the specified buffer-size limit and send-time limit will be checked
  * and the session will be closed if the limits are exceeded.
  *
+ * <p>If {@link #setCoalesceMessages coalescing} is enabled, the thread holding
+ * the flush lock drains all buffered messages at once and sends them as a batch,
+ * which a {@link BatchSendCapable} session such as a SockJS session writes as a
+ * single multi-message frame. A
+ * {@link #setFlushInterval flush interval} can be configured in addition, to
+ * buffer messages for a short time before they are flushed together.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0.3
@@ -66,6 +80,14 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 
 	private final Lock closeLock = new ReentrantLock();
 
+	private volatile boolean coalesceMessages;
+
+	private volatile int flushInterval;
+
+	private TaskScheduler taskScheduler;
+
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
 
 	/**
 	 * Create a new {@code ConcurrentWebSocketSessionDecorator}.
@@ -96,6 +118,55 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return this.bufferSizeLimit;
 	}
 
+	/**
+	 * Whether to send all buffered messages as one batch when flushing, rather
+	 * than one message at a time. Messages to a {@link BatchSendCapable} session,
+	 * e.g. a SockJS session, are then written in a single frame, while messages
+	 * to other sessions are still sent as separate WebSocket messages, in one
+	 * pass under the flush lock.
+	 * <p>By default this is set to {@code false}.
+	 * @since 4.3.25
+	 */
+	public void setCoalesceMessages(boolean coalesceMessages) {
+		this.coalesceMessages = coalesceMessages;
+	}
+
+	/**
+	 * Whether buffered messages are sent as one batch.
+	 * @since 4.3.25
+	 */
+	public boolean isCoalesceMessages() {
+		return this.coalesceMessages;
+	}
+
+	/**
+	 * Configure a time (milliseconds) to buffer messages for before flushing,
+	 * trading a small amount of latency for fewer, larger writes on sessions
+	 * that send many small messages. Flushing then takes place on a thread of
+	 * the given scheduler rather than in the sending thread, and messages are
+	 * {@link #setCoalesceMessages coalesced}.
+	 * <p>By default this is set to 0, i.e. messages are flushed immediately.
+	 * @param flushInterval the flush interval (milliseconds)
+	 * @param taskScheduler the scheduler to flush messages with
+	 * @since 4.3.25
+	 */
+	public void setFlushInterval(int flushInterval, TaskScheduler taskScheduler) {
+		Assert.isTrue(flushInterval <= 0 || taskScheduler != null, "TaskScheduler is required for a flush interval");
+		this.taskScheduler = taskScheduler;
+		this.flushInterval = flushInterval;
+		if (flushInterval > 0) {
+			this.coalesceMessages = true;
+		}
+	}
+
+	/**
+	 * Return the configured flush interval (milliseconds).
+	 * @since 4.3.25
+	 */
+	public int getFlushInterval() {
+		return this.flushInterval;
+	}
+
 	/**
 	 * Return the current buffer size (number of bytes).
 	 */
@@ -122,6 +193,12 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		this.buffer.add(message);
 		this.bufferSize.addAndGet(message.getPayloadLength());
 
+		if (this.flushInterval > 0) {
+			scheduleFlush();
+			checkSessionLimits();
+			return;
+		}
+
 		do {
 			if (!tryFlushMessageBuffer()) {
 				if (logger.isTraceEnabled()) {
@@ -143,16 +220,7 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 	private boolean tryFlushMessageBuffer() throws IOException {
 		if (this.flushLock.tryLock()) {
 			try {
-				while (true) {
-					WebSocketMessage<?> message = this.buffer.poll();
-					if (message == null || shouldNotSend()) {
-						break;
-					}
-					this.bufferSize.addAndGet(message.getPayloadLength() * -1);
-					this.sendStartTime = System.currentTimeMillis();
-					getDelegate().sendMessage(message);
-					this.sendStartTime = 0;
-				}
+				flushMessageBuffer();
 			}
 			finally {
 				this.sendStartTime = 0;
@@ -163,6 +231,65 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return false;
 	}
 
+	private void flushMessageBuffer() throws IOException {
+		if (this.coalesceMessages) {
+			List<WebSocketMessage<?>> messages = new ArrayList<WebSocketMessage<?>>();
+			while (!shouldNotSend()) {
+				int size = 0;
+				WebSocketMessage<?> message;
+				while ((message = this.buffer.poll()) != null) {
+					messages.add(message);
+					size += message.getPayloadLength();
+				}
+				if (messages.isEmpty()) {
+					break;
+				}
+				this.bufferSize.addAndGet(size * -1);
+				this.sendStartTime = System.currentTimeMillis();
+				sendMessages(messages);
+				this.sendStartTime = 0;
+				messages.clear();
+			}
+		}
+		else {
+			while (true) {
+				WebSocketMessage<?> message = this.buffer.poll();
+				if (message == null || shouldNotSend()) {
+					break;
+				}
+				this.bufferSize.addAndGet(message.getPayloadLength() * -1);
+				this.sendStartTime = System.currentTimeMillis();
+				getDelegate().sendMessage(message);
+				this.sendStartTime = 0;
+			}
+		}
+	}
+
+	/**
+	 * Send a batch of buffered messages to the delegate session, at once if the
+	 * delegate is {@link BatchSendCapable}.
+	 * @param messages the messages to send, in order
+	 * @since 4.3.25
+	 */
+	protected void sendMessages(List<WebSocketMessage<?>> messages) throws IOException {
+		WebSocketSession delegate = getDelegate();
+		if (messages.size() > 1 && delegate instanceof BatchSendCapable) {
+			((BatchSendCapable) delegate).sendMessages(messages);
+		}
+		else {
+			for (WebSocketMessage<?> message : messages) {
+				delegate.sendMessage(message);
+			}
+		}
+	}
+
+	private void scheduleFlush() {
+		if (this.flushScheduled.compareAndSet(false, true)) {
+			Date startTime = new Date(System.currentTimeMillis() + this.flushInterval);
+			this.taskScheduler.schedule(new FlushTask(), startTime);
+		}
+	}
+
 	private void checkSessionLimits() {
 		if (!shouldNotSend() && this.closeLock.tryLock()) {
 			try {
@@ -209,6 +336,28 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 					status = CloseStatus.SESSION_NOT_RELIABLE;
 				}
 			}
+			if (this.flushInterval > 0 && !this.limitExceeded) {
+				// Send messages still waiting for a scheduled flush, e.g. a STOMP ERROR frame,
+				// unless a flush is in progress: no waiting for a slow send to complete
+				if (this.flushLock.tryLock()) {
+					try {
+						flushMessageBuffer();
+					}
+					catch (Throwable ex) {
+						// Close the session regardless, e.g. after a transport failure
+						if (logger.isDebugEnabled()) {
+							logger.debug("Failed to flush messages before closing session '" + getId() + "'", ex);
+						}
+					}
+					finally {
+						this.sendStartTime = 0;
+						this.flushLock.unlock();
+					}
+				}
+				else if (logger.isDebugEnabled()) {
+					logger.debug("Closing session '" + getId() + "' without flushing, a send is in progress");
+				}
+			}
 			this.closeInProgress = true;
 			super.close(status);
 		}
@@ -223,4 +372,49 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return getDelegate().toString();
 	}
 
+
+	/**
+	 * Flushes buffered messages after the flush interval, or re-schedules itself
+	 * if a flush is already in progress.
+	 */
+	private class FlushTask implements Runnable {
+
+		@Override
+		public void run() {
+			if (shouldNotSend()) {
+				flushScheduled.set(false);
+				return;
+			}
+			if (!flushLock.tryLock()) {
+				taskScheduler.schedule(this, new Date(System.currentTimeMillis() + flushInterval));
+				return;
+			}
+			Throwable failure = null;
+			try {
+				// Messages buffered from now on are picked up by another flush
+				flushScheduled.set(false);
+				flushMessageBuffer();
+			}
+			catch (Throwable ex) {
+				failure = ex;
+			}
+			finally {
+				sendStartTime = 0;
+				flushLock.unlock();
+			}
+			if (failure != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to flush messages for session '" + getId() + "'", failure);
+				}
+				limitExceeded = true;
+				try {
+					close(CloseStatus.SESSION_NOT_RELIABLE);
+				}
+				catch (Throwable ex) {
+					// Ignore
+				}
+			}
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.SimpAttributes;
 import org.springframework.messaging.simp.SimpAttributesContextHolder;
+import org.springframework.messaging.simp.SimpBroadcastEncoding;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.stomp.BufferingStompDecoder;
@@ -461,7 +462,7 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 	private void sendToClient(WebSocketSession session, StompHeaderAccessor stompAccessor, byte[] payload) {
 		StompCommand command = stompAccessor.getCommand();
 		try {
-			byte[] bytes = this.stompEncoder.encode(stompAccessor.getMessageHeaders(), payload);
+			byte[] bytes = encode(stompAccessor, payload);
 			boolean useBinary = (payload.length > 0 && !(session instanceof SockJsSession) &&
 					MimeTypeUtils.APPLICATION_OCTET_STREAM.isCompatibleWith(stompAccessor.getContentType()));
 			if (useBinary) {
@@ -494,6 +495,16 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 		}
 	}
 
+	private byte[] encode(StompHeaderAccessor stompAccessor, byte[] payload) {
+		Object broadcastEncoding = stompAccessor.getHeader(SimpMessageHeaderAccessor.BROADCAST_ENCODING_HEADER);
+		// Only with the default encoder: a custom one may override encode(Map, byte[])
+		if (broadcastEncoding instanceof SimpBroadcastEncoding && this.stompEncoder.getClass() == StompEncoder.class) {
+			return this.stompEncoder.encode(stompAccessor.getMessageHeaders(), payload,
+					(SimpBroadcastEncoding) broadcastEncoding);
+		}
+		return this.stompEncoder.encode(stompAccessor.getMessageHeaders(), payload);
+	}
+
 	private StompHeaderAccessor getStompHeaderAccessor(Message<?> message) {
 		MessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, MessageHeaderAccessor.class);
 		if (accessor instanceof StompHeaderAccessor) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,7 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
@@ -96,6 +97,12 @@ public class SubProtocolWebSocketHandler
 
 	private int sendBufferSizeLimit = 512 * 1024;
 
+	private boolean coalesceSendMessages = false;
+
+	private int sendFlushInterval = 0;
+
+	private TaskScheduler taskScheduler;
+
 	private volatile long lastSessionCheckTime = System.currentTimeMillis();
 
 	private final ReentrantLock sessionCheckLock = new ReentrantLock();
@@ -221,6 +228,59 @@ public class SubProtocolWebSocketHandler
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Whether to send buffered messages to a session as one batch.
+	 * @since 4.3.25
+	 * @see ConcurrentWebSocketSessionDecorator#setCoalesceMessages
+	 */
+	public void setCoalesceSendMessages(boolean coalesceSendMessages) {
+		this.coalesceSendMessages = coalesceSendMessages;
+	}
+
+	/**
+	 * Whether buffered messages are sent to a session as one batch.
+	 * @since 4.3.25
+	 */
+	public boolean isCoalesceSendMessages() {
+		return this.coalesceSendMessages;
+	}
+
+	/**
+	 * Specify the time (milliseconds) to buffer messages to a session for
+	 * before flushing them together. Requires a {@link #setTaskScheduler
+	 * TaskScheduler}.
+	 * @since 4.3.25
+	 * @see ConcurrentWebSocketSessionDecorator#setFlushInterval
+	 */
+	public void setSendFlushInterval(int sendFlushInterval) {
+		this.sendFlushInterval = sendFlushInterval;
+	}
+
+	/**
+	 * Return the send flush interval (milliseconds).
+	 * @since 4.3.25
+	 */
+	public int getSendFlushInterval() {
+		return this.sendFlushInterval;
+	}
+
+	/**
+	 * Configure the scheduler to flush buffered messages with, when a
+	 * {@link #setSendFlushInterval send flush interval} is set.
+	 * @since 4.3.25
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Return the configured scheduler, if any.
+	 * @since 4.3.25
+	 */
+	public TaskScheduler getTaskScheduler() {
+		return this.taskScheduler;
+	}
+
 	/**
 	 * Return a String describing internal state and counters.
 	 */
@@ -380,13 +440,21 @@ public class SubProtocolWebSocketHandler
 	 * Decorate the given {@link WebSocketSession}, if desired.
 	 * <p>The default implementation builds a {@link ConcurrentWebSocketSessionDecorator}
 	 * with the configured {@link #getSendTimeLimit() send-time limit} and
-	 * {@link #getSendBufferSizeLimit() buffer-size limit}.
+	 * {@link #getSendBufferSizeLimit() buffer-size limit}, as well as the
+	 * {@link #isCoalesceSendMessages() coalescing} and
+	 * {@link #getSendFlushInterval() flush interval} options.
 	 * @param session the original {@code WebSocketSession}
 	 * @return the decorated {@code WebSocketSession}, or potentially the given session as-is
 	 * @since 4.3.13
 	 */
 	protected WebSocketSession decorateSession(WebSocketSession session) {
-		return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		decorator.setCoalesceMessages(isCoalesceSendMessages());
+		if (getSendFlushInterval() > 0 && getTaskScheduler() != null) {
+			decorator.setFlushInterval(getSendFlushInterval(), getTaskScheduler());
+		}
+		return decorator;
 	}
 
 	/**
@@ -0,0 +1,722 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.socket.sockjs.support;
+
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link TaskScheduler} based on a hashed timing wheel, suited to the large
+ * number of coarse-grained timers of SockJS sessions, i.e. heartbeats and the
+ * periodic check for expired sessions, which are scheduled and cancelled far
+ * more often than they run.
+ *
+ * <p>Tasks are kept in a circular array of buckets, each covering one tick.
+ * Scheduling and cancelling a task is O(1) and only adds the task to a
+ * lock-free queue, compared to O(log n) under a shared lock for the delay queue
+ * of a {@link java.util.concurrent.ScheduledThreadPoolExecutor}, where cancelled
+ * tasks also remain queued until they are due. The trade-off is precision:
+ * tasks run up to one tick late.
+ *
+ * <p>A single worker thread, started with the first task, advances the wheel.
+ * Due tasks run on the configured {@link #setTaskExecutor executor}, or on the
+ * worker thread if none is set, in which case they must not block.
+ *
+ * <p>To use it for SockJS, enable
+ * {@link org.springframework.web.socket.sockjs.transport.TransportHandlingSockJsService#setTimingWheelEnabled
+ * timingWheelEnabled} on {@code DefaultSockJsService}, or through
+ * {@code SockJsServiceRegistration#setTimingWheelEnabled}. The service then
+ * schedules its timers on a wheel of its own, and runs due tasks on its
+ * configured TaskScheduler.
+ *
+ * @since 4.3.25
+ */
+public class HashedWheelTaskScheduler implements TaskScheduler, DisposableBean {
+
+	private static final int SCHEDULED = 0;
+
+	private static final int RUNNING = 1;
+
+	private static final int CANCELLED = 2;
+
+	private static final int DONE = 3;
+
+	/** The maximum number of new tasks moved onto the wheel per tick */
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	private static final AtomicIntegerFieldUpdater<WheelTask> STATE_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(WheelTask.class, "state");
+
+	private static final Log logger = LogFactory.getLog(HashedWheelTaskScheduler.class);
+
+
+	private final long tickNanos;
+
+	private final Bucket[] wheel;
+
+	private final int mask;
+
+	private final long origin = System.nanoTime();
+
+	private final Queue<WheelTask> newTasks = new ConcurrentLinkedQueue<WheelTask>();
+
+	private final Queue<WheelTask> cancelledTasks = new ConcurrentLinkedQueue<WheelTask>();
+
+	private Executor taskExecutor;
+
+	private String threadNamePrefix = "sockjs-wheel-";
+
+	private final Object lifecycleMonitor = new Object();
+
+	private Thread workerThread;
+
+	private volatile boolean shutdown;
+
+	private final AtomicInteger pendingTaskCount = new AtomicInteger();
+
+	private final AtomicLong executedTaskCount = new AtomicLong();
+
+	private final AtomicLong cancelledTaskCount = new AtomicLong();
+
+	private final AtomicLong tickCount = new AtomicLong();
+
+	private final AtomicLong tickTime = new AtomicLong();
+
+
+	/**
+	 * Create a scheduler with a tick duration of 100 milliseconds and a wheel
+	 * of 512 buckets.
+	 */
+	public HashedWheelTaskScheduler() {
+		this(100, 512);
+	}
+
+	/**
+	 * Create a scheduler with the given tick duration and wheel size.
+	 * @param tickDuration the duration of a tick in milliseconds, i.e. the
+	 * precision of the scheduler
+	 * @param wheelSize the number of buckets, rounded up to a power of two;
+	 * tasks due beyond one turn of the wheel are kept for further rounds
+	 */
+	public HashedWheelTaskScheduler(long tickDuration, int wheelSize) {
+		Assert.isTrue(tickDuration > 0, "Tick duration must be greater than 0");
+		Assert.isTrue(wheelSize > 0 && wheelSize <= (1 << 30), "Wheel size must be between 1 and 2^30");
+		int size = 1;
+		while (size < wheelSize) {
+			size <<= 1;
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			this.wheel[i] = new Bucket();
+		}
+		this.mask = size - 1;
+	}
+
+
+	/**
+	 * Configure an executor to run due tasks on.
+	 * <p>By default tasks run on the worker thread of the wheel, which is
+	 * suitable only for tasks that do not block.
+	 */
+	public void setTaskExecutor(Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the configured executor for due tasks, if any.
+	 */
+	public Executor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Configure the name prefix of the worker thread.
+	 * <p>By default this is set to "sockjs-wheel-".
+	 */
+	public void setThreadNamePrefix(String threadNamePrefix) {
+		this.threadNamePrefix = threadNamePrefix;
+	}
+
+	/**
+	 * Return the duration of a tick in milliseconds.
+	 */
+	public long getTickDuration() {
+		return TimeUnit.NANOSECONDS.toMillis(this.tickNanos);
+	}
+
+	/**
+	 * Return the number of buckets of the wheel.
+	 */
+	public int getWheelSize() {
+		return this.wheel.length;
+	}
+
+	/**
+	 * Return the number of tasks waiting for their next execution.
+	 */
+	public int getPendingTaskCount() {
+		return this.pendingTaskCount.get();
+	}
+
+	/**
+	 * Return the number of task executions so far.
+	 */
+	public long getExecutedTaskCount() {
+		return this.executedTaskCount.get();
+	}
+
+	/**
+	 * Return the number of tasks cancelled before their next execution.
+	 */
+	public long getCancelledTaskCount() {
+		return this.cancelledTaskCount.get();
+	}
+
+	/**
+	 * Return the average time in microseconds that the worker thread spends
+	 * per tick on moving tasks onto and off the wheel, and on dispatching due
+	 * tasks, i.e. the overhead of the scheduler.
+	 */
+	public long getAverageTickTime() {
+		long count = this.tickCount.get();
+		return (count > 0 ? TimeUnit.NANOSECONDS.toMicros(this.tickTime.get() / count) : 0);
+	}
+
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+		TriggerTask triggerTask = new TriggerTask(task, trigger);
+		return (triggerTask.scheduleNext() ? triggerTask : null);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+		return schedule(new WheelTask(task, toDeadline(startTime)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+		return schedule(new PeriodicTask(task, toDeadline(startTime), period, true));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+		return schedule(new PeriodicTask(task, elapsedNanos(), period, true));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+		return schedule(new PeriodicTask(task, toDeadline(startTime), delay, false));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+		return schedule(new PeriodicTask(task, elapsedNanos(), delay, false));
+	}
+
+	private WheelTask schedule(WheelTask task) {
+		Assert.notNull(task.task, "Task must not be null");
+		startIfNecessary();
+		this.pendingTaskCount.incrementAndGet();
+		this.newTasks.add(task);
+		return task;
+	}
+
+	private void startIfNecessary() {
+		synchronized (this.lifecycleMonitor) {
+			if (this.shutdown) {
+				throw new TaskRejectedException("Scheduler " + this + " has been shut down");
+			}
+			if (this.workerThread == null) {
+				this.workerThread = new Thread(new Worker(), this.threadNamePrefix + "1");
+				this.workerThread.setDaemon(true);
+				this.workerThread.start();
+			}
+		}
+	}
+
+	private long elapsedNanos() {
+		return System.nanoTime() - this.origin;
+	}
+
+	private long toDeadline(Date time) {
+		long delay = time.getTime() - System.currentTimeMillis();
+		return elapsedNanos() + TimeUnit.MILLISECONDS.toNanos(delay);
+	}
+
+	/**
+	 * Stop the worker thread, discarding all pending tasks.
+	 */
+	@Override
+	public void destroy() {
+		Thread thread;
+		synchronized (this.lifecycleMonitor) {
+			this.shutdown = true;
+			thread = this.workerThread;
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return "tick duration = " + getTickDuration() + " ms, wheel size = " + this.wheel.length +
+				", pending tasks = " + getPendingTaskCount() + ", executed tasks = " + getExecutedTaskCount() +
+				", cancelled tasks = " + getCancelledTaskCount() + ", avg tick time = " + getAverageTickTime() + " us";
+	}
+
+
+	/**
+	 * Advances the wheel one tick at a time, and runs or dispatches due tasks.
+	 */
+	private class Worker implements Runnable {
+
+		private long tick = elapsedNanos() / tickNanos;
+
+		@Override
+		public void run() {
+			while (!shutdown) {
+				long deadline = (this.tick + 1) * tickNanos;
+				if (!waitUntil(deadline)) {
+					break;
+				}
+				long startTime = System.nanoTime();
+				removeCancelledTasks();
+				transferNewTasks();
+				expireTasks(wheel[(int) (this.tick & mask)]);
+				this.tick++;
+				tickCount.incrementAndGet();
+				tickTime.addAndGet(System.nanoTime() - startTime);
+			}
+			for (Bucket bucket : wheel) {
+				bucket.clear();
+			}
+			newTasks.clear();
+			cancelledTasks.clear();
+		}
+
+		private boolean waitUntil(long deadline) {
+			long sleepNanos = deadline - elapsedNanos();
+			while (sleepNanos > 0) {
+				try {
+					Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999999));
+				}
+				catch (InterruptedException ex) {
+					if (shutdown) {
+						return false;
+					}
+				}
+				sleepNanos = deadline - elapsedNanos();
+			}
+			return true;
+		}
+
+		private void removeCancelledTasks() {
+			WheelTask task;
+			while ((task = cancelledTasks.poll()) != null) {
+				if (task.bucket != null) {
+					task.bucket.remove(task);
+				}
+			}
+		}
+
+		private void transferNewTasks() {
+			for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+				WheelTask task = newTasks.poll();
+				if (task == null) {
+					break;
+				}
+				if (task.state != SCHEDULED) {
+					continue;
+				}
+				long dueTick = task.deadline / tickNanos;
+				task.remainingRounds = (dueTick - this.tick) / wheel.length;
+				wheel[(int) (Math.max(dueTick, this.tick) & mask)].add(task);
+			}
+		}
+
+		private void expireTasks(Bucket bucket) {
+			WheelTask task = bucket.head;
+			while (task != null) {
+				WheelTask next = task.next;
+				if (task.state != SCHEDULED) {
+					bucket.remove(task);
+				}
+				else if (task.remainingRounds <= 0) {
+					bucket.remove(task);
+					if (task.compareAndSetState(SCHEDULED, RUNNING)) {
+						pendingTaskCount.decrementAndGet();
+						dispatch(task);
+					}
+				}
+				else {
+					task.remainingRounds--;
+				}
+				task = next;
+			}
+		}
+
+		private void dispatch(WheelTask task) {
+			Executor executor = taskExecutor;
+			if (executor == null) {
+				task.run();
+				return;
+			}
+			try {
+				executor.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				logger.error("Executor rejected task " + task.task, ex);
+				task.complete(ex);
+			}
+		}
+	}
+
+
+	/**
+	 * A doubly linked list of the tasks in one bucket of the wheel, accessed
+	 * only by the worker thread.
+	 */
+	private static class Bucket {
+
+		private WheelTask head;
+
+		private WheelTask tail;
+
+		public void add(WheelTask task) {
+			task.bucket = this;
+			if (this.head == null) {
+				this.head = task;
+				this.tail = task;
+			}
+			else {
+				this.tail.next = task;
+				task.prev = this.tail;
+				this.tail = task;
+			}
+		}
+
+		public void remove(WheelTask task) {
+			if (task.prev != null) {
+				task.prev.next = task.next;
+			}
+			else {
+				this.head = task.next;
+			}
+			if (task.next != null) {
+				task.next.prev = task.prev;
+			}
+			else {
+				this.tail = task.prev;
+			}
+			task.prev = null;
+			task.next = null;
+			task.bucket = null;
+		}
+
+		public void clear() {
+			this.head = null;
+			this.tail = null;
+		}
+	}
+
+
+	/**
+	 * A task on the wheel, and the {@link ScheduledFuture} for it. Run once by
+	 * default, with sub-classes re-scheduling themselves after each run.
+	 */
+	private class WheelTask implements ScheduledFuture<Object>, Runnable {
+
+		protected final Runnable task;
+
+		protected volatile long deadline;
+
+		volatile int state = SCHEDULED;
+
+		private Throwable failure;
+
+		// Accessed by the worker thread only
+		private long remainingRounds;
+
+		private Bucket bucket;
+
+		private WheelTask prev;
+
+		private WheelTask next;
+
+		public WheelTask(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void run() {
+			try {
+				this.task.run();
+				executedTaskCount.incrementAndGet();
+			}
+			catch (Throwable ex) {
+				executedTaskCount.incrementAndGet();
+				if (!handleFailure(ex)) {
+					return;
+				}
+			}
+			afterRun();
+		}
+
+		/**
+		 * Handle a failure of the task.
+		 * @return whether to continue with {@link #afterRun()}
+		 */
+		protected boolean handleFailure(Throwable ex) {
+			complete(ex);
+			return false;
+		}
+
+		protected void afterRun() {
+			complete(null);
+		}
+
+		protected void reschedule(long deadline) {
+			this.deadline = deadline;
+			if (compareAndSetState(RUNNING, SCHEDULED)) {
+				pendingTaskCount.incrementAndGet();
+				if (shutdown) {
+					cancel(false);
+					return;
+				}
+				newTasks.add(this);
+			}
+		}
+
+		protected void complete(Throwable failure) {
+			synchronized (this) {
+				this.failure = failure;
+				if (compareAndSetState(RUNNING, DONE)) {
+					notifyAll();
+				}
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			while (true) {
+				int current = this.state;
+				if (current == CANCELLED || current == DONE) {
+					return false;
+				}
+				if (compareAndSetState(current, CANCELLED)) {
+					if (current == SCHEDULED) {
+						pendingTaskCount.decrementAndGet();
+						cancelledTaskCount.incrementAndGet();
+						cancelledTasks.add(this);
+					}
+					synchronized (this) {
+						notifyAll();
+					}
+					return true;
+				}
+			}
+		}
+
+		protected boolean compareAndSetState(int expect, int update) {
+			return STATE_UPDATER.compareAndSet(this, expect, update);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return (this.state == CANCELLED);
+		}
+
+		@Override
+		public boolean isDone() {
+			int current = this.state;
+			return (current == CANCELLED || current == DONE);
+		}
+
+		@Override
+		public Object get() throws InterruptedException, ExecutionException {
+			synchronized (this) {
+				while (!isDone()) {
+					wait();
+				}
+			}
+			return getResult();
+		}
+
+		@Override
+		public Object get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+
+			long waitUntil = System.nanoTime() + unit.toNanos(timeout);
+			synchronized (this) {
+				while (!isDone()) {
+					long waitNanos = waitUntil - System.nanoTime();
+					if (waitNanos <= 0) {
+						throw new TimeoutException();
+					}
+					TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+				}
+			}
+			return getResult();
+		}
+
+		private Object getResult() throws ExecutionException {
+			if (isCancelled()) {
+				throw new CancellationException();
+			}
+			synchronized (this) {
+				if (this.failure != null) {
+					throw new ExecutionException(this.failure);
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.deadline - elapsedNanos(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (this == other) {
+				return 0;
+			}
+			long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+			return (diff < 0 ? -1 : (diff > 0 ? 1 : 0));
+		}
+	}
+
+
+	/**
+	 * A task run at a fixed rate, or with a fixed delay between runs. Failures
+	 * are logged, and do not stop subsequent runs.
+	 */
+	private class PeriodicTask extends WheelTask {
+
+		private final long periodNanos;
+
+		private final boolean fixedRate;
+
+		public PeriodicTask(Runnable task, long deadline, long period, boolean fixedRate) {
+			super(task, deadline);
+			Assert.isTrue(period > 0, "Period must be greater than 0");
+			this.periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+			this.fixedRate = fixedRate;
+		}
+
+		@Override
+		protected boolean handleFailure(Throwable ex) {
+			logger.error("Unexpected error occurred in scheduled task " + this.task, ex);
+			return true;
+		}
+
+		@Override
+		protected void afterRun() {
+			reschedule(this.fixedRate ? this.deadline + this.periodNanos : elapsedNanos() + this.periodNanos);
+		}
+	}
+
+
+	/**
+	 * A task run at the times given by a {@link Trigger}. Failures are logged,
+	 * and do not stop subsequent runs.
+	 */
+	private class TriggerTask extends WheelTask {
+
+		private final Trigger trigger;
+
+		private final SimpleTriggerContext triggerContext = new SimpleTriggerContext();
+
+		private Date scheduledTime;
+
+		public TriggerTask(Runnable task, Trigger trigger) {
+			super(task, 0);
+			Assert.notNull(trigger, "Trigger must not be null");
+			this.trigger = trigger;
+			this.state = RUNNING;
+		}
+
+		/**
+		 * Schedule the next run, if any.
+		 * @return {@code false} if the trigger has no next execution time
+		 */
+		public boolean scheduleNext() {
+			this.scheduledTime = this.trigger.nextExecutionTime(this.triggerContext);
+			if (this.scheduledTime == null) {
+				complete(null);
+				return false;
+			}
+			long deadline = toDeadline(this.scheduledTime);
+			if (this.triggerContext.lastScheduledExecutionTime() == null) {
+				this.deadline = deadline;
+				this.state = SCHEDULED;
+				schedule(this);
+			}
+			else {
+				reschedule(deadline);
+			}
+			return true;
+		}
+
+		@Override
+		public void run() {
+			Date actualTime = new Date();
+			super.run();
+			this.triggerContext.update(this.scheduledTime, actualTime, new Date());
+			scheduleNext();
+		}
+
+		@Override
+		protected boolean handleFailure(Throwable ex) {
+			logger.error("Unexpected error occurred in scheduled task " + this.task, ex);
+			return true;
+		}
+
+		@Override
+		protected void afterRun() {
+			// Scheduled in run(), once the trigger context is updated
+		}
+	}
+
+}
@@ -21,11 +21,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
 
 import org.springframework.context.Lifecycle;
@@ -46,6 +48,7 @@ import org.springframework.web.socket.sockjs.SockJsException;
 import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
 import org.springframework.web.socket.sockjs.frame.SockJsMessageCodec;
 import org.springframework.web.socket.sockjs.support.AbstractSockJsService;
+import org.springframework.web.socket.sockjs.support.HashedWheelTaskScheduler;
 
 /**
  * A basic implementation of {@link org.springframework.web.socket.sockjs.SockJsService}
@@ -78,6 +81,10 @@ public class TransportHandlingSockJsService extends AbstractSockJsService implem
 
 	private ScheduledFuture<?> sessionCleanupTask;
 
+	private boolean timingWheelEnabled = false;
+
+	private volatile HashedWheelTaskScheduler timingWheel;
+
 	private volatile boolean running;
 
 
@@ -155,6 +162,79 @@ public class TransportHandlingSockJsService extends AbstractSockJsService implem
 		return this.interceptors;
 	}
 
+	/**
+	 * Whether to schedule heart-beat messages and the check for timed-out
+	 * sessions on a {@link HashedWheelTaskScheduler} owned by this service,
+	 * rather than directly on the configured TaskScheduler. Scheduling and
+	 * cancelling a heart-beat is then O(1), which pays off with many sessions,
+	 * at the cost of heart-beats being sent up to 100 milliseconds late.
+	 * <p>Due tasks are still run by the configured TaskScheduler. The wheel is
+	 * only used while this service is {@linkplain #isRunning() running}: it is
+	 * started on demand and shut down when this service is {@linkplain #stop()
+	 * stopped}. Otherwise tasks are scheduled on the configured TaskScheduler.
+	 * <p>The default value is "false".
+	 * @since 4.3.25
+	 */
+	public void setTimingWheelEnabled(boolean timingWheelEnabled) {
+		this.timingWheelEnabled = timingWheelEnabled;
+	}
+
+	/**
+	 * Whether heart-beats and the check for timed-out sessions are scheduled
+	 * on a timing wheel.
+	 * @since 4.3.25
+	 */
+	public boolean isTimingWheelEnabled() {
+		return this.timingWheelEnabled;
+	}
+
+	/**
+	 * Return the scheduler for heart-beat messages and the check for timed-out
+	 * sessions, i.e. the timing wheel if {@linkplain #setTimingWheelEnabled enabled}
+	 * and this service is running, which exposes statistics on the number of
+	 * scheduled tasks and the time spent per tick, or the configured TaskScheduler
+	 * otherwise.
+	 */
+	@Override
+	public TaskScheduler getTaskScheduler() {
+		if (!this.timingWheelEnabled || !isRunning()) {
+			return super.getTaskScheduler();
+		}
+		HashedWheelTaskScheduler wheel = this.timingWheel;
+		if (wheel == null) {
+			synchronized (this.sessions) {
+				if (!isRunning()) {
+					// Stopped in the meantime: no wheel that would never be shut down
+					return super.getTaskScheduler();
+				}
+				wheel = this.timingWheel;
+				if (wheel == null) {
+					wheel = createTimingWheel();
+					this.timingWheel = wheel;
+				}
+			}
+		}
+		return wheel;
+	}
+
+	private HashedWheelTaskScheduler createTimingWheel() {
+		final TaskScheduler scheduler = super.getTaskScheduler();
+		HashedWheelTaskScheduler wheel = new HashedWheelTaskScheduler();
+		wheel.setThreadNamePrefix(getName() + "-wheel-");
+		if (scheduler instanceof Executor) {
+			wheel.setTaskExecutor((Executor) scheduler);
+		}
+		else {
+			wheel.setTaskExecutor(new Executor() {
+				@Override
+				public void execute(Runnable task) {
+					scheduler.schedule(task, new Date());
+				}
+			});
+		}
+		return wheel;
+	}
+
 
 	@Override
 	public void start() {
@@ -177,6 +257,18 @@ public class TransportHandlingSockJsService extends AbstractSockJsService implem
 					((Lifecycle) handler).stop();
 				}
 			}
+			shutdownTimingWheel();
+		}
+	}
+
+	private void shutdownTimingWheel() {
+		synchronized (this.sessions) {
+			HashedWheelTaskScheduler wheel = this.timingWheel;
+			if (wheel != null) {
+				this.timingWheel = null;
+				this.sessionCleanupTask = null;
+				wheel.destroy();
+			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -277,8 +277,13 @@ public abstract class AbstractHttpSockJsSession extends AbstractSockJsSession {
 
 	@Override
 	protected final void sendMessageInternal(String message) throws SockJsTransportFailureException {
+		sendMessagesInternal(message);
+	}
+
+	@Override
+	protected final void sendMessagesInternal(String... messages) throws SockJsTransportFailureException {
 		synchronized (this.responseLock) {
-			this.messageCache.add(message);
+			Collections.addAll(this.messageCache, messages);
 			if (logger.isTraceEnabled()) {
 				logger.trace(this.messageCache.size() + " message(s) to flush in session " + this.getId());
 			}
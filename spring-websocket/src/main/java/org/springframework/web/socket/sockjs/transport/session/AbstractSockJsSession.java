@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.NestedExceptionUtils;
 import org.springframework.util.Assert;
+import org.springframework.web.socket.BatchSendCapable;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketHandler;
@@ -50,7 +51,7 @@ import org.springframework.web.socket.sockjs.transport.SockJsSession;
  * @author Sam Brannen
  * @since 4.0
  */
-public abstract class AbstractSockJsSession implements SockJsSession {
+public abstract class AbstractSockJsSession implements SockJsSession, BatchSendCapable {
 
 	private enum State {NEW, OPEN, CLOSED}
 
@@ -162,8 +163,37 @@ public abstract class AbstractSockJsSession implements SockJsSession {
 		sendMessageInternal(((TextMessage) message).getPayload());
 	}
 
+	/**
+	 * Send the given messages, in a single SockJS frame if the transport allows.
+	 * @param messages the text messages to send
+	 * @since 4.3.25
+	 * @see org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator#setCoalesceMessages
+	 */
+	@Override
+	public void sendMessages(List<? extends WebSocketMessage<?>> messages) throws IOException {
+		Assert.state(!isClosed(), "Cannot send a message when session is closed");
+		String[] payloads = new String[messages.size()];
+		for (int i = 0; i < payloads.length; i++) {
+			WebSocketMessage<?> message = messages.get(i);
+			Assert.isInstanceOf(TextMessage.class, message, "SockJS supports text messages only");
+			payloads[i] = ((TextMessage) message).getPayload();
+		}
+		sendMessagesInternal(payloads);
+	}
+
 	protected abstract void sendMessageInternal(String message) throws IOException;
 
+	/**
+	 * Send the given messages. The default implementation sends them one at
+	 * a time, subclasses can override this to write them in a single frame.
+	 * @since 4.3.25
+	 */
+	protected void sendMessagesInternal(String... messages) throws IOException {
+		for (String message : messages) {
+			sendMessageInternal(message);
+		}
+	}
+
 
 	// Lifecycle related methods
 
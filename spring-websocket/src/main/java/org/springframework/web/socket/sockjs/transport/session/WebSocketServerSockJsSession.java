@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.security.Principal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
@@ -197,19 +198,24 @@ public class WebSocketServerSockJsSession extends AbstractSockJsSession implemen
 
 	@Override
 	public void sendMessageInternal(String message) throws SockJsTransportFailureException {
+		sendMessagesInternal(message);
+	}
+
+	@Override
+	protected void sendMessagesInternal(String... messages) throws SockJsTransportFailureException {
 		// Open frame not sent yet?
 		// If in the session initialization thread, then cache, otherwise wait.
 		if (!this.openFrameSent) {
 			synchronized (this.initSessionLock) {
 				if (!this.openFrameSent) {
-					this.initSessionCache.add(message);
+					this.initSessionCache.addAll(Arrays.asList(messages));
 					return;
 				}
 			}
 		}
 
 		cancelHeartbeat();
-		writeFrame(SockJsFrame.messageFrame(getMessageCodec(), message));
+		writeFrame(SockJsFrame.messageFrame(getMessageCodec(), messages));
 		scheduleHeartbeat();
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,9 @@
 package org.springframework.web.socket.handler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -24,6 +27,8 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.BatchSendCapable;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
@@ -238,6 +243,241 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 	}
 
 
+	@Test
+	public void coalesceMessagesAfterBlockedSend() throws Exception {
+
+		CountDownLatch sendStartedLatch = new CountDownLatch(1);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		TestWebSocketSession session = new TestWebSocketSession() {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) throws IOException {
+				super.sendMessage(message);
+				if (getSentMessages().size() == 1) {
+					sendStartedLatch.countDown();
+					try {
+						releaseLatch.await(5, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException ex) {
+						throw new IllegalStateException(ex);
+					}
+				}
+			}
+		};
+		session.setOpen(true);
+
+		final BatchRecordingSessionDecorator concurrentSession =
+				new BatchRecordingSessionDecorator(session, 10 * 1000, 1024);
+		concurrentSession.setCoalesceMessages(true);
+
+		Executors.newSingleThreadExecutor().submit((Runnable) () -> {
+			try {
+				concurrentSession.sendMessage(new TextMessage("slow message"));
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+
+		assertTrue(sendStartedLatch.await(5, TimeUnit.SECONDS));
+
+		for (int i = 0; i < 3; i++) {
+			concurrentSession.sendMessage(new TextMessage("payload" + i));
+		}
+		assertEquals(1, session.getSentMessages().size());
+		releaseLatch.countDown();
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (concurrentSession.getBufferSize() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50);
+		assertEquals(Arrays.asList(1, 3), concurrentSession.batchSizes);
+		assertEquals(4, session.getSentMessages().size());
+		assertEquals(new TextMessage("payload2"), session.getSentMessages().get(3));
+	}
+
+	@Test
+	public void flushInterval() throws Exception {
+
+		TestWebSocketSession session = new TestWebSocketSession();
+		session.setOpen(true);
+
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		try {
+			BatchRecordingSessionDecorator concurrentSession =
+					new BatchRecordingSessionDecorator(session, 1000, 1024);
+			concurrentSession.setFlushInterval(50, scheduler);
+			assertTrue(concurrentSession.isCoalesceMessages());
+
+			for (int i = 0; i < 3; i++) {
+				concurrentSession.sendMessage(new TextMessage("payload" + i));
+			}
+			assertEquals(0, session.getSentMessages().size());
+			assertEquals(3 * 8, concurrentSession.getBufferSize());
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (session.getSentMessages().size() < 3 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(Arrays.asList(new TextMessage("payload0"), new TextMessage("payload1"),
+					new TextMessage("payload2")), session.getSentMessages());
+			assertEquals(Arrays.asList(3), concurrentSession.batchSizes);
+			assertEquals(0, concurrentSession.getBufferSize());
+		}
+		finally {
+			scheduler.destroy();
+		}
+	}
+
+	@Test
+	public void closeFlushesMessagesWithFlushInterval() throws Exception {
+
+		TestWebSocketSession session = new TestWebSocketSession();
+		session.setOpen(true);
+
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		try {
+			ConcurrentWebSocketSessionDecorator concurrentSession =
+					new ConcurrentWebSocketSessionDecorator(session, 1000, 1024);
+			concurrentSession.setFlushInterval(60 * 1000, scheduler);
+
+			concurrentSession.sendMessage(new TextMessage("error"));
+			concurrentSession.close(CloseStatus.PROTOCOL_ERROR);
+
+			assertEquals(Arrays.asList(new TextMessage("error")), session.getSentMessages());
+			assertEquals(CloseStatus.PROTOCOL_ERROR, session.getCloseStatus());
+		}
+		finally {
+			scheduler.destroy();
+		}
+	}
+
+
+	@Test
+	public void closeWithFlushIntervalDoesNotWaitForSlowSend() throws Exception {
+
+		CountDownLatch sendStartedLatch = new CountDownLatch(1);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		TestWebSocketSession session = new TestWebSocketSession() {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) throws IOException {
+				super.sendMessage(message);
+				sendStartedLatch.countDown();
+				try {
+					releaseLatch.await(5, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		};
+		session.setOpen(true);
+
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		try {
+			ConcurrentWebSocketSessionDecorator concurrentSession =
+					new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+			concurrentSession.setFlushInterval(10, scheduler);
+			concurrentSession.sendMessage(new TextMessage("slow message"));
+			assertTrue(sendStartedLatch.await(5, TimeUnit.SECONDS));
+
+			long start = System.currentTimeMillis();
+			concurrentSession.close(CloseStatus.GOING_AWAY);
+			assertTrue(System.currentTimeMillis() - start < 1000);
+			assertEquals(CloseStatus.GOING_AWAY, session.getCloseStatus());
+		}
+		finally {
+			releaseLatch.countDown();
+			scheduler.destroy();
+		}
+	}
+
+	@Test
+	public void closeWithFlushIntervalClosesDelegateAfterFailedSend() throws Exception {
+
+		TestWebSocketSession session = new TestWebSocketSession() {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) throws IOException {
+				throw new IllegalStateException("Cannot send a message when session is closed");
+			}
+		};
+		session.setOpen(true);
+
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		try {
+			ConcurrentWebSocketSessionDecorator concurrentSession =
+					new ConcurrentWebSocketSessionDecorator(session, 1000, 1024);
+			concurrentSession.setFlushInterval(60 * 1000, scheduler);
+
+			concurrentSession.sendMessage(new TextMessage("error"));
+			concurrentSession.close(CloseStatus.PROTOCOL_ERROR);
+
+			assertFalse(session.isOpen());
+			assertEquals(CloseStatus.PROTOCOL_ERROR, session.getCloseStatus());
+		}
+		finally {
+			scheduler.destroy();
+		}
+	}
+
+	@Test
+	public void sendBatchToBatchSendCapableSession() throws Exception {
+
+		BatchSendCapableSession session = new BatchSendCapableSession();
+		session.setOpen(true);
+
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.afterPropertiesSet();
+		try {
+			ConcurrentWebSocketSessionDecorator concurrentSession =
+					new ConcurrentWebSocketSessionDecorator(session, 1000, 1024);
+			concurrentSession.setFlushInterval(60 * 1000, scheduler);
+			concurrentSession.sendMessage(new TextMessage("payload0"));
+			concurrentSession.sendMessage(new TextMessage("payload1"));
+			concurrentSession.close(CloseStatus.NORMAL);
+
+			assertEquals(Arrays.asList(2), session.batchSizes);
+			assertEquals(2, session.getSentMessages().size());
+		}
+		finally {
+			scheduler.destroy();
+		}
+	}
+
+
+	private static class BatchSendCapableSession extends TestWebSocketSession implements BatchSendCapable {
+
+		private final List<Integer> batchSizes = new ArrayList<>();
+
+		@Override
+		public void sendMessages(List<? extends WebSocketMessage<?>> messages) throws IOException {
+			this.batchSizes.add(messages.size());
+			for (WebSocketMessage<?> message : messages) {
+				sendMessage(message);
+			}
+		}
+	}
+
+
+	private static class BatchRecordingSessionDecorator extends ConcurrentWebSocketSessionDecorator {
+
+		private final List<Integer> batchSizes = new ArrayList<>();
+
+		public BatchRecordingSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit) {
+			super(delegate, sendTimeLimit, bufferSizeLimit);
+		}
+
+		@Override
+		protected void sendMessages(List<WebSocketMessage<?>> messages) throws IOException {
+			this.batchSizes.add(messages.size());
+			super.sendMessages(messages);
+		}
+	}
+
 
 	private static class BlockingSession extends TestWebSocketSession {
 
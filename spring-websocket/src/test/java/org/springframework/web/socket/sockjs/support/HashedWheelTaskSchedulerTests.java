@@ -0,0 +1,265 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.socket.sockjs.support;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HashedWheelTaskScheduler}.
+ */
+public class HashedWheelTaskSchedulerTests {
+
+	private final HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler(5, 8);
+
+
+	@After
+	public void destroy() {
+		this.scheduler.destroy();
+	}
+
+
+	@Test
+	public void wheelSizeRoundedToPowerOfTwo() {
+		assertEquals(16, new HashedWheelTaskScheduler(10, 9).getWheelSize());
+		assertEquals(8, this.scheduler.getWheelSize());
+		assertEquals(5, this.scheduler.getTickDuration());
+	}
+
+	@Test
+	public void schedule() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		long startTime = System.currentTimeMillis();
+		ScheduledFuture<?> future = this.scheduler.schedule(new LatchTask(latch), new Date(startTime + 20));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - startTime >= 20);
+		assertNull(future.get(5, TimeUnit.SECONDS));
+		assertTrue(future.isDone());
+		assertEquals(1, this.scheduler.getExecutedTaskCount());
+		assertEquals(0, this.scheduler.getPendingTaskCount());
+	}
+
+	@Test
+	public void scheduleBeyondOneRoundOfTheWheel() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		long startTime = System.currentTimeMillis();
+		this.scheduler.schedule(new LatchTask(latch), new Date(startTime + 120));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - startTime >= 120);
+	}
+
+	@Test
+	public void scheduleInThePast() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		this.scheduler.schedule(new LatchTask(latch), new Date(System.currentTimeMillis() - 1000));
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cancel() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		ScheduledFuture<?> future = this.scheduler.schedule(new LatchTask(latch), new Date(System.currentTimeMillis() + 50));
+
+		assertEquals(1, this.scheduler.getPendingTaskCount());
+		assertTrue(future.cancel(false));
+		assertFalse(future.cancel(false));
+
+		assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+		assertTrue(future.isCancelled());
+		assertTrue(future.isDone());
+		assertEquals(0, this.scheduler.getPendingTaskCount());
+		assertEquals(1, this.scheduler.getCancelledTaskCount());
+		assertEquals(0, this.scheduler.getExecutedTaskCount());
+	}
+
+	@Test(expected = CancellationException.class)
+	public void getAfterCancel() throws Exception {
+		ScheduledFuture<?> future = this.scheduler.schedule(new LatchTask(new CountDownLatch(1)), new Date());
+		future.cancel(false);
+		future.get();
+	}
+
+	@Test
+	public void failedTask() throws Exception {
+		ScheduledFuture<?> future = this.scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("Expected failure");
+			}
+		}, new Date());
+
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertEquals("Expected failure", ex.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void scheduleAtFixedRate() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.scheduleAtFixedRate(new LatchTask(latch), 10);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertFalse(future.isDone());
+
+		future.cancel(false);
+		long executed = this.scheduler.getExecutedTaskCount();
+		Thread.sleep(50);
+		assertTrue(this.scheduler.getExecutedTaskCount() <= executed + 1);
+	}
+
+	@Test
+	public void scheduleWithFixedDelayContinuesAfterFailure() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = this.scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				latch.countDown();
+				throw new IllegalStateException("Expected failure");
+			}
+		}, 10);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		future.cancel(false);
+	}
+
+	@Test
+	public void scheduleWithTrigger() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		final List<Date> completionTimes = new ArrayList<Date>();
+		ScheduledFuture<?> future = this.scheduler.schedule(new LatchTask(latch), new Trigger() {
+			@Override
+			public Date nextExecutionTime(TriggerContext context) {
+				completionTimes.add(context.lastCompletionTime());
+				return (completionTimes.size() <= 3 ? new Date(System.currentTimeMillis() + 10) : null);
+			}
+		});
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertNull(future.get(5, TimeUnit.SECONDS));
+		assertEquals(4, completionTimes.size());
+		assertNull(completionTimes.get(0));
+		assertNotNull(completionTimes.get(3));
+	}
+
+	@Test
+	public void scheduleWithTriggerWithoutExecutionTime() {
+		assertNull(this.scheduler.schedule(new LatchTask(new CountDownLatch(1)), new Trigger() {
+			@Override
+			public Date nextExecutionTime(TriggerContext context) {
+				return null;
+			}
+		}));
+	}
+
+	@Test
+	public void taskExecutor() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			this.scheduler.setTaskExecutor(executor);
+			final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+			ScheduledFuture<?> future = this.scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					thread.set(Thread.currentThread());
+				}
+			}, new Date());
+
+			future.get(5, TimeUnit.SECONDS);
+			assertFalse(thread.get().getName().startsWith("sockjs-wheel-"));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void manyTasksScheduledAndCancelled() throws Exception {
+		final AtomicInteger count = new AtomicInteger();
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				count.incrementAndGet();
+			}
+		};
+		List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+		Date time = new Date(System.currentTimeMillis() + 500);
+		for (int i = 0; i < 10000; i++) {
+			futures.add(this.scheduler.schedule(task, time));
+		}
+		for (int i = 0; i < futures.size(); i += 2) {
+			futures.get(i).cancel(false);
+		}
+		for (ScheduledFuture<?> future : futures) {
+			if (!future.isCancelled()) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+		}
+
+		assertEquals(5000, count.get());
+		assertEquals(5000, this.scheduler.getCancelledTaskCount());
+		assertEquals(0, this.scheduler.getPendingTaskCount());
+		assertTrue(this.scheduler.toString().contains("pending tasks = 0, executed tasks = 5000"));
+	}
+
+	@Test(expected = TaskRejectedException.class)
+	public void scheduleAfterDestroy() {
+		this.scheduler.destroy();
+		this.scheduler.schedule(new LatchTask(new CountDownLatch(1)), new Date());
+	}
+
+
+	private static class LatchTask implements Runnable {
+
+		private final CountDownLatch latch;
+
+		public LatchTask(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public void run() {
+			this.latch.countDown();
+		}
+	}
+
+}
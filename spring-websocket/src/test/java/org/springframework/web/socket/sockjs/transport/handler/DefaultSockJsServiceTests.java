@@ -18,21 +18,28 @@ package org.springframework.web.socket.sockjs.transport.handler;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.AbstractHttpRequestTests;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.handler.TestPrincipal;
 import org.springframework.web.socket.server.HandshakeHandler;
 import org.springframework.web.socket.server.support.OriginHandshakeInterceptor;
+import org.springframework.web.socket.sockjs.support.HashedWheelTaskScheduler;
 import org.springframework.web.socket.sockjs.transport.SockJsSessionFactory;
 import org.springframework.web.socket.sockjs.transport.TransportHandler;
 import org.springframework.web.socket.sockjs.transport.TransportHandlingSockJsService;
@@ -139,6 +146,86 @@ public class DefaultSockJsServiceTests extends AbstractHttpRequestTests {
 		assertEquals(2, actualHandlers.size());
 	}
 
+	@Test
+	public void timingWheel() throws Exception {
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setThreadNamePrefix("sockjs-test-");
+		scheduler.afterPropertiesSet();
+		try {
+			DefaultSockJsService service = new DefaultSockJsService(scheduler);
+			service.setTimingWheelEnabled(true);
+			assertSame(scheduler, service.getTaskScheduler());
+			service.start();
+
+			TaskScheduler wheel = service.getTaskScheduler();
+			assertTrue(wheel instanceof HashedWheelTaskScheduler);
+			assertSame(wheel, service.getTaskScheduler());
+
+			final CountDownLatch latch = new CountDownLatch(1);
+			final AtomicReference<String> threadName = new AtomicReference<String>();
+			wheel.schedule(new Runnable() {
+				@Override
+				public void run() {
+					threadName.set(Thread.currentThread().getName());
+					latch.countDown();
+				}
+			}, new Date(System.currentTimeMillis() + 10));
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertTrue(threadName.get().startsWith("sockjs-test-"));
+
+			service.stop();
+			try {
+				wheel.schedule(new Runnable() {
+					@Override
+					public void run() {
+					}
+				}, new Date());
+				fail("Expected TaskRejectedException");
+			}
+			catch (TaskRejectedException ex) {
+				// expected: shut down
+			}
+			assertSame(scheduler, service.getTaskScheduler());
+
+			service.start();
+			assertNotSame(wheel, service.getTaskScheduler());
+			service.stop();
+		}
+		finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void handleTransportRequestXhrWithTimingWheel() throws Exception {
+		this.service.setTimingWheelEnabled(true);
+		this.service.start();
+		String sockJsPath = sessionUrlPrefix + "xhr";
+		setRequest("POST", sockJsPrefix + sockJsPath);
+		this.service.handleRequest(this.request, this.response, sockJsPath, this.wsHandler);
+
+		assertEquals(200, this.servletResponse.getStatus());
+		verify(this.xhrHandler).handleRequest(this.request, this.response, this.wsHandler, this.session);
+		verifyZeroInteractions(this.taskScheduler);
+		assertEquals(1, ((HashedWheelTaskScheduler) this.service.getTaskScheduler()).getPendingTaskCount());
+		this.service.stop();
+	}
+
+	@Test
+	public void noTimingWheelCreatedAfterStop() throws Exception {
+		this.service.setTimingWheelEnabled(true);
+		this.service.start();
+		this.service.stop();
+
+		// E.g. a lingering session rescheduling its heart-beat
+		assertSame(this.taskScheduler, this.service.getTaskScheduler());
+
+		String sockJsPath = sessionUrlPrefix + "xhr";
+		setRequest("POST", sockJsPrefix + sockJsPath);
+		this.service.handleRequest(this.request, this.response, sockJsPath, this.wsHandler);
+		verify(this.taskScheduler).scheduleAtFixedRate(any(Runnable.class), eq(this.service.getDisconnectDelay()));
+	}
+
 	@Test
 	public void handleTransportRequestXhr() throws Exception {
 		String sockJsPath = sessionUrlPrefix + "xhr";
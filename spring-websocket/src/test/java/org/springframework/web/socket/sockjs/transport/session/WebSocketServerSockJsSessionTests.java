@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -134,6 +134,18 @@ public class WebSocketServerSockJsSessionTests extends AbstractSockJsSessionTest
 		assertEquals(Arrays.asList("schedule", "cancel", "schedule"), this.session.heartbeatSchedulingEvents);
 	}
 
+	@Test
+	public void sendMessages() throws Exception {
+
+		this.session.initializeDelegateSession(this.webSocketSession);
+		this.session.sendMessages(Arrays.asList(new TextMessage("x"), new TextMessage("y")));
+
+		assertEquals(Arrays.asList(new TextMessage("o"), new TextMessage("a[\"x\",\"y\"]")),
+				this.webSocketSession.getSentMessages());
+
+		assertEquals(Arrays.asList("schedule", "cancel", "schedule"), this.session.heartbeatSchedulingEvents);
+	}
+
 	@Test
 	public void disconnect() throws Exception {
 